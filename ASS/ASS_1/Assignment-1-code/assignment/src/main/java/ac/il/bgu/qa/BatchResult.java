@@ -0,0 +1,61 @@
+package ac.il.bgu.qa;
+
+import java.util.*;
+
+/**
+ * Represents the per-book outcome of a batch operation, such as borrowing several books at once.
+ * Every book in the batch either succeeded or failed with the exception the single-book operation would have thrown.
+ */
+public class BatchResult {
+
+    // ISBNs of the books for which the operation succeeded, in the order they were processed.
+    private final List<String> succeeded = new ArrayList<>();
+    // The failure of each book for which the operation failed, in the order they were processed.
+    private final Map<String, RuntimeException> failed = new LinkedHashMap<>();
+
+    /**
+     * Records that the operation succeeded for a book.
+     *
+     * @param ISBN The International Standard Book Number of the book.
+     */
+    void addSuccess(String ISBN) {
+        succeeded.add(ISBN);
+    }
+
+    /**
+     * Records that the operation failed for a book.
+     *
+     * @param ISBN  The International Standard Book Number of the book.
+     * @param cause The exception describing the failure.
+     */
+    void addFailure(String ISBN, RuntimeException cause) {
+        failed.put(ISBN, cause);
+    }
+
+    /**
+     * Retrieves the books for which the operation succeeded.
+     *
+     * @return The ISBNs of the books, in the order they were processed.
+     */
+    public List<String> getSucceeded() {
+        return Collections.unmodifiableList(succeeded);
+    }
+
+    /**
+     * Retrieves the books for which the operation failed, with the reason.
+     *
+     * @return The exception for each failed book keyed by ISBN, in the order they were processed.
+     */
+    public Map<String, RuntimeException> getFailed() {
+        return Collections.unmodifiableMap(failed);
+    }
+
+    /**
+     * Checks if the operation succeeded for every book in the batch.
+     *
+     * @return true if no book failed, otherwise false.
+     */
+    public boolean isAllSucceeded() {
+        return failed.isEmpty();
+    }
+}
@@ -1,5 +1,7 @@
 package ac.il.bgu.qa;
 
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
 /**
  * Represents a book with its essential details and borrowing status.
  */
@@ -10,8 +12,13 @@ public class Book {
     private final String title;
     // The name of the author of the book.
     private final String author;
-    // Status to check if the book is currently borrowed or not.
-    private boolean isBorrowed;
+    // Status to check if the book is currently borrowed (1) or not (0).
+    // Kept as a volatile int rather than an AtomicBoolean so that a large catalog pays no extra object per book.
+    private volatile int isBorrowed;
+
+    // Flips the borrowing status atomically, so that two threads can never both borrow the book.
+    private static final AtomicIntegerFieldUpdater<Book> IS_BORROWED =
+            AtomicIntegerFieldUpdater.newUpdater(Book.class, "isBorrowed");
 
     /**
      * Constructs a new Book object.
@@ -24,7 +31,7 @@ public class Book {
         this.ISBN = ISBN;
         this.title = title;
         this.author = author;
-        this.isBorrowed = false;
+        this.isBorrowed = 0;
     }
 
     // Getter methods
@@ -62,17 +69,16 @@ public class Book {
      * @return true if the book is borrowed, otherwise false.
      */
     public boolean isBorrowed() {
-        return isBorrowed;
+        return isBorrowed != 0;
     }
 
     /**
      * Marks the book as borrowed.
      * Throws an exception if the book is already borrowed.
+     * The check and the update happen atomically, so only one of several concurrent callers succeeds.
      */
     public void borrow() {
-        if (!isBorrowed) {
-            isBorrowed = true;
-        } else {
+        if (!IS_BORROWED.compareAndSet(this, 0, 1)) {
             throw new IllegalStateException("Book is already borrowed!");
         }
     }
@@ -80,11 +86,10 @@ public class Book {
     /**
      * Marks the book as returned/not borrowed.
      * Throws an exception if the book was not previously borrowed.
+     * The check and the update happen atomically, so only one of several concurrent callers succeeds.
      */
     public void returnBook() {
-        if (isBorrowed) {
-            isBorrowed = false;
-        } else {
+        if (!IS_BORROWED.compareAndSet(this, 1, 0)) {
             throw new IllegalStateException("ac.il.bgu.qa.Book wasn't borrowed!");
         }
     }
@@ -0,0 +1,47 @@
+package ac.il.bgu.qa;
+
+/**
+ * Represents the outcome of borrowing or returning a book without throwing,
+ * for callers that treat a book being out as a routine outcome rather than an error.
+ */
+public enum BorrowResult {
+
+    /**
+     * The book was borrowed.
+     */
+    BORROWED,
+
+    /**
+     * The book was returned.
+     */
+    RETURNED,
+
+    /**
+     * No book with the given ISBN exists.
+     */
+    BOOK_NOT_FOUND,
+
+    /**
+     * No user with the given Id is registered.
+     */
+    USER_NOT_REGISTERED,
+
+    /**
+     * The book could not be borrowed because it is already borrowed.
+     */
+    ALREADY_BORROWED,
+
+    /**
+     * The book could not be returned because it wasn't borrowed.
+     */
+    NOT_BORROWED;
+
+    /**
+     * Checks if the operation succeeded.
+     *
+     * @return true if the book was borrowed or returned, otherwise false.
+     */
+    public boolean isSuccess() {
+        return this == BORROWED || this == RETURNED;
+    }
+}
@@ -1,10 +1,32 @@
 package ac.il.bgu.qa;
 
 import ac.il.bgu.qa.errors.*;
+import ac.il.bgu.qa.metrics.LibraryMetrics;
+import ac.il.bgu.qa.metrics.LibraryMetrics.Call;
+import ac.il.bgu.qa.metrics.LibraryMetrics.Operation;
+import ac.il.bgu.qa.notification.CircuitBreaker;
+import ac.il.bgu.qa.notification.CircuitBreakerRegistry;
+import ac.il.bgu.qa.notification.NotificationDispatcher;
+import ac.il.bgu.qa.notification.NotificationEventLog;
+import ac.il.bgu.qa.notification.RetryPolicy;
+import ac.il.bgu.qa.notification.ReviewMessage;
+import ac.il.bgu.qa.notification.ReviewMessageRenderer;
+import ac.il.bgu.qa.search.BookSearchIndex;
+import ac.il.bgu.qa.search.SearchResult;
 import ac.il.bgu.qa.services.DatabaseService;
 import ac.il.bgu.qa.services.ReviewService;
+import ac.il.bgu.qa.services.StreamingNotificationService;
+import ac.il.bgu.qa.services.review.ReviewServicePool;
+import ac.il.bgu.qa.util.StripedLocks;
+import ac.il.bgu.qa.validation.AuthorValidator;
+import ac.il.bgu.qa.validation.IsbnValidator;
+import ac.il.bgu.qa.validation.UserIdValidator;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
 
 /**
  * Represents a library which manages a collection of books and users.
@@ -14,128 +36,244 @@ public class Library {
     // Service to interact with the database
     private final DatabaseService databaseService;
 
-    // Service to fetch reviews for a book
+    // Service to fetch reviews for a book, closed after every fetch
     private final ReviewService reviewService;
 
+    // Pool of long-lived review service connections, used instead of reviewService when set
+    private final ReviewServicePool reviewServicePool;
+
+    // Serializes borrowing and returning of the same book, so that a book's status and the database
+    // record are always updated together, while different books are handled in parallel.
+    private final StripedLocks bookLocks = new StripedLocks();
+
+    // Sends notifications in the background when set, otherwise they are sent by the calling thread
+    private volatile NotificationDispatcher notificationDispatcher;
+
+    // Decides if and when a failed notification is sent again, by default up to 5 attempts without waiting
+    private volatile RetryPolicy notificationRetryPolicy = RetryPolicy.immediate(5);
+
+    // Fails notifications fast while a notification service keeps failing, when set
+    private volatile CircuitBreakerRegistry notificationCircuitBreakers;
+
+    // Renders review notifications once per book and shares them among the users notified about it
+    private volatile ReviewMessageRenderer reviewMessageRenderer = new ReviewMessageRenderer();
+
+    // Indexes the titles and authors of added books for searching, when set
+    private volatile BookSearchIndex searchIndex;
+
+    // Counts and times operations and the calls they make to the services, disabled by default
+    private volatile LibraryMetrics metrics = LibraryMetrics.DISABLED;
+
+    // Writes failed notifications to the console in the background, shared by all libraries by default
+    private volatile NotificationEventLog notificationEventLog = NotificationEventLog.shared();
+
     // Constructor for Library, initializes both services
     public Library(DatabaseService databaseService, ReviewService reviewService) {
         this.databaseService = databaseService;
         this.reviewService = reviewService;
+        this.reviewServicePool = null;
+    }
+
+    // Constructor for Library that borrows review service connections from a pool
+    // and hands them back after use, instead of closing a connection after every fetch
+    public Library(DatabaseService databaseService, ReviewServicePool reviewServicePool) {
+        this.databaseService = databaseService;
+        this.reviewService = null;
+        this.reviewServicePool = reviewServicePool;
     }
 
     /**
-     * Adds a book to the library's collection.
+     * Sets the dispatcher that sends notifications in the background.
+     * Once set, {@link #getBookByISBN} returns the book without waiting for the reviews to be fetched or
+     * the notification to be sent; both happen on the dispatcher's workers, within its queue bounds.
      *
-     * @param book The book to be added.
+     * @param notificationDispatcher The dispatcher, or null to send notifications on the calling thread.
      */
-    public void addBook(Book book) {
-        // Multiple checks to validate the book object's properties
-        if (book == null) {
-            throw new IllegalArgumentException("Invalid book.");
-        } else if (!isISBNValid(book.getISBN())){
-            throw new IllegalArgumentException("Invalid ISBN.");
-        } else if (book.getTitle() == null || book.getTitle().equals("")) {
-            throw new IllegalArgumentException("Invalid title.");
-        } else if (!isAuthorValid(book.getAuthor())) {
-            throw new IllegalArgumentException("Invalid author.");
-        } else if (book.isBorrowed()) {
-            throw new IllegalArgumentException("Book with invalid borrowed state.");
-        }
-
-        // If book already exists in the database, throw exception
-        if (databaseService.getBookByISBN(book.getISBN()) != null)
-            throw new IllegalArgumentException("Book already exists.");
-
-        // If all checks pass, add the book to the database
-        databaseService.addBook(book.getISBN(), book);
+    public void setNotificationDispatcher(NotificationDispatcher notificationDispatcher) {
+        this.notificationDispatcher = notificationDispatcher;
     }
 
     /**
-     *  Validates if input is of type ISBN-13.
+     * Sets the policy that decides if and when a failed notification is sent again.
      *
-     *  @param isbn The International Standard Book Number to be validated.
-     *  @return true if valid, false otherwise.
-    */
-    private boolean isISBNValid(String isbn) {
-        // Check if the ISBN is null, return false if it is
-        if (isbn == null) {
-            return false;
+     * @param notificationRetryPolicy The retry policy.
+     */
+    public void setNotificationRetryPolicy(RetryPolicy notificationRetryPolicy) {
+        if (notificationRetryPolicy == null) {
+            throw new IllegalArgumentException("Invalid retry policy.");
         }
+        this.notificationRetryPolicy = notificationRetryPolicy;
+    }
 
-        // Remove any hyphen characters from the ISBN for standardization
-        isbn = isbn.replaceAll("-", "");
+    /**
+     * Sets the circuit breakers that stop sending notifications through a notification service that keeps failing.
+     *
+     * @param notificationCircuitBreakers The circuit breakers, or null to always attempt sending.
+     */
+    public void setNotificationCircuitBreakers(CircuitBreakerRegistry notificationCircuitBreakers) {
+        this.notificationCircuitBreakers = notificationCircuitBreakers;
+    }
 
-        // Check if the sanitized ISBN is of length 13 and if contains only digits
-        if (isbn.length() != 13 || !isbn.matches("\\d+")) {
-            return false;
+    /**
+     * Sets the renderer of review notifications, for example to cap the number of reviews sent.
+     *
+     * @param reviewMessageRenderer The renderer.
+     */
+    public void setReviewMessageRenderer(ReviewMessageRenderer reviewMessageRenderer) {
+        if (reviewMessageRenderer == null) {
+            throw new IllegalArgumentException("Invalid review message renderer.");
         }
+        this.reviewMessageRenderer = reviewMessageRenderer;
+    }
 
-        // Calculate the sum based on the ISBN-13 rules:
-        // Odd position numbers are multiplied by 1
-        // Even position numbers are multiplied by 3
-        int sum = 0;
-        for (int i = 0; i < 12; i++) {
-            int digit = Integer.parseInt(String.valueOf(isbn.charAt(i)));
-            if (i % 2 == 0) {
-                sum += digit;
-            } else {
-                sum += digit * 3;
-            }
-        }
+    /**
+     * Sets the index that books are added to as they are added to the library, for {@link #searchBooks}.
+     * Books already in the database are not indexed by setting it; add them to the index first.
+     *
+     * @param searchIndex The search index, or null to disable searching.
+     */
+    public void setSearchIndex(BookSearchIndex searchIndex) {
+        this.searchIndex = searchIndex;
+    }
 
-        // Calculate the check digit
-        int checkDigit = 10 - (sum % 10);
-        if (checkDigit == 10) {
-            checkDigit = 0;
+    /**
+     * Sets the event log that failed notifications are recorded in,
+     * instead of the shared one that writes to the console.
+     *
+     * @param notificationEventLog The event log.
+     */
+    public void setNotificationEventLog(NotificationEventLog notificationEventLog) {
+        if (notificationEventLog == null) {
+            throw new IllegalArgumentException("Invalid event log.");
         }
+        this.notificationEventLog = notificationEventLog;
+    }
 
-        // Check if the calculated check digit matches the last digit of the ISBN
-        return checkDigit == Integer.parseInt(String.valueOf(isbn.charAt(12)));
+    /**
+     * Sets the metrics that operations and the calls they make to the services are recorded in.
+     *
+     * @param metrics The metrics, or {@link LibraryMetrics#DISABLED} to record nothing.
+     */
+    public void setMetrics(LibraryMetrics metrics) {
+        if (metrics == null) {
+            throw new IllegalArgumentException("Invalid metrics.");
+        }
+        this.metrics = metrics;
     }
 
     /**
-     *  Validates if author name given as input is of valid format.
+     * Retrieves the metrics that operations are recorded in.
      *
-     *  @param name The name of the author.
-     *  @return true if valid, false otherwise.
-    */
-    private boolean isAuthorValid(String name) {
-        /*
-         * Three key criteria for a valid author name:
-         * 1) The name should only consist of alphabetic characters, hyphens, spaces, dots, and apostrophes.
-         * 2) The name should start and end with an alphabetic character.
-         * 3) The name should not contain consecutive special characters like "--" or "''".
-         */
+     * @return The metrics, {@link LibraryMetrics#DISABLED} unless set.
+     */
+    public LibraryMetrics getMetrics() {
+        return metrics;
+    }
 
-        // If the name is null or empty, it's invalid.
-        if (name == null || name.isEmpty()) {
-            return false;
-        }
+    /**
+     * Adds a book to the library's collection.
+     *
+     * @param book The book to be added.
+     */
+    public void addBook(Book book) {
+        LibraryMetrics metrics = this.metrics;
+        long start = metrics.start();
+        try {
+            // Multiple checks to validate the book object's properties
+            if (book == null) {
+                throw new IllegalArgumentException("Invalid book.");
+            } else if (!isISBNValid(book.getISBN())){
+                throw new IllegalArgumentException("Invalid ISBN.");
+            } else if (book.getTitle() == null || book.getTitle().equals("")) {
+                throw new IllegalArgumentException("Invalid title.");
+            } else if (!isAuthorValid(book.getAuthor())) {
+                throw new IllegalArgumentException("Invalid author.");
+            } else if (book.isBorrowed()) {
+                throw new IllegalArgumentException("Book with invalid borrowed state.");
+            }
 
-        // Ensure the name starts and finishes with an alphabetic character.
-        if (!Character.isLetter(name.charAt(0)) || !Character.isLetter(name.charAt(name.length() - 1))) {
-            return false;
-        }
+            // If book already exists in the database, throw exception
+            if (findBook(book.getISBN()) != null)
+                throw new IllegalArgumentException("Book already exists.");
 
-        // Check the content of the name for valid characters and consecutive special characters.
-        for (int i = 0; i < name.length() - 1; i++) {
-            char current = name.charAt(i);
-            char next = name.charAt(i + 1);
+            // If all checks pass, add the book to the database
+            long write = metrics.start();
+            try {
+                databaseService.addBook(book.getISBN(), book);
+            } catch (RuntimeException e) {
+                metrics.recordCall(Call.DATABASE_WRITE, write, true);
+                throw e;
+            }
+            metrics.recordCall(Call.DATABASE_WRITE, write, false);
 
-            // Check if the current character is not one of the valid characters.
-            if (!Character.isLetter(current) && current != '-' && current != ' ' && current != '\'' && current != '.') {
-                return false;
+            // Only index books the database accepted, so searches never return a book that cannot be fetched.
+            BookSearchIndex index = searchIndex;
+            if (index != null) {
+                index.add(book);
             }
+        } catch (RuntimeException e) {
+            metrics.recordFailure(Operation.ADD_BOOK, start, e);
+            throw e;
+        }
+        metrics.recordSuccess(Operation.ADD_BOOK, start);
+    }
 
-            // Check for consecutive special characters.
-            if ((current == '-' && next == '-')
-                    || (current == '\'' && next == '\'')) {
-                return false;
+    /**
+     * Searches the titles and authors of the books in the library.
+     *
+     * @param query  The words to search for. Each may be the start of a word.
+     * @param offset The number of best matches to skip, for paging.
+     * @param limit  The maximum number of books to return.
+     * @return The matching books on the requested page, the best matches first.
+     */
+    public SearchResult searchBooks(String query, int offset, int limit) {
+        LibraryMetrics metrics = this.metrics;
+        long start = metrics.start();
+        SearchResult result;
+        try {
+            BookSearchIndex index = searchIndex;
+            if (index == null) {
+                throw new IllegalStateException("Search is not enabled.");
             }
+            result = index.search(query, offset, limit);
+        } catch (RuntimeException e) {
+            metrics.recordFailure(Operation.SEARCH_BOOKS, start, e);
+            throw e;
         }
+        metrics.recordSuccess(Operation.SEARCH_BOOKS, start);
+        return result;
+    }
 
-        // If all checks have passed, the author name is valid.
-        return true;
+    /**
+     *  Validates if input is of type ISBN-13.
+     *
+     *  @param isbn The International Standard Book Number to be validated.
+     *  @return true if valid, false otherwise.
+    */
+    private boolean isISBNValid(String isbn) {
+        // Single pass over the characters, ignoring hyphens, without any allocation.
+        return IsbnValidator.isValidIsbn13(isbn);
+    }
+
+    /**
+     *  Validates if the user Id is a 12-digit number.
+     *
+     *  @param userId The user Id to be validated.
+     *  @return true if valid, false otherwise.
+    */
+    private boolean isUserIdValid(String userId) {
+        // Plain character loop, no Pattern is compiled per call.
+        return UserIdValidator.isValid(userId);
+    }
+
+    /**
+     *  Validates if author name given as input is of valid format.
+     *
+     *  @param name The name of the author.
+     *  @return true if valid, false otherwise.
+    */
+    private boolean isAuthorValid(String name) {
+        return AuthorValidator.isValid(name);
     }
 
 
@@ -145,24 +283,39 @@ public class Library {
      * @param user The user to be registered.
      */
     public void registerUser(User user) {
-        // Multiple checks to validate the user object's properties.
-        if (user == null) {
-            throw new IllegalArgumentException("Invalid user.");
-        } else if (user.getId() == null || !user.getId().matches("\\d{12}")) {
-            throw new IllegalArgumentException("Invalid user Id.");
-        } else if (user.getName() == null || user.getName().equals("")) {
-            throw new IllegalArgumentException("Invalid user name.");
-        } else if (user.getNotificationService() == null) {
-            throw new IllegalArgumentException("Invalid notification service.");
-        }
+        LibraryMetrics metrics = this.metrics;
+        long start = metrics.start();
+        try {
+            // Multiple checks to validate the user object's properties.
+            if (user == null) {
+                throw new IllegalArgumentException("Invalid user.");
+            } else if (user.getId() == null || !isUserIdValid(user.getId())) {
+                throw new IllegalArgumentException("Invalid user Id.");
+            } else if (user.getName() == null || user.getName().equals("")) {
+                throw new IllegalArgumentException("Invalid user name.");
+            } else if (user.getNotificationService() == null) {
+                throw new IllegalArgumentException("Invalid notification service.");
+            }
 
-        // Before registering, check if a user with the given Id already exists.
-        // If such a user is found, throw an exception.
-        if (databaseService.getUserById(user.getId()) != null)
-            throw new IllegalArgumentException("User already exists.");
+            // Before registering, check if a user with the given Id already exists.
+            // If such a user is found, throw an exception.
+            if (findUser(user.getId()) != null)
+                throw new IllegalArgumentException("User already exists.");
 
-        // If all checks have passed, call the database service to register the user.
-        databaseService.registerUser(user.getId(), user);
+            // If all checks have passed, call the database service to register the user.
+            long write = metrics.start();
+            try {
+                databaseService.registerUser(user.getId(), user);
+            } catch (RuntimeException e) {
+                metrics.recordCall(Call.DATABASE_WRITE, write, true);
+                throw e;
+            }
+            metrics.recordCall(Call.DATABASE_WRITE, write, false);
+        } catch (RuntimeException e) {
+            metrics.recordFailure(Operation.REGISTER_USER, start, e);
+            throw e;
+        }
+        metrics.recordSuccess(Operation.REGISTER_USER, start);
     }
 
 
@@ -173,6 +326,43 @@ public class Library {
      * @param userId The Id of the user borrowing the book.
      */
     public void borrowBook(String ISBN, String userId) {
+        BorrowResult result = tryBorrowBook(ISBN, userId);
+        if (!result.isSuccess()) {
+            throw failure(result);
+        }
+    }
+
+    /**
+     * Borrows a book for a user, reporting routine failures as a result instead of throwing.
+     * Meant for callers on a hot path, for which a book being out is normal.
+     *
+     * @param ISBN   The International Standard Book Number of the book.
+     * @param userId The Id of the user borrowing the book.
+     * @return {@link BorrowResult#BORROWED}, or the reason the book could not be borrowed.
+     * @throws IllegalArgumentException If the ISBN or the user Id is invalid.
+     */
+    public BorrowResult tryBorrowBook(String ISBN, String userId) {
+        LibraryMetrics metrics = this.metrics;
+        long start = metrics.start();
+        BorrowResult result;
+        try {
+            result = attemptBorrow(ISBN, userId);
+        } catch (RuntimeException e) {
+            metrics.recordFailure(Operation.BORROW_BOOK, start, e);
+            throw e;
+        }
+        record(metrics, Operation.BORROW_BOOK, start, result);
+        return result;
+    }
+
+    /**
+     * Validates a borrow request, fetches the book and the user and borrows the book.
+     *
+     * @param ISBN   The International Standard Book Number of the book.
+     * @param userId The Id of the user borrowing the book.
+     * @return {@link BorrowResult#BORROWED}, or the reason the book could not be borrowed.
+     */
+    private BorrowResult attemptBorrow(String ISBN, String userId) {
 
         // Validate the ISBN. If it's invalid, throw an exception.
         if (!isISBNValid(ISBN)) {
@@ -180,35 +370,27 @@ public class Library {
         }
 
         // Retrieve the book associated with the ISBN from the database.
-        Book book = databaseService.getBookByISBN(ISBN);
+        Book book = findBook(ISBN);
 
-        // If no book is found for the given ISBN, throw an exception.
+        // If no book is found for the given ISBN, report it.
         if (book == null) {
-            throw new BookNotFoundException("Book not found!");
+            return BorrowResult.BOOK_NOT_FOUND;
         }
 
         // Validate the user Id's format (should be a 12-digit number).
         // If it's invalid, throw an exception.
-        if (userId == null || !userId.matches("\\d{12}")) {
+        if (!isUserIdValid(userId)) {
             throw new IllegalArgumentException("Invalid user Id.");
         }
 
         // Check if the user Id's corresponds to a registered user in the database.
-        // If not, throw an exception indicating the user is not registered.
-        if (databaseService.getUserById(userId) == null) {
-            throw new UserNotRegisteredException("User not found!");
-        }
-
-        // If the book is already borrowed, throw an exception.
-        if (book.isBorrowed()) {
-            throw new BookAlreadyBorrowedException("Book is already borrowed!");
+        // If not, report that the user is not registered.
+        if (findUser(userId) == null) {
+            return BorrowResult.USER_NOT_REGISTERED;
         }
 
-        // Mark the book as borrowed.
-        book.borrow();
-
-        // Record the borrowing transaction in the database by associating the book's ISBN with the user's Id.
-        databaseService.borrowBook(ISBN, userId);
+        // Mark the book as borrowed and record the transaction in the database.
+        return borrowFetchedBook(book, ISBN, userId);
     }
 
     /**
@@ -217,31 +399,400 @@ public class Library {
      * @param ISBN The International Standard Book Number of the book.
      */
     public void returnBook(String ISBN) {
-        
+        BorrowResult result = tryReturnBook(ISBN);
+        if (!result.isSuccess()) {
+            throw failure(result);
+        }
+    }
+
+    /**
+     * Returns a previously borrowed book, reporting routine failures as a result instead of throwing.
+     * Meant for callers on a hot path.
+     *
+     * @param ISBN The International Standard Book Number of the book.
+     * @return {@link BorrowResult#RETURNED}, or the reason the book could not be returned.
+     * @throws IllegalArgumentException If the ISBN is invalid.
+     */
+    public BorrowResult tryReturnBook(String ISBN) {
+        LibraryMetrics metrics = this.metrics;
+        long start = metrics.start();
+        BorrowResult result;
+        try {
+            result = attemptReturn(ISBN);
+        } catch (RuntimeException e) {
+            metrics.recordFailure(Operation.RETURN_BOOK, start, e);
+            throw e;
+        }
+        record(metrics, Operation.RETURN_BOOK, start, result);
+        return result;
+    }
+
+    /**
+     * Validates a return request, fetches the book and returns it.
+     *
+     * @param ISBN The International Standard Book Number of the book.
+     * @return {@link BorrowResult#RETURNED}, or the reason the book could not be returned.
+     */
+    private BorrowResult attemptReturn(String ISBN) {
+
         // Validate the ISBN. If it's not valid, throw an exception.
         if (!isISBNValid(ISBN)) {
             throw new IllegalArgumentException("Invalid ISBN.");
         }
 
         // Retrieve the book associated with the ISBN from the database.
-        Book book = databaseService.getBookByISBN(ISBN);
+        Book book = findBook(ISBN);
 
-        // If no book is found for the given ISBN, throw a book not found exception.
+        // If no book is found for the given ISBN, report it.
         if (book == null) {
-            throw new BookNotFoundException("Book not found!");
+            return BorrowResult.BOOK_NOT_FOUND;
         }
 
-        // Check if the book is currently borrowed. If not, it means it was never borrowed
-        // or it has already been returned, therefore throw an exception.
-        if (!book.isBorrowed()) {
-            throw new BookNotBorrowedException("Book wasn't borrowed!");
+        // Mark the book as returned and record it in the database.
+        return returnFetchedBook(book, ISBN);
+    }
+
+    /**
+     * Records the outcome of a borrow or return, counting a failure under the name of its reason.
+     *
+     * @param metrics   The metrics to record in.
+     * @param operation The operation.
+     * @param start     The time the operation started.
+     * @param result    The outcome of the operation.
+     */
+    private static void record(LibraryMetrics metrics, Operation operation, long start, BorrowResult result) {
+        if (result.isSuccess()) {
+            metrics.recordSuccess(operation, start);
+        } else {
+            metrics.recordOutcome(operation, start, result.name());
         }
+    }
 
-        // Change the status of the book to not borrowed.
-        book.returnBook();
+    /**
+     * Borrows a book that was already fetched from the database and validated, for a registered user.
+     * The book's status and the database record for the same ISBN are updated together under its lock.
+     *
+     * @param book   The book to be borrowed.
+     * @param ISBN   The International Standard Book Number of the book.
+     * @param userId The Id of the user borrowing the book.
+     * @return {@link BorrowResult#BORROWED}, or {@link BorrowResult#ALREADY_BORROWED}.
+     */
+    private BorrowResult borrowFetchedBook(Book book, String ISBN, String userId) {
+        Lock lock = bookLocks.forIsbn(ISBN);
+        lock.lock();
+        try {
+            // If the book is already borrowed, report it.
+            if (book.isBorrowed()) {
+                return BorrowResult.ALREADY_BORROWED;
+            }
+
+            // Mark the book as borrowed. The status flips atomically, so a concurrent borrower
+            // that got past the check above through another path still cannot borrow it twice.
+            try {
+                book.borrow();
+            } catch (IllegalStateException e) {
+                return BorrowResult.ALREADY_BORROWED;
+            }
+
+            // Record the borrowing transaction in the database by associating the book's ISBN with the user's Id.
+            // If the database write fails, the book is marked as available again.
+            LibraryMetrics metrics = this.metrics;
+            long write = metrics.start();
+            try {
+                databaseService.borrowBook(ISBN, userId);
+            } catch (RuntimeException e) {
+                metrics.recordCall(Call.DATABASE_WRITE, write, true);
+                book.returnBook();
+                throw e;
+            }
+            metrics.recordCall(Call.DATABASE_WRITE, write, false);
+            return BorrowResult.BORROWED;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a book that was already fetched from the database.
+     * The book's status and the database record for the same ISBN are updated together under its lock.
+     *
+     * @param book The book to be returned.
+     * @param ISBN The International Standard Book Number of the book.
+     * @return {@link BorrowResult#RETURNED}, or {@link BorrowResult#NOT_BORROWED}.
+     */
+    private BorrowResult returnFetchedBook(Book book, String ISBN) {
+        Lock lock = bookLocks.forIsbn(ISBN);
+        lock.lock();
+        try {
+            // Check if the book is currently borrowed. If not, it means it was never borrowed
+            // or it has already been returned, therefore report it.
+            if (!book.isBorrowed()) {
+                return BorrowResult.NOT_BORROWED;
+            }
+
+            // Change the status of the book to not borrowed, atomically.
+            try {
+                book.returnBook();
+            } catch (IllegalStateException e) {
+                return BorrowResult.NOT_BORROWED;
+            }
 
-        // Update the database to reflect the returned status of the book.
-        databaseService.returnBook(ISBN);
+            // Update the database to reflect the returned status of the book.
+            // If the database write fails, the book is marked as borrowed again.
+            LibraryMetrics metrics = this.metrics;
+            long write = metrics.start();
+            try {
+                databaseService.returnBook(ISBN);
+            } catch (RuntimeException e) {
+                metrics.recordCall(Call.DATABASE_WRITE, write, true);
+                book.borrow();
+                throw e;
+            }
+            metrics.recordCall(Call.DATABASE_WRITE, write, false);
+            return BorrowResult.RETURNED;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Creates the exception the throwing operations report a failed borrow or return with.
+     *
+     * @param result The reason the operation failed.
+     * @return The matching exception.
+     */
+    private static RuntimeException failure(BorrowResult result) {
+        switch (result) {
+            case BOOK_NOT_FOUND:
+                return new BookNotFoundException("Book not found!");
+            case USER_NOT_REGISTERED:
+                return new UserNotRegisteredException("User not found!");
+            case ALREADY_BORROWED:
+                return new BookAlreadyBorrowedException("Book is already borrowed!");
+            case NOT_BORROWED:
+                return new BookNotBorrowedException("Book wasn't borrowed!");
+            default:
+                throw new IllegalStateException("Not a failure: " + result);
+        }
+    }
+
+    /**
+     * Borrows several books for a user at once.
+     * The user is validated and fetched once and the books are fetched from the database in a single call.
+     * A failure for one book does not stop the others; each book's outcome is reported in the result.
+     * An ISBN that appears more than once is processed once.
+     *
+     * @param ISBNs  The International Standard Book Numbers of the books.
+     * @param userId The Id of the user borrowing the books.
+     * @return The outcome for every book, failures carry the exception {@link #borrowBook} would have thrown.
+     */
+    public BatchResult borrowBooks(Collection<String> ISBNs, String userId) {
+        LibraryMetrics metrics = this.metrics;
+        long start = metrics.start();
+        BatchResult result;
+        try {
+            result = attemptBorrowBooks(ISBNs, userId);
+        } catch (RuntimeException e) {
+            metrics.recordFailure(Operation.BORROW_BOOKS, start, e);
+            throw e;
+        }
+        metrics.recordSuccess(Operation.BORROW_BOOKS, start);
+        return result;
+    }
+
+    /**
+     * Validates a batch borrow request, fetches the user and the books and borrows every book it can.
+     *
+     * @param ISBNs  The International Standard Book Numbers of the books.
+     * @param userId The Id of the user borrowing the books.
+     * @return The outcome for every book.
+     */
+    private BatchResult attemptBorrowBooks(Collection<String> ISBNs, String userId) {
+        // Validate the list of books. If it's missing, throw an exception.
+        if (ISBNs == null) {
+            throw new IllegalArgumentException("Invalid ISBN list.");
+        }
+
+        // Validate the user Id format (should be a 12-digit number).
+        // If it's invalid, the whole batch fails, so throw an exception.
+        if (!isUserIdValid(userId)) {
+            throw new IllegalArgumentException("Invalid user Id.");
+        }
+
+        // Check if the user Id corresponds to a registered user in the database, once for the whole batch.
+        if (findUser(userId) == null) {
+            throw new UserNotRegisteredException("User not found!");
+        }
+
+        BatchResult result = new BatchResult();
+        Map<String, Book> books = fetchBooks(ISBNs, result);
+        for (Map.Entry<String, Book> entry : books.entrySet()) {
+            try {
+                BorrowResult outcome = borrowFetchedBook(entry.getValue(), entry.getKey(), userId);
+                if (outcome.isSuccess()) {
+                    result.addSuccess(entry.getKey());
+                } else {
+                    result.addFailure(entry.getKey(), failure(outcome));
+                }
+            } catch (RuntimeException e) {
+                result.addFailure(entry.getKey(), e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns several previously borrowed books at once.
+     * The books are fetched from the database in a single call.
+     * A failure for one book does not stop the others; each book's outcome is reported in the result.
+     * An ISBN that appears more than once is processed once.
+     *
+     * @param ISBNs The International Standard Book Numbers of the books.
+     * @return The outcome for every book, failures carry the exception {@link #returnBook} would have thrown.
+     */
+    public BatchResult returnBooks(Collection<String> ISBNs) {
+        LibraryMetrics metrics = this.metrics;
+        long start = metrics.start();
+        BatchResult result;
+        try {
+            result = attemptReturnBooks(ISBNs);
+        } catch (RuntimeException e) {
+            metrics.recordFailure(Operation.RETURN_BOOKS, start, e);
+            throw e;
+        }
+        metrics.recordSuccess(Operation.RETURN_BOOKS, start);
+        return result;
+    }
+
+    /**
+     * Validates a batch return request, fetches the books and returns every book it can.
+     *
+     * @param ISBNs The International Standard Book Numbers of the books.
+     * @return The outcome for every book.
+     */
+    private BatchResult attemptReturnBooks(Collection<String> ISBNs) {
+        // Validate the list of books. If it's missing, throw an exception.
+        if (ISBNs == null) {
+            throw new IllegalArgumentException("Invalid ISBN list.");
+        }
+
+        BatchResult result = new BatchResult();
+        Map<String, Book> books = fetchBooks(ISBNs, result);
+        for (Map.Entry<String, Book> entry : books.entrySet()) {
+            try {
+                BorrowResult outcome = returnFetchedBook(entry.getValue(), entry.getKey());
+                if (outcome.isSuccess()) {
+                    result.addSuccess(entry.getKey());
+                } else {
+                    result.addFailure(entry.getKey(), failure(outcome));
+                }
+            } catch (RuntimeException e) {
+                result.addFailure(entry.getKey(), e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Fetches a book from the database, timing the call.
+     *
+     * @param ISBN The International Standard Book Number of the book.
+     * @return The book, or null if it is not in the database.
+     */
+    private Book findBook(String ISBN) {
+        LibraryMetrics metrics = this.metrics;
+        long start = metrics.start();
+        try {
+            Book book = databaseService.getBookByISBN(ISBN);
+            metrics.recordCall(Call.DATABASE_READ, start, false);
+            return book;
+        } catch (RuntimeException e) {
+            metrics.recordCall(Call.DATABASE_READ, start, true);
+            throw e;
+        }
+    }
+
+    /**
+     * Fetches a user from the database, timing the call.
+     *
+     * @param userId The Id of the user.
+     * @return The user, or null if the user is not registered.
+     */
+    private User findUser(String userId) {
+        LibraryMetrics metrics = this.metrics;
+        long start = metrics.start();
+        try {
+            User user = databaseService.getUserById(userId);
+            metrics.recordCall(Call.DATABASE_READ, start, false);
+            return user;
+        } catch (RuntimeException e) {
+            metrics.recordCall(Call.DATABASE_READ, start, true);
+            throw e;
+        }
+    }
+
+    /**
+     * Fetches several users from the database in a single call, timing the call.
+     *
+     * @param userIds The Ids of the users.
+     * @return The registered users, keyed by Id.
+     */
+    private Map<String, User> findUsers(Collection<String> userIds) {
+        LibraryMetrics metrics = this.metrics;
+        long start = metrics.start();
+        try {
+            Map<String, User> users = databaseService.getUsersById(userIds);
+            metrics.recordCall(Call.DATABASE_READ, start, false);
+            return users;
+        } catch (RuntimeException e) {
+            metrics.recordCall(Call.DATABASE_READ, start, true);
+            throw e;
+        }
+    }
+
+    /**
+     * Validates a batch of ISBNs and fetches the matching books from the database in a single call.
+     * Invalid ISBNs and books that are not in the database are recorded as failures in the result.
+     *
+     * @param ISBNs  The International Standard Book Numbers of the books.
+     * @param result The batch result to record failures in.
+     * @return The books that were found, keyed by ISBN, in the order they were requested.
+     */
+    private Map<String, Book> fetchBooks(Collection<String> ISBNs, BatchResult result) {
+        // Skip duplicates and record invalid ISBNs without going to the database.
+        Set<String> valid = new LinkedHashSet<>();
+        for (String ISBN : new LinkedHashSet<>(ISBNs)) {
+            if (isISBNValid(ISBN)) {
+                valid.add(ISBN);
+            } else {
+                result.addFailure(ISBN, new IllegalArgumentException("Invalid ISBN."));
+            }
+        }
+        if (valid.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        // Fetch all valid books in one call, and record the ones that don't exist.
+        LibraryMetrics metrics = this.metrics;
+        long read = metrics.start();
+        Map<String, Book> fetched;
+        try {
+            fetched = databaseService.getBooksByISBN(valid);
+        } catch (RuntimeException e) {
+            metrics.recordCall(Call.DATABASE_READ, read, true);
+            throw e;
+        }
+        metrics.recordCall(Call.DATABASE_READ, read, false);
+        Map<String, Book> books = new LinkedHashMap<>();
+        for (String ISBN : valid) {
+            Book book = fetched.get(ISBN);
+            if (book == null) {
+                result.addFailure(ISBN, new BookNotFoundException("Book not found!"));
+            } else {
+                books.put(ISBN, book);
+            }
+        }
+        return books;
     }
 
     /**
@@ -251,6 +802,183 @@ public class Library {
      * @param userId The Id of the user to whom the reviews are to be sent.
      */
     public void notifyUserWithBookReviews(String ISBN, String userId) {
+        LibraryMetrics metrics = this.metrics;
+        long start = metrics.start();
+        try {
+            prepareBookReviewsNotification(ISBN, userId).run();
+        } catch (RuntimeException e) {
+            metrics.recordFailure(Operation.NOTIFY_USER, start, e);
+            throw e;
+        }
+        metrics.recordSuccess(Operation.NOTIFY_USER, start);
+    }
+
+    /**
+     * Notifies a user with the reviews of a specified book without waiting for the notification to be sent.
+     * The book, the user and the reviews are fetched before returning, and fail the same way as
+     * {@link #notifyUserWithBookReviews}. Sending the notification, with its retries, is left to the
+     * notification dispatcher. Without a dispatcher the notification is sent before returning.
+     *
+     * @param ISBN The ISBN of the book whose reviews are to be sent.
+     * @param userId The Id of the user to whom the reviews are to be sent.
+     * @return A future that completes once the notification was sent, or fails with a NotificationException.
+     */
+    public CompletableFuture<Void> notifyUserWithBookReviewsAsync(String ISBN, String userId) {
+        LibraryMetrics metrics = this.metrics;
+        long start = metrics.start();
+        CompletableFuture<Void> sent;
+        try {
+            Runnable delivery = prepareBookReviewsNotification(ISBN, userId);
+
+            sent = deliver(delivery);
+        } catch (RuntimeException e) {
+            metrics.recordFailure(Operation.NOTIFY_USER_ASYNC, start, e);
+            throw e;
+        }
+        // The latency runs until the notification was sent, as for notifyUserWithBookReviews.
+        sent.whenComplete((ignored, failure) -> {
+            if (failure == null) {
+                metrics.recordSuccess(Operation.NOTIFY_USER_ASYNC, start);
+            } else {
+                metrics.recordFailure(Operation.NOTIFY_USER_ASYNC, start,
+                        failure instanceof CompletionException && failure.getCause() != null
+                                ? failure.getCause() : failure);
+            }
+        });
+        return sent;
+    }
+
+    /**
+     * Notifies many users with the reviews of a specified book, such as everyone waiting for it.
+     * The book and its reviews are fetched and the message is rendered once for all users, and the users are
+     * fetched from the database in a single call. The notifications are sent in parallel by the notification
+     * dispatcher, or one after the other without a dispatcher, and this method returns once all were sent or failed.
+     * A failure for one user does not stop the others; each user's outcome is reported in the result.
+     * A user Id that appears more than once is notified once.
+     *
+     * @param ISBN The ISBN of the book whose reviews are to be sent.
+     * @param userIds The Ids of the users to whom the reviews are to be sent.
+     * @return The outcome for every user, failures carry the exception {@link #notifyUserWithBookReviews} would
+     *         have thrown for that user.
+     */
+    public NotificationResult notifyUsersWithBookReviews(String ISBN, Collection<String> userIds) {
+        LibraryMetrics metrics = this.metrics;
+        long start = metrics.start();
+        NotificationResult result;
+        try {
+            result = attemptNotifyUsers(ISBN, userIds);
+        } catch (RuntimeException e) {
+            metrics.recordFailure(Operation.NOTIFY_USERS, start, e);
+            throw e;
+        }
+        metrics.recordSuccess(Operation.NOTIFY_USERS, start);
+        return result;
+    }
+
+    /**
+     * Validates a request to notify many users, fetches the book, the users and the reviews, and notifies every
+     * user it can.
+     *
+     * @param ISBN The ISBN of the book whose reviews are to be sent.
+     * @param userIds The Ids of the users to whom the reviews are to be sent.
+     * @return The outcome for every user.
+     */
+    private NotificationResult attemptNotifyUsers(String ISBN, Collection<String> userIds) {
+        // Validate the ISBN. If it's invalid, throw an exception.
+        if (!isISBNValid(ISBN)) {
+            throw new IllegalArgumentException("Invalid ISBN.");
+        }
+
+        // Validate the list of users. If it's missing, throw an exception.
+        if (userIds == null) {
+            throw new IllegalArgumentException("Invalid user Id list.");
+        }
+
+        // Retrieve the book associated with the ISBN from the database, once for all users.
+        Book book = findBook(ISBN);
+
+        // If no book is found for the given ISBN, throw a book not found exception.
+        if (book == null) {
+            throw new BookNotFoundException("Book not found!");
+        }
+
+        // Fetch all users with a valid Id in one call.
+        Set<String> requested = new LinkedHashSet<>(userIds);
+        List<String> valid = new ArrayList<>(requested.size());
+        for (String userId : requested) {
+            if (isUserIdValid(userId)) {
+                valid.add(userId);
+            }
+        }
+        Map<String, User> users = valid.isEmpty()
+                ? Collections.<String, User>emptyMap() : findUsers(valid);
+
+        // Fetch the reviews and render the message once, if there is anyone to notify.
+        ReviewMessage notificationMessage = null;
+        if (!users.isEmpty()) {
+            notificationMessage = reviewMessageRenderer.render(ISBN, book.getTitle(), fetchReviews(ISBN));
+        }
+
+        // Start sending to every user, then wait for all of them.
+        Map<String, CompletableFuture<Void>> outcomes = new LinkedHashMap<>();
+        for (String userId : requested) {
+            User user = users.get(userId);
+            if (user != null) {
+                ReviewMessage message = notificationMessage;
+                outcomes.put(userId, deliver(() -> sendNotification(user, message)));
+            } else if (isUserIdValid(userId)) {
+                outcomes.put(userId, failed(new UserNotRegisteredException("User not found!")));
+            } else {
+                outcomes.put(userId, failed(new IllegalArgumentException("Invalid user Id.")));
+            }
+        }
+
+        NotificationResult result = new NotificationResult();
+        for (Map.Entry<String, CompletableFuture<Void>> outcome : outcomes.entrySet()) {
+            try {
+                outcome.getValue().join();
+                result.addSuccess(outcome.getKey());
+            } catch (CompletionException e) {
+                result.addFailure(outcome.getKey(), e.getCause() instanceof RuntimeException
+                        ? (RuntimeException) e.getCause() : new NotificationException("Notification failed!"));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Sends a notification through the notification dispatcher, or on the calling thread without one.
+     *
+     * @param delivery Sends the notification, with retries.
+     * @return A future that completes once the notification was sent, or fails with the reason it was not.
+     */
+    private CompletableFuture<Void> deliver(Runnable delivery) {
+        NotificationDispatcher dispatcher = notificationDispatcher;
+        if (dispatcher != null) {
+            return dispatcher.dispatch(delivery);
+        }
+        try {
+            delivery.run();
+            return CompletableFuture.completedFuture(null);
+        } catch (RuntimeException e) {
+            return failed(e);
+        }
+    }
+
+    private static CompletableFuture<Void> failed(RuntimeException cause) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        future.completeExceptionally(cause);
+        return future;
+    }
+
+    /**
+     * Fetches everything needed to notify a user with the reviews of a book.
+     *
+     * @param ISBN The ISBN of the book whose reviews are to be sent.
+     * @param userId The Id of the user to whom the reviews are to be sent.
+     * @return Sends the notification, with retries, when run.
+     */
+    private Runnable prepareBookReviewsNotification(String ISBN, String userId) {
 
         // Validate the ISBN. If it's invalid, throw an exception.
         if (!isISBNValid(ISBN)) {
@@ -259,12 +987,12 @@ public class Library {
 
         // Validate the user Id format (should be a 12-digit number).
         // If it's invalid, throw an exception.
-        if (userId == null || !userId.matches("\\d{12}")) {
+        if (!isUserIdValid(userId)) {
             throw new IllegalArgumentException("Invalid user Id.");
         }
 
         // Retrieve the book associated with the ISBN from the database.
-        Book book = databaseService.getBookByISBN(ISBN);
+        Book book = findBook(ISBN);
 
         // If no book is found for the given ISBN, throw a book not found exception.
         if (book == null) {
@@ -272,7 +1000,7 @@ public class Library {
         }
 
         // Retrieve the user associated with the user Id from the database.
-        User user = databaseService.getUserById(userId);
+        User user = findUser(userId);
 
         // If the user is not found in the database, throw an exception.
         if (user == null) {
@@ -280,10 +1008,113 @@ public class Library {
         }
 
         // Fetch the list of reviews for the specified book using the review service.
+        List<String> reviews = fetchReviews(ISBN);
+
+        // Construct the notification message containing the book's title and its reviews,
+        // or reuse the one already rendered for the same reviews.
+        ReviewMessage notificationMessage = reviewMessageRenderer.render(ISBN, book.getTitle(), reviews);
+
+        return () -> sendNotification(user, notificationMessage);
+    }
+
+    /**
+     * Sends a notification to a user, retrying as the retry policy allows if it fails.
+     * While the circuit breaker of the user's notification service is open, fails without attempting.
+     *
+     * @param user The user to notify.
+     * @param notificationMessage The content of the notification, streamed to services that support it.
+     * @throws NotificationException If all attempts failed, or the notification service is unavailable.
+     */
+    private void sendNotification(User user, ReviewMessage notificationMessage) {
+        RetryPolicy retryPolicy = notificationRetryPolicy;
+        CircuitBreaker breaker = circuitBreakerOf(user);
+        boolean streaming = user.getNotificationService() instanceof StreamingNotificationService;
+        LibraryMetrics metrics = this.metrics;
+        long start = System.nanoTime();
+
+        // Attempt to send the notification to the user. If it fails, retry as the policy allows.
+        int retryCount = 0;
+        while (true) {
+            if (breaker != null && !breaker.tryAcquire()) {
+                throw new NotificationException("Notification service unavailable!");
+            }
+            long attempt = metrics.start();
+            try {
+                if (streaming) {
+                    user.sendNotification((CharSequence) notificationMessage);
+                } else {
+                    user.sendNotification(notificationMessage.toString());
+                }
+                metrics.recordCall(Call.NOTIFICATION_SEND, attempt, false);
+                if (breaker != null) {
+                    breaker.onSuccess();
+                }
+                return;
+            } catch (NotificationException e) {
+                metrics.recordCall(Call.NOTIFICATION_SEND, attempt, true);
+                if (breaker != null) {
+                    breaker.onFailure();
+                }
+                retryCount++;
+                notificationEventLog.retryFailed(retryCount, retryPolicy.getMaxAttempts());
+            } catch (RuntimeException | Error e) {
+                // Not retried, but the breaker must still hear of it, or a failed trial call would keep it half open.
+                metrics.recordCall(Call.NOTIFICATION_SEND, attempt, true);
+                if (breaker != null) {
+                    breaker.onFailure();
+                }
+                throw e;
+            }
+
+            long delay = retryPolicy.getDelayNanos(retryCount, System.nanoTime() - start);
+            if (delay == RetryPolicy.STOP) {
+                break;
+            }
+            if (delay > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+
+        // If all retry attempts fail, throw a notification exception.
+        throw new NotificationException("Notification failed!");
+    }
+
+    /**
+     * Retrieves the circuit breaker of a user's notification service.
+     *
+     * @param user The user to notify.
+     * @return The circuit breaker, or null if there are no circuit breakers or the user has no notification service.
+     */
+    private CircuitBreaker circuitBreakerOf(User user) {
+        CircuitBreakerRegistry breakers = notificationCircuitBreakers;
+        if (breakers == null || user.getNotificationService() == null) {
+            return null;
+        }
+        return breakers.get(user.getNotificationService());
+    }
+
+    /**
+     * Fetches the reviews of a book from the review service.
+     *
+     * @param ISBN The ISBN of the book whose reviews are fetched.
+     * @return The reviews of the book, never empty.
+     */
+    private List<String> fetchReviews(String ISBN) {
+        // In pooled mode borrow a connection, otherwise use the single review service.
+        ReviewService service = reviewServicePool != null ? reviewServicePool.borrow() : reviewService;
+        boolean fetched = false;
         List<String> reviews;
+        LibraryMetrics metrics = this.metrics;
+        long start = metrics.start();
         try {
 
-            reviews = reviewService.getReviewsForBook(ISBN);
+            reviews = service.getReviewsForBook(ISBN);
+            fetched = true;
 
             // If no reviews are found or the review list is empty, throw an exception.
             if (reviews == null || reviews.isEmpty()) {
@@ -293,26 +1124,19 @@ public class Library {
             // If there's an issue fetching the reviews, throw a service unavailable exception.
             throw new ReviewServiceUnavailableException("Review service unavailable!");
         } finally {
-            // Always close the review service connection after attempting to fetch the reviews.
-            reviewService.close();
-        }
-        // Construct the notification message containing the book's title and its reviews.
-        String notificationMessage = "Reviews for '" + book.getTitle() + "':\n" + String.join("\n", reviews);
-
-        // Attempt to send the notification to the user. If it fails, retry up to 5 times.
-        int retryCount = 0;
-        while (retryCount < 5) {
-            try {
-                user.sendNotification(notificationMessage);
-                return;
-            } catch (NotificationException e) {
-                retryCount++;
-                System.err.println("Notification failed! Retrying attempt " + retryCount + "/5");
+            metrics.recordCall(Call.REVIEW_FETCH, start, !fetched);
+            if (reviewServicePool == null) {
+                // Always close the review service connection after attempting to fetch the reviews.
+                service.close();
+            } else if (!fetched) {
+                // A connection that failed is not trusted again, the pool closes it.
+                reviewServicePool.invalidate(service);
+            } else {
+                // Keep the connection open for the next fetch.
+                reviewServicePool.release(service);
             }
         }
-
-        // If all retry attempts fail, throw a notification exception.
-        throw new NotificationException("Notification failed!");
+        return reviews;
     }
 
     /**
@@ -323,40 +1147,60 @@ public class Library {
      * @return       The book with the given ISBN if found, and notifies the user with its reviews.
      */
     public Book getBookByISBN(String ISBN, String userId) {
-        // Validate the ISBN. If it's invalid, throw an exception.
-        if (!isISBNValid(ISBN)) {
-            throw new IllegalArgumentException("Invalid ISBN.");
-        }
+        LibraryMetrics metrics = this.metrics;
+        long start = metrics.start();
+        try {
+            // Validate the ISBN. If it's invalid, throw an exception.
+            if (!isISBNValid(ISBN)) {
+                throw new IllegalArgumentException("Invalid ISBN.");
+            }
 
-        // Validate the user Id format (should be a 12-digit number). 
-        // If it's invalid, throw an exception.
-        if (userId == null || !userId.matches("\\d{12}")) {
-            throw new IllegalArgumentException("Invalid user Id.");
-        }
+            // Validate the user Id format (should be a 12-digit number). 
+            // If it's invalid, throw an exception.
+            if (!isUserIdValid(userId)) {
+                throw new IllegalArgumentException("Invalid user Id.");
+            }
 
-        // Retrieve the book associated with the ISBN from the database.
-        Book book = databaseService.getBookByISBN(ISBN);
+            // Retrieve the book associated with the ISBN from the database.
+            Book book = findBook(ISBN);
 
-        // If no book is found for the given ISBN, throw a book not found exception.
-        if (book == null) {
-            throw new BookNotFoundException("Book not found!");
-        }
+            // If no book is found for the given ISBN, throw a book not found exception.
+            if (book == null) {
+                throw new BookNotFoundException("Book not found!");
+            }
 
-        // If the book is already borrowed, throw an exception.
-        if (book.isBorrowed()) {
-            throw new BookAlreadyBorrowedException("Book was already borrowed!");
-        }
+            // If the book is already borrowed, throw an exception.
+            if (book.isBorrowed()) {
+                throw new BookAlreadyBorrowedException("Book was already borrowed!");
+            }
 
-        // Attempt to notify the user with the book's reviews.
-        // This step is optional, so even if it fails, the book should still be returned.
-        try {
-            notifyUserWithBookReviews(ISBN, userId);
-        } catch (Exception e) {
-            System.out.println("Notification failed!");
-        }
+            // Attempt to notify the user with the book's reviews.
+            // This step is optional, so even if it fails, the book should still be returned.
+            // With a notification dispatcher, the whole notification, including fetching the reviews,
+            // runs in the background and the book is returned right away.
+            NotificationDispatcher dispatcher = notificationDispatcher;
+            NotificationEventLog eventLog = notificationEventLog;
+            if (dispatcher == null) {
+                try {
+                    notifyUserWithBookReviews(ISBN, userId);
+                } catch (Exception e) {
+                    eventLog.lookupNotificationFailed();
+                }
+            } else {
+                dispatcher.dispatch(() -> notifyUserWithBookReviews(ISBN, userId)).whenComplete((sent, e) -> {
+                    if (e != null) {
+                        eventLog.lookupNotificationFailed();
+                    }
+                });
+            }
 
-        // Return the retrieved book.
-        return book;
+            // Return the retrieved book.
+            metrics.recordSuccess(Operation.GET_BOOK, start);
+            return book;
+        } catch (RuntimeException e) {
+            metrics.recordFailure(Operation.GET_BOOK, start, e);
+            throw e;
+        }
     }
 }
 
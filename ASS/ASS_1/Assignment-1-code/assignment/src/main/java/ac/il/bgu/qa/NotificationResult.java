@@ -0,0 +1,61 @@
+package ac.il.bgu.qa;
+
+import java.util.*;
+
+/**
+ * Represents the per-user outcome of notifying many users at once, such as everyone waiting for a book.
+ * Every user either was notified or failed with the exception notifying them alone would have thrown.
+ */
+public class NotificationResult {
+
+    // Ids of the users that were notified, in the order they were requested.
+    private final List<String> notified = new ArrayList<>();
+    // The failure of each user that was not notified, in the order they were requested.
+    private final Map<String, RuntimeException> failed = new LinkedHashMap<>();
+
+    /**
+     * Records that a user was notified.
+     *
+     * @param userId The Id of the user.
+     */
+    void addSuccess(String userId) {
+        notified.add(userId);
+    }
+
+    /**
+     * Records that a user could not be notified.
+     *
+     * @param userId The Id of the user.
+     * @param cause  The exception describing the failure.
+     */
+    void addFailure(String userId, RuntimeException cause) {
+        failed.put(userId, cause);
+    }
+
+    /**
+     * Retrieves the users that were notified.
+     *
+     * @return The Ids of the users, in the order they were requested.
+     */
+    public List<String> getNotified() {
+        return Collections.unmodifiableList(notified);
+    }
+
+    /**
+     * Retrieves the users that could not be notified, with the reason.
+     *
+     * @return The exception for each failed user keyed by user Id, in the order they were requested.
+     */
+    public Map<String, RuntimeException> getFailed() {
+        return Collections.unmodifiableMap(failed);
+    }
+
+    /**
+     * Checks if every user was notified.
+     *
+     * @return true if no user failed, otherwise false.
+     */
+    public boolean isAllSucceeded() {
+        return failed.isEmpty();
+    }
+}
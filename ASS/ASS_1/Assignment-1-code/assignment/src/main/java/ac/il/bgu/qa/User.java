@@ -2,6 +2,7 @@ package ac.il.bgu.qa;
 
 import ac.il.bgu.qa.errors.NotificationException;
 import ac.il.bgu.qa.services.NotificationService;
+import ac.il.bgu.qa.services.StreamingNotificationService;
 
 /**
  * Represents a user of the library.
@@ -68,5 +69,20 @@ public class User {
         notificationService.notifyUser(id, message);
     }
 
+    /**
+     * Sends a notification message to this user. If the user's notification service can stream messages,
+     * the message is handed to it as is; otherwise it is converted to a String first.
+     *
+     * @param message The content of the notification.
+     * @throws NotificationException If there's an error while sending the notification.
+     */
+    public void sendNotification(CharSequence message) throws NotificationException {
+        if (notificationService instanceof StreamingNotificationService) {
+            ((StreamingNotificationService) notificationService).notifyUser(id, message);
+        } else {
+            notificationService.notifyUser(id, message.toString());
+        }
+    }
+
 }
 
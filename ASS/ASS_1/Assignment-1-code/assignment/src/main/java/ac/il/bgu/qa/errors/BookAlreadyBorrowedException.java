@@ -8,10 +8,11 @@ public class BookAlreadyBorrowedException extends RuntimeException {
 
     /**
      * Constructs a new BookAlreadyBorrowedException with the specified detail message.
+     * The exception records a stack trace only if {@link StackTraces#isEnabled()}.
      *
      * @param message the detail message.
      */
     public BookAlreadyBorrowedException(String message) {
-        super(message);
+        super(message, null, true, StackTraces.isEnabled());
     }
 }
@@ -8,10 +8,11 @@ public class BookNotFoundException extends RuntimeException {
 
     /**
      * Constructs a new BookNotFoundException with the specified detail message.
+     * The exception records a stack trace only if {@link StackTraces#isEnabled()}.
      *
      * @param message the detail message.
      */
     public BookNotFoundException(String message) {
-        super(message);
+        super(message, null, true, StackTraces.isEnabled());
     }
 }
@@ -8,10 +8,11 @@ public class NoReviewsFoundException extends RuntimeException {
 
     /**
      * Constructs a new NoReviewsFoundException with the specified detail message.
+     * The exception records a stack trace only if {@link StackTraces#isEnabled()}.
      *
      * @param message the detail message.
      */
     public NoReviewsFoundException(String message) {
-        super(message);
+        super(message, null, true, StackTraces.isEnabled());
     }
 }
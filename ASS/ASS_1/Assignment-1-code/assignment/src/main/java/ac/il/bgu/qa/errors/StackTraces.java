@@ -0,0 +1,36 @@
+package ac.il.bgu.qa.errors;
+
+/**
+ * Controls whether the exceptions thrown for routine outcomes, such as a book that is already borrowed,
+ * record a stack trace.
+ * <p>
+ * Recording a stack trace is by far the most expensive part of creating an exception, and these exceptions are
+ * expected and handled by callers rather than debugged, so services under heavy load may turn it off. It is on by
+ * default, and can be turned off at startup with {@code -Dac.il.bgu.qa.errors.stackless=true}.
+ * Exceptions that signal actual failures, such as {@link NotificationException}, always record a stack trace.
+ */
+public final class StackTraces {
+
+    private static volatile boolean enabled = !Boolean.getBoolean("ac.il.bgu.qa.errors.stackless");
+
+    private StackTraces() {
+    }
+
+    /**
+     * Checks whether routine exceptions record a stack trace.
+     *
+     * @return true if they do, false if they are stackless.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Sets whether routine exceptions created from now on record a stack trace.
+     *
+     * @param enabled true to record stack traces, false to make them stackless.
+     */
+    public static void setEnabled(boolean enabled) {
+        StackTraces.enabled = enabled;
+    }
+}
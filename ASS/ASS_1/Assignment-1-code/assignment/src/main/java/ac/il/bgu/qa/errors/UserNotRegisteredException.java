@@ -8,10 +8,11 @@ public class UserNotRegisteredException extends RuntimeException {
 
     /**
      * Constructs a new UserNotRegisteredException with the specified detail message.
+     * The exception records a stack trace only if {@link StackTraces#isEnabled()}.
      *
      * @param message the detail message.
      */
     public UserNotRegisteredException(String message) {
-        super(message);
+        super(message, null, true, StackTraces.isEnabled());
     }
 }
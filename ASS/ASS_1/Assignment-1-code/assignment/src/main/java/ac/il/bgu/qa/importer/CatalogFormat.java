@@ -0,0 +1,75 @@
+package ac.il.bgu.qa.importer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The text formats a catalog can be imported from.
+ * Every row holds the ISBN, title and author of one book, in that order.
+ */
+public enum CatalogFormat {
+
+    /**
+     * Comma separated values. A field may be enclosed in double quotes to contain commas,
+     * and a double quote inside a quoted field is written twice. Fields cannot span lines.
+     */
+    CSV {
+        @Override
+        List<String> split(String line) {
+            List<String> fields = new ArrayList<>(3);
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c != '"') {
+                        field.append(c);
+                    } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            if (quoted) {
+                // An unterminated quote makes the whole row unreadable.
+                return null;
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    },
+
+    /**
+     * Tab separated values, without any quoting.
+     */
+    TSV {
+        @Override
+        List<String> split(String line) {
+            List<String> fields = new ArrayList<>(3);
+            int start = 0;
+            for (int tab = line.indexOf('\t'); tab >= 0; tab = line.indexOf('\t', start)) {
+                fields.add(line.substring(start, tab));
+                start = tab + 1;
+            }
+            fields.add(line.substring(start));
+            return fields;
+        }
+    };
+
+    /**
+     * Splits a single row into its fields.
+     *
+     * @param line The row, without the line terminator.
+     * @return The fields of the row, or null if the row is malformed.
+     */
+    abstract List<String> split(String line);
+}
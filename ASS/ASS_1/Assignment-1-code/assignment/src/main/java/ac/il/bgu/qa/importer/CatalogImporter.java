@@ -0,0 +1,251 @@
+package ac.il.bgu.qa.importer;
+
+import ac.il.bgu.qa.Book;
+import ac.il.bgu.qa.services.DatabaseService;
+import ac.il.bgu.qa.util.LongObjectHashMap;
+import ac.il.bgu.qa.validation.AuthorValidator;
+import ac.il.bgu.qa.validation.IsbnValidator;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Imports a catalog of books from a CSV or TSV stream into the database.
+ * <p>
+ * The input is read as a stream and cut into chunks of rows. Chunks are parsed and validated in parallel
+ * with the same rules as {@link ac.il.bgu.qa.Library#addBook}, then handed back in input order to be
+ * de-duplicated and written to the database with one bulk existence check and one bulk write per chunk.
+ * Only a bounded number of chunks is in flight at any time, so memory use does not grow with the input.
+ */
+public class CatalogImporter {
+
+    // Marks an ISBN as already seen in the current import.
+    private static final Boolean SEEN = Boolean.TRUE;
+
+    // Service to interact with the database
+    private final DatabaseService databaseService;
+    // The number of rows validated and written together.
+    private final int chunkSize;
+    // The number of threads validating chunks.
+    private final int parallelism;
+    // The maximum number of rejected rows reported in detail.
+    private final int maxReportedRejections;
+
+    /**
+     * Constructs a new importer.
+     *
+     * @param databaseService       The database to import into.
+     * @param chunkSize             The number of rows validated and written together.
+     * @param parallelism           The number of threads validating chunks.
+     * @param maxReportedRejections The maximum number of rejected rows reported in detail.
+     */
+    public CatalogImporter(DatabaseService databaseService, int chunkSize, int parallelism, int maxReportedRejections) {
+        if (databaseService == null) {
+            throw new IllegalArgumentException("Invalid database service.");
+        } else if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Invalid chunk size.");
+        } else if (parallelism <= 0) {
+            throw new IllegalArgumentException("Invalid parallelism.");
+        } else if (maxReportedRejections < 0) {
+            throw new IllegalArgumentException("Invalid number of reported rejections.");
+        }
+        this.databaseService = databaseService;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+        this.maxReportedRejections = maxReportedRejections;
+    }
+
+    /**
+     * Constructs a new importer with chunks of 10,000 rows, one validating thread per processor,
+     * and up to 10,000 rejected rows reported in detail.
+     *
+     * @param databaseService The database to import into.
+     */
+    public CatalogImporter(DatabaseService databaseService) {
+        this(databaseService, 10_000, Runtime.getRuntime().availableProcessors(), 10_000);
+    }
+
+    /**
+     * Imports every book in the input into the database.
+     * Empty lines are skipped. A row is rejected if it doesn't have exactly three fields, if it fails validation,
+     * if its ISBN already appeared earlier in the input, or if the book already exists in the database.
+     *
+     * @param in        The catalog, encoded in UTF-8. It is read to the end but not closed.
+     * @param format    The format of the catalog.
+     * @param hasHeader true if the first line is a header to be skipped.
+     * @return The number of imported books and the rejected rows.
+     * @throws IOException If the input cannot be read.
+     */
+    public ImportResult importBooks(InputStream in, CatalogFormat format, boolean hasHeader) throws IOException {
+        if (in == null || format == null) {
+            throw new IllegalArgumentException("Invalid input.");
+        }
+
+        ImportResult result = new ImportResult(maxReportedRejections);
+        LongObjectHashMap<Boolean> seen = new LongObjectHashMap<>(chunkSize, 0.5f);
+        Deque<Future<Chunk>> inFlight = new ArrayDeque<>();
+        ExecutorService validators = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "catalog-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16);
+            long lineNumber = 0;
+            if (hasHeader && reader.readLine() != null) {
+                lineNumber++;
+            }
+
+            List<String> lines = new ArrayList<>(chunkSize);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+                if (lines.size() == chunkSize) {
+                    inFlight.add(submit(validators, format, lines, lineNumber + 1));
+                    lineNumber += lines.size();
+                    lines = new ArrayList<>(chunkSize);
+
+                    // Write the oldest chunk before reading further, so that at most two chunks per thread are queued.
+                    if (inFlight.size() >= parallelism * 2) {
+                        write(await(inFlight.poll()), seen, result);
+                    }
+                }
+            }
+            if (!lines.isEmpty()) {
+                inFlight.add(submit(validators, format, lines, lineNumber + 1));
+            }
+            while (!inFlight.isEmpty()) {
+                write(await(inFlight.poll()), seen, result);
+            }
+        } finally {
+            validators.shutdownNow();
+        }
+        return result;
+    }
+
+    private Future<Chunk> submit(ExecutorService validators, CatalogFormat format, List<String> lines, long firstLine) {
+        return validators.submit(() -> parse(format, lines, firstLine));
+    }
+
+    private static Chunk await(Future<Chunk> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Import interrupted.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException("Import failed.", e.getCause());
+        }
+    }
+
+    /**
+     * Parses and validates a chunk of rows. Runs on a validating thread.
+     *
+     * @param format    The format of the rows.
+     * @param lines     The rows.
+     * @param firstLine The line number of the first row.
+     * @return The parsed chunk.
+     */
+    private static Chunk parse(CatalogFormat format, List<String> lines, long firstLine) {
+        Chunk chunk = new Chunk(lines, firstLine);
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (line.isEmpty()) {
+                continue;
+            }
+
+            List<String> fields = format.split(line);
+            if (fields == null || fields.size() != 3) {
+                chunk.reasons[i] = "Invalid row.";
+                continue;
+            }
+            String isbn = fields.get(0);
+            String title = fields.get(1);
+            String author = fields.get(2);
+
+            // The same checks as Library.addBook, in the same order.
+            long key = IsbnValidator.parseIsbn13(isbn);
+            if (key == IsbnValidator.INVALID) {
+                chunk.reasons[i] = "Invalid ISBN.";
+            } else if (title.isEmpty()) {
+                chunk.reasons[i] = "Invalid title.";
+            } else if (!AuthorValidator.isValid(author)) {
+                chunk.reasons[i] = "Invalid author.";
+            } else {
+                chunk.keys[i] = key;
+                chunk.books[i] = new Book(isbn, title, author);
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * De-duplicates a validated chunk against the rest of the input and the database, then writes it.
+     * Runs on the importing thread, one chunk at a time and in input order.
+     *
+     * @param chunk  The validated chunk.
+     * @param seen   The ISBNs already seen in the input.
+     * @param result The result to record the outcome in.
+     */
+    private void write(Chunk chunk, LongObjectHashMap<Boolean> seen, ImportResult result) {
+        String[] reasons = chunk.reasons;
+        Map<String, Book> candidates = new LinkedHashMap<>();
+        Map<String, Integer> rows = new HashMap<>();
+        for (int i = 0; i < chunk.books.length; i++) {
+            if (chunk.books[i] == null) {
+                continue;
+            }
+            if (seen.putIfAbsent(chunk.keys[i], SEEN) != null) {
+                reasons[i] = "Duplicate ISBN in batch.";
+            } else {
+                candidates.put(chunk.books[i].getISBN(), chunk.books[i]);
+                rows.put(chunk.books[i].getISBN(), i);
+            }
+        }
+
+        // If a book already exists in the database, reject it, like Library.addBook does.
+        if (!candidates.isEmpty()) {
+            for (String isbn : databaseService.getBooksByISBN(candidates.keySet()).keySet()) {
+                candidates.remove(isbn);
+                reasons[rows.get(isbn)] = "Book already exists.";
+            }
+        }
+        if (!candidates.isEmpty()) {
+            databaseService.addBooks(candidates);
+            result.addImported(candidates.size());
+        }
+
+        // Report the rejected rows in input order.
+        for (int i = 0; i < reasons.length; i++) {
+            if (reasons[i] != null) {
+                result.addRejected(chunk.firstLine + i, chunk.lines.get(i), reasons[i]);
+            }
+        }
+    }
+
+    /**
+     * A chunk of rows and the outcome of validating each of them.
+     * For every row either the reason is set (rejected), the book is set (valid), or neither (empty line).
+     */
+    private static final class Chunk {
+        final List<String> lines;
+        final long firstLine;
+        final long[] keys;
+        final Book[] books;
+        final String[] reasons;
+
+        Chunk(List<String> lines, long firstLine) {
+            this.lines = lines;
+            this.firstLine = firstLine;
+            this.keys = new long[lines.size()];
+            this.books = new Book[lines.size()];
+            this.reasons = new String[lines.size()];
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package ac.il.bgu.qa.importer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Represents the outcome of importing a catalog: how many books were added and which rows were rejected.
+ * To keep the memory of a very large import bounded, only the first rejected rows are kept in detail,
+ * while all of them are counted.
+ */
+public class ImportResult {
+    // The maximum number of rejected rows kept in detail.
+    private final int maxReportedRejections;
+    // The first rejected rows, in input order.
+    private final List<RejectedRow> rejectedRows = new ArrayList<>();
+    // The number of books added to the database.
+    private long importedCount;
+    // The number of rejected rows, including the ones not kept in detail.
+    private long rejectedCount;
+
+    /**
+     * Constructs a new, empty ImportResult object.
+     *
+     * @param maxReportedRejections The maximum number of rejected rows to keep in detail.
+     */
+    ImportResult(int maxReportedRejections) {
+        this.maxReportedRejections = maxReportedRejections;
+    }
+
+    void addImported(int count) {
+        importedCount += count;
+    }
+
+    void addRejected(long lineNumber, String line, String reason) {
+        rejectedCount++;
+        if (rejectedRows.size() < maxReportedRejections) {
+            rejectedRows.add(new RejectedRow(lineNumber, line, reason));
+        }
+    }
+
+    /**
+     * Retrieves the number of books added to the database.
+     *
+     * @return The number of imported books.
+     */
+    public long getImportedCount() {
+        return importedCount;
+    }
+
+    /**
+     * Retrieves the number of rows that were rejected.
+     *
+     * @return The number of rejected rows, including the ones not kept in detail.
+     */
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    /**
+     * Retrieves the first rejected rows, with the reason for each.
+     *
+     * @return The rejected rows kept in detail, in input order.
+     */
+    public List<RejectedRow> getRejectedRows() {
+        return Collections.unmodifiableList(rejectedRows);
+    }
+}
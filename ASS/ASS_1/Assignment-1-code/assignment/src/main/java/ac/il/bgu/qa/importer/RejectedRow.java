@@ -0,0 +1,58 @@
+package ac.il.bgu.qa.importer;
+
+/**
+ * Represents a row of an imported catalog that was not added to the database, and the reason why.
+ */
+public class RejectedRow {
+    // The 1-based line number of the row in the input.
+    private final long lineNumber;
+    // The text of the row as it appeared in the input.
+    private final String line;
+    // The reason the row was rejected.
+    private final String reason;
+
+    /**
+     * Constructs a new RejectedRow object.
+     *
+     * @param lineNumber The 1-based line number of the row in the input.
+     * @param line       The text of the row.
+     * @param reason     The reason the row was rejected.
+     */
+    public RejectedRow(long lineNumber, String line, String reason) {
+        this.lineNumber = lineNumber;
+        this.line = line;
+        this.reason = reason;
+    }
+
+    /**
+     * Retrieves the line number of the row.
+     *
+     * @return The 1-based line number in the input.
+     */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Retrieves the text of the row.
+     *
+     * @return The row as it appeared in the input.
+     */
+    public String getLine() {
+        return line;
+    }
+
+    /**
+     * Retrieves the reason the row was rejected, such as "Invalid ISBN." or "Book already exists.".
+     *
+     * @return The reason.
+     */
+    public String getReason() {
+        return reason;
+    }
+
+    @Override
+    public String toString() {
+        return "Line " + lineNumber + ": " + reason;
+    }
+}
@@ -0,0 +1,96 @@
+package ac.il.bgu.qa.metrics;
+
+/**
+ * An immutable snapshot of a {@link LatencyHistogram}, for monitoring.
+ */
+public class HistogramSnapshot {
+
+    // The number of latencies in each bucket.
+    private final long[] counts;
+    private final long count;
+    // The sum of all latencies, counting each as the middle of its bucket, in nanoseconds.
+    private final double sum;
+    private final long max;
+
+    /**
+     * Constructs a new HistogramSnapshot object.
+     *
+     * @param counts The number of latencies in each bucket of the histogram.
+     */
+    HistogramSnapshot(long[] counts) {
+        this.counts = counts;
+        long count = 0;
+        double sum = 0;
+        long max = 0;
+        for (int bucket = 0; bucket < counts.length; bucket++) {
+            if (counts[bucket] > 0) {
+                long highest = LatencyHistogram.highestValueOf(bucket);
+                long lowest = bucket == 0 ? 0 : LatencyHistogram.highestValueOf(bucket - 1) + 1;
+                count += counts[bucket];
+                sum += counts[bucket] * ((lowest + highest) / 2.0);
+                max = highest;
+            }
+        }
+        this.count = count;
+        this.sum = sum;
+        this.max = max;
+    }
+
+    /**
+     * Retrieves the number of latencies recorded.
+     *
+     * @return The number of latencies.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Calculates the mean latency, to within about 3%.
+     *
+     * @return The mean latency in nanoseconds, or 0 if none were recorded.
+     */
+    public double getMean() {
+        return count == 0 ? 0 : sum / count;
+    }
+
+    /**
+     * Retrieves the highest latency recorded, as the highest latency of its bucket.
+     *
+     * @return The highest latency in nanoseconds, or 0 if none were recorded.
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Calculates a percentile of the latencies, such as 99 for the latency 99% of the calls were faster than.
+     * The result is the highest latency of its bucket, so it may overstate the true percentile by about 3%.
+     *
+     * @param percentile The percentile, between 0 and 100.
+     * @return The latency in nanoseconds, or 0 if none were recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Invalid percentile.");
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < counts.length; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank) {
+                return LatencyHistogram.highestValueOf(bucket);
+            }
+        }
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + count + ", mean=" + (long) getMean() + "ns, p50=" + getValueAtPercentile(50)
+                + "ns, p99=" + getValueAtPercentile(99) + "ns, max=" + max + "ns";
+    }
+}
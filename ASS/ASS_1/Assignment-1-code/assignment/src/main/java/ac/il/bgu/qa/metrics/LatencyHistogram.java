@@ -0,0 +1,86 @@
+package ac.il.bgu.qa.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A concurrent histogram of latencies in nanoseconds, with a relative error of about 3%.
+ * <p>
+ * Buckets are log-linear, as in HdrHistogram: every power of two is split into 32 buckets of equal width, so
+ * 1152 buckets cover up to about 18 minutes. Recording is a few shifts and one atomic increment, without locks
+ * or allocation; the count, mean and maximum are derived from the buckets when a snapshot is taken. The buckets
+ * are striped by thread, so threads recording at the same time rarely write to the same cache line.
+ */
+public class LatencyHistogram {
+
+    // Each power of two is split into 2^SUB_BUCKET_BITS buckets.
+    private static final int SUB_BUCKET_BITS = 5;
+    // Longer latencies are recorded as the highest one, about 18 minutes.
+    static final long HIGHEST_VALUE = (1L << 40) - 1;
+    static final int BUCKETS = bucketOf(HIGHEST_VALUE) + 1;
+
+    // The bucket counts, one array per stripe.
+    private final AtomicLongArray[] stripes;
+    private final int stripeMask;
+
+    /**
+     * Constructs a new, empty histogram, with a stripe per processor, up to 8.
+     */
+    public LatencyHistogram() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        int stripeCount = Math.min(8, Integer.highestOneBit(Math.max(1, processors * 2 - 1)));
+        stripes = new AtomicLongArray[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new AtomicLongArray(BUCKETS);
+        }
+        stripeMask = stripeCount - 1;
+    }
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos The latency in nanoseconds. Negative values are recorded as 0.
+     */
+    public void record(long nanos) {
+        long value = Math.min(Math.max(nanos, 0), HIGHEST_VALUE);
+        stripes[(int) Thread.currentThread().getId() & stripeMask].incrementAndGet(bucketOf(value));
+    }
+
+    /**
+     * Takes a snapshot of the histogram. Latencies recorded while the snapshot is taken may be left out of it.
+     *
+     * @return The snapshot.
+     */
+    public HistogramSnapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] += stripe.get(i);
+            }
+        }
+        return new HistogramSnapshot(counts);
+    }
+
+    /**
+     * Finds the bucket of a value. Values below 32 have a bucket each; above, the bucket is the power of two
+     * and the next 5 bits of the value.
+     *
+     * @param value The value, between 0 and {@link #HIGHEST_VALUE}.
+     * @return The bucket.
+     */
+    static int bucketOf(long value) {
+        int shift = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+        return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+    /**
+     * Finds the highest value recorded in a bucket.
+     *
+     * @param bucket The bucket.
+     * @return The highest value of the bucket.
+     */
+    static long highestValueOf(int bucket) {
+        int shift = Math.max(0, (bucket >>> SUB_BUCKET_BITS) - 1);
+        long lowest = (long) (bucket - (shift << SUB_BUCKET_BITS)) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,303 @@
+package ac.il.bgu.qa.metrics;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records where the time of the library goes: how often each operation is called and how it ends, and the
+ * latency of each operation and of each call it makes to the database, review and notification services.
+ * <p>
+ * Counters are {@link LongAdder}s and latencies go to {@link LatencyHistogram}s, so recording from many threads
+ * takes no locks. The counters are read by pulling a {@link MetricsSnapshot}, from code or over JMX.
+ * <p>
+ * {@link #DISABLED} records nothing and does not read the clock, so a library without metrics pays
+ * a field read and a branch per call.
+ */
+public class LibraryMetrics {
+
+    /**
+     * Metrics that record nothing.
+     */
+    public static final LibraryMetrics DISABLED = new LibraryMetrics(false);
+
+    /**
+     * The outcome of an operation that completed normally.
+     */
+    public static final String SUCCESS = "OK";
+
+    /**
+     * The public operations of the library.
+     */
+    public enum Operation {
+        ADD_BOOK("addBook"),
+        REGISTER_USER("registerUser"),
+        BORROW_BOOK("borrowBook"),
+        RETURN_BOOK("returnBook"),
+        GET_BOOK("getBookByISBN"),
+        NOTIFY_USER("notifyUserWithBookReviews"),
+        BORROW_BOOKS("borrowBooks"),
+        RETURN_BOOKS("returnBooks"),
+        NOTIFY_USER_ASYNC("notifyUserWithBookReviewsAsync"),
+        NOTIFY_USERS("notifyUsersWithBookReviews"),
+        SEARCH_BOOKS("searchBooks");
+
+        private final String metricName;
+
+        Operation(String metricName) {
+            this.metricName = metricName;
+        }
+
+        /**
+         * Retrieves the name of the operation in metric names.
+         *
+         * @return The name, as the library method.
+         */
+        public String getMetricName() {
+            return metricName;
+        }
+    }
+
+    /**
+     * The calls the library makes to the services it depends on.
+     */
+    public enum Call {
+        DATABASE_READ("databaseRead"),
+        DATABASE_WRITE("databaseWrite"),
+        REVIEW_FETCH("reviewFetch"),
+        // Every attempt counts, retries included.
+        NOTIFICATION_SEND("notificationSend");
+
+        private final String metricName;
+
+        Call(String metricName) {
+            this.metricName = metricName;
+        }
+
+        /**
+         * Retrieves the name of the call in metric names.
+         *
+         * @return The name.
+         */
+        public String getMetricName() {
+            return metricName;
+        }
+    }
+
+    // Whether anything is recorded at all.
+    private final boolean enabled;
+    // The counters of each operation and each call, indexed by ordinal.
+    private final LongAdder[] successes = adders(Operation.values().length);
+    private final List<ConcurrentHashMap<String, LongAdder>> failures = new ArrayList<>();
+    private final LatencyHistogram[] operationLatencies = histograms(Operation.values().length);
+    private final LatencyHistogram[] callLatencies = histograms(Call.values().length);
+    private final LongAdder[] callFailures = adders(Call.values().length);
+
+    /**
+     * Constructs new metrics that record everything, starting from zero.
+     */
+    public LibraryMetrics() {
+        this(true);
+    }
+
+    private LibraryMetrics(boolean enabled) {
+        this.enabled = enabled;
+        for (int i = 0; i < Operation.values().length; i++) {
+            failures.add(new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * Checks if these metrics record anything.
+     *
+     * @return true unless these are the {@link #DISABLED} metrics.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts timing an operation or a call.
+     *
+     * @return The start time to pass to the matching record method, or 0 when disabled.
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records an operation that completed normally.
+     *
+     * @param operation The operation.
+     * @param start     The time returned by {@link #start} when the operation started.
+     */
+    public void recordSuccess(Operation operation, long start) {
+        if (enabled) {
+            operationLatencies[operation.ordinal()].record(System.nanoTime() - start);
+            successes[operation.ordinal()].increment();
+        }
+    }
+
+    /**
+     * Records an operation that failed with an exception, counted by the type of the exception.
+     *
+     * @param operation The operation.
+     * @param start     The time returned by {@link #start} when the operation started.
+     * @param failure   The exception the operation failed with.
+     */
+    public void recordFailure(Operation operation, long start, Throwable failure) {
+        if (enabled) {
+            recordOutcome(operation, start, failure.getClass().getSimpleName());
+        }
+    }
+
+    /**
+     * Records an operation that failed without throwing, such as a try variant returning the reason it failed.
+     *
+     * @param operation The operation.
+     * @param start     The time returned by {@link #start} when the operation started.
+     * @param outcome   The name of the outcome to count the operation under.
+     */
+    public void recordOutcome(Operation operation, long start, String outcome) {
+        if (enabled) {
+            operationLatencies[operation.ordinal()].record(System.nanoTime() - start);
+            // Failure types are few and the same ones come back, so the counter is found without locking.
+            ConcurrentHashMap<String, LongAdder> outcomes = failures.get(operation.ordinal());
+            LongAdder counter = outcomes.get(outcome);
+            if (counter == null) {
+                counter = outcomes.computeIfAbsent(outcome, name -> new LongAdder());
+            }
+            counter.increment();
+        }
+    }
+
+    /**
+     * Records a call to a service the library depends on.
+     *
+     * @param call   The call.
+     * @param start  The time returned by {@link #start} when the call was made.
+     * @param failed Whether the call threw.
+     */
+    public void recordCall(Call call, long start, boolean failed) {
+        if (enabled) {
+            callLatencies[call.ordinal()].record(System.nanoTime() - start);
+            if (failed) {
+                callFailures[call.ordinal()].increment();
+            }
+        }
+    }
+
+    /**
+     * Takes a snapshot of all counters and histograms. Concurrent recordings may or may not be in it.
+     *
+     * @return The snapshot.
+     */
+    public MetricsSnapshot snapshot() {
+        Map<Operation, Map<String, Long>> outcomes = new EnumMap<>(Operation.class);
+        Map<Operation, HistogramSnapshot> operations = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            Map<String, Long> counts = new TreeMap<>();
+            counts.put(SUCCESS, successes[operation.ordinal()].sum());
+            for (Map.Entry<String, LongAdder> entry : failures.get(operation.ordinal()).entrySet()) {
+                counts.put(entry.getKey(), entry.getValue().sum());
+            }
+            outcomes.put(operation, counts);
+            operations.put(operation, operationLatencies[operation.ordinal()].snapshot());
+        }
+        Map<Call, HistogramSnapshot> calls = new EnumMap<>(Call.class);
+        Map<Call, Long> failedCalls = new EnumMap<>(Call.class);
+        for (Call call : Call.values()) {
+            calls.put(call, callLatencies[call.ordinal()].snapshot());
+            failedCalls.put(call, callFailures[call.ordinal()].sum());
+        }
+        return new MetricsSnapshot(outcomes, operations, calls, failedCalls);
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server, for JMX consoles and agents.
+     * Every attribute is one of the values of {@link MetricsSnapshot#asMap}, read from a fresh snapshot.
+     *
+     * @param name The name to register under, such as "ac.il.bgu.qa:type=LibraryMetrics".
+     * @return The name the metrics were registered under.
+     * @throws JMException If the name is invalid or already taken.
+     */
+    public ObjectName registerMBean(String name) throws JMException {
+        ObjectName objectName = new ObjectName(name);
+        ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsMBean(), objectName);
+        return objectName;
+    }
+
+    private static LongAdder[] adders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    private static LatencyHistogram[] histograms(int count) {
+        LatencyHistogram[] histograms = new LatencyHistogram[count];
+        for (int i = 0; i < count; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+        return histograms;
+    }
+
+    /**
+     * Exposes the snapshot values as read-only attributes. The attributes are listed anew every time,
+     * as outcomes appear the first time an operation fails in a new way.
+     */
+    private final class MetricsMBean implements DynamicMBean {
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            Long value = snapshot().asMap().get(attribute);
+            if (value == null) {
+                throw new AttributeNotFoundException(attribute);
+            }
+            return value;
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            Map<String, Long> values = snapshot().asMap();
+            AttributeList list = new AttributeList();
+            for (String attribute : attributes) {
+                Long value = values.get(attribute);
+                if (value != null) {
+                    list.add(new Attribute(attribute, value));
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            Map<String, Long> values = snapshot().asMap();
+            MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[values.size()];
+            int i = 0;
+            for (String name : values.keySet()) {
+                attributes[i++] = new MBeanAttributeInfo(name, Long.class.getName(), name, true, false, false);
+            }
+            return new MBeanInfo(LibraryMetrics.class.getName(), "Library operation and call metrics",
+                    attributes, null, null, null);
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Metrics are read-only.");
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+            throw new ReflectionException(new NoSuchMethodException(actionName));
+        }
+    }
+}
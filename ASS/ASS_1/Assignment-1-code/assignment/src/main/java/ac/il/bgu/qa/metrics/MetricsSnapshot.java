@@ -0,0 +1,121 @@
+package ac.il.bgu.qa.metrics;
+
+import ac.il.bgu.qa.metrics.LibraryMetrics.Call;
+import ac.il.bgu.qa.metrics.LibraryMetrics.Operation;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An immutable snapshot of {@link LibraryMetrics}, for monitoring.
+ */
+public class MetricsSnapshot {
+
+    // The number of times each operation ended in each outcome, including successes.
+    private final Map<Operation, Map<String, Long>> outcomes;
+    private final Map<Operation, HistogramSnapshot> operationLatencies;
+    private final Map<Call, HistogramSnapshot> callLatencies;
+    private final Map<Call, Long> callFailures;
+
+    MetricsSnapshot(Map<Operation, Map<String, Long>> outcomes, Map<Operation, HistogramSnapshot> operationLatencies,
+                    Map<Call, HistogramSnapshot> callLatencies, Map<Call, Long> callFailures) {
+        this.outcomes = outcomes;
+        this.operationLatencies = operationLatencies;
+        this.callLatencies = callLatencies;
+        this.callFailures = callFailures;
+    }
+
+    /**
+     * Retrieves the number of times an operation was called.
+     *
+     * @param operation The operation.
+     * @return The number of calls, whatever their outcome.
+     */
+    public long getCount(Operation operation) {
+        long count = 0;
+        for (long outcome : outcomes.get(operation).values()) {
+            count += outcome;
+        }
+        return count;
+    }
+
+    /**
+     * Retrieves how often an operation ended in each way.
+     *
+     * @param operation The operation.
+     * @return The number of calls by outcome: {@link LibraryMetrics#SUCCESS}, or the simple name of the exception
+     *         or the reason the operation failed with.
+     */
+    public Map<String, Long> getOutcomes(Operation operation) {
+        return Collections.unmodifiableMap(outcomes.get(operation));
+    }
+
+    /**
+     * Retrieves the latencies of an operation, from the call to the library until it returned or threw.
+     *
+     * @param operation The operation.
+     * @return The latencies.
+     */
+    public HistogramSnapshot getLatency(Operation operation) {
+        return operationLatencies.get(operation);
+    }
+
+    /**
+     * Retrieves the latencies of a call to a service the library depends on.
+     *
+     * @param call The call.
+     * @return The latencies, failed calls included.
+     */
+    public HistogramSnapshot getLatency(Call call) {
+        return callLatencies.get(call);
+    }
+
+    /**
+     * Retrieves the number of calls to a service that threw.
+     *
+     * @param call The call.
+     * @return The number of failed calls.
+     */
+    public long getFailures(Call call) {
+        return callFailures.get(call);
+    }
+
+    /**
+     * Flattens the snapshot into named values, as exported over JMX.
+     * Names are "operation.count", "operation.outcome.Outcome", and "name.p50Nanos", "name.p99Nanos",
+     * "name.maxNanos" and "name.meanNanos" for every operation and call, and "call.failures" for every call.
+     *
+     * @return The values by name.
+     */
+    public Map<String, Long> asMap() {
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (Operation operation : Operation.values()) {
+            String name = operation.getMetricName();
+            values.put(name + ".count", getCount(operation));
+            for (Map.Entry<String, Long> outcome : outcomes.get(operation).entrySet()) {
+                values.put(name + ".outcome." + outcome.getKey(), outcome.getValue());
+            }
+            putLatency(values, name, getLatency(operation));
+        }
+        for (Call call : Call.values()) {
+            String name = call.getMetricName();
+            values.put(name + ".count", getLatency(call).getCount());
+            values.put(name + ".failures", getFailures(call));
+            putLatency(values, name, getLatency(call));
+        }
+        return values;
+    }
+
+    private static void putLatency(Map<String, Long> values, String name, HistogramSnapshot latency) {
+        values.put(name + ".p50Nanos", latency.getValueAtPercentile(50));
+        values.put(name + ".p99Nanos", latency.getValueAtPercentile(99));
+        values.put(name + ".maxNanos", latency.getMax());
+        values.put(name + ".meanNanos", (long) latency.getMean());
+    }
+
+    @Override
+    public String toString() {
+        return asMap().toString();
+    }
+}
@@ -0,0 +1,28 @@
+package ac.il.bgu.qa.notification;
+
+/**
+ * Decides what happens to a notification dispatched while the queue of a {@link NotificationDispatcher} is full.
+ */
+public enum BackpressurePolicy {
+
+    /**
+     * The dispatching thread waits until there is room in the queue.
+     */
+    BLOCK,
+
+    /**
+     * The dispatching thread sends the notification itself, which slows it down to the pace of the workers.
+     */
+    CALLER_RUNS,
+
+    /**
+     * The new notification is not sent, its future fails with a {@link ac.il.bgu.qa.errors.NotificationException}.
+     */
+    REJECT,
+
+    /**
+     * The oldest queued notification is not sent to make room for the new one,
+     * the future of the dropped notification fails with a {@link ac.il.bgu.qa.errors.NotificationException}.
+     */
+    DROP_OLDEST
+}
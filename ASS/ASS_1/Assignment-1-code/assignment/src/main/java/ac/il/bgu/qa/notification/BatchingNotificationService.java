@@ -0,0 +1,229 @@
+package ac.il.bgu.qa.notification;
+
+import ac.il.bgu.qa.errors.NotificationException;
+import ac.il.bgu.qa.services.Notification;
+import ac.il.bgu.qa.services.NotificationService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A notification service that coalesces the notifications sent through it into batches for another service.
+ * <p>
+ * Notifications sent at about the same time, by any number of threads and to any number of users, are collected
+ * and handed to the underlying service in a single {@link NotificationService#notifyUsers} call. A batch is sent as
+ * soon as it is full, or once the first notification in it has waited for the linger time, whichever comes first.
+ * {@link #notifyUser} still waits for the notification to be sent and fails if its batch failed, so it can be used
+ * anywhere a regular notification service is, such as by a {@link ac.il.bgu.qa.User}.
+ * <p>
+ * Wrap each backend in its own batching service, so that batches never mix backends.
+ */
+public class BatchingNotificationService implements NotificationService, AutoCloseable {
+
+    // The service the batches are sent to.
+    private final NotificationService delegate;
+    // The number of notifications that triggers sending a batch right away.
+    private final int maxBatchSize;
+    // How long the first notification of a batch waits for others, in nanoseconds.
+    private final long lingerNanos;
+    // Sends the batches that were not filled in time.
+    private final ScheduledExecutorService lingerFlusher;
+
+    // Guards pending, lingerFlush and closed.
+    private final Object lock = new Object();
+    // The notifications waiting to be sent, in the order they were submitted.
+    private List<Pending> pending = new ArrayList<>();
+    // Sends the pending batch once the linger time passes, if it doesn't fill up first.
+    private ScheduledFuture<?> lingerFlush;
+    private boolean closed;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder notifications = new LongAdder();
+
+    /**
+     * Constructs a new batching notification service.
+     *
+     * @param delegate     The service to send the batches to.
+     * @param maxBatchSize The number of notifications that triggers sending a batch right away.
+     * @param linger       How long the first notification of a batch waits for others.
+     * @param unit         The unit of the linger time.
+     */
+    public BatchingNotificationService(NotificationService delegate, int maxBatchSize, long linger, TimeUnit unit) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("Invalid notification service.");
+        } else if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Invalid batch size.");
+        } else if (linger < 0 || unit == null) {
+            throw new IllegalArgumentException("Invalid linger time.");
+        }
+        this.delegate = delegate;
+        this.maxBatchSize = maxBatchSize;
+        this.lingerNanos = unit.toNanos(linger);
+        this.lingerFlusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "notification-batcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Sends a notification as part of the next batch and waits for the batch to be sent.
+     *
+     * @param userId  The unique identifier of the user to be notified.
+     * @param message The content of the notification message.
+     * @throws NotificationException If the batch could not be sent.
+     */
+    @Override
+    public void notifyUser(String userId, String message) throws NotificationException {
+        try {
+            submit(userId, message).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NotificationException("Notification interrupted!");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof NotificationException) {
+                throw (NotificationException) e.getCause();
+            }
+            throw new NotificationException("Notification failed!");
+        }
+    }
+
+    /**
+     * Sends notifications that are already batched straight to the underlying service.
+     *
+     * @param notifications The notifications to send.
+     * @throws NotificationException If there's an issue sending the notifications.
+     */
+    @Override
+    public void notifyUsers(List<Notification> notifications) throws NotificationException {
+        deliver(notifications);
+    }
+
+    /**
+     * Adds a notification to the next batch without waiting for it to be sent.
+     *
+     * @param userId  The unique identifier of the user to be notified.
+     * @param message The content of the notification message.
+     * @return A future that completes once the batch was sent, or fails with the reason it was not.
+     */
+    public CompletableFuture<Void> submit(String userId, String message) {
+        Pending notification = new Pending(new Notification(userId, message));
+        List<Pending> batch = null;
+        synchronized (lock) {
+            if (closed) {
+                notification.future.completeExceptionally(
+                        new NotificationException("Notification service is closed!"));
+                return notification.future;
+            }
+            pending.add(notification);
+            if (pending.size() >= maxBatchSize) {
+                batch = takePending();
+            } else if (pending.size() == 1) {
+                lingerFlush = lingerFlusher.schedule(this::flush, lingerNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        // A full batch is sent by the thread that filled it.
+        if (batch != null) {
+            send(batch);
+        }
+        return notification.future;
+    }
+
+    /**
+     * Sends the pending notifications right away, without waiting for the batch to fill up or the linger time.
+     */
+    public void flush() {
+        List<Pending> batch;
+        synchronized (lock) {
+            batch = takePending();
+        }
+        if (!batch.isEmpty()) {
+            send(batch);
+        }
+    }
+
+    /**
+     * Retrieves the number of batches sent to the underlying service.
+     *
+     * @return The number of batches.
+     */
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    /**
+     * Retrieves the number of notifications sent to the underlying service.
+     *
+     * @return The number of notifications.
+     */
+    public long getNotificationCount() {
+        return notifications.sum();
+    }
+
+    /**
+     * Sends the pending notifications and stops accepting new ones.
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+        }
+        flush();
+        lingerFlusher.shutdown();
+    }
+
+    // Must be called while holding the lock.
+    private List<Pending> takePending() {
+        List<Pending> batch = pending;
+        pending = new ArrayList<>();
+        if (lingerFlush != null) {
+            lingerFlush.cancel(false);
+            lingerFlush = null;
+        }
+        return batch;
+    }
+
+    private void send(List<Pending> batch) {
+        List<Notification> batched = new ArrayList<>(batch.size());
+        for (Pending notification : batch) {
+            batched.add(notification.notification);
+        }
+        Throwable failure = null;
+        try {
+            deliver(batched);
+        } catch (Throwable e) {
+            // Fail every waiting caller, whatever went wrong, so none of them waits forever.
+            failure = e;
+        }
+        for (Pending notification : batch) {
+            if (failure == null) {
+                notification.future.complete(null);
+            } else {
+                notification.future.completeExceptionally(failure);
+            }
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+    }
+
+    private void deliver(List<Notification> batch) {
+        delegate.notifyUsers(batch);
+        batches.increment();
+        notifications.add(batch.size());
+    }
+
+    /**
+     * A notification waiting to be sent and the future of its outcome.
+     */
+    private static final class Pending {
+        final Notification notification;
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        Pending(Notification notification) {
+            this.notification = notification;
+        }
+    }
+}
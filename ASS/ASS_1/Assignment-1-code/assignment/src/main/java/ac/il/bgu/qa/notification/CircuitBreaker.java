@@ -0,0 +1,195 @@
+package ac.il.bgu.qa.notification;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Stops calling a service that keeps failing, so that callers fail fast instead of piling up on it.
+ * <p>
+ * The breaker starts {@link State#CLOSED}, letting every call through. After a number of consecutive failures it
+ * opens, and every call is rejected without reaching the service. Once the open duration has passed it becomes
+ * half open and lets a single trial call through: if the trial succeeds the breaker closes again, otherwise it
+ * opens for another open duration.
+ * <p>
+ * Callers ask for permission with {@link #tryAcquire()} and report the outcome of every permitted call with
+ * {@link #onSuccess()} or {@link #onFailure()}.
+ */
+public class CircuitBreaker {
+
+    /**
+     * The states of a circuit breaker.
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * Observes the state transitions of circuit breakers.
+     */
+    public interface StateListener {
+
+        /**
+         * Called after a breaker changed state, on the thread that caused the transition.
+         *
+         * @param breaker The breaker.
+         * @param from    The previous state.
+         * @param to      The new state.
+         */
+        void onStateChange(CircuitBreaker breaker, State from, State to);
+    }
+
+    // The number of consecutive failures that opens the breaker.
+    private final int failureThreshold;
+    // How long the breaker stays open before letting a trial call through, in nanoseconds.
+    private final long openDurationNanos;
+    // The source of the current time, in nanoseconds.
+    private final LongSupplier clock;
+    // Notified of every state transition.
+    private final List<StateListener> listeners;
+
+    // Guarded by this.
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    // The number of transitions into each state, indexed by ordinal.
+    private final AtomicLongArray transitions = new AtomicLongArray(State.values().length);
+    // The number of calls rejected without reaching the service.
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Constructs a new, closed circuit breaker.
+     *
+     * @param failureThreshold The number of consecutive failures that opens the breaker.
+     * @param openDuration     How long the breaker stays open before letting a trial call through.
+     * @param unit             The unit of the open duration.
+     */
+    public CircuitBreaker(int failureThreshold, long openDuration, TimeUnit unit) {
+        this(failureThreshold, openDuration, unit, System::nanoTime, Collections.emptyList());
+    }
+
+    // Visible for the registry, to share listeners, and for testing, to control the passing of time.
+    CircuitBreaker(int failureThreshold, long openDuration, TimeUnit unit, LongSupplier clock,
+                   List<StateListener> listeners) {
+        if (failureThreshold <= 0) {
+            throw new IllegalArgumentException("Invalid failure threshold.");
+        } else if (openDuration <= 0 || unit == null) {
+            throw new IllegalArgumentException("Invalid open duration.");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openDurationNanos = unit.toNanos(openDuration);
+        this.clock = clock;
+        this.listeners = listeners;
+    }
+
+    /**
+     * Asks for permission to call the service.
+     *
+     * @return true if the call may go ahead and its outcome must be reported, false if it must fail fast.
+     */
+    public boolean tryAcquire() {
+        State from;
+        synchronized (this) {
+            from = state;
+            if (state == State.CLOSED) {
+                return true;
+            }
+            if (state == State.OPEN && clock.getAsLong() - openedAt >= openDurationNanos) {
+                state = State.HALF_OPEN;
+            }
+            if (state == State.OPEN || trialInFlight) {
+                rejected.increment();
+                return false;
+            }
+            trialInFlight = true;
+        }
+        if (from != State.HALF_OPEN) {
+            transitioned(from, State.HALF_OPEN);
+        }
+        return true;
+    }
+
+    /**
+     * Reports that a permitted call succeeded.
+     */
+    public void onSuccess() {
+        State from;
+        synchronized (this) {
+            if (state == State.OPEN) {
+                // A call permitted before the breaker opened, it doesn't close the breaker early.
+                return;
+            }
+            consecutiveFailures = 0;
+            trialInFlight = false;
+            from = state;
+            if (state == State.CLOSED) {
+                return;
+            }
+            state = State.CLOSED;
+        }
+        transitioned(from, State.CLOSED);
+    }
+
+    /**
+     * Reports that a permitted call failed.
+     */
+    public void onFailure() {
+        State from;
+        synchronized (this) {
+            trialInFlight = false;
+            from = state;
+            if (state == State.CLOSED && ++consecutiveFailures < failureThreshold) {
+                return;
+            }
+            if (state == State.OPEN) {
+                // A call permitted before the breaker opened, it doesn't extend the open duration.
+                return;
+            }
+            state = State.OPEN;
+            consecutiveFailures = 0;
+            openedAt = clock.getAsLong();
+        }
+        transitioned(from, State.OPEN);
+    }
+
+    /**
+     * Retrieves the current state. An open breaker whose open duration has passed is reported as open
+     * until the next call asks for permission.
+     *
+     * @return The current state.
+     */
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Retrieves the number of times the breaker entered a state.
+     *
+     * @param state The state.
+     * @return The number of transitions into the state.
+     */
+    public long getTransitionCount(State state) {
+        return transitions.get(state.ordinal());
+    }
+
+    /**
+     * Retrieves the number of calls rejected without reaching the service.
+     *
+     * @return The number of rejected calls.
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    private void transitioned(State from, State to) {
+        transitions.incrementAndGet(to.ordinal());
+        for (StateListener listener : listeners) {
+            listener.onStateChange(this, from, to);
+        }
+    }
+}
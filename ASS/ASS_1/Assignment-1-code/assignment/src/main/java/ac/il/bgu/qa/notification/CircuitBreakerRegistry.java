@@ -0,0 +1,74 @@
+package ac.il.bgu.qa.notification;
+
+import ac.il.bgu.qa.services.NotificationService;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps one circuit breaker per notification service, so that a failing service only fails fast for the users
+ * it serves. All breakers share the same settings and listeners.
+ */
+public class CircuitBreakerRegistry {
+
+    // The breaker of each notification service.
+    private final ConcurrentMap<NotificationService, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    // Notified of the state transitions of every breaker.
+    private final List<CircuitBreaker.StateListener> listeners = new CopyOnWriteArrayList<>();
+
+    private final int failureThreshold;
+    private final long openDuration;
+    private final TimeUnit unit;
+    private final LongSupplier clock;
+
+    /**
+     * Constructs a new registry.
+     *
+     * @param failureThreshold The number of consecutive failures that opens a breaker.
+     * @param openDuration     How long a breaker stays open before letting a trial call through.
+     * @param unit             The unit of the open duration.
+     */
+    public CircuitBreakerRegistry(int failureThreshold, long openDuration, TimeUnit unit) {
+        this(failureThreshold, openDuration, unit, System::nanoTime);
+    }
+
+    // Visible for testing, to control the passing of time.
+    CircuitBreakerRegistry(int failureThreshold, long openDuration, TimeUnit unit, LongSupplier clock) {
+        // Fail on invalid settings now rather than on the first notification.
+        new CircuitBreaker(failureThreshold, openDuration, unit, clock, listeners);
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+        this.unit = unit;
+        this.clock = clock;
+    }
+
+    /**
+     * Retrieves the breaker of a notification service, creating it on first use.
+     *
+     * @param notificationService The notification service.
+     * @return The breaker of the service.
+     */
+    public CircuitBreaker get(NotificationService notificationService) {
+        if (notificationService == null) {
+            throw new IllegalArgumentException("Invalid notification service.");
+        }
+        return breakers.computeIfAbsent(notificationService,
+                service -> new CircuitBreaker(failureThreshold, openDuration, unit, clock, listeners));
+    }
+
+    /**
+     * Adds a listener notified of the state transitions of every breaker, including those created later.
+     *
+     * @param listener The listener.
+     */
+    public void addListener(CircuitBreaker.StateListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Invalid listener.");
+        }
+        listeners.add(listener);
+    }
+}
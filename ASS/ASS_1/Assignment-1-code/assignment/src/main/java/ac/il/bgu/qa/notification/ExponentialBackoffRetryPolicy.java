@@ -0,0 +1,77 @@
+package ac.il.bgu.qa.notification;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+
+/**
+ * A retry policy that waits exponentially longer after every failure, with full jitter.
+ * <p>
+ * The n-th retry waits a random time between 0 and {@code min(maxDelay, initialDelay * multiplier^(n-1))}, so that
+ * callers that failed together don't all retry together. Retrying stops after the maximum number of attempts, or
+ * once the next attempt would start after the maximum elapsed time.
+ */
+public class ExponentialBackoffRetryPolicy implements RetryPolicy {
+
+    // The maximum number of attempts, including the first one.
+    private final int maxAttempts;
+    // The upper bound of the first delay, in nanoseconds.
+    private final long initialDelayNanos;
+    // The upper bound of any delay, in nanoseconds.
+    private final long maxDelayNanos;
+    // How much the upper bound grows after every failure.
+    private final double multiplier;
+    // The time after which no new attempt is started, in nanoseconds.
+    private final long maxElapsedNanos;
+    // Returns a random number between 0 (inclusive) and 1 (exclusive).
+    private final DoubleSupplier random;
+
+    /**
+     * Constructs a new policy.
+     *
+     * @param maxAttempts  The maximum number of attempts, including the first one.
+     * @param initialDelay The upper bound of the first delay.
+     * @param maxDelay     The upper bound of any delay.
+     * @param multiplier   How much the upper bound grows after every failure, at least 1.
+     * @param maxElapsed   The time since the first attempt after which no new attempt is started.
+     * @param unit         The unit of the delays and the elapsed time.
+     */
+    public ExponentialBackoffRetryPolicy(int maxAttempts, long initialDelay, long maxDelay, double multiplier,
+                                         long maxElapsed, TimeUnit unit) {
+        this(maxAttempts, initialDelay, maxDelay, multiplier, maxElapsed, unit,
+                () -> ThreadLocalRandom.current().nextDouble());
+    }
+
+    // Visible for testing, to control the jitter.
+    ExponentialBackoffRetryPolicy(int maxAttempts, long initialDelay, long maxDelay, double multiplier,
+                                  long maxElapsed, TimeUnit unit, DoubleSupplier random) {
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("Invalid number of attempts.");
+        } else if (initialDelay < 0 || maxDelay < initialDelay || maxElapsed < 0 || unit == null) {
+            throw new IllegalArgumentException("Invalid delay.");
+        } else if (!(multiplier >= 1)) {
+            throw new IllegalArgumentException("Invalid multiplier.");
+        }
+        this.maxAttempts = maxAttempts;
+        this.initialDelayNanos = unit.toNanos(initialDelay);
+        this.maxDelayNanos = unit.toNanos(maxDelay);
+        this.multiplier = multiplier;
+        this.maxElapsedNanos = unit.toNanos(maxElapsed);
+        this.random = random;
+    }
+
+    @Override
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    @Override
+    public long getDelayNanos(int failures, long elapsedNanos) {
+        if (failures >= maxAttempts) {
+            return STOP;
+        }
+        double bound = Math.min(maxDelayNanos, initialDelayNanos * Math.pow(multiplier, failures - 1));
+        long delay = (long) (random.getAsDouble() * bound);
+        return elapsedNanos + delay > maxElapsedNanos ? STOP : delay;
+    }
+}
@@ -0,0 +1,243 @@
+package ac.il.bgu.qa.notification;
+
+import ac.il.bgu.qa.errors.NotificationException;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends notifications in the background, so that a slow notification service doesn't hold up the caller.
+ * <p>
+ * Dispatched notifications wait in a bounded queue and are sent by a fixed number of worker threads, in the order
+ * they were dispatched. The caller gets a future that completes once the notification was sent, or fails with the
+ * reason it was not. When the queue is full, the {@link BackpressurePolicy} decides what happens to new notifications.
+ * <p>
+ * The worker threads are created by a thread factory, so they can be daemon threads, named threads, or on a
+ * runtime that supports them, virtual threads.
+ */
+public class NotificationDispatcher implements AutoCloseable {
+
+    // Queued by close() to wake an idle worker up so that it exits. Each exiting worker passes it on to the next.
+    private static final Task SHUTDOWN = new Task(() -> { });
+
+    // Notifications waiting to be sent, the oldest first.
+    private final BlockingQueue<Task> queue;
+    // What happens to new notifications while the queue is full.
+    private final BackpressurePolicy policy;
+    // Counts down as workers exit.
+    private final CountDownLatch terminated;
+    // The number of workers that have not exited yet.
+    private final AtomicInteger running;
+
+    // Notifications not sent because the queue was full.
+    private final LongAdder rejected = new LongAdder();
+    private volatile boolean closed;
+
+    /**
+     * Constructs a new dispatcher and starts its workers.
+     *
+     * @param capacity      The maximum number of notifications waiting to be sent.
+     * @param workers       The number of threads sending notifications.
+     * @param policy        What happens to new notifications while the queue is full.
+     * @param threadFactory Creates the worker threads.
+     */
+    public NotificationDispatcher(int capacity, int workers, BackpressurePolicy policy, ThreadFactory threadFactory) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Invalid queue capacity.");
+        } else if (workers <= 0) {
+            throw new IllegalArgumentException("Invalid number of workers.");
+        } else if (policy == null) {
+            throw new IllegalArgumentException("Invalid backpressure policy.");
+        } else if (threadFactory == null) {
+            throw new IllegalArgumentException("Invalid thread factory.");
+        }
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.policy = policy;
+        this.terminated = new CountDownLatch(workers);
+        this.running = new AtomicInteger(workers);
+        for (int i = 0; i < workers; i++) {
+            threadFactory.newThread(this::work).start();
+        }
+    }
+
+    /**
+     * Constructs a new dispatcher with daemon worker threads and starts them.
+     *
+     * @param capacity The maximum number of notifications waiting to be sent.
+     * @param workers  The number of threads sending notifications.
+     * @param policy   What happens to new notifications while the queue is full.
+     */
+    public NotificationDispatcher(int capacity, int workers, BackpressurePolicy policy) {
+        this(capacity, workers, policy, daemonThreads());
+    }
+
+    /**
+     * Queues a notification to be sent by a worker.
+     *
+     * @param delivery Sends the notification, throwing if it could not be sent.
+     * @return A future that completes once the notification was sent, or fails with the reason it was not.
+     */
+    public CompletableFuture<Void> dispatch(Runnable delivery) {
+        if (delivery == null) {
+            throw new IllegalArgumentException("Invalid notification.");
+        }
+        Task task = new Task(delivery);
+        if (closed) {
+            task.fail(new NotificationException("Notification dispatcher is closed!"));
+            return task.future;
+        }
+
+        if (!queue.offer(task)) {
+            switch (policy) {
+                case BLOCK:
+                    try {
+                        queue.put(task);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        task.fail(new NotificationException("Notification interrupted!"));
+                        return task.future;
+                    }
+                    break;
+                case CALLER_RUNS:
+                    task.run();
+                    return task.future;
+                case REJECT:
+                    rejected.increment();
+                    task.fail(new NotificationException("Notification queue is full!"));
+                    return task.future;
+                case DROP_OLDEST:
+                    while (!queue.offer(task)) {
+                        Task oldest = queue.poll();
+                        if (oldest == SHUTDOWN) {
+                            // The dispatcher was closed meanwhile, leave the workers their wake-up call.
+                            queue.offer(SHUTDOWN);
+                            task.fail(new NotificationException("Notification dispatcher is closed!"));
+                            return task.future;
+                        } else if (oldest != null) {
+                            rejected.increment();
+                            oldest.fail(new NotificationException("Notification dropped!"));
+                        }
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown backpressure policy.");
+            }
+        }
+
+        // The dispatcher may have been closed meanwhile and its workers gone, make sure the task isn't stranded.
+        if (closed && queue.remove(task)) {
+            task.fail(new NotificationException("Notification dispatcher is closed!"));
+        }
+        return task.future;
+    }
+
+    /**
+     * Retrieves the number of notifications waiting to be sent.
+     *
+     * @return The number of queued notifications.
+     */
+    public int getQueuedCount() {
+        return queue.size();
+    }
+
+    /**
+     * Retrieves the number of notifications that were not sent because the queue was full.
+     *
+     * @return The number of rejected and dropped notifications.
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * Stops accepting notifications. The notifications already queued are still sent.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        // Idle workers wait for work without a timeout. If the queue is full none is idle, and the worker that
+        // empties it exits by itself.
+        queue.offer(SHUTDOWN);
+    }
+
+    /**
+     * Waits for the workers to send the queued notifications and exit after {@link #close()}.
+     *
+     * @param timeout The maximum time to wait.
+     * @param unit    The unit of the timeout.
+     * @return true if all workers exited, false if the timeout elapsed first.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return terminated.await(timeout, unit);
+    }
+
+    private void work() {
+        try {
+            while (true) {
+                Task task;
+                try {
+                    task = queue.take();
+                } catch (InterruptedException e) {
+                    // Interrupting a worker stops it, the rest of the queue is left to the other workers.
+                    return;
+                }
+                if (task == SHUTDOWN) {
+                    return;
+                }
+                task.run();
+                if (closed && queue.isEmpty()) {
+                    return;
+                }
+            }
+        } finally {
+            if (running.decrementAndGet() > 0) {
+                if (closed) {
+                    // Wake the next idle worker up, so that it exits too.
+                    queue.offer(SHUTDOWN);
+                }
+            } else {
+                // Nobody is left to wake up.
+                while (queue.remove(SHUTDOWN)) {
+                    // Keep removing.
+                }
+            }
+            terminated.countDown();
+        }
+    }
+
+    private static ThreadFactory daemonThreads() {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "notification-dispatcher-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * A queued notification and the future of its outcome.
+     */
+    private static final class Task {
+        final Runnable delivery;
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        Task(Runnable delivery) {
+            this.delivery = delivery;
+        }
+
+        void run() {
+            try {
+                delivery.run();
+                future.complete(null);
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        }
+
+        void fail(RuntimeException cause) {
+            future.completeExceptionally(cause);
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package ac.il.bgu.qa.notification;
+
+import ac.il.bgu.qa.util.HashUtils;
+
+import java.io.PrintStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Logs failed notifications in the background, so that an outage of a notification service doesn't serialize
+ * every request thread on the console.
+ * <p>
+ * Request threads record an event as a few fields in a preallocated slot of a bounded ring buffer, without locks
+ * or allocation, and never wait: when the buffer is full the event is dropped and counted. A single writer thread
+ * formats the events and writes them out, the same messages the library always printed. Each kind of message is
+ * written at most a given number of times per second; the rest are counted, and summarized in one line once the
+ * second is over.
+ * <p>
+ * The writer sleeps while the buffer is empty, and the first event recorded after it went idle wakes it up. It only
+ * wakes up by itself to write the summary of a second that is over.
+ */
+public class NotificationEventLog implements AutoCloseable {
+
+    // The length of a rate limiting window, in nanoseconds.
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    // A notification attempt failed and will be retried, or not, as the retry policy decides.
+    private static final int RETRY = 0;
+    // A book lookup could not notify the user; the book was returned anyway.
+    private static final int LOOKUP_NOTIFICATION_FAILED = 1;
+
+    // The slots of the ring buffer; the event with sequence number s is in slot s & mask.
+    private final Slot[] slots;
+    private final int mask;
+    // The sequence number of the next event to record.
+    private final AtomicLong head = new AtomicLong();
+    // The sequence number of the next event to write, only advanced by the writer.
+    private final AtomicLong tail = new AtomicLong();
+
+    // Where each kind of message is written, looked up on every write.
+    private final Supplier<PrintStream> retryStream;
+    private final Supplier<PrintStream> failureStream;
+    // The rate limit of each kind of message.
+    private final Window[] windows = {new Window(), new Window()};
+    private final int maxMessagesPerSecond;
+    private final LongSupplier clock;
+
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder suppressed = new LongAdder();
+    private final LongAdder written = new LongAdder();
+
+    // The writer thread, or null if the log is drained by calling drain().
+    private final Thread writer;
+    // Set by the writer before it sleeps, and cleared by the event that wakes it up.
+    private final AtomicBoolean idle = new AtomicBoolean();
+
+    private final CountDownLatch terminated = new CountDownLatch(1);
+    private volatile boolean closed;
+
+    /**
+     * Constructs a new event log and starts its writer thread.
+     *
+     * @param capacity             The maximum number of events waiting to be written, rounded up to a power of two.
+     * @param maxMessagesPerSecond The maximum number of each kind of message written per second.
+     * @param out                  Where failed book lookup notifications are written.
+     * @param err                  Where notification retries are written.
+     */
+    public NotificationEventLog(int capacity, int maxMessagesPerSecond, PrintStream out, PrintStream err) {
+        this(capacity, maxMessagesPerSecond, streamOf(out), streamOf(err), System::nanoTime, true);
+    }
+
+    // Visible for testing: a log without a writer thread is drained by calling drain().
+    NotificationEventLog(int capacity, int maxMessagesPerSecond, Supplier<PrintStream> out, Supplier<PrintStream> err,
+                         LongSupplier clock, boolean start) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Invalid capacity.");
+        } else if (maxMessagesPerSecond <= 0) {
+            throw new IllegalArgumentException("Invalid rate limit.");
+        }
+        int size = HashUtils.tableSizeFor(capacity, 1f);
+        this.slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+        }
+        this.mask = size - 1;
+        this.maxMessagesPerSecond = maxMessagesPerSecond;
+        this.failureStream = out;
+        this.retryStream = err;
+        this.clock = clock;
+        if (start) {
+            this.writer = new Thread(this::write, "notification-event-log");
+            writer.setDaemon(true);
+            writer.start();
+        } else {
+            this.writer = null;
+            terminated.countDown();
+        }
+    }
+
+    /**
+     * Retrieves the event log shared by libraries that were not given one, which writes to
+     * System.out and System.err, as they are when each message is written.
+     *
+     * @return The shared event log.
+     */
+    public static NotificationEventLog shared() {
+        return Shared.LOG;
+    }
+
+    /**
+     * Records that sending a notification failed, written as "Notification failed! Retrying attempt N/M".
+     *
+     * @param attempt     The number of attempts so far.
+     * @param maxAttempts The maximum number of attempts of the retry policy.
+     */
+    public void retryFailed(int attempt, int maxAttempts) {
+        record(RETRY, attempt, maxAttempts);
+    }
+
+    /**
+     * Records that a book lookup could not notify the user with the book's reviews,
+     * written as "Notification failed!".
+     */
+    public void lookupNotificationFailed() {
+        record(LOOKUP_NOTIFICATION_FAILED, 0, 0);
+    }
+
+    /**
+     * Retrieves the number of events recorded, whether they were written or not.
+     *
+     * @return The number of events.
+     */
+    public long getRecordedCount() {
+        return recorded.sum();
+    }
+
+    /**
+     * Retrieves the number of events dropped because the writer fell behind and the buffer was full.
+     *
+     * @return The number of dropped events.
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Retrieves the number of events not written because of the rate limit.
+     *
+     * @return The number of suppressed events.
+     */
+    public long getSuppressedCount() {
+        return suppressed.sum();
+    }
+
+    /**
+     * Retrieves the number of events written.
+     *
+     * @return The number of written events.
+     */
+    public long getWrittenCount() {
+        return written.sum();
+    }
+
+    /**
+     * Stops the writer once it has written the events already recorded. Later events are dropped.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (writer != null) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /**
+     * Waits for the writer to write the recorded events and exit after {@link #close()}.
+     *
+     * @param timeout The maximum time to wait.
+     * @param unit    The unit of the timeout.
+     * @return true if the writer exited, false if the timeout elapsed first.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return terminated.await(timeout, unit);
+    }
+
+    private void record(int type, int attempt, int maxAttempts) {
+        recorded.increment();
+        long sequence;
+        do {
+            sequence = head.get();
+            if (closed || sequence - tail.get() >= slots.length) {
+                dropped.increment();
+                return;
+            }
+        } while (!head.compareAndSet(sequence, sequence + 1));
+
+        Slot slot = slots[(int) sequence & mask];
+        slot.type = type;
+        slot.attempt = attempt;
+        slot.maxAttempts = maxAttempts;
+        // Publishes the fields above to the writer.
+        slot.sequence = sequence;
+
+        // Only the first event after the writer went idle wakes it up; it writes the later ones too.
+        if (idle.get() && idle.compareAndSet(true, false)) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private void write() {
+        try {
+            while (!closed || tail.get() != head.get()) {
+                if (drain() == 0) {
+                    flushSuppressed(false);
+                    sleep();
+                }
+            }
+            flushSuppressed(true);
+        } finally {
+            terminated.countDown();
+        }
+    }
+
+    /**
+     * Sleeps until an event is recorded, the log is closed, or a second with suppressed messages is over.
+     */
+    private void sleep() {
+        idle.set(true);
+        // Look again, as an event published before the flag was set did not wake the writer up.
+        if (drain() == 0 && !closed) {
+            long timeout = nanosUntilSummary();
+            if (timeout < 0) {
+                LockSupport.park(this);
+            } else {
+                LockSupport.parkNanos(this, timeout);
+            }
+        }
+        idle.set(false);
+    }
+
+    /**
+     * Computes how long until the earliest window with suppressed messages is over.
+     *
+     * @return The time in nanoseconds, or -1 if no messages were suppressed.
+     */
+    private long nanosUntilSummary() {
+        long now = clock.getAsLong();
+        long timeout = -1;
+        for (Window window : windows) {
+            if (window.suppressed > 0) {
+                long remaining = Math.max(window.start + WINDOW_NANOS - now, 1);
+                timeout = timeout < 0 ? remaining : Math.min(timeout, remaining);
+            }
+        }
+        return timeout;
+    }
+
+    /**
+     * Writes the events published so far, in the order they were recorded.
+     *
+     * @return The number of events taken from the buffer.
+     */
+    int drain() {
+        int count = 0;
+        long next = tail.get();
+        while (true) {
+            Slot slot = slots[(int) next & mask];
+            if (slot.sequence != next) {
+                break;
+            }
+            int type = slot.type;
+            int attempt = slot.attempt;
+            int maxAttempts = slot.maxAttempts;
+            // Frees the slot for producers.
+            tail.lazySet(++next);
+            count++;
+
+            Window window = windows[type];
+            long now = clock.getAsLong();
+            if (!window.started || now - window.start >= WINDOW_NANOS) {
+                flushSuppressed(type, window);
+                window.start = now;
+                window.started = true;
+            }
+            if (window.written < maxMessagesPerSecond) {
+                window.written++;
+                written.increment();
+                if (type == RETRY) {
+                    retryStream.get().println("Notification failed! Retrying attempt " + attempt + "/" + maxAttempts);
+                } else {
+                    failureStream.get().println("Notification failed!");
+                }
+            } else {
+                window.suppressed++;
+                suppressed.increment();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Writes the summaries of the messages suppressed in windows that are over.
+     *
+     * @param all Whether to write the summaries of the current windows too, such as when closing.
+     */
+    void flushSuppressed(boolean all) {
+        long now = clock.getAsLong();
+        for (int type = 0; type < windows.length; type++) {
+            Window window = windows[type];
+            if (all || (window.started && now - window.start >= WINDOW_NANOS)) {
+                flushSuppressed(type, window);
+            }
+        }
+    }
+
+    private void flushSuppressed(int type, Window window) {
+        if (window.suppressed > 0) {
+            PrintStream stream = type == RETRY ? retryStream.get() : failureStream.get();
+            stream.println("Notification failed! (" + window.suppressed + " similar messages suppressed)");
+        }
+        window.suppressed = 0;
+        window.written = 0;
+    }
+
+    /**
+     * An event in the ring buffer. Fields are written by one producer, then published by writing the sequence.
+     */
+    private static final class Slot {
+        volatile long sequence = -1;
+        int type;
+        int attempt;
+        int maxAttempts;
+    }
+
+    /**
+     * The messages of one kind written and suppressed in the current second, only touched by the writer.
+     */
+    private static final class Window {
+        boolean started;
+        long start;
+        int written;
+        long suppressed;
+    }
+
+    private static Supplier<PrintStream> streamOf(PrintStream stream) {
+        if (stream == null) {
+            throw new IllegalArgumentException("Invalid output stream.");
+        }
+        return () -> stream;
+    }
+
+    private static final class Shared {
+        static final NotificationEventLog LOG = new NotificationEventLog(4_096, 100,
+                () -> System.out, () -> System.err, System::nanoTime, true);
+    }
+}
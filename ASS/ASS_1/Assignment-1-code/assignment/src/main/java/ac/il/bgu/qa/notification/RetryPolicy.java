@@ -0,0 +1,51 @@
+package ac.il.bgu.qa.notification;
+
+/**
+ * Decides if and when a failed notification is sent again.
+ */
+public interface RetryPolicy {
+
+    /**
+     * Returned by {@link #getDelayNanos} when the notification should not be sent again.
+     */
+    long STOP = -1;
+
+    /**
+     * Retrieves the maximum number of attempts, including the first one.
+     *
+     * @return The maximum number of attempts.
+     */
+    int getMaxAttempts();
+
+    /**
+     * Decides how long to wait before the next attempt.
+     *
+     * @param failures     The number of attempts that failed so far, at least 1.
+     * @param elapsedNanos The time since the first attempt started, in nanoseconds.
+     * @return The delay in nanoseconds, 0 to retry right away, or {@link #STOP} to give up.
+     */
+    long getDelayNanos(int failures, long elapsedNanos);
+
+    /**
+     * Creates a policy that retries right away, up to a number of attempts.
+     *
+     * @param maxAttempts The maximum number of attempts, including the first one.
+     * @return The policy.
+     */
+    static RetryPolicy immediate(int maxAttempts) {
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("Invalid number of attempts.");
+        }
+        return new RetryPolicy() {
+            @Override
+            public int getMaxAttempts() {
+                return maxAttempts;
+            }
+
+            @Override
+            public long getDelayNanos(int failures, long elapsedNanos) {
+                return failures < maxAttempts ? 0 : STOP;
+            }
+        };
+    }
+}
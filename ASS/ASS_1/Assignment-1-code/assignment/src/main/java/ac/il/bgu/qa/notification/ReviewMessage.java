@@ -0,0 +1,167 @@
+package ac.il.bgu.qa.notification;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A notification message with the reviews of a book, rendered once and shared by every user notified about it.
+ * <p>
+ * The message is immutable, and kept as its pieces: the header and the reviews themselves, never copied into one
+ * text. {@link #writeTo} streams the pieces to a writer, so a streaming notification service never needs the whole
+ * message in memory. {@link #toString()} joins them the first time it is called, for services that need a String,
+ * and returns the same String instance every time after that.
+ */
+public final class ReviewMessage implements CharSequence {
+
+    // The size of the pieces writeTo writes a long review in, in characters.
+    private static final int WRITE_CHUNK = 8192;
+
+    // The International Standard Book Number of the book.
+    private final String isbn;
+    // The pieces of the message in order: the header, the reviews with line breaks between them, the trailer.
+    private final String[] parts;
+    // The offset in the message of the first character of each part.
+    private final int[] starts;
+    private final int length;
+    // The number of reviews of the book.
+    private final int reviewCount;
+    // The number of reviews included in the message.
+    private final int renderedReviewCount;
+    // The whole message, joined on the first call to toString.
+    private volatile String text;
+
+    ReviewMessage(String isbn, String header, List<String> reviews, String trailer, int reviewCount) {
+        int count = reviews.size();
+        String[] parts = new String[2 * count + 2];
+        int size = 0;
+        parts[size++] = header;
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                parts[size++] = "\n";
+            }
+            parts[size++] = String.valueOf(reviews.get(i));
+        }
+        parts[size++] = trailer;
+
+        this.parts = Arrays.copyOf(parts, size);
+        this.starts = new int[size];
+        long length = 0;
+        for (int i = 0; i < size; i++) {
+            starts[i] = (int) length;
+            length += this.parts[i].length();
+        }
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid message length.");
+        }
+        this.isbn = isbn;
+        this.length = (int) length;
+        this.reviewCount = reviewCount;
+        this.renderedReviewCount = count;
+    }
+
+    /**
+     * Retrieves the book the message is about.
+     *
+     * @return The International Standard Book Number of the book.
+     */
+    public String getISBN() {
+        return isbn;
+    }
+
+    /**
+     * Retrieves the number of reviews of the book.
+     *
+     * @return The number of reviews, including those left out of the message.
+     */
+    public int getReviewCount() {
+        return reviewCount;
+    }
+
+    /**
+     * Retrieves the number of reviews included in the message.
+     *
+     * @return The number of included reviews.
+     */
+    public int getRenderedReviewCount() {
+        return renderedReviewCount;
+    }
+
+    /**
+     * Writes the message to a writer piece by piece, without joining it into one text.
+     *
+     * @param writer The writer. It is not flushed or closed.
+     * @throws IOException If the writer fails.
+     */
+    public void writeTo(Writer writer) throws IOException {
+        for (String part : parts) {
+            for (int start = 0; start < part.length(); start += WRITE_CHUNK) {
+                writer.write(part, start, Math.min(WRITE_CHUNK, part.length() - start));
+            }
+        }
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Invalid index " + index + ".");
+        }
+        int part = partOf(index);
+        return parts[part].charAt(index - starts[part]);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException("Invalid range " + start + "-" + end + ".");
+        }
+        StringBuilder sequence = new StringBuilder(end - start);
+        for (int part = start == end ? parts.length : partOf(start); part < parts.length && starts[part] < end; part++) {
+            int from = Math.max(start - starts[part], 0);
+            int to = Math.min(end - starts[part], parts[part].length());
+            sequence.append(parts[part], from, to);
+        }
+        return sequence.toString();
+    }
+
+    @Override
+    public String toString() {
+        String text = this.text;
+        if (text == null) {
+            StringBuilder joined = new StringBuilder(length);
+            for (String part : parts) {
+                joined.append(part);
+            }
+            text = joined.toString();
+            this.text = text;
+        }
+        return text;
+    }
+
+    /**
+     * Finds the part a character is in, skipping empty parts.
+     *
+     * @param index The offset of the character in the message.
+     * @return The index of the part.
+     */
+    private int partOf(int index) {
+        int low = 0;
+        int high = starts.length - 1;
+        // The last part starting at or before the index; empty parts share their start with the next part.
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (starts[middle] <= index) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,113 @@
+package ac.il.bgu.qa.notification;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Renders the notification messages with the reviews of a book, shared by every user notified about it.
+ * <p>
+ * The message is the book's title followed by one review per line, as {@link ac.il.bgu.qa.Library} always sent it.
+ * Reviews are not capped by default. With a cap, books with more reviews only include the first reviews, followed
+ * by a line telling how many were left out. Rendering only keeps references to the header and the reviews, so it costs no more than the number of
+ * included reviews; the text is only joined if a notification service asks for a String.
+ * <p>
+ * Optionally, the most recently rendered messages are kept, one per book, and reused as long as the title and the
+ * review list instance are the same. That only pays off behind a review service that returns the same list for a
+ * book every time, such as a {@link ac.il.bgu.qa.services.review.CachingReviewService}; a service returning a new
+ * list every call would fill the cache with messages that are never reused, so no messages are kept by default.
+ */
+public class ReviewMessageRenderer {
+
+    // The maximum number of reviews included in a message.
+    private final int maxReviews;
+    // The maximum number of rendered messages kept.
+    private final int maxCachedBooks;
+    // The most recently rendered message of each book, least recently used first. Guarded by itself.
+    private final LinkedHashMap<String, Rendered> rendered = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Constructs a new renderer.
+     *
+     * @param maxReviews     The maximum number of reviews included in a message.
+     * @param maxCachedBooks The maximum number of rendered messages kept for reuse, 0 to not keep any.
+     */
+    public ReviewMessageRenderer(int maxReviews, int maxCachedBooks) {
+        if (maxReviews <= 0) {
+            throw new IllegalArgumentException("Invalid number of reviews.");
+        } else if (maxCachedBooks < 0) {
+            throw new IllegalArgumentException("Invalid cache size.");
+        }
+        this.maxReviews = maxReviews;
+        this.maxCachedBooks = maxCachedBooks;
+    }
+
+    /**
+     * Constructs a new renderer that includes every review and keeps no messages.
+     */
+    public ReviewMessageRenderer() {
+        this(Integer.MAX_VALUE, 0);
+    }
+
+    /**
+     * Renders the message with the reviews of a book, or reuses the message rendered for the same reviews before.
+     *
+     * @param ISBN    The International Standard Book Number of the book.
+     * @param title   The title of the book.
+     * @param reviews The reviews of the book.
+     * @return The message.
+     */
+    public ReviewMessage render(String ISBN, String title, List<String> reviews) {
+        if (maxCachedBooks > 0) {
+            synchronized (rendered) {
+                Rendered cached = rendered.get(ISBN);
+                if (cached != null && cached.matches(title, reviews)) {
+                    return cached.message;
+                }
+            }
+        }
+
+        ReviewMessage message = renderMessage(ISBN, title, reviews);
+        if (maxCachedBooks > 0) {
+            synchronized (rendered) {
+                rendered.put(ISBN, new Rendered(message, title, reviews));
+                if (rendered.size() > maxCachedBooks) {
+                    Iterator<Rendered> eldest = rendered.values().iterator();
+                    eldest.next();
+                    eldest.remove();
+                }
+            }
+        }
+        return message;
+    }
+
+    private ReviewMessage renderMessage(String ISBN, String title, List<String> reviews) {
+        int count = Math.min(reviews.size(), maxReviews);
+        String header = "Reviews for '" + title + "':\n";
+        String trailer = count < reviews.size() ? "\n... and " + (reviews.size() - count) + " more reviews." : "";
+        return new ReviewMessage(ISBN, header, reviews.subList(0, count), trailer, reviews.size());
+    }
+
+    /**
+     * A rendered message and what it was rendered from.
+     */
+    private static final class Rendered {
+        final ReviewMessage message;
+        final String title;
+        final List<String> reviews;
+        final int size;
+
+        Rendered(ReviewMessage message, String title, List<String> reviews) {
+            this.message = message;
+            this.title = title;
+            this.reviews = reviews;
+            this.size = reviews.size();
+        }
+
+        boolean matches(String title, List<String> reviews) {
+            // The same list instance, as a cache returns it. Comparing the contents would cost as much as rendering.
+            return this.reviews == reviews && this.size == reviews.size() && Objects.equals(this.title, title);
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package ac.il.bgu.qa.search;
+
+import ac.il.bgu.qa.Book;
+import ac.il.bgu.qa.util.LongObjectHashMap;
+import ac.il.bgu.qa.validation.IsbnValidator;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * An in-memory full-text index over the titles and authors of books, for prefix search as the user types.
+ * <p>
+ * Titles and authors are split into tokens, lower case and without accents, so "&Eacute;mile Zola" is found by
+ * "emile" and by "zol". Each token maps to a posting list: the sorted, primitive int array of the books it
+ * appears in, by the order they were added. The tokens are kept in a sorted dictionary, so all tokens starting
+ * with a prefix are a single range of it.
+ * <p>
+ * A search matches the books containing every token of the query, each as a prefix of some token of the book.
+ * Books matching more query tokens exactly rank higher, and books added earlier rank higher among equals.
+ * Only the requested page is ranked fully, the rest is only counted.
+ * <p>
+ * All operations are thread-safe. Searches take a read lock and may run in parallel.
+ */
+public class BookSearchIndex {
+
+    // The books by document number, the order they were added in.
+    private Book[] books = new Book[64];
+    private int size;
+    // The documents replaced by adding the same book again, which searches skip.
+    private final BitSet replaced = new BitSet();
+    // The document of each book, keyed by the numeric value of its ISBN-13.
+    private final LongObjectHashMap<Integer> documents = new LongObjectHashMap<>();
+    // The posting list of each token, sorted by token.
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    private final StampedLock lock = new StampedLock();
+
+    /**
+     * Adds a book to the index, replacing a book with the same ISBN.
+     *
+     * @param book The book to be added.
+     */
+    public void add(Book book) {
+        addAll(Collections.singletonList(book));
+    }
+
+    /**
+     * Adds several books to the index at once, such as a whole catalog after an import.
+     *
+     * @param books The books to be added.
+     */
+    public void addAll(Collection<Book> books) {
+        long[] keys = new long[books.size()];
+        int i = 0;
+        for (Book book : books) {
+            if (book == null) {
+                throw new IllegalArgumentException("Invalid book.");
+            }
+            keys[i] = IsbnValidator.parseIsbn13(book.getISBN());
+            if (keys[i++] == IsbnValidator.INVALID) {
+                throw new IllegalArgumentException("Invalid ISBN.");
+            }
+        }
+
+        long stamp = lock.writeLock();
+        try {
+            i = 0;
+            for (Book book : books) {
+                int document = size;
+                Integer previous = documents.put(keys[i++], document);
+                if (previous != null) {
+                    replaced.set(previous);
+                }
+                if (document == this.books.length) {
+                    this.books = Arrays.copyOf(this.books, document << 1);
+                }
+                this.books[document] = book;
+                size++;
+
+                Set<String> tokens = new HashSet<>(tokenize(book.getTitle()));
+                tokens.addAll(tokenize(book.getAuthor()));
+                for (String token : tokens) {
+                    terms.computeIfAbsent(token, t -> new Postings()).add(document);
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Searches the titles and authors of the books.
+     *
+     * @param query  The words to search for. Each may be the start of a word.
+     * @param offset The number of best matches to skip, for paging.
+     * @param limit  The maximum number of books to return.
+     * @return The matching books on the requested page, the best matches first, and the number of all matches.
+     */
+    public SearchResult search(String query, int offset, int limit) {
+        if (query == null) {
+            throw new IllegalArgumentException("Invalid query.");
+        } else if (offset < 0 || limit <= 0) {
+            throw new IllegalArgumentException("Invalid page.");
+        }
+        List<String> tokens = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        if (tokens.isEmpty()) {
+            return new SearchResult(Collections.emptyList(), 0, offset);
+        }
+
+        long stamp = lock.readLock();
+        try {
+            // Start from the rarest query token, so the candidates are as few as possible from the start.
+            List<Collection<Postings>> matches = new ArrayList<>(tokens.size());
+            for (String token : tokens) {
+                matches.add(terms.subMap(token, token + Character.MAX_VALUE).values());
+            }
+            Integer[] order = new Integer[tokens.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparingLong(i -> totalSize(matches.get(i))));
+
+            int[] candidates = union(matches.get(order[0]));
+            for (int i = 1; i < order.length && candidates.length > 0; i++) {
+                candidates = intersect(candidates, matches.get(order[i]));
+            }
+
+            // Score each candidate by the number of query tokens it contains as whole tokens.
+            int[] scores = new int[candidates.length];
+            for (String token : tokens) {
+                Postings exact = terms.get(token);
+                if (exact != null) {
+                    for (int i = 0; i < candidates.length; i++) {
+                        if (exact.contains(candidates[i])) {
+                            scores[i]++;
+                        }
+                    }
+                }
+            }
+
+            int[] top = top(candidates, scores, offset + limit);
+            List<Book> page = new ArrayList<>(Math.max(0, top.length - offset));
+            for (int i = offset; i < top.length; i++) {
+                page.add(books[top[i]]);
+            }
+            return new SearchResult(page, candidates.length, offset);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Retrieves the number of books in the index.
+     *
+     * @return The number of books.
+     */
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return documents.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Splits text into tokens: runs of letters and digits, in lower case and without accents.
+     *
+     * @param text The text to split, may be null.
+     * @return The tokens, in the order they appear.
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        // Decomposing separates accents from their letters, as marks that are then dropped.
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                token.append(Character.toLowerCase(c));
+            } else if (Character.getType(c) != Character.NON_SPACING_MARK && token.length() > 0) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        if (token.length() > 0) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+
+    // Merges posting lists into the sorted set of documents in any of them, skipping replaced documents.
+    private int[] union(Collection<Postings> postings) {
+        int[] merged = new int[(int) totalSize(postings)];
+        int count = 0;
+        for (Postings posting : postings) {
+            System.arraycopy(posting.documents, 0, merged, count, posting.size);
+            count += posting.size;
+        }
+        // A single list is sorted already.
+        if (postings.size() > 1) {
+            Arrays.sort(merged, 0, count);
+        }
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            int document = merged[i];
+            if ((distinct == 0 || merged[distinct - 1] != document) && !replaced.get(document)) {
+                merged[distinct++] = document;
+            }
+        }
+        return Arrays.copyOf(merged, distinct);
+    }
+
+    // Keeps the candidates that appear in any of the posting lists.
+    private static int[] intersect(int[] candidates, Collection<Postings> postings) {
+        boolean[] found = new boolean[candidates.length];
+        for (Postings posting : postings) {
+            // Look up the shorter of the two sorted lists in the longer one.
+            if (posting.size < candidates.length) {
+                for (int i = 0; i < posting.size; i++) {
+                    int index = Arrays.binarySearch(candidates, posting.documents[i]);
+                    if (index >= 0) {
+                        found[index] = true;
+                    }
+                }
+            } else {
+                for (int i = 0; i < candidates.length; i++) {
+                    if (!found[i] && posting.contains(candidates[i])) {
+                        found[i] = true;
+                    }
+                }
+            }
+        }
+        int kept = 0;
+        for (int i = 0; i < candidates.length; i++) {
+            if (found[i]) {
+                candidates[kept++] = candidates[i];
+            }
+        }
+        return Arrays.copyOf(candidates, kept);
+    }
+
+    /**
+     * Selects the best candidates with a bounded min-heap, so only k of them are ever sorted.
+     *
+     * @param candidates The candidate documents.
+     * @param scores     The score of each candidate.
+     * @param k          The number of candidates to select.
+     * @return The best candidates, the best first.
+     */
+    private static int[] top(int[] candidates, int[] scores, int k) {
+        k = Math.min(k, candidates.length);
+        // A higher score ranks first, then a lower document number; both are packed into one long.
+        long[] heap = new long[k];
+        int heapSize = 0;
+        for (int i = 0; i < candidates.length; i++) {
+            long rank = ((long) scores[i] << 32) | (Integer.MAX_VALUE - candidates[i]);
+            if (heapSize < k) {
+                heap[heapSize] = rank;
+                siftUp(heap, heapSize++);
+            } else if (rank > heap[0]) {
+                heap[0] = rank;
+                siftDown(heap, heapSize);
+            }
+        }
+        Arrays.sort(heap, 0, heapSize);
+        int[] top = new int[heapSize];
+        for (int i = 0; i < heapSize; i++) {
+            top[i] = Integer.MAX_VALUE - (int) heap[heapSize - 1 - i];
+        }
+        return top;
+    }
+
+    private static void siftUp(long[] heap, int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent] <= heap[index]) {
+                return;
+            }
+            long swap = heap[parent];
+            heap[parent] = heap[index];
+            heap[index] = swap;
+            index = parent;
+        }
+    }
+
+    private static void siftDown(long[] heap, int size) {
+        int index = 0;
+        while (true) {
+            int smallest = index;
+            int left = 2 * index + 1;
+            if (left < size && heap[left] < heap[smallest]) {
+                smallest = left;
+            }
+            if (left + 1 < size && heap[left + 1] < heap[smallest]) {
+                smallest = left + 1;
+            }
+            if (smallest == index) {
+                return;
+            }
+            long swap = heap[smallest];
+            heap[smallest] = heap[index];
+            heap[index] = swap;
+            index = smallest;
+        }
+    }
+
+    private static long totalSize(Collection<Postings> postings) {
+        long total = 0;
+        for (Postings posting : postings) {
+            total += posting.size;
+        }
+        return total;
+    }
+
+    /**
+     * The documents a token appears in, in increasing order, as documents are numbered in the order they are added.
+     */
+    private static final class Postings {
+        int[] documents = new int[4];
+        int size;
+
+        void add(int document) {
+            if (size == documents.length) {
+                documents = Arrays.copyOf(documents, size << 1);
+            }
+            documents[size++] = document;
+        }
+
+        boolean contains(int document) {
+            return Arrays.binarySearch(documents, 0, size, document) >= 0;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package ac.il.bgu.qa.search;
+
+import ac.il.bgu.qa.Book;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Represents a page of the books matching a search, the best matches first.
+ */
+public class SearchResult {
+
+    // The books on this page.
+    private final List<Book> books;
+    // The number of books matching the search, on all pages.
+    private final int totalHits;
+    // The position of the first book of this page among all matching books.
+    private final int offset;
+
+    /**
+     * Constructs a new SearchResult object.
+     *
+     * @param books     The books on this page, the best matches first.
+     * @param totalHits The number of books matching the search, on all pages.
+     * @param offset    The position of the first book of this page among all matching books.
+     */
+    public SearchResult(List<Book> books, int totalHits, int offset) {
+        this.books = Collections.unmodifiableList(books);
+        this.totalHits = totalHits;
+        this.offset = offset;
+    }
+
+    /**
+     * Retrieves the books on this page.
+     *
+     * @return The books, the best matches first.
+     */
+    public List<Book> getBooks() {
+        return books;
+    }
+
+    /**
+     * Retrieves the number of books matching the search.
+     *
+     * @return The number of matching books, on all pages.
+     */
+    public int getTotalHits() {
+        return totalHits;
+    }
+
+    /**
+     * Retrieves the position of this page among all matching books.
+     *
+     * @return The position of the first book of this page.
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Checks if more matching books follow this page.
+     *
+     * @return true if there is a next page, otherwise false.
+     */
+    public boolean hasMore() {
+        return offset + books.size() < totalHits;
+    }
+}
@@ -3,6 +3,10 @@ package ac.il.bgu.qa.services;
 import ac.il.bgu.qa.Book;
 import ac.il.bgu.qa.User;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Provides an interface for services responsible for managing the database of books and users.
  */
@@ -16,6 +20,18 @@ public interface DatabaseService {
      */
     void addBook(String ISBN, Book book);
 
+    /**
+     * Adds several books to the database at once.
+     * Implementations backed by a remote database should override this to write all books in a single round trip.
+     *
+     * @param books The books to be added, keyed by their International Standard Book Number.
+     */
+    default void addBooks(Map<String, Book> books) {
+        for (Map.Entry<String, Book> entry : books.entrySet()) {
+            addBook(entry.getKey(), entry.getValue());
+        }
+    }
+
     /**
      * Registers a user with the database.
      *
@@ -32,6 +48,25 @@ public interface DatabaseService {
      */
     Book getBookByISBN(String ISBN);
 
+    /**
+     * Fetches several books from the database at once.
+     * Implementations backed by a remote database should override this to fetch all books in a single round trip.
+     *
+     * @param ISBNs The International Standard Book Numbers of the books.
+     * @return The books that exist in the database, keyed by the ISBN they were requested with.
+     *         ISBNs of books that do not exist are left out.
+     */
+    default Map<String, Book> getBooksByISBN(Collection<String> ISBNs) {
+        Map<String, Book> books = new HashMap<>();
+        for (String ISBN : ISBNs) {
+            Book book = getBookByISBN(ISBN);
+            if (book != null) {
+                books.put(ISBN, book);
+            }
+        }
+        return books;
+    }
+
     /**
      * Fetches a user from the database using their ID.
      *
@@ -40,6 +75,25 @@ public interface DatabaseService {
      */
     User getUserById(String userId);
 
+    /**
+     * Fetches several users from the database at once.
+     * Implementations backed by a remote database should override this to fetch all users in a single round trip.
+     *
+     * @param userIds The unique identifiers of the users.
+     * @return The users registered in the database, keyed by the Id they were requested with.
+     *         Ids of users that are not registered are left out.
+     */
+    default Map<String, User> getUsersById(Collection<String> userIds) {
+        Map<String, User> users = new HashMap<>();
+        for (String userId : userIds) {
+            User user = getUserById(userId);
+            if (user != null) {
+                users.put(userId, user);
+            }
+        }
+        return users;
+    }
+
     /**
      * Borrows a book identified by its ISBN for a user identified by their userId.
      * This method should appropriately mark the book as borrowed and associate it with the user.
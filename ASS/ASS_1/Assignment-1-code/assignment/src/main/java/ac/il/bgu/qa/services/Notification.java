@@ -0,0 +1,46 @@
+package ac.il.bgu.qa.services;
+
+/**
+ * Represents a notification message addressed to a single user.
+ */
+public final class Notification {
+
+    // The unique identifier of the user to be notified.
+    private final String userId;
+    // The content of the notification message.
+    private final String message;
+
+    /**
+     * Constructs a new Notification object.
+     *
+     * @param userId  The unique identifier of the user to be notified.
+     * @param message The content of the notification message.
+     */
+    public Notification(String userId, String message) {
+        this.userId = userId;
+        this.message = message;
+    }
+
+    /**
+     * Retrieves the unique identifier of the user to be notified.
+     *
+     * @return The user's Id.
+     */
+    public String getUserId() {
+        return userId;
+    }
+
+    /**
+     * Retrieves the content of the notification message.
+     *
+     * @return The message.
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return userId + ": " + message;
+    }
+}
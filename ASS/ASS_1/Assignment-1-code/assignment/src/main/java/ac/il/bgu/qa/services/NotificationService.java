@@ -2,6 +2,8 @@ package ac.il.bgu.qa.services;
 
 import ac.il.bgu.qa.errors.NotificationException;
 
+import java.util.List;
+
 /**
  * Provides an interface for services responsible for notifying users.
  */
@@ -15,4 +17,17 @@ public interface NotificationService {
      * @throws NotificationException If there's an issue sending the notification.
      */
     void notifyUser(String userId, String message) throws NotificationException;
+
+    /**
+     * Sends several notification messages, possibly to different users, in one request.
+     * Services that support it should override this; by default the notifications are sent one by one, in order.
+     *
+     * @param notifications The notifications to send.
+     * @throws NotificationException If there's an issue sending the notifications. Some of them may have been sent.
+     */
+    default void notifyUsers(List<Notification> notifications) throws NotificationException {
+        for (Notification notification : notifications) {
+            notifyUser(notification.getUserId(), notification.getMessage());
+        }
+    }
 }
@@ -0,0 +1,33 @@
+package ac.il.bgu.qa.services;
+
+import ac.il.bgu.qa.errors.NotificationException;
+
+/**
+ * Provides an interface for notification services that can send a message without it being copied into a String,
+ * such as services that write the message straight to a connection.
+ */
+public interface StreamingNotificationService extends NotificationService {
+
+    /**
+     * Sends a notification message to a specific user, reading it as it is sent.
+     * If the message is a {@link ac.il.bgu.qa.notification.ReviewMessage}, it can be written to a
+     * {@link java.io.Writer} with {@link ac.il.bgu.qa.notification.ReviewMessage#writeTo}.
+     *
+     * @param userId  The unique identifier of the user to be notified.
+     * @param message The content of the notification message.
+     * @throws NotificationException If there's an issue sending the notification.
+     */
+    void notifyUser(String userId, CharSequence message) throws NotificationException;
+
+    /**
+     * Sends a notification message to a specific user.
+     *
+     * @param userId  The unique identifier of the user to be notified.
+     * @param message The content of the notification message.
+     * @throws NotificationException If there's an issue sending the notification.
+     */
+    @Override
+    default void notifyUser(String userId, String message) throws NotificationException {
+        notifyUser(userId, (CharSequence) message);
+    }
+}
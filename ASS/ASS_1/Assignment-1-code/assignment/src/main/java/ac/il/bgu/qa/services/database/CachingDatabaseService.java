@@ -0,0 +1,405 @@
+package ac.il.bgu.qa.services.database;
+
+import ac.il.bgu.qa.Book;
+import ac.il.bgu.qa.User;
+import ac.il.bgu.qa.services.DatabaseService;
+import ac.il.bgu.qa.util.CacheStats;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * A database service that caches the books and users fetched from another database service, so that repeated
+ * lookups of popular books and active users don't each cost a round trip to a remote database.
+ * <p>
+ * Books and users are kept for a fixed time to live, in two caches bounded by number of entries that evict the
+ * least recently used entries first. They are keyed by the exact ISBN and user Id passed in, as the underlying
+ * service may answer differently spelled keys differently. Lookups that find nothing are not cached, so a book or
+ * user added through another service is seen at once.
+ * <p>
+ * Writes go to the underlying service first, then to the cache: added books and registered users are cached, and a
+ * cached book whose borrowed status does not match a borrow or return is dropped. A failed write drops the entry.
+ * Changes made to the underlying database by other means are only seen once the entry expires or is invalidated.
+ */
+public class CachingDatabaseService implements DatabaseService {
+
+    // The database service books and users are fetched from on a miss, and written to.
+    private final DatabaseService delegate;
+    private final Cache<Book> books;
+    private final Cache<User> users;
+
+    /**
+     * Constructs a new caching database service.
+     *
+     * @param delegate The database service to fetch from on a miss, and write to.
+     * @param ttl      How long books and users are kept.
+     * @param unit     The unit of the time to live.
+     * @param maxBooks The maximum number of cached books.
+     * @param maxUsers The maximum number of cached users.
+     */
+    public CachingDatabaseService(DatabaseService delegate, long ttl, TimeUnit unit, int maxBooks, int maxUsers) {
+        this(delegate, ttl, unit, maxBooks, maxUsers, System::nanoTime);
+    }
+
+    // Visible for testing, to control the passing of time.
+    CachingDatabaseService(DatabaseService delegate, long ttl, TimeUnit unit, int maxBooks, int maxUsers,
+                           LongSupplier clock) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("Invalid database service.");
+        } else if (ttl <= 0 || unit == null) {
+            throw new IllegalArgumentException("Invalid time to live.");
+        } else if (maxBooks <= 0 || maxUsers <= 0) {
+            throw new IllegalArgumentException("Invalid cache bounds.");
+        }
+        this.delegate = delegate;
+        this.books = new Cache<>(unit.toNanos(ttl), maxBooks, clock);
+        this.users = new Cache<>(unit.toNanos(ttl), maxUsers, clock);
+    }
+
+    @Override
+    public void addBook(String ISBN, Book book) {
+        try {
+            delegate.addBook(ISBN, book);
+        } catch (RuntimeException e) {
+            books.invalidate(ISBN);
+            throw e;
+        }
+        if (book != null) {
+            books.put(ISBN, book, books.generation());
+        }
+    }
+
+    @Override
+    public void addBooks(Map<String, Book> books) {
+        // Keep the batch a single round trip to the underlying service.
+        try {
+            delegate.addBooks(books);
+        } catch (RuntimeException e) {
+            for (String ISBN : books.keySet()) {
+                this.books.invalidate(ISBN);
+            }
+            throw e;
+        }
+        long generation = this.books.generation();
+        for (Map.Entry<String, Book> entry : books.entrySet()) {
+            if (entry.getValue() != null) {
+                this.books.put(entry.getKey(), entry.getValue(), generation);
+            }
+        }
+    }
+
+    @Override
+    public void registerUser(String id, User user) {
+        try {
+            delegate.registerUser(id, user);
+        } catch (RuntimeException e) {
+            users.invalidate(id);
+            throw e;
+        }
+        if (user != null) {
+            users.put(id, user, users.generation());
+        }
+    }
+
+    @Override
+    public Book getBookByISBN(String ISBN) {
+        if (ISBN == null) {
+            return delegate.getBookByISBN(null);
+        }
+        long generation = books.generation();
+        Book book = books.get(ISBN);
+        if (book == null) {
+            book = delegate.getBookByISBN(ISBN);
+            if (book != null) {
+                books.put(ISBN, book, generation);
+            }
+        }
+        return book;
+    }
+
+    @Override
+    public Map<String, Book> getBooksByISBN(Collection<String> ISBNs) {
+        Map<String, Book> found = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        long generation = books.generation();
+        for (String ISBN : ISBNs) {
+            Book book = ISBN == null ? null : books.get(ISBN);
+            if (book != null) {
+                found.put(ISBN, book);
+            } else {
+                missing.add(ISBN);
+            }
+        }
+        // Fetch all misses in a single call to the underlying service.
+        if (!missing.isEmpty()) {
+            Map<String, Book> fetched = delegate.getBooksByISBN(missing);
+            for (Map.Entry<String, Book> entry : fetched.entrySet()) {
+                if (entry.getValue() != null) {
+                    books.put(entry.getKey(), entry.getValue(), generation);
+                }
+                found.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public User getUserById(String userId) {
+        if (userId == null) {
+            return delegate.getUserById(null);
+        }
+        long generation = users.generation();
+        User user = users.get(userId);
+        if (user == null) {
+            user = delegate.getUserById(userId);
+            if (user != null) {
+                users.put(userId, user, generation);
+            }
+        }
+        return user;
+    }
+
+    @Override
+    public Map<String, User> getUsersById(Collection<String> userIds) {
+        Map<String, User> found = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        long generation = users.generation();
+        for (String userId : userIds) {
+            User user = userId == null ? null : users.get(userId);
+            if (user != null) {
+                found.put(userId, user);
+            } else {
+                missing.add(userId);
+            }
+        }
+        // Fetch all misses in a single call to the underlying service.
+        if (!missing.isEmpty()) {
+            Map<String, User> fetched = delegate.getUsersById(missing);
+            for (Map.Entry<String, User> entry : fetched.entrySet()) {
+                if (entry.getValue() != null) {
+                    users.put(entry.getKey(), entry.getValue(), generation);
+                }
+                found.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public void borrowBook(String ISBN, String userId) {
+        updateBorrowedStatus(ISBN, userId, true);
+    }
+
+    @Override
+    public void returnBook(String ISBN) {
+        updateBorrowedStatus(ISBN, null, false);
+    }
+
+    /**
+     * Removes a cached book, so that the next lookup fetches it again.
+     *
+     * @param ISBN The International Standard Book Number of the book.
+     */
+    public void invalidateBook(String ISBN) {
+        books.invalidate(ISBN);
+    }
+
+    /**
+     * Removes a cached user, so that the next lookup fetches them again.
+     *
+     * @param userId The Id of the user.
+     */
+    public void invalidateUser(String userId) {
+        users.invalidate(userId);
+    }
+
+    /**
+     * Removes all cached books and users.
+     */
+    public void invalidateAll() {
+        books.invalidateAll();
+        users.invalidateAll();
+    }
+
+    /**
+     * Takes a snapshot of the counters of the book cache.
+     *
+     * @return The hits, misses, evictions and current size of the book cache.
+     */
+    public CacheStats getBookStats() {
+        return books.stats();
+    }
+
+    /**
+     * Takes a snapshot of the counters of the user cache.
+     *
+     * @return The hits, misses, evictions and current size of the user cache.
+     */
+    public CacheStats getUserStats() {
+        return users.stats();
+    }
+
+    /**
+     * Writes a borrow or return through to the underlying service. The cached book is kept only if its status
+     * already matches, as it does when the library marked the cached object itself.
+     *
+     * @param ISBN     The International Standard Book Number of the book.
+     * @param userId   The Id of the borrowing user, or null for a return.
+     * @param borrowed Whether the book is borrowed or returned.
+     */
+    private void updateBorrowedStatus(String ISBN, String userId, boolean borrowed) {
+        try {
+            if (borrowed) {
+                delegate.borrowBook(ISBN, userId);
+            } else {
+                delegate.returnBook(ISBN);
+            }
+        } catch (RuntimeException e) {
+            books.invalidate(ISBN);
+            throw e;
+        }
+        Book cached = books.peek(ISBN);
+        if (cached != null && cached.isBorrowed() != borrowed) {
+            books.invalidate(ISBN);
+        }
+    }
+
+    /**
+     * A bounded cache with a time to live, evicting the least recently used entries first.
+     * <p>
+     * Every invalidation starts a new generation. A value fetched on a miss is only cached if no invalidation
+     * happened since the miss, so a fetch racing with a write cannot bring the old value back.
+     *
+     * @param <V> The type of the cached values.
+     */
+    private static final class Cache<V> {
+        // How long values are kept, in nanoseconds.
+        private final long ttlNanos;
+        private final int maxEntries;
+        // The source of the current time, in nanoseconds.
+        private final LongSupplier clock;
+
+        // The cached entries by key, in least recently used first order.
+        private final LinkedHashMap<String, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+        // Guards entries and generation.
+        private final ReentrantLock lock = new ReentrantLock();
+        private long generation;
+
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+
+        Cache(long ttlNanos, int maxEntries, LongSupplier clock) {
+            this.ttlNanos = ttlNanos;
+            this.maxEntries = maxEntries;
+            this.clock = clock;
+        }
+
+        long generation() {
+            lock.lock();
+            try {
+                return generation;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        V get(String key) {
+            long now = clock.getAsLong();
+            lock.lock();
+            try {
+                Entry<V> entry = entries.get(key);
+                if (entry != null) {
+                    if (now - entry.expiresAt < 0) {
+                        hits.increment();
+                        return entry.value;
+                    }
+                    entries.remove(key);
+                }
+            } finally {
+                lock.unlock();
+            }
+            misses.increment();
+            return null;
+        }
+
+        // Looks up a live entry without counting a hit or a miss, nor making it recently used.
+        V peek(String key) {
+            long now = clock.getAsLong();
+            lock.lock();
+            try {
+                Entry<V> entry = entries.get(key);
+                return entry != null && now - entry.expiresAt < 0 ? entry.value : null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void put(String key, V value, long generation) {
+            Entry<V> entry = new Entry<>(value, clock.getAsLong() + ttlNanos);
+            lock.lock();
+            try {
+                if (key == null || generation != this.generation) {
+                    return;
+                }
+                entries.put(key, entry);
+                // Evict the least recently used entries until the bound holds again.
+                Iterator<String> eldest = entries.keySet().iterator();
+                while (entries.size() > maxEntries && eldest.hasNext()) {
+                    eldest.next();
+                    eldest.remove();
+                    evictions.increment();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void invalidate(String key) {
+            lock.lock();
+            try {
+                generation++;
+                entries.remove(key);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void invalidateAll() {
+            lock.lock();
+            try {
+                generation++;
+                entries.clear();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        CacheStats stats() {
+            int size;
+            lock.lock();
+            try {
+                size = entries.size();
+            } finally {
+                lock.unlock();
+            }
+            return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), size);
+        }
+    }
+
+    /**
+     * A cached value and when it expires.
+     */
+    private static final class Entry<V> {
+        final V value;
+        final long expiresAt;
+
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
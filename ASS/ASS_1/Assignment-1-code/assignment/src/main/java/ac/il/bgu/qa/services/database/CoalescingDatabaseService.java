@@ -0,0 +1,142 @@
+package ac.il.bgu.qa.services.database;
+
+import ac.il.bgu.qa.Book;
+import ac.il.bgu.qa.User;
+import ac.il.bgu.qa.services.DatabaseService;
+import ac.il.bgu.qa.util.SingleFlight;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * A database service that coalesces concurrent lookups of the same book or user, so that a burst of requests for
+ * a hot title costs one round trip to the underlying service rather than one per request.
+ * <p>
+ * Threads looking up a book or user while a lookup of it is in flight share its result, the same object, instead of
+ * making their own. Lookups are keyed by the exact ISBN and user Id passed in, as the underlying service may
+ * answer differently spelled keys differently. Nothing is cached once the lookup is over; put a
+ * {@link CachingDatabaseService} in front of this service to also serve repeated lookups locally.
+ * <p>
+ * Writes go straight to the underlying service. A lookup in flight when a book or user is written is not shared
+ * with threads that ask after the write, so they never see a result older than their own write.
+ */
+public class CoalescingDatabaseService implements DatabaseService {
+
+    // The database service lookups are made on, and writes go to.
+    private final DatabaseService delegate;
+    // The book lookups in flight, by ISBN.
+    private final SingleFlight<String, Book> bookLookups = new SingleFlight<>();
+    // The user lookups in flight, by user Id.
+    private final SingleFlight<String, User> userLookups = new SingleFlight<>();
+
+    /**
+     * Constructs a new coalescing database service.
+     *
+     * @param delegate The database service to make lookups on and write to.
+     */
+    public CoalescingDatabaseService(DatabaseService delegate) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("Invalid database service.");
+        }
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void addBook(String ISBN, Book book) {
+        try {
+            delegate.addBook(ISBN, book);
+        } finally {
+            forgetBook(ISBN);
+        }
+    }
+
+    @Override
+    public void addBooks(Map<String, Book> books) {
+        try {
+            delegate.addBooks(books);
+        } finally {
+            for (String ISBN : books.keySet()) {
+                forgetBook(ISBN);
+            }
+        }
+    }
+
+    @Override
+    public void registerUser(String id, User user) {
+        try {
+            delegate.registerUser(id, user);
+        } finally {
+            if (id != null) {
+                userLookups.forget(id);
+            }
+        }
+    }
+
+    @Override
+    public Book getBookByISBN(String ISBN) {
+        if (ISBN == null) {
+            return delegate.getBookByISBN(null);
+        }
+        return bookLookups.execute(ISBN, () -> delegate.getBookByISBN(ISBN));
+    }
+
+    @Override
+    public Map<String, Book> getBooksByISBN(Collection<String> ISBNs) {
+        return delegate.getBooksByISBN(ISBNs);
+    }
+
+    @Override
+    public User getUserById(String userId) {
+        if (userId == null) {
+            return delegate.getUserById(null);
+        }
+        return userLookups.execute(userId, () -> delegate.getUserById(userId));
+    }
+
+    @Override
+    public Map<String, User> getUsersById(Collection<String> userIds) {
+        return delegate.getUsersById(userIds);
+    }
+
+    @Override
+    public void borrowBook(String ISBN, String userId) {
+        try {
+            delegate.borrowBook(ISBN, userId);
+        } finally {
+            forgetBook(ISBN);
+        }
+    }
+
+    @Override
+    public void returnBook(String ISBN) {
+        try {
+            delegate.returnBook(ISBN);
+        } finally {
+            forgetBook(ISBN);
+        }
+    }
+
+    /**
+     * Retrieves the number of lookups made on the underlying service.
+     *
+     * @return The number of book and user lookups.
+     */
+    public long getLookupCount() {
+        return bookLookups.getCallCount() + userLookups.getCallCount();
+    }
+
+    /**
+     * Retrieves the number of lookups that shared a lookup in flight instead of reaching the underlying service.
+     *
+     * @return The number of coalesced book and user lookups.
+     */
+    public long getCoalescedCount() {
+        return bookLookups.getSharedCount() + userLookups.getSharedCount();
+    }
+
+    private void forgetBook(String ISBN) {
+        if (ISBN != null) {
+            bookLookups.forget(ISBN);
+        }
+    }
+}
@@ -0,0 +1,741 @@
+package ac.il.bgu.qa.services.database;
+
+import ac.il.bgu.qa.Book;
+import ac.il.bgu.qa.User;
+import ac.il.bgu.qa.services.DatabaseService;
+import ac.il.bgu.qa.services.NotificationService;
+import ac.il.bgu.qa.validation.IsbnValidator;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * A durable implementation of the database of books and users, kept in a directory on disk.
+ * <p>
+ * The state lives in an {@link InMemoryDatabaseService}, which serves all lookups. Every update is applied to it
+ * and appended to a write-ahead log, and the update returns once the log is on disk. Concurrent updates are
+ * committed together: while one thread writes and syncs the log, the records of the others accumulate and are
+ * written and synced by the next of them in one go, so a sync is shared by as many updates as arrive meanwhile.
+ * <p>
+ * Every so many records the whole state is written to a snapshot and the log starts over. On startup the
+ * latest snapshot is loaded and the log written after it is replayed; a record torn by a crash at the end of
+ * the log is discarded. Users are stored by name and Id only, their notification service is looked up again
+ * on startup.
+ * <p>
+ * While a snapshot is written, updates wait; lookups are not affected.
+ * <p>
+ * Updates are applied to the state before they are written to the log, so that each is checked against the ones
+ * logged before it. If writing the log fails, the updates being written throw an {@link UncheckedIOException} but
+ * stay visible to lookups until the database is reopened, when they are gone as they never reached the log. The
+ * database accepts no further updates after such a failure.
+ */
+public class FileDatabaseService implements DatabaseService, Closeable {
+
+    // Identifies a snapshot file, "LIBS".
+    private static final int SNAPSHOT_MAGIC = 0x4C494253;
+    private static final int FORMAT_VERSION = 1;
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+    private static final String SNAPSHOT_TEMP_FILE = "snapshot.tmp";
+
+    // The types of log records.
+    private static final byte ADD_BOOK = 1;
+    private static final byte REGISTER_USER = 2;
+    private static final byte BORROW_BOOK = 3;
+    private static final byte RETURN_BOOK = 4;
+
+    // The size of a record header: the payload length and its CRC32.
+    private static final int RECORD_HEADER = 8;
+
+    // The markers written before each string: null, or a length followed by UTF-8, which unlike the modified
+    // UTF-8 of DataOutputStream.writeUTF has no 64KB limit.
+    private static final byte NULL_STRING = 0;
+    private static final byte UTF8_STRING = 1;
+
+    // The directory holding the snapshot and the log.
+    private final Path directory;
+    // Looks up the notification service of a user loaded from disk, by user Id.
+    private final Function<String, NotificationService> notificationServices;
+    // Whether a commit waits for the log to be synced to the disk, rather than only written to the OS.
+    private final boolean sync;
+    // The number of log records after which a snapshot is taken, 0 to only take snapshots when asked.
+    private final long snapshotInterval;
+    // The current state.
+    private final InMemoryDatabaseService state;
+
+    // Guards the order of updates: the state is updated and the record appended together.
+    private final Object appendLock = new Object();
+    // Records appended but not written to the log yet. Guarded by appendLock.
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream(4096);
+    // The sequence number of the last appended record. Guarded by appendLock.
+    private long appendedSeq;
+    // The number of records appended since the last snapshot.
+    private volatile long recordsSinceSnapshot;
+
+    // Held while writing to the log or taking a snapshot. Taken before appendLock, never after.
+    private final ReentrantLock syncLock = new ReentrantLock();
+    // The sequence number of the last record written to the log.
+    private volatile long durableSeq;
+    // The log and its generation, the snapshot it follows. Guarded by syncLock.
+    private FileChannel log;
+    private long generation;
+
+    // Takes the snapshots triggered by the snapshot interval.
+    private final ExecutorService snapshotter;
+    private final AtomicBoolean snapshotScheduled = new AtomicBoolean();
+    // The reason the database stopped accepting updates, if it failed.
+    private volatile IOException failure;
+    private volatile boolean closed;
+
+    private final LongAdder syncs = new LongAdder();
+
+    /**
+     * Opens the database in a directory, creating it if needed, and recovers its state.
+     *
+     * @param directory            The directory holding the database.
+     * @param notificationServices Looks up the notification service of a user loaded from disk, by user Id.
+     * @param sync                 true to wait for the disk on every commit, false to only wait for the OS,
+     *                             which survives a crash of the process but not of the machine.
+     * @param snapshotInterval     The number of log records after which a snapshot is taken,
+     *                             0 to only take snapshots when asked.
+     * @throws IOException If the database cannot be read or created.
+     */
+    public FileDatabaseService(Path directory, Function<String, NotificationService> notificationServices,
+                               boolean sync, long snapshotInterval) throws IOException {
+        if (directory == null) {
+            throw new IllegalArgumentException("Invalid directory.");
+        } else if (notificationServices == null) {
+            throw new IllegalArgumentException("Invalid notification service lookup.");
+        } else if (snapshotInterval < 0) {
+            throw new IllegalArgumentException("Invalid snapshot interval.");
+        }
+        this.directory = directory;
+        this.notificationServices = notificationServices;
+        this.sync = sync;
+        this.snapshotInterval = snapshotInterval;
+        this.state = new InMemoryDatabaseService();
+
+        Files.createDirectories(directory);
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        if (Files.exists(snapshot)) {
+            generation = loadSnapshot(snapshot);
+        }
+        log = FileChannel.open(logFile(generation), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        recordsSinceSnapshot = replay(log);
+        deleteLogsBefore(generation);
+
+        this.snapshotter = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "database-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Opens the database in a directory, syncing every commit to the disk and taking a snapshot every
+     * 1,000,000 log records.
+     *
+     * @param directory            The directory holding the database.
+     * @param notificationServices Looks up the notification service of a user loaded from disk, by user Id.
+     * @throws IOException If the database cannot be read or created.
+     */
+    public FileDatabaseService(Path directory, Function<String, NotificationService> notificationServices)
+            throws IOException {
+        this(directory, notificationServices, true, 1_000_000);
+    }
+
+    @Override
+    public void addBook(String ISBN, Book book) {
+        long seq;
+        // Serialize the record first, so that a book that cannot be logged is not added either.
+        ByteArrayOutputStream record = encode(out -> writeBook(out, ISBN, book));
+        synchronized (appendLock) {
+            checkWritable();
+            state.addBook(ISBN, book);
+            seq = append(record);
+        }
+        commit(seq);
+    }
+
+    @Override
+    public void addBooks(Map<String, Book> books) {
+        long seq;
+        List<ByteArrayOutputStream> records = new ArrayList<>(books.size());
+        for (Map.Entry<String, Book> entry : books.entrySet()) {
+            records.add(encode(out -> writeBook(out, entry.getKey(), entry.getValue())));
+        }
+        synchronized (appendLock) {
+            checkWritable();
+            state.addBooks(books);
+            seq = appendedSeq;
+            for (ByteArrayOutputStream record : records) {
+                seq = append(record);
+            }
+        }
+        commit(seq);
+    }
+
+    @Override
+    public void registerUser(String id, User user) {
+        long seq;
+        ByteArrayOutputStream record = encode(out -> {
+            out.writeByte(REGISTER_USER);
+            writeString(out, id);
+            writeString(out, user.getName());
+        });
+        synchronized (appendLock) {
+            checkWritable();
+            state.registerUser(id, user);
+            seq = append(record);
+        }
+        commit(seq);
+    }
+
+    @Override
+    public void borrowBook(String ISBN, String userId) {
+        long seq;
+        ByteArrayOutputStream record = encode(out -> {
+            out.writeByte(BORROW_BOOK);
+            writeString(out, ISBN);
+            writeString(out, userId);
+        });
+        synchronized (appendLock) {
+            checkWritable();
+            state.borrowBook(ISBN, userId);
+            // The time of the loan is only known once it is made.
+            writeLong(record, state.getLoanLedger().getLoan(ISBN).getBorrowedAt());
+            seq = append(record);
+        }
+        commit(seq);
+    }
+
+    @Override
+    public void returnBook(String ISBN) {
+        long seq;
+        ByteArrayOutputStream record = encode(out -> {
+            out.writeByte(RETURN_BOOK);
+            writeString(out, ISBN);
+        });
+        synchronized (appendLock) {
+            checkWritable();
+            state.returnBook(ISBN);
+            seq = append(record);
+        }
+        commit(seq);
+    }
+
+    @Override
+    public Book getBookByISBN(String ISBN) {
+        return state.getBookByISBN(ISBN);
+    }
+
+    @Override
+    public Map<String, Book> getBooksByISBN(Collection<String> ISBNs) {
+        return state.getBooksByISBN(ISBNs);
+    }
+
+    @Override
+    public User getUserById(String userId) {
+        return state.getUserById(userId);
+    }
+
+    @Override
+    public Map<String, User> getUsersById(Collection<String> userIds) {
+        return state.getUsersById(userIds);
+    }
+
+    /**
+     * Retrieves the user currently holding a book.
+     *
+     * @param ISBN The International Standard Book Number of the book.
+     * @return The user the book was borrowed by, or null if the book is not borrowed.
+     */
+    public User getBorrower(String ISBN) {
+        return state.getBorrower(ISBN);
+    }
+
+    /**
+     * Retrieves the number of books in the database.
+     *
+     * @return The number of books.
+     */
+    public int getBookCount() {
+        return state.getBookCount();
+    }
+
+    /**
+     * Retrieves the number of registered users.
+     *
+     * @return The number of users.
+     */
+    public int getUserCount() {
+        return state.getUserCount();
+    }
+
+    /**
+     * Retrieves the ledger of the books on loan, to find which books a user holds or which loans are overdue.
+     * Loans keep the time they were made across restarts.
+     *
+     * @return The loan ledger, kept up to date as books are borrowed and returned.
+     */
+    public LoanLedger getLoanLedger() {
+        return state.getLoanLedger();
+    }
+
+    /**
+     * Retrieves the number of times the log was written and synced. With concurrent updates this is lower
+     * than the number of updates, as updates are committed together.
+     *
+     * @return The number of log writes.
+     */
+    public long getSyncCount() {
+        return syncs.sum();
+    }
+
+    /**
+     * Writes the whole state to a new snapshot and starts a new log. Updates wait until it is done.
+     *
+     * @throws IOException If the snapshot cannot be written.
+     */
+    public void snapshot() throws IOException {
+        syncLock.lock();
+        try {
+            synchronized (appendLock) {
+                checkWritable();
+                try {
+                    writePending();
+                    long next = generation + 1;
+                    writeSnapshot(next);
+                    FileChannel previous = log;
+                    log = FileChannel.open(logFile(next), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                    generation = next;
+                    recordsSinceSnapshot = 0;
+                    previous.close();
+                    deleteLogsBefore(next);
+                } catch (IOException e) {
+                    failure = e;
+                    throw e;
+                }
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the pending updates to the log and closes it. Updates fail from now on, lookups keep working.
+     *
+     * @throws IOException If the pending updates cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        // Let a snapshot in progress finish, it would fail on a closed database.
+        snapshotter.shutdown();
+        try {
+            snapshotter.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        syncLock.lock();
+        try {
+            synchronized (appendLock) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+            }
+            try {
+                if (failure == null) {
+                    writePending();
+                }
+            } finally {
+                log.close();
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    // Must be called while holding appendLock.
+    private void checkWritable() {
+        if (closed) {
+            throw new IllegalStateException("Database is closed.");
+        } else if (failure != null) {
+            throw new UncheckedIOException("Database log failed.", failure);
+        }
+    }
+
+    /**
+     * Serializes the payload of a record, before the update it records is applied.
+     *
+     * @param record Writes the payload of the record.
+     * @return The payload.
+     */
+    private static ByteArrayOutputStream encode(RecordWriter record) {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(64);
+        try {
+            record.write(new DataOutputStream(payload));
+        } catch (IOException e) {
+            // A ByteArrayOutputStream never throws, this is only declared by DataOutputStream.
+            throw new UncheckedIOException(e);
+        }
+        return payload;
+    }
+
+    /**
+     * Appends a serialized record to the pending records. Must be called while holding appendLock.
+     *
+     * @param payload The payload of the record.
+     * @return The sequence number of the record.
+     */
+    private long append(ByteArrayOutputStream payload) {
+        byte[] bytes = payload.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+
+        writeInt(pending, bytes.length);
+        writeInt(pending, (int) crc.getValue());
+        pending.write(bytes, 0, bytes.length);
+        recordsSinceSnapshot++;
+        return ++appendedSeq;
+    }
+
+    /**
+     * Waits until a record is in the log, writing it and every record appended before it if no other thread is.
+     *
+     * @param seq The sequence number of the record.
+     */
+    private void commit(long seq) {
+        if (durableSeq < seq) {
+            syncLock.lock();
+            try {
+                // Another thread may have written this record while this one waited for the lock.
+                if (durableSeq < seq) {
+                    if (failure != null) {
+                        throw new UncheckedIOException("Database log failed.", failure);
+                    }
+                    writePending();
+                }
+            } catch (IOException e) {
+                failure = e;
+                throw new UncheckedIOException("Database log failed.", e);
+            } finally {
+                syncLock.unlock();
+            }
+        }
+
+        if (snapshotInterval > 0 && recordsSinceSnapshot >= snapshotInterval
+                && snapshotScheduled.compareAndSet(false, true)) {
+            try {
+                snapshotter.execute(() -> {
+                    try {
+                        snapshot();
+                    } catch (IOException | RuntimeException e) {
+                        // The failure is recorded and reported by the next update.
+                    } finally {
+                        snapshotScheduled.set(false);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // The database is closing.
+                snapshotScheduled.set(false);
+            }
+        }
+    }
+
+    /**
+     * Writes all pending records to the log and syncs it. Must be called while holding syncLock.
+     * Appending continues while the records are written.
+     */
+    private void writePending() throws IOException {
+        ByteArrayOutputStream batch;
+        long upTo;
+        synchronized (appendLock) {
+            if (pending.size() == 0) {
+                return;
+            }
+            batch = pending;
+            upTo = appendedSeq;
+            pending = new ByteArrayOutputStream(Math.max(4096, batch.size()));
+        }
+        writeLog(ByteBuffer.wrap(batch.toByteArray(), 0, batch.size()));
+        syncs.increment();
+        durableSeq = upTo;
+    }
+
+    // Visible for testing, to make writing the log fail. Must be called while holding syncLock.
+    void writeLog(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            log.write(buffer);
+        }
+        if (sync) {
+            log.force(false);
+        }
+    }
+
+    /**
+     * Replays the records of a log into the state, and cuts off a torn record at its end.
+     *
+     * @param log The log, positioned at its start.
+     * @return The number of records replayed.
+     */
+    private long replay(FileChannel log) throws IOException {
+        long valid = 0;
+        long records = 0;
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(log), 1 << 16));
+        CRC32 crc = new CRC32();
+        while (true) {
+            byte[] payload;
+            try {
+                int length = in.readInt();
+                int checksum = in.readInt();
+                if (length < 0 || length > log.size() - valid - RECORD_HEADER) {
+                    break;
+                }
+                payload = new byte[length];
+                in.readFully(payload);
+                crc.reset();
+                crc.update(payload, 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+            } catch (EOFException e) {
+                break;
+            }
+            apply(new DataInputStream(new ByteArrayInputStream(payload)));
+            valid += RECORD_HEADER + payload.length;
+            records++;
+        }
+        // Anything after the last valid record was torn by a crash, and is overwritten by the next update.
+        log.truncate(valid);
+        log.position(valid);
+        return records;
+    }
+
+    private void apply(DataInputStream record) throws IOException {
+        byte type = record.readByte();
+        switch (type) {
+            case ADD_BOOK: {
+                String key = readString(record);
+                state.addBook(key, new Book(readString(record), readString(record), readString(record)));
+                break;
+            }
+            case REGISTER_USER: {
+                String id = readString(record);
+                state.registerUser(id, new User(readString(record), id, notificationServices.apply(id)));
+                break;
+            }
+            case BORROW_BOOK: {
+                String ISBN = readString(record);
+                state.restoreLoan(ISBN, readString(record), record.readLong());
+                Book book = state.getBookByISBN(ISBN);
+                if (!book.isBorrowed()) {
+                    book.borrow();
+                }
+                break;
+            }
+            case RETURN_BOOK: {
+                String ISBN = readString(record);
+                state.returnBook(ISBN);
+                Book book = state.getBookByISBN(ISBN);
+                if (book.isBorrowed()) {
+                    book.returnBook();
+                }
+                break;
+            }
+            default:
+                throw new IOException("Unknown log record type " + type + ".");
+        }
+    }
+
+    /**
+     * Writes the state to a temporary file and moves it over the snapshot.
+     * Must be called while holding both locks.
+     *
+     * @param nextGeneration The generation of the log that follows the snapshot.
+     */
+    private void writeSnapshot(long nextGeneration) throws IOException {
+        Path temp = directory.resolve(SNAPSHOT_TEMP_FILE);
+        try (FileOutputStream file = new FileOutputStream(temp.toFile())) {
+            CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(file, 1 << 16), new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(nextGeneration);
+
+            out.writeInt(state.getUserCount());
+            try {
+                state.forEachUser(user -> {
+                    try {
+                        writeString(out, user.getId());
+                        writeString(out, user.getName());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                out.writeInt(state.getBookCount());
+                state.forEachBook((key, book, loan) -> {
+                    try {
+                        out.writeLong(key);
+                        writeString(out, book.getISBN());
+                        writeString(out, book.getTitle());
+                        writeString(out, book.getAuthor());
+                        writeString(out, loan == null ? null : loan.getUserId());
+                        if (loan != null) {
+                            out.writeLong(loan.getBorrowedAt());
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            out.writeLong(checked.getChecksum().getValue());
+            out.flush();
+            file.getFD().sync();
+        }
+        Files.move(temp, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads a snapshot into the state.
+     *
+     * @param snapshot The snapshot file.
+     * @return The generation of the log that follows the snapshot.
+     */
+    private long loadSnapshot(Path snapshot) throws IOException {
+        try (InputStream file = Files.newInputStream(snapshot)) {
+            CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(file, 1 << 16), new CRC32());
+            DataInputStream in = new DataInputStream(checked);
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Not a library snapshot: " + snapshot + ".");
+            }
+            long nextGeneration = in.readLong();
+
+            int users = in.readInt();
+            for (int i = 0; i < users; i++) {
+                String id = readString(in);
+                state.registerUser(id, new User(readString(in), id, notificationServices.apply(id)));
+            }
+            int books = in.readInt();
+            List<Loan> loans = new ArrayList<>();
+            for (int i = 0; i < books; i++) {
+                String key = IsbnValidator.format(in.readLong());
+                Book book = new Book(readString(in), readString(in), readString(in));
+                String borrowerId = readString(in);
+                state.addBook(key, book);
+                if (borrowerId != null) {
+                    loans.add(new Loan(key, borrowerId, in.readLong()));
+                    book.borrow();
+                }
+            }
+            // The ledger keeps loans in the order they were made, while the snapshot has them in catalog order.
+            loans.sort(Comparator.comparingLong(Loan::getBorrowedAt));
+            for (Loan loan : loans) {
+                state.restoreLoan(loan.getISBN(), loan.getUserId(), loan.getBorrowedAt());
+            }
+
+            long expected = checked.getChecksum().getValue();
+            if (in.readLong() != expected) {
+                throw new IOException("Corrupt library snapshot: " + snapshot + ".");
+            }
+            return nextGeneration;
+        }
+    }
+
+    private Path logFile(long generation) {
+        return directory.resolve(String.format("log-%016x.wal", generation));
+    }
+
+    private void deleteLogsBefore(long generation) throws IOException {
+        try (DirectoryStream<Path> logs = Files.newDirectoryStream(directory, "log-*.wal")) {
+            for (Path file : logs) {
+                String name = file.getFileName().toString();
+                long fileGeneration = Long.parseUnsignedLong(name.substring(4, name.length() - 4), 16);
+                if (fileGeneration < generation) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    private static void writeBook(DataOutputStream out, String key, Book book) throws IOException {
+        out.writeByte(ADD_BOOK);
+        writeString(out, key);
+        writeString(out, book.getISBN());
+        writeString(out, book.getTitle());
+        writeString(out, book.getAuthor());
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL_STRING);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeByte(UTF8_STRING);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte marker = in.readByte();
+        switch (marker) {
+            case NULL_STRING:
+                return null;
+            case UTF8_STRING: {
+                int length = in.readInt();
+                if (length < 0) {
+                    throw new IOException("Invalid string length " + length + ".");
+                }
+                byte[] bytes = new byte[length];
+                in.readFully(bytes);
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+            default:
+                throw new IOException("Unknown string marker " + marker + ".");
+        }
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    private static void writeLong(ByteArrayOutputStream out, long value) {
+        writeInt(out, (int) (value >>> 32));
+        writeInt(out, (int) value);
+    }
+
+    /**
+     * Writes the payload of a log record.
+     */
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,371 @@
+package ac.il.bgu.qa.services.database;
+
+import ac.il.bgu.qa.Book;
+import ac.il.bgu.qa.User;
+import ac.il.bgu.qa.errors.BookNotFoundException;
+import ac.il.bgu.qa.errors.UserNotRegisteredException;
+import ac.il.bgu.qa.services.DatabaseService;
+import ac.il.bgu.qa.util.LongObjectHashMap;
+import ac.il.bgu.qa.validation.IsbnValidator;
+import ac.il.bgu.qa.validation.UserIdValidator;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+/**
+ * An in-memory implementation of the database of books and users.
+ * <p>
+ * Books are keyed by their ISBN-13 and users by their 12 digit Id, both encoded as a long,
+ * and stored in open-addressing primitive-keyed maps. This avoids a String key and a map node
+ * per entry, which matters for catalogs of tens of millions of books.
+ * Because keys are numeric, "978-3-16-148410-0" and "9783161484100" refer to the same book.
+ * <p>
+ * All operations are thread-safe. Updates take a write lock, while lookups first try an optimistic
+ * read that takes no lock at all, and fall back to a read lock only if a write happened meanwhile.
+ */
+public class InMemoryDatabaseService implements DatabaseService {
+
+    // Books keyed by the numeric value of their ISBN-13.
+    private final LongObjectHashMap<Book> books;
+    // Users keyed by the numeric value of their Id.
+    private final LongObjectHashMap<User> users;
+    // Who holds each borrowed book and which books each user holds.
+    private final LoanLedger loans;
+    // Guards both maps and the updates of the ledger.
+    private final StampedLock lock = new StampedLock();
+
+    /**
+     * Constructs a new, empty database sized for the expected number of books and users.
+     *
+     * @param expectedBooks The number of books the database is expected to hold.
+     * @param expectedUsers The number of users the database is expected to hold.
+     */
+    public InMemoryDatabaseService(int expectedBooks, int expectedUsers) {
+        this.books = new LongObjectHashMap<>(expectedBooks, 0.5f);
+        this.users = new LongObjectHashMap<>(expectedUsers, 0.5f);
+        this.loans = new LoanLedger();
+    }
+
+    /**
+     * Constructs a new, empty database with a small initial capacity.
+     */
+    public InMemoryDatabaseService() {
+        this(16, 16);
+    }
+
+    @Override
+    public void addBook(String ISBN, Book book) {
+        long key = isbnKey(ISBN);
+        if (book == null) {
+            throw new IllegalArgumentException("Invalid book.");
+        }
+        long stamp = lock.writeLock();
+        try {
+            books.put(key, book);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void addBooks(Map<String, Book> books) {
+        // Validate every key before taking the lock, so that a bad entry leaves the database unchanged.
+        long[] keys = new long[books.size()];
+        Book[] values = new Book[books.size()];
+        int i = 0;
+        for (Map.Entry<String, Book> entry : books.entrySet()) {
+            keys[i] = isbnKey(entry.getKey());
+            if (entry.getValue() == null) {
+                throw new IllegalArgumentException("Invalid book.");
+            }
+            values[i++] = entry.getValue();
+        }
+        long stamp = lock.writeLock();
+        try {
+            for (i = 0; i < keys.length; i++) {
+                this.books.put(keys[i], values[i]);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void registerUser(String id, User user) {
+        long key = userKey(id);
+        if (user == null) {
+            throw new IllegalArgumentException("Invalid user.");
+        }
+        long stamp = lock.writeLock();
+        try {
+            users.put(key, user);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public Book getBookByISBN(String ISBN) {
+        long key = IsbnValidator.parseIsbn13(ISBN);
+        if (key == IsbnValidator.INVALID) {
+            return null;
+        }
+        return lookup(books, key);
+    }
+
+    @Override
+    public Map<String, Book> getBooksByISBN(Collection<String> ISBNs) {
+        // Try to fetch all books in one optimistic pass, and redo the pass under the read lock if a write interfered.
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            Map<String, Book> found = collectBooks(ISBNs);
+            if (lock.validate(stamp)) {
+                return found;
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return collectBooks(ISBNs);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public User getUserById(String userId) {
+        long key = UserIdValidator.parse(userId);
+        if (key == UserIdValidator.INVALID) {
+            return null;
+        }
+        return lookup(users, key);
+    }
+
+    @Override
+    public Map<String, User> getUsersById(Collection<String> userIds) {
+        // Try to fetch all users in one optimistic pass, and redo the pass under the read lock if a write interfered.
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            Map<String, User> found = collectUsers(userIds);
+            if (lock.validate(stamp)) {
+                return found;
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return collectUsers(userIds);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void borrowBook(String ISBN, String userId) {
+        long bookKey = isbnKey(ISBN);
+        long userKey = userKey(userId);
+        long stamp = lock.writeLock();
+        try {
+            if (!books.containsKey(bookKey)) {
+                throw new BookNotFoundException("Book not found!");
+            }
+            if (!users.containsKey(userKey)) {
+                throw new UserNotRegisteredException("User not found!");
+            }
+            loans.borrow(bookKey, userKey);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void returnBook(String ISBN) {
+        long key = isbnKey(ISBN);
+        long stamp = lock.writeLock();
+        try {
+            if (!books.containsKey(key)) {
+                throw new BookNotFoundException("Book not found!");
+            }
+            loans.release(key);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Retrieves the user currently holding a book.
+     *
+     * @param ISBN The International Standard Book Number of the book.
+     * @return The user the book was borrowed by, or null if the book is not borrowed.
+     */
+    public User getBorrower(String ISBN) {
+        long key = IsbnValidator.parseIsbn13(ISBN);
+        if (key == IsbnValidator.INVALID) {
+            return null;
+        }
+        long borrower = loans.borrowerOf(key);
+        return borrower == UserIdValidator.INVALID ? null : lookup(users, borrower);
+    }
+
+    /**
+     * Retrieves the ledger of the books on loan, to find which books a user holds or which loans are overdue.
+     *
+     * @return The loan ledger, kept up to date as books are borrowed and returned.
+     */
+    public LoanLedger getLoanLedger() {
+        return loans;
+    }
+
+    /**
+     * Records a loan made at an earlier time, such as when restoring the database from disk.
+     *
+     * @param ISBN       The International Standard Book Number of the book.
+     * @param userId     The Id of the user holding the book.
+     * @param borrowedAt When the book was borrowed, in milliseconds since the epoch.
+     */
+    void restoreLoan(String ISBN, String userId, long borrowedAt) {
+        long bookKey = isbnKey(ISBN);
+        long userKey = userKey(userId);
+        long stamp = lock.writeLock();
+        try {
+            if (!books.containsKey(bookKey)) {
+                throw new BookNotFoundException("Book not found!");
+            }
+            if (!users.containsKey(userKey)) {
+                throw new UserNotRegisteredException("User not found!");
+            }
+            loans.borrow(bookKey, userKey, borrowedAt);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Retrieves the number of books in the database.
+     *
+     * @return The number of books.
+     */
+    public int getBookCount() {
+        long stamp = lock.readLock();
+        try {
+            return books.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Retrieves the number of registered users.
+     *
+     * @return The number of users.
+     */
+    public int getUserCount() {
+        long stamp = lock.readLock();
+        try {
+            return users.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Visits every registered user under the read lock, so updates wait until the visit is over.
+     *
+     * @param visitor Called once per user.
+     */
+    void forEachUser(Consumer<User> visitor) {
+        long stamp = lock.readLock();
+        try {
+            users.forEach((key, user) -> visitor.accept(user));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Visits every book and its loan under the read lock, so updates wait until the visit is over.
+     *
+     * @param visitor Called once per book.
+     */
+    void forEachBook(BookVisitor visitor) {
+        long stamp = lock.readLock();
+        try {
+            books.forEach((key, book) -> visitor.visit(key, book, loans.getLoan(key)));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private Map<String, Book> collectBooks(Collection<String> ISBNs) {
+        Map<String, Book> found = new HashMap<>();
+        for (String ISBN : ISBNs) {
+            long key = IsbnValidator.parseIsbn13(ISBN);
+            Book book = key == IsbnValidator.INVALID ? null : books.get(key);
+            if (book != null) {
+                found.put(ISBN, book);
+            }
+        }
+        return found;
+    }
+
+    private Map<String, User> collectUsers(Collection<String> userIds) {
+        Map<String, User> found = new HashMap<>();
+        for (String userId : userIds) {
+            long key = UserIdValidator.parse(userId);
+            User user = key == UserIdValidator.INVALID ? null : users.get(key);
+            if (user != null) {
+                found.put(userId, user);
+            }
+        }
+        return found;
+    }
+
+    // Reads a map without locking if no write is in progress, otherwise under the read lock.
+    private <V> V lookup(LongObjectHashMap<V> map, long key) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            V value = map.get(key);
+            if (lock.validate(stamp)) {
+                return value;
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return map.get(key);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private static long isbnKey(String ISBN) {
+        long key = IsbnValidator.parseIsbn13(ISBN);
+        if (key == IsbnValidator.INVALID) {
+            throw new IllegalArgumentException("Invalid ISBN.");
+        }
+        return key;
+    }
+
+    private static long userKey(String userId) {
+        long key = UserIdValidator.parse(userId);
+        if (key == UserIdValidator.INVALID) {
+            throw new IllegalArgumentException("Invalid user Id.");
+        }
+        return key;
+    }
+
+    /**
+     * Visits the books of the database.
+     */
+    interface BookVisitor {
+
+        /**
+         * Visits a single book.
+         *
+         * @param key      The numeric value of the book's ISBN-13.
+         * @param book     The book.
+         * @param loan     The loan of the book, or null if it is not borrowed.
+         */
+        void visit(long key, Book book, Loan loan);
+    }
+}
@@ -0,0 +1,59 @@
+package ac.il.bgu.qa.services.database;
+
+/**
+ * Represents a book on loan: which book, who holds it and since when.
+ */
+public class Loan {
+
+    // The ISBN-13 of the book, 13 digits without hyphens.
+    private final String ISBN;
+    // The Id of the user holding the book.
+    private final String userId;
+    // When the book was borrowed, in milliseconds since the epoch.
+    private final long borrowedAt;
+
+    /**
+     * Constructs a new Loan object.
+     *
+     * @param ISBN       The ISBN-13 of the book, 13 digits without hyphens.
+     * @param userId     The Id of the user holding the book.
+     * @param borrowedAt When the book was borrowed, in milliseconds since the epoch.
+     */
+    public Loan(String ISBN, String userId, long borrowedAt) {
+        this.ISBN = ISBN;
+        this.userId = userId;
+        this.borrowedAt = borrowedAt;
+    }
+
+    /**
+     * Retrieves the ISBN of the book on loan.
+     *
+     * @return The ISBN-13 of the book, 13 digits without hyphens.
+     */
+    public String getISBN() {
+        return ISBN;
+    }
+
+    /**
+     * Retrieves the user holding the book.
+     *
+     * @return The Id of the user.
+     */
+    public String getUserId() {
+        return userId;
+    }
+
+    /**
+     * Retrieves when the book was borrowed.
+     *
+     * @return The time of borrowing, in milliseconds since the epoch.
+     */
+    public long getBorrowedAt() {
+        return borrowedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "Loan{ISBN=" + ISBN + ", userId=" + userId + ", borrowedAt=" + borrowedAt + "}";
+    }
+}
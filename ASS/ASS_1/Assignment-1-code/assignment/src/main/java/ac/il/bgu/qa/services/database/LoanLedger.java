@@ -0,0 +1,327 @@
+package ac.il.bgu.qa.services.database;
+
+import ac.il.bgu.qa.util.LongObjectHashMap;
+import ac.il.bgu.qa.validation.IsbnValidator;
+import ac.il.bgu.qa.validation.UserIdValidator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps track of the books on loan, indexed both ways: who holds each book, and which books each user holds.
+ * <p>
+ * Loans are recorded by the database as books are borrowed and returned. Every query costs in proportion to the
+ * loans it returns, never to the size of the catalog: a loan is found by its book in a hash map, the books of a
+ * user are kept in a compact array per user, and all loans are linked in the order they were made, so the overdue
+ * loans are exactly the ones at the start of that order.
+ * <p>
+ * All operations are thread-safe. Queries take a read lock and may run in parallel.
+ */
+public class LoanLedger {
+
+    // The loan of each book on loan, keyed by ISBN-13.
+    private final LongObjectHashMap<Entry> byBook = new LongObjectHashMap<>();
+    // The books held by each user with at least one loan, keyed by user Id.
+    private final LongObjectHashMap<Holdings> byUser = new LongObjectHashMap<>();
+    // The oldest and newest loans, of a list linking all loans in the order they were made.
+    private Entry oldest;
+    private Entry newest;
+
+    // The source of the current time, in milliseconds since the epoch.
+    private final LongSupplier clock;
+    private final StampedLock lock = new StampedLock();
+
+    /**
+     * Constructs a new, empty ledger that timestamps loans with the system clock.
+     */
+    public LoanLedger() {
+        this(System::currentTimeMillis);
+    }
+
+    // Visible for testing, to control the passing of time.
+    LoanLedger(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Records that a user borrowed a book. A previous loan of the book, if any, is replaced.
+     *
+     * @param isbnKey The numeric value of the book's ISBN-13.
+     * @param userKey The numeric value of the user's Id.
+     */
+    void borrow(long isbnKey, long userKey) {
+        borrow(isbnKey, userKey, Long.MIN_VALUE);
+    }
+
+    /**
+     * Records that a user borrowed a book at a given time, such as when restoring loans from disk.
+     * Loans must be restored in the order they were made, to keep the list of loans in order of time.
+     *
+     * @param isbnKey    The numeric value of the book's ISBN-13.
+     * @param userKey    The numeric value of the user's Id.
+     * @param borrowedAt When the book was borrowed, in milliseconds since the epoch, or Long.MIN_VALUE for now.
+     */
+    void borrow(long isbnKey, long userKey, long borrowedAt) {
+        long stamp = lock.writeLock();
+        try {
+            Entry previous = byBook.get(isbnKey);
+            if (previous != null) {
+                remove(previous);
+            }
+            // Timestamps are taken under the lock, so the list stays in order of time as well as of loans.
+            Entry entry = new Entry(isbnKey, userKey, borrowedAt == Long.MIN_VALUE ? clock.getAsLong() : borrowedAt);
+            byBook.put(isbnKey, entry);
+            Holdings holdings = byUser.get(userKey);
+            if (holdings == null) {
+                holdings = new Holdings();
+                byUser.put(userKey, holdings);
+            }
+            holdings.add(isbnKey);
+            entry.previous = newest;
+            if (newest == null) {
+                oldest = entry;
+            } else {
+                newest.next = entry;
+            }
+            newest = entry;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Records that a book was returned.
+     *
+     * @param isbnKey The numeric value of the book's ISBN-13.
+     * @return true if the book was on loan, otherwise false.
+     */
+    boolean release(long isbnKey) {
+        long stamp = lock.writeLock();
+        try {
+            Entry entry = byBook.get(isbnKey);
+            if (entry == null) {
+                return false;
+            }
+            remove(entry);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Retrieves the user holding a book.
+     *
+     * @param isbnKey The numeric value of the book's ISBN-13.
+     * @return The numeric value of the user's Id, or {@link UserIdValidator#INVALID} if the book is not on loan.
+     */
+    long borrowerOf(long isbnKey) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            Entry entry = byBook.get(isbnKey);
+            if (lock.validate(stamp)) {
+                return entry == null ? UserIdValidator.INVALID : entry.userKey;
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            Entry entry = byBook.get(isbnKey);
+            return entry == null ? UserIdValidator.INVALID : entry.userKey;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Retrieves the loan of a book.
+     *
+     * @param isbnKey The numeric value of the book's ISBN-13.
+     * @return The loan, or null if the book is not on loan.
+     */
+    Loan getLoan(long isbnKey) {
+        long stamp = lock.readLock();
+        try {
+            Entry entry = byBook.get(isbnKey);
+            return entry == null ? null : entry.toLoan();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Retrieves the loan of a book.
+     *
+     * @param ISBN The International Standard Book Number of the book.
+     * @return The loan, or null if the book is not on loan.
+     */
+    public Loan getLoan(String ISBN) {
+        long key = IsbnValidator.parseIsbn13(ISBN);
+        return key == IsbnValidator.INVALID ? null : getLoan(key);
+    }
+
+    /**
+     * Retrieves the loans of a user.
+     *
+     * @param userId The Id of the user.
+     * @return The loans of the user, in no particular order. Empty if the user holds no books.
+     */
+    public List<Loan> getLoansOf(String userId) {
+        long key = UserIdValidator.parse(userId);
+        if (key == UserIdValidator.INVALID) {
+            return Collections.emptyList();
+        }
+        long stamp = lock.readLock();
+        try {
+            Holdings holdings = byUser.get(key);
+            if (holdings == null) {
+                return Collections.emptyList();
+            }
+            List<Loan> loans = new ArrayList<>(holdings.size);
+            for (int i = 0; i < holdings.size; i++) {
+                loans.add(byBook.get(holdings.isbnKeys[i]).toLoan());
+            }
+            return loans;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Retrieves the number of books a user holds.
+     *
+     * @param userId The Id of the user.
+     * @return The number of books on loan to the user.
+     */
+    public int getLoanCount(String userId) {
+        long key = UserIdValidator.parse(userId);
+        if (key == UserIdValidator.INVALID) {
+            return 0;
+        }
+        long stamp = lock.readLock();
+        try {
+            Holdings holdings = byUser.get(key);
+            return holdings == null ? 0 : holdings.size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Retrieves the loans made before a point in time.
+     *
+     * @param time The point in time, in milliseconds since the epoch.
+     * @return The loans made before the time, the oldest first.
+     */
+    public List<Loan> getLoansBefore(long time) {
+        long stamp = lock.readLock();
+        try {
+            List<Loan> loans = new ArrayList<>();
+            for (Entry entry = oldest; entry != null && entry.borrowedAt < time; entry = entry.next) {
+                loans.add(entry.toLoan());
+            }
+            return loans;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Retrieves the loans that have lasted longer than a loan period.
+     *
+     * @param loanPeriod The length of the loan period.
+     * @param unit       The unit of the loan period.
+     * @return The overdue loans, the oldest first.
+     */
+    public List<Loan> getOverdueLoans(long loanPeriod, TimeUnit unit) {
+        if (loanPeriod < 0 || unit == null) {
+            throw new IllegalArgumentException("Invalid loan period.");
+        }
+        return getLoansBefore(clock.getAsLong() - unit.toMillis(loanPeriod));
+    }
+
+    /**
+     * Retrieves the number of books on loan.
+     *
+     * @return The number of loans.
+     */
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return byBook.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Must be called while holding the write lock.
+    private void remove(Entry entry) {
+        byBook.remove(entry.isbnKey);
+        Holdings holdings = byUser.get(entry.userKey);
+        if (holdings.remove(entry.isbnKey) && holdings.size == 0) {
+            byUser.remove(entry.userKey);
+        }
+        if (entry.previous == null) {
+            oldest = entry.next;
+        } else {
+            entry.previous.next = entry.next;
+        }
+        if (entry.next == null) {
+            newest = entry.previous;
+        } else {
+            entry.next.previous = entry.previous;
+        }
+    }
+
+    /**
+     * A loan, linked to the loans made just before and after it.
+     */
+    private static final class Entry {
+        final long isbnKey;
+        final long userKey;
+        final long borrowedAt;
+        Entry previous;
+        Entry next;
+
+        Entry(long isbnKey, long userKey, long borrowedAt) {
+            this.isbnKey = isbnKey;
+            this.userKey = userKey;
+            this.borrowedAt = borrowedAt;
+        }
+
+        Loan toLoan() {
+            return new Loan(IsbnValidator.format(isbnKey), UserIdValidator.format(userKey), borrowedAt);
+        }
+    }
+
+    /**
+     * The books held by a user, as an unordered array of ISBN keys. Users hold few books at a time,
+     * so a linear search beats hashing and the array costs 8 bytes per book.
+     */
+    private static final class Holdings {
+        long[] isbnKeys = new long[4];
+        int size;
+
+        void add(long isbnKey) {
+            if (size == isbnKeys.length) {
+                isbnKeys = Arrays.copyOf(isbnKeys, size << 1);
+            }
+            isbnKeys[size++] = isbnKey;
+        }
+
+        boolean remove(long isbnKey) {
+            for (int i = 0; i < size; i++) {
+                if (isbnKeys[i] == isbnKey) {
+                    // Move the last book into the gap, the order doesn't matter.
+                    isbnKeys[i] = isbnKeys[--size];
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,742 @@
+package ac.il.bgu.qa.services.database;
+
+import ac.il.bgu.qa.Book;
+import ac.il.bgu.qa.User;
+import ac.il.bgu.qa.errors.BookNotFoundException;
+import ac.il.bgu.qa.errors.UserNotRegisteredException;
+import ac.il.bgu.qa.services.DatabaseService;
+import ac.il.bgu.qa.util.AtomicBitSet;
+import ac.il.bgu.qa.util.HashUtils;
+import ac.il.bgu.qa.util.LongObjectHashMap;
+import ac.il.bgu.qa.util.StripedLocks;
+import ac.il.bgu.qa.validation.IsbnValidator;
+import ac.il.bgu.qa.validation.UserIdValidator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * An implementation of the database of books and users that keeps the books in memory-mapped files rather than
+ * on the heap, for catalogs too large to hold as objects.
+ * <p>
+ * Every book is a fixed-width record in a record file, found by its position: the numeric ISBN-13, the location
+ * of its strings in a separate string file, its borrowed flag and its borrower. On the heap each book only takes
+ * a slot in an int array mapping ISBNs to record positions, and a bit in a bitmap of borrowed flags.
+ * {@link #getBookByISBN} returns a view of the record that decodes the strings on first use. Borrowing or
+ * returning a view flips its bit atomically and writes the flag through to the record, and availability checks
+ * and counts read only the bitmap.
+ * <p>
+ * Books and their borrowed state survive reopening the files. Users are kept on the heap, as their notification
+ * services cannot be stored, and must be registered again after reopening. The files are not a log: a crash
+ * may lose the latest changes, see {@link FileDatabaseService} for a durable database.
+ * <p>
+ * All operations are thread-safe, with the same locking as {@link InMemoryDatabaseService}.
+ */
+public class MappedDatabaseService implements DatabaseService, Closeable {
+
+    // Identifies a record file, "LIBM".
+    private static final int MAGIC = 0x4C49424D;
+    private static final int FORMAT_VERSION = 1;
+    private static final String RECORD_FILE = "books.dat";
+    private static final String STRING_FILE = "strings.dat";
+
+    // The layout of a record. The first record slot of the file holds the header instead.
+    private static final int RECORD_SIZE = 40;
+    private static final int KEY = 0;
+    private static final int STRINGS = 8;
+    private static final int ISBN_LENGTH = 16;
+    private static final int TITLE_LENGTH = 20;
+    private static final int AUTHOR_LENGTH = 24;
+    private static final int BORROWED = 28;
+    private static final int BORROWER = 32;
+
+    // The layout of the header.
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_VERSION = 4;
+    private static final int HEADER_COUNT = 8;
+    private static final int HEADER_STRING_END = 16;
+
+    // Stands for a null string and for a book with no borrower.
+    private static final int NULL_LENGTH = -1;
+    private static final long NO_BORROWER = -1L;
+
+    // The files are mapped in segments, as a single mapping is limited to 2GB.
+    private final MappedFile records;
+    private final MappedFile strings;
+
+    // Maps a book to its record: each slot holds a record number plus one, 0 if the slot is free.
+    // The key of a slot is read from its record, so the heap holds 4 bytes per slot rather than 12.
+    private int[] index;
+    private int indexMask;
+    private int indexThreshold;
+
+    // The number of books. Written after the record it counts, so readers never see an unwritten record.
+    private volatile int count;
+    // The end of the used part of the string file.
+    private long stringEnd;
+
+    // Users keyed by the numeric value of their Id.
+    private final LongObjectHashMap<User> users = new LongObjectHashMap<>();
+    // Guards the index, the users and the record fields other than the borrowed flag.
+    private final StampedLock lock = new StampedLock();
+    // The borrowed state of every record, by record number. Flipped atomically, so that two views of the same
+    // book can never both borrow it, and read by availability checks without touching the file.
+    private final AtomicBitSet borrowed = new AtomicBitSet();
+    // Serialize writing the borrowed flags through to the file.
+    private final StripedLocks flagLocks = new StripedLocks();
+    private volatile boolean closed;
+
+    /**
+     * Opens the database in a directory, creating it if needed, with the books stored there.
+     *
+     * @param directory     The directory holding the database files.
+     * @param expectedBooks The number of books the database is expected to hold.
+     * @throws IOException If the files cannot be read or created.
+     */
+    public MappedDatabaseService(Path directory, int expectedBooks) throws IOException {
+        this(directory, expectedBooks, 1 << 20, 1 << 26);
+    }
+
+    /**
+     * Opens the database in a directory, creating it if needed, with the books stored there.
+     *
+     * @param directory The directory holding the database files.
+     * @throws IOException If the files cannot be read or created.
+     */
+    public MappedDatabaseService(Path directory) throws IOException {
+        this(directory, 16);
+    }
+
+    // Visible for testing, to make records and strings span several segments.
+    MappedDatabaseService(Path directory, int expectedBooks, int recordsPerSegment, int stringSegmentSize)
+            throws IOException {
+        if (directory == null) {
+            throw new IllegalArgumentException("Invalid directory.");
+        } else if (expectedBooks < 0) {
+            throw new IllegalArgumentException("Invalid number of books.");
+        }
+        Files.createDirectories(directory);
+        this.records = new MappedFile(directory.resolve(RECORD_FILE), (long) recordsPerSegment * RECORD_SIZE);
+        this.strings = new MappedFile(directory.resolve(STRING_FILE), stringSegmentSize);
+
+        if (records.isNew()) {
+            records.putInt(HEADER_MAGIC, MAGIC);
+            records.putInt(HEADER_VERSION, FORMAT_VERSION);
+            writeHeader();
+        } else if (records.getInt(HEADER_MAGIC) != MAGIC || records.getInt(HEADER_VERSION) != FORMAT_VERSION) {
+            throw new IOException("Not a library database: " + directory + ".");
+        }
+        int stored = records.getInt(HEADER_COUNT);
+        stringEnd = records.getLong(HEADER_STRING_END);
+
+        allocateIndex(HashUtils.tableSizeFor(Math.max(expectedBooks, stored), 0.5f));
+        borrowed.ensureCapacity(stored);
+        for (int record = 0; record < stored; record++) {
+            insert(record);
+            if (records.getInt(address(record) + BORROWED) != 0) {
+                borrowed.set(record);
+            }
+        }
+        count = stored;
+    }
+
+    @Override
+    public void addBook(String ISBN, Book book) {
+        long key = isbnKey(ISBN);
+        if (book == null) {
+            throw new IllegalArgumentException("Invalid book.");
+        }
+        byte[] isbnBytes = encode(book.getISBN());
+        byte[] titleBytes = encode(book.getTitle());
+        byte[] authorBytes = encode(book.getAuthor());
+        int length = length(isbnBytes) + length(titleBytes) + length(authorBytes);
+        if (length > strings.segmentSize) {
+            throw new IllegalArgumentException("Invalid book.");
+        }
+
+        long stamp = lock.writeLock();
+        try {
+            checkOpen();
+            // Strings never cross a segment, so that each can be read from a single mapping.
+            long offset = stringEnd;
+            if (offset % strings.segmentSize + length > strings.segmentSize) {
+                offset = (offset / strings.segmentSize + 1) * strings.segmentSize;
+            }
+            long position = offset;
+            position = strings.putBytes(position, isbnBytes);
+            position = strings.putBytes(position, titleBytes);
+            strings.putBytes(position, authorBytes);
+            stringEnd = offset + length;
+
+            // Adding a book again replaces its details and borrowed state, but keeps its borrower.
+            int record = find(key);
+            boolean added = record < 0;
+            if (added) {
+                record = count;
+                records.putLong(address(record) + KEY, key);
+                records.putLong(address(record) + BORROWER, NO_BORROWER);
+            }
+            long address = address(record);
+            records.putLong(address + STRINGS, offset);
+            records.putInt(address + ISBN_LENGTH, isbnBytes == null ? NULL_LENGTH : isbnBytes.length);
+            records.putInt(address + TITLE_LENGTH, titleBytes == null ? NULL_LENGTH : titleBytes.length);
+            records.putInt(address + AUTHOR_LENGTH, authorBytes == null ? NULL_LENGTH : authorBytes.length);
+            if (added) {
+                borrowed.ensureCapacity(record + 1);
+            }
+            if (book.isBorrowed()) {
+                borrowed.set(record);
+            } else {
+                borrowed.clear(record);
+            }
+            writeFlag(record);
+            if (added) {
+                insert(record);
+                count = record + 1;
+            }
+            writeHeader();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void registerUser(String id, User user) {
+        long key = userKey(id);
+        if (user == null) {
+            throw new IllegalArgumentException("Invalid user.");
+        }
+        long stamp = lock.writeLock();
+        try {
+            users.put(key, user);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public Book getBookByISBN(String ISBN) {
+        long key = IsbnValidator.parseIsbn13(ISBN);
+        if (key == IsbnValidator.INVALID) {
+            return null;
+        }
+        // Read the record under an optimistic read, as adding the book again may rewrite it meanwhile.
+        // The strings it points to are never overwritten, so the view can decode them later without a lock.
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            MappedBook book = view(key);
+            if (lock.validate(stamp)) {
+                return book;
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return view(key);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public User getUserById(String userId) {
+        long key = UserIdValidator.parse(userId);
+        if (key == UserIdValidator.INVALID) {
+            return null;
+        }
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            User user = users.get(key);
+            if (lock.validate(stamp)) {
+                return user;
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return users.get(key);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void borrowBook(String ISBN, String userId) {
+        long bookKey = isbnKey(ISBN);
+        long userKey = userKey(userId);
+        long stamp = lock.writeLock();
+        try {
+            int record = find(bookKey);
+            if (record < 0) {
+                throw new BookNotFoundException("Book not found!");
+            }
+            if (users.get(userKey) == null) {
+                throw new UserNotRegisteredException("User not found!");
+            }
+            records.putLong(address(record) + BORROWER, userKey);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void returnBook(String ISBN) {
+        long key = isbnKey(ISBN);
+        long stamp = lock.writeLock();
+        try {
+            int record = find(key);
+            if (record < 0) {
+                throw new BookNotFoundException("Book not found!");
+            }
+            records.putLong(address(record) + BORROWER, NO_BORROWER);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Retrieves the user currently holding a book.
+     * After reopening the database, a borrower that was not registered again is reported as null.
+     *
+     * @param ISBN The International Standard Book Number of the book.
+     * @return The user the book was borrowed by, or null if the book is not borrowed.
+     */
+    public User getBorrower(String ISBN) {
+        long key = IsbnValidator.parseIsbn13(ISBN);
+        if (key == IsbnValidator.INVALID) {
+            return null;
+        }
+        long stamp = lock.readLock();
+        try {
+            int record = find(key);
+            if (record < 0) {
+                return null;
+            }
+            long borrower = records.getLong(address(record) + BORROWER);
+            return borrower == NO_BORROWER ? null : users.get(borrower);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Checks if a book is borrowed, without reading its record.
+     *
+     * @param ISBN The International Standard Book Number of the book.
+     * @return true if the book is borrowed, false if it is not or is not in the database.
+     */
+    public boolean isBorrowed(String ISBN) {
+        long key = IsbnValidator.parseIsbn13(ISBN);
+        if (key == IsbnValidator.INVALID) {
+            return false;
+        }
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            int record = find(key);
+            if (lock.validate(stamp)) {
+                return record >= 0 && borrowed.get(record);
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            int record = find(key);
+            return record >= 0 && borrowed.get(record);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Counts how many of several books are borrowed, such as the editions of a title.
+     * Each book is counted once, however many times or spellings it is listed with.
+     *
+     * @param ISBNs The International Standard Book Numbers of the books.
+     * @return The number of those books that are borrowed.
+     */
+    public int countBorrowed(Collection<String> ISBNs) {
+        Set<Long> counted = new HashSet<>();
+        int borrowedCount = 0;
+        for (String ISBN : ISBNs) {
+            long key = IsbnValidator.parseIsbn13(ISBN);
+            if (key != IsbnValidator.INVALID && counted.add(key) && isBorrowed(ISBN)) {
+                borrowedCount++;
+            }
+        }
+        return borrowedCount;
+    }
+
+    /**
+     * Retrieves the number of borrowed books.
+     *
+     * @return The number of borrowed books.
+     */
+    public int getBorrowedCount() {
+        return borrowed.cardinality();
+    }
+
+    /**
+     * Retrieves the number of books in the database.
+     *
+     * @return The number of books.
+     */
+    public int getBookCount() {
+        return count;
+    }
+
+    /**
+     * Retrieves the number of registered users.
+     *
+     * @return The number of users.
+     */
+    public int getUserCount() {
+        long stamp = lock.readLock();
+        try {
+            return users.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Writes the changes to the files out to the disk and stops accepting new books.
+     * Views already handed out stay readable until they are no longer referenced.
+     *
+     * @throws IOException If the files cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        long stamp = lock.writeLock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            records.close();
+            strings.close();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Must be called while holding the write lock.
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Database is closed.");
+        }
+    }
+
+    // Must be called while holding the write lock.
+    private void writeHeader() {
+        records.putInt(HEADER_COUNT, count);
+        records.putLong(HEADER_STRING_END, stringEnd);
+    }
+
+    /**
+     * Creates a view of the record of a book. Tolerates running concurrently with a writer, as
+     * {@link LongObjectHashMap#get(long)} does, provided the caller validates an optimistic read.
+     *
+     * @param key The numeric value of the ISBN-13.
+     * @return A view of the book, or null if the book is not in the database.
+     */
+    private MappedBook view(long key) {
+        int record = find(key);
+        if (record < 0) {
+            return null;
+        }
+        long address = address(record);
+        return new MappedBook(this, record, records.getLong(address + STRINGS),
+                records.getInt(address + ISBN_LENGTH), records.getInt(address + TITLE_LENGTH),
+                records.getInt(address + AUTHOR_LENGTH));
+    }
+
+    /**
+     * Looks up the record of a book.
+     *
+     * @param key The numeric value of the ISBN-13.
+     * @return The record number, or -1 if the book is not in the database.
+     */
+    private int find(long key) {
+        // Read the index once and bound every read, so that a reader racing with a writer may see a wrong
+        // answer but never loops forever or reads past the mapped records.
+        int[] index = this.index;
+        int mask = index.length - 1;
+        int written = count;
+        int slot = HashUtils.mix(key) & mask;
+        for (int probes = 0; probes <= mask; probes++) {
+            int record = index[slot] - 1;
+            if (record < 0 || record >= written) {
+                return -1;
+            }
+            if (records.getLong(address(record) + KEY) == key) {
+                return record;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    // Must be called while holding the write lock, for each new record in turn.
+    private void insert(int record) {
+        if (record + 1 > indexThreshold) {
+            int[] old = index;
+            allocateIndex(old.length << 1);
+            for (int entry : old) {
+                if (entry != 0) {
+                    place(entry - 1);
+                }
+            }
+        }
+        place(record);
+    }
+
+    private void place(int record) {
+        int slot = HashUtils.mix(records.getLong(address(record) + KEY)) & indexMask;
+        while (index[slot] != 0) {
+            slot = (slot + 1) & indexMask;
+        }
+        index[slot] = record + 1;
+    }
+
+    private void allocateIndex(int capacity) {
+        int[] index = new int[capacity];
+        indexMask = capacity - 1;
+        indexThreshold = Math.min(capacity - 1, capacity / 2);
+        this.index = index;
+    }
+
+    /**
+     * Writes the borrowed flag of a record through to the file. The flag is written as the bitmap holds it at the
+     * time of writing, under a lock, so when two threads flip it in turn, the last write has the latest value.
+     *
+     * @param record The record number.
+     */
+    private void writeFlag(int record) {
+        ReentrantLock lock = flagLocks.forKey(record);
+        lock.lock();
+        try {
+            records.putInt(address(record) + BORROWED, borrowed.get(record) ? 1 : 0);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private String readString(long offset, int length) {
+        if (length == NULL_LENGTH) {
+            return null;
+        } else if (length == 0) {
+            return "";
+        }
+        return new String(strings.getBytes(offset, length), StandardCharsets.UTF_8);
+    }
+
+    private static long address(int record) {
+        return (record + 1L) * RECORD_SIZE;
+    }
+
+    private static byte[] encode(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    private static long isbnKey(String ISBN) {
+        long key = IsbnValidator.parseIsbn13(ISBN);
+        if (key == IsbnValidator.INVALID) {
+            throw new IllegalArgumentException("Invalid ISBN.");
+        }
+        return key;
+    }
+
+    private static long userKey(String userId) {
+        long key = UserIdValidator.parse(userId);
+        if (key == UserIdValidator.INVALID) {
+            throw new IllegalArgumentException("Invalid user Id.");
+        }
+        return key;
+    }
+
+    /**
+     * A book backed by its record. The details are decoded on first use, and the borrowed flag is shared by
+     * every view of the same book: it is read and flipped in the borrowed bitmap, and written through to the record.
+     */
+    private static final class MappedBook extends Book {
+        private final MappedDatabaseService database;
+        private final int record;
+        private final long strings;
+        private final int isbnLength;
+        private final int titleLength;
+        private final int authorLength;
+
+        // Decoded on first use. Strings are immutable, so a race at most decodes them twice.
+        private String isbn;
+        private String title;
+        private String author;
+
+        MappedBook(MappedDatabaseService database, int record, long strings,
+                   int isbnLength, int titleLength, int authorLength) {
+            super(null, null, null);
+            this.database = database;
+            this.record = record;
+            this.strings = strings;
+            this.isbnLength = isbnLength;
+            this.titleLength = titleLength;
+            this.authorLength = authorLength;
+        }
+
+        @Override
+        public String getISBN() {
+            if (isbn == null) {
+                isbn = database.readString(strings, isbnLength);
+            }
+            return isbn;
+        }
+
+        @Override
+        public String getTitle() {
+            if (title == null) {
+                title = database.readString(strings + Math.max(isbnLength, 0), titleLength);
+            }
+            return title;
+        }
+
+        @Override
+        public String getAuthor() {
+            if (author == null) {
+                author = database.readString(strings + Math.max(isbnLength, 0) + Math.max(titleLength, 0),
+                        authorLength);
+            }
+            return author;
+        }
+
+        @Override
+        public boolean isBorrowed() {
+            return database.borrowed.get(record);
+        }
+
+        @Override
+        public void borrow() {
+            if (!database.borrowed.set(record)) {
+                throw new IllegalStateException("Book is already borrowed!");
+            }
+            database.writeFlag(record);
+        }
+
+        @Override
+        public void returnBook() {
+            if (!database.borrowed.clear(record)) {
+                throw new IllegalStateException("ac.il.bgu.qa.Book wasn't borrowed!");
+            }
+            database.writeFlag(record);
+        }
+    }
+
+    /**
+     * A file mapped into memory in fixed-size segments, each mapped on first use.
+     * The file grows as positions past its end are written.
+     * Reads and writes never cross a segment boundary.
+     */
+    private static final class MappedFile {
+        private final FileChannel channel;
+        private final long segmentSize;
+        private final boolean isNew;
+        // Replaced, never modified, when the file grows, so readers can use it without a lock.
+        private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+        MappedFile(Path path, long segmentSize) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            this.segmentSize = segmentSize;
+            this.isNew = channel.size() == 0;
+        }
+
+        boolean isNew() {
+            return isNew;
+        }
+
+        int getInt(long position) {
+            return segment(position).getInt(offset(position));
+        }
+
+        long getLong(long position) {
+            return segment(position).getLong(offset(position));
+        }
+
+        void putInt(long position, int value) {
+            segment(position).putInt(offset(position), value);
+        }
+
+        void putLong(long position, long value) {
+            segment(position).putLong(offset(position), value);
+        }
+
+        byte[] getBytes(long position, int length) {
+            ByteBuffer buffer = segment(position).duplicate();
+            buffer.position(offset(position));
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return bytes;
+        }
+
+        long putBytes(long position, byte[] bytes) {
+            if (bytes == null || bytes.length == 0) {
+                return position;
+            }
+            ByteBuffer buffer = segment(position).duplicate();
+            buffer.position(offset(position));
+            buffer.put(bytes);
+            return position + bytes.length;
+        }
+
+        void close() throws IOException {
+            for (MappedByteBuffer segment : segments) {
+                segment.force();
+            }
+            channel.close();
+        }
+
+        private int offset(long position) {
+            return (int) (position % segmentSize);
+        }
+
+        private MappedByteBuffer segment(long position) {
+            int number = (int) (position / segmentSize);
+            MappedByteBuffer[] segments = this.segments;
+            if (number < segments.length) {
+                return segments[number];
+            }
+            return grow(number);
+        }
+
+        private synchronized MappedByteBuffer grow(int number) {
+            MappedByteBuffer[] segments = this.segments;
+            if (number < segments.length) {
+                return segments[number];
+            }
+            MappedByteBuffer[] grown = Arrays.copyOf(segments, number + 1);
+            try {
+                for (int i = segments.length; i <= number; i++) {
+                    // Mapping past the end of the file extends it.
+                    grown[i] = channel.map(FileChannel.MapMode.READ_WRITE, i * segmentSize, segmentSize);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot map the database file.", e);
+            }
+            this.segments = grown;
+            return grown[number];
+        }
+    }
+}
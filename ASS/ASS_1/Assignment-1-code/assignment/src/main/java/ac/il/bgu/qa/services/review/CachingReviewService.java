@@ -0,0 +1,269 @@
+package ac.il.bgu.qa.services.review;
+
+import ac.il.bgu.qa.errors.ReviewException;
+import ac.il.bgu.qa.services.ReviewService;
+import ac.il.bgu.qa.util.CacheStats;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * A review service that caches the reviews fetched by another review service.
+ * <p>
+ * Reviews of a book are kept for a fixed time to live. A book without reviews (a null or empty list) is cached
+ * too, usually with a shorter time to live, so that repeated requests for it don't reach the underlying service.
+ * Failures are never cached. The cache is bounded both by number of entries and by an estimate of their size
+ * in bytes, and the least recently used entries are evicted first.
+ * <p>
+ * Every invalidation starts a new generation. Reviews fetched on a miss are only cached if no invalidation
+ * happened since the miss, so a fetch racing with an invalidation cannot bring the old reviews back.
+ * <p>
+ * {@link #close()} only closes the underlying service if it was used since the last close, so the
+ * close-after-every-fetch pattern of {@link ac.il.bgu.qa.Library} costs nothing on a cache hit, and only once no
+ * fetch is running on it, so a thread closing after a hit never closes it under another thread's miss.
+ */
+public class CachingReviewService implements ReviewService {
+
+    // Estimated fixed cost of an entry: the map node, the entry object and the list.
+    private static final long ENTRY_OVERHEAD_BYTES = 128;
+    // Estimated fixed cost of a single review string, not counting its characters.
+    private static final long REVIEW_OVERHEAD_BYTES = 48;
+
+    // The review service the reviews are fetched from on a miss.
+    private final SharedReviewService shared;
+    // How long the reviews of a book are kept, in nanoseconds.
+    private final long ttlNanos;
+    // How long the absence of reviews for a book is kept, in nanoseconds.
+    private final long negativeTtlNanos;
+    // The maximum number of cached books.
+    private final int maxEntries;
+    // The maximum estimated size of all cached reviews, in bytes.
+    private final long maxBytes;
+    // The source of the current time, in nanoseconds.
+    private final LongSupplier clock;
+
+    // The cached entries by ISBN, in least recently used first order.
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // Guards entries, bytes and generation.
+    private final ReentrantLock lock = new ReentrantLock();
+    // The estimated size of all cached entries, in bytes.
+    private long bytes;
+    // The number of invalidations so far.
+    private long generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructs a new caching review service.
+     *
+     * @param delegate    The review service to fetch reviews from on a miss.
+     * @param ttl         How long the reviews of a book are kept.
+     * @param negativeTtl How long the absence of reviews for a book is kept, 0 to not cache it.
+     * @param unit        The unit of both times to live.
+     * @param maxEntries  The maximum number of cached books.
+     * @param maxBytes    The maximum estimated size of all cached reviews, in bytes.
+     */
+    public CachingReviewService(ReviewService delegate, long ttl, long negativeTtl, TimeUnit unit,
+                                int maxEntries, long maxBytes) {
+        this(delegate, ttl, negativeTtl, unit, maxEntries, maxBytes, System::nanoTime);
+    }
+
+    // Visible for testing, to control the passing of time.
+    CachingReviewService(ReviewService delegate, long ttl, long negativeTtl, TimeUnit unit,
+                         int maxEntries, long maxBytes, LongSupplier clock) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("Invalid review service.");
+        } else if (ttl <= 0 || negativeTtl < 0 || unit == null) {
+            throw new IllegalArgumentException("Invalid time to live.");
+        } else if (maxEntries <= 0 || maxBytes <= 0) {
+            throw new IllegalArgumentException("Invalid cache bounds.");
+        }
+        this.shared = new SharedReviewService(delegate);
+        this.ttlNanos = unit.toNanos(ttl);
+        this.negativeTtlNanos = unit.toNanos(negativeTtl);
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.clock = clock;
+    }
+
+    /**
+     * Fetches the reviews of a book from the cache, or from the underlying service if they are not cached
+     * or have expired.
+     *
+     * @param ISBN The International Standard Book Number (ISBN) of the book.
+     * @return An unmodifiable list of reviews, or what the underlying service returned for a book without reviews.
+     * @throws ReviewException If the reviews are not cached and the underlying service fails.
+     */
+    @Override
+    public List<String> getReviewsForBook(String ISBN) throws ReviewException {
+        if (ISBN == null) {
+            return shared.getReviewsForBook(null);
+        }
+
+        long now = clock.getAsLong();
+        long generation;
+        lock.lock();
+        try {
+            generation = this.generation;
+            Entry entry = entries.get(ISBN);
+            if (entry != null) {
+                if (now - entry.expiresAt < 0) {
+                    hits.increment();
+                    return entry.reviews;
+                }
+                remove(ISBN, entry);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        // Fetch outside the lock, so a slow review service doesn't block hits on other books.
+        misses.increment();
+        List<String> reviews = shared.getReviewsForBook(ISBN);
+
+        boolean empty = reviews == null || reviews.isEmpty();
+        long ttl = empty ? negativeTtlNanos : ttlNanos;
+        if (ttl > 0) {
+            List<String> cached = empty ? reviews : Collections.unmodifiableList(new ArrayList<>(reviews));
+            put(ISBN, new Entry(cached, clock.getAsLong() + ttl, estimateBytes(ISBN, reviews)), generation);
+            return cached;
+        }
+        return reviews;
+    }
+
+    /**
+     * Closes the underlying service if it was used since it was last closed and no fetch is running on it.
+     * A fetch still running on it is left alone; its own thread closes the service after it.
+     */
+    @Override
+    public void close() {
+        shared.close();
+    }
+
+    /**
+     * Removes the cached reviews of a book, so that the next request fetches them again.
+     *
+     * @param ISBN The International Standard Book Number (ISBN) of the book.
+     */
+    public void invalidate(String ISBN) {
+        lock.lock();
+        try {
+            generation++;
+            Entry entry = entries.get(ISBN);
+            if (entry != null) {
+                remove(ISBN, entry);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes all cached reviews.
+     */
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            generation++;
+            entries.clear();
+            bytes = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes a snapshot of the cache counters.
+     *
+     * @return The hits, misses, evictions and current size of the cache.
+     */
+    public CacheStats getStats() {
+        int size;
+        lock.lock();
+        try {
+            size = entries.size();
+        } finally {
+            lock.unlock();
+        }
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), size);
+    }
+
+    /**
+     * Retrieves the estimated size of all cached reviews.
+     *
+     * @return The size in bytes.
+     */
+    public long getEstimatedBytes() {
+        lock.lock();
+        try {
+            return bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void put(String ISBN, Entry entry, long generation) {
+        if (entry.bytes > maxBytes) {
+            // An entry that can never fit is not cached at all, rather than flushing the whole cache.
+            return;
+        }
+        lock.lock();
+        try {
+            if (generation != this.generation) {
+                // Invalidated while the reviews were fetched; they may be the ones the invalidation meant to drop.
+                return;
+            }
+            Entry previous = entries.put(ISBN, entry);
+            if (previous != null) {
+                bytes -= previous.bytes;
+            }
+            bytes += entry.bytes;
+
+            // Evict the least recently used entries until both bounds hold again.
+            Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+            while ((entries.size() > maxEntries || bytes > maxBytes) && eldest.hasNext()) {
+                Map.Entry<String, Entry> victim = eldest.next();
+                bytes -= victim.getValue().bytes;
+                eldest.remove();
+                evictions.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void remove(String ISBN, Entry entry) {
+        entries.remove(ISBN);
+        bytes -= entry.bytes;
+    }
+
+    private static long estimateBytes(String ISBN, List<String> reviews) {
+        long size = ENTRY_OVERHEAD_BYTES + 2L * ISBN.length();
+        if (reviews != null) {
+            for (String review : reviews) {
+                size += REVIEW_OVERHEAD_BYTES + (review == null ? 0 : 2L * review.length());
+            }
+        }
+        return size;
+    }
+
+    /**
+     * The cached reviews of a single book.
+     */
+    private static final class Entry {
+        final List<String> reviews;
+        final long expiresAt;
+        final long bytes;
+
+        Entry(List<String> reviews, long expiresAt, long bytes) {
+            this.reviews = reviews;
+            this.expiresAt = expiresAt;
+            this.bytes = bytes;
+        }
+    }
+}
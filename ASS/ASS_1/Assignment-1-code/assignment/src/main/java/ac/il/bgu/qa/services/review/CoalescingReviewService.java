@@ -0,0 +1,81 @@
+package ac.il.bgu.qa.services.review;
+
+import ac.il.bgu.qa.errors.ReviewException;
+import ac.il.bgu.qa.services.ReviewService;
+import ac.il.bgu.qa.util.SingleFlight;
+
+import java.util.List;
+
+/**
+ * A review service that coalesces concurrent fetches of the reviews of the same book, so that a burst of requests
+ * for a hot title costs one call to the underlying service rather than one per request.
+ * <p>
+ * Threads fetching the reviews of a book while a fetch of them is in flight share its result, the same list, or
+ * its exception, instead of making their own. Nothing is cached once the fetch is over; put a
+ * {@link CachingReviewService} in front of this service to also serve repeated fetches locally.
+ * <p>
+ * {@link #close()} only closes the underlying service if it was used since the last close, so threads that shared
+ * a fetch don't close the underlying service once each, and only once no fetch is running on it, so closing after
+ * the fetch of one book never closes it under the fetch of another.
+ */
+public class CoalescingReviewService implements ReviewService {
+
+    // The review service the reviews are fetched from.
+    private final SharedReviewService shared;
+    // The fetches in flight, by ISBN.
+    private final SingleFlight<String, List<String>> fetches = new SingleFlight<>();
+
+    /**
+     * Constructs a new coalescing review service.
+     *
+     * @param delegate The review service to fetch reviews from.
+     */
+    public CoalescingReviewService(ReviewService delegate) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("Invalid review service.");
+        }
+        this.shared = new SharedReviewService(delegate);
+    }
+
+    /**
+     * Fetches the reviews of a book from the underlying service, or shares the fetch already in flight.
+     *
+     * @param ISBN The International Standard Book Number (ISBN) of the book.
+     * @return The list of reviews the underlying service returned.
+     * @throws ReviewException If the underlying service fails.
+     */
+    @Override
+    public List<String> getReviewsForBook(String ISBN) throws ReviewException {
+        if (ISBN == null) {
+            return shared.getReviewsForBook(null);
+        }
+        return fetches.execute(ISBN, () -> shared.getReviewsForBook(ISBN));
+    }
+
+    /**
+     * Closes the underlying service if it was used since it was last closed and no fetch is running on it.
+     * A fetch still running on it is left alone; its own thread closes the service after it.
+     */
+    @Override
+    public void close() {
+        shared.close();
+    }
+
+    /**
+     * Retrieves the number of fetches made on the underlying service.
+     *
+     * @return The number of fetches.
+     */
+    public long getFetchCount() {
+        return fetches.getCallCount();
+    }
+
+    /**
+     * Retrieves the number of fetches that shared a fetch in flight instead of reaching the underlying service.
+     *
+     * @return The number of coalesced fetches.
+     */
+    public long getCoalescedCount() {
+        return fetches.getSharedCount();
+    }
+}
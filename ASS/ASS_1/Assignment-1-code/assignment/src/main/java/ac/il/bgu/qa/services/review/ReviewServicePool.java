@@ -0,0 +1,235 @@
+package ac.il.bgu.qa.services.review;
+
+import ac.il.bgu.qa.errors.ReviewServiceUnavailableException;
+import ac.il.bgu.qa.services.ReviewService;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * A bounded pool of long-lived review service connections.
+ * <p>
+ * Instead of opening a connection for every request and closing it right after, callers borrow a connection,
+ * use it and release it back to the pool, so the cost of connecting is paid once per connection.
+ * At most a fixed number of connections exist at any time; a caller that finds them all in use waits for one
+ * to be released, up to a timeout. Idle connections are health checked before being handed out and closed once
+ * they have been idle for too long. Connections are reused most recently released first, so that the pool
+ * shrinks back when demand drops.
+ */
+public class ReviewServicePool {
+
+    // Creates new connections.
+    private final Supplier<? extends ReviewService> factory;
+    // Decides if an idle connection can still be used.
+    private final Predicate<? super ReviewService> healthCheck;
+    // How long a connection may stay idle before it is closed, in nanoseconds.
+    private final long idleTimeoutNanos;
+    // How long a caller waits for a connection when all of them are in use, in nanoseconds.
+    private final long borrowTimeoutNanos;
+    // The source of the current time, in nanoseconds.
+    private final LongSupplier clock;
+
+    // One permit per connection that may still be created or handed out.
+    private final Semaphore permits;
+    // Idle connections, the most recently released first. Guarded by itself.
+    private final Deque<IdleConnection> idle = new ArrayDeque<>();
+    private volatile boolean closed;
+
+    /**
+     * Constructs a new pool.
+     *
+     * @param factory       Creates a new, connected review service.
+     * @param healthCheck   Returns true if an idle review service can still be used.
+     * @param maxSize       The maximum number of connections.
+     * @param idleTimeout   How long a connection may stay idle before it is closed.
+     * @param borrowTimeout How long to wait for a connection when all of them are in use.
+     * @param unit          The unit of both timeouts.
+     */
+    public ReviewServicePool(Supplier<? extends ReviewService> factory, Predicate<? super ReviewService> healthCheck,
+                             int maxSize, long idleTimeout, long borrowTimeout, TimeUnit unit) {
+        this(factory, healthCheck, maxSize, idleTimeout, borrowTimeout, unit, System::nanoTime);
+    }
+
+    // Visible for testing, to control the passing of time.
+    ReviewServicePool(Supplier<? extends ReviewService> factory, Predicate<? super ReviewService> healthCheck,
+                      int maxSize, long idleTimeout, long borrowTimeout, TimeUnit unit, LongSupplier clock) {
+        if (factory == null || healthCheck == null) {
+            throw new IllegalArgumentException("Invalid review service factory.");
+        } else if (maxSize <= 0) {
+            throw new IllegalArgumentException("Invalid pool size.");
+        } else if (idleTimeout <= 0 || borrowTimeout < 0 || unit == null) {
+            throw new IllegalArgumentException("Invalid timeout.");
+        }
+        this.factory = factory;
+        this.healthCheck = healthCheck;
+        this.permits = new Semaphore(maxSize, true);
+        this.idleTimeoutNanos = unit.toNanos(idleTimeout);
+        this.borrowTimeoutNanos = unit.toNanos(borrowTimeout);
+        this.clock = clock;
+    }
+
+    /**
+     * Borrows a connection, reusing a healthy idle one if there is any and creating a new one otherwise.
+     * Every borrowed connection must be handed back with either {@link #release} or {@link #invalidate}.
+     *
+     * @return A connected review service.
+     * @throws ReviewServiceUnavailableException If the pool is closed, no connection became available in time,
+     *                                           or a new connection could not be created.
+     */
+    public ReviewService borrow() {
+        if (closed) {
+            throw new ReviewServiceUnavailableException("Review service unavailable!");
+        }
+        try {
+            if (!permits.tryAcquire(borrowTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw new ReviewServiceUnavailableException("Review service unavailable!");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ReviewServiceUnavailableException("Review service unavailable!");
+        }
+
+        try {
+            evictIdle();
+            IdleConnection connection;
+            while ((connection = pollIdle()) != null) {
+                if (isHealthy(connection.service)) {
+                    return connection.service;
+                }
+                closeQuietly(connection.service);
+            }
+            ReviewService service = factory.get();
+            if (service == null) {
+                throw new ReviewServiceUnavailableException("Review service unavailable!");
+            }
+            return service;
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e instanceof ReviewServiceUnavailableException
+                    ? e : new ReviewServiceUnavailableException("Review service unavailable!");
+        }
+    }
+
+    /**
+     * Hands a healthy connection back to the pool after use, keeping it open for the next caller.
+     *
+     * @param service The connection returned by {@link #borrow()}.
+     */
+    public void release(ReviewService service) {
+        if (closed) {
+            closeQuietly(service);
+        } else {
+            synchronized (idle) {
+                idle.addFirst(new IdleConnection(service, clock.getAsLong()));
+            }
+            // The pool may have been closed meanwhile, make sure the connection doesn't leak.
+            if (closed) {
+                closeIdle();
+            }
+        }
+        permits.release();
+    }
+
+    /**
+     * Hands a connection that failed back to the pool. It is closed and will not be reused.
+     *
+     * @param service The connection returned by {@link #borrow()}.
+     */
+    public void invalidate(ReviewService service) {
+        closeQuietly(service);
+        permits.release();
+    }
+
+    /**
+     * Closes the connections that have been idle for longer than the idle timeout.
+     * This also happens on every borrow, but may be called periodically to release connections sooner.
+     */
+    public void evictIdle() {
+        long now = clock.getAsLong();
+        List<ReviewService> expired = new ArrayList<>();
+        synchronized (idle) {
+            // The oldest connections are at the end of the deque.
+            Iterator<IdleConnection> oldest = idle.descendingIterator();
+            while (oldest.hasNext()) {
+                IdleConnection connection = oldest.next();
+                if (now - connection.idleSince < idleTimeoutNanos) {
+                    break;
+                }
+                oldest.remove();
+                expired.add(connection.service);
+            }
+        }
+        for (ReviewService service : expired) {
+            closeQuietly(service);
+        }
+    }
+
+    /**
+     * Retrieves the number of idle connections.
+     *
+     * @return The number of open connections not currently borrowed.
+     */
+    public int getIdleCount() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+
+    /**
+     * Closes the pool and all idle connections. Connections still borrowed are closed when they are handed back.
+     */
+    public void close() {
+        closed = true;
+        closeIdle();
+    }
+
+    private IdleConnection pollIdle() {
+        synchronized (idle) {
+            return idle.pollFirst();
+        }
+    }
+
+    private void closeIdle() {
+        IdleConnection connection;
+        while ((connection = pollIdle()) != null) {
+            closeQuietly(connection.service);
+        }
+    }
+
+    private boolean isHealthy(ReviewService service) {
+        try {
+            return healthCheck.test(service);
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private static void closeQuietly(ReviewService service) {
+        try {
+            service.close();
+        } catch (RuntimeException e) {
+            // The connection is being discarded anyway.
+        }
+    }
+
+    /**
+     * An open connection waiting in the pool, and since when.
+     */
+    private static final class IdleConnection {
+        final ReviewService service;
+        final long idleSince;
+
+        IdleConnection(ReviewService service, long idleSince) {
+            this.service = service;
+            this.idleSince = idleSince;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package ac.il.bgu.qa.services.review;
+
+import ac.il.bgu.qa.errors.ReviewException;
+import ac.il.bgu.qa.services.ReviewService;
+
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A review service shared by the threads of a decorator, closed only once it was used and no fetch is running on it.
+ * <p>
+ * A thread that closes it while another thread's fetch is in flight leaves it open; the other thread closes it
+ * after its own fetch, as {@link ac.il.bgu.qa.Library} does after every fetch.
+ */
+final class SharedReviewService {
+
+    // The review service shared by all threads.
+    private final ReviewService delegate;
+    // Guards inFlight and used, and is held while closing so no fetch starts on a service being closed.
+    private final ReentrantLock lock = new ReentrantLock();
+    // The number of fetches running on the review service.
+    private int inFlight;
+    // Set when the review service was used since it was last closed.
+    private boolean used;
+
+    SharedReviewService(ReviewService delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Fetches the reviews of a book from the shared review service.
+     *
+     * @param ISBN The International Standard Book Number (ISBN) of the book.
+     * @return The list of reviews the review service returned.
+     * @throws ReviewException If the review service fails.
+     */
+    List<String> getReviewsForBook(String ISBN) throws ReviewException {
+        lock.lock();
+        try {
+            inFlight++;
+            used = true;
+        } finally {
+            lock.unlock();
+        }
+        try {
+            return delegate.getReviewsForBook(ISBN);
+        } finally {
+            lock.lock();
+            try {
+                inFlight--;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Closes the review service if it was used since it was last closed and no fetch is running on it.
+     */
+    void close() {
+        lock.lock();
+        try {
+            if (used && inFlight == 0) {
+                used = false;
+                delegate.close();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
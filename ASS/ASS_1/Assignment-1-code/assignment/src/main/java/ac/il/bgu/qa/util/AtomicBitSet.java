@@ -0,0 +1,183 @@
+package ac.il.bgu.qa.util;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A dense, growable set of bits that can be set and cleared atomically by concurrent threads.
+ * <p>
+ * Bits are packed 64 to a long, in fixed-size chunks that are added as the set grows, so growing never copies
+ * or locks the bits already there. Setting and clearing a bit is a single compare-and-set on its word, and
+ * reports whether it changed the bit, so of several threads setting the same bit exactly one succeeds.
+ * The number of set bits is kept up to date on every change, so counting them costs nothing.
+ */
+public class AtomicBitSet {
+
+    // Each chunk holds 2^12 words, that is 2^18 bits or 32KB.
+    private static final int WORDS_PER_CHUNK_SHIFT = 12;
+    private static final int BITS_PER_CHUNK_SHIFT = WORDS_PER_CHUNK_SHIFT + 6;
+    private static final int WORD_MASK = (1 << WORDS_PER_CHUNK_SHIFT) - 1;
+
+    // Replaced, never modified, when the set grows, so readers can use it without a lock.
+    private volatile AtomicLongArray[] chunks = new AtomicLongArray[0];
+    private final AtomicInteger cardinality = new AtomicInteger();
+
+    /**
+     * Constructs a new set with room for a number of bits.
+     *
+     * @param capacity The number of bits to make room for.
+     */
+    public AtomicBitSet(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Invalid capacity.");
+        }
+        ensureCapacity(capacity);
+    }
+
+    /**
+     * Constructs a new, empty set. It grows on the first call to {@link #ensureCapacity(int)}.
+     */
+    public AtomicBitSet() {
+        this(0);
+    }
+
+    /**
+     * Makes room for a number of bits. Bits beyond the capacity read as clear, but cannot be set.
+     *
+     * @param capacity The number of bits to make room for.
+     */
+    public void ensureCapacity(int capacity) {
+        int needed = capacity == 0 ? 0 : ((capacity - 1) >>> BITS_PER_CHUNK_SHIFT) + 1;
+        if (needed > chunks.length) {
+            grow(needed);
+        }
+    }
+
+    /**
+     * Checks a bit.
+     *
+     * @param index The index of the bit.
+     * @return true if the bit is set, otherwise false.
+     */
+    public boolean get(int index) {
+        AtomicLongArray[] chunks = this.chunks;
+        int chunk = index >>> BITS_PER_CHUNK_SHIFT;
+        if (index < 0 || chunk >= chunks.length) {
+            return false;
+        }
+        return (chunks[chunk].get(word(index)) & bit(index)) != 0;
+    }
+
+    /**
+     * Sets a bit.
+     *
+     * @param index The index of the bit.
+     * @return true if the bit was clear and this call set it, false if it was already set.
+     */
+    public boolean set(int index) {
+        AtomicLongArray words = chunk(index);
+        int word = word(index);
+        long bit = bit(index);
+        while (true) {
+            long current = words.get(word);
+            if ((current & bit) != 0) {
+                return false;
+            }
+            if (words.compareAndSet(word, current, current | bit)) {
+                cardinality.incrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Clears a bit.
+     *
+     * @param index The index of the bit.
+     * @return true if the bit was set and this call cleared it, false if it was already clear.
+     */
+    public boolean clear(int index) {
+        AtomicLongArray words = chunk(index);
+        int word = word(index);
+        long bit = bit(index);
+        while (true) {
+            long current = words.get(word);
+            if ((current & bit) == 0) {
+                return false;
+            }
+            if (words.compareAndSet(word, current, current & ~bit)) {
+                cardinality.decrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Retrieves the number of set bits.
+     *
+     * @return The number of set bits.
+     */
+    public int cardinality() {
+        return cardinality.get();
+    }
+
+    /**
+     * Counts the set bits in a range, a word at a time.
+     *
+     * @param from The index of the first bit of the range, inclusive.
+     * @param to   The index of the last bit of the range, exclusive.
+     * @return The number of set bits in the range.
+     */
+    public int cardinality(int from, int to) {
+        if (from < 0 || to < from) {
+            throw new IllegalArgumentException("Invalid range.");
+        }
+        AtomicLongArray[] chunks = this.chunks;
+        to = (int) Math.min(to, (long) chunks.length << BITS_PER_CHUNK_SHIFT);
+        int count = 0;
+        int index = from;
+        while (index < to) {
+            long word = chunks[index >>> BITS_PER_CHUNK_SHIFT].get(word(index));
+            // Keep the bits from the index to the end of the word or of the range, whichever comes first.
+            int end = Math.min(to, (index | 63) + 1);
+            long mask = -1L << index;
+            if ((end & 63) != 0) {
+                mask &= ~(-1L << end);
+            }
+            count += Long.bitCount(word & mask);
+            index = end;
+        }
+        return count;
+    }
+
+    private AtomicLongArray chunk(int index) {
+        AtomicLongArray[] chunks = this.chunks;
+        int chunk = index >>> BITS_PER_CHUNK_SHIFT;
+        if (index < 0 || chunk >= chunks.length) {
+            throw new IndexOutOfBoundsException("Bit " + index + " is beyond the capacity.");
+        }
+        return chunks[chunk];
+    }
+
+    private synchronized void grow(int needed) {
+        AtomicLongArray[] chunks = this.chunks;
+        if (needed <= chunks.length) {
+            return;
+        }
+        AtomicLongArray[] grown = Arrays.copyOf(chunks, needed);
+        for (int i = chunks.length; i < needed; i++) {
+            grown[i] = new AtomicLongArray(1 << WORDS_PER_CHUNK_SHIFT);
+        }
+        this.chunks = grown;
+    }
+
+    private static int word(int index) {
+        return (index >>> 6) & WORD_MASK;
+    }
+
+    private static long bit(int index) {
+        // Shifts of a long only use the low 6 bits of the distance.
+        return 1L << index;
+    }
+}
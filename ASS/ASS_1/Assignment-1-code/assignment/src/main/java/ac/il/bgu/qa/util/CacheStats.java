@@ -0,0 +1,78 @@
+package ac.il.bgu.qa.util;
+
+/**
+ * An immutable snapshot of the counters of a cache, for monitoring.
+ */
+public class CacheStats {
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long size;
+
+    /**
+     * Constructs a new CacheStats object.
+     *
+     * @param hits      The number of lookups served from the cache.
+     * @param misses    The number of lookups that had to go to the underlying service.
+     * @param evictions The number of entries removed to respect the size bounds.
+     * @param size      The number of entries currently in the cache.
+     */
+    public CacheStats(long hits, long misses, long evictions, long size) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.size = size;
+    }
+
+    /**
+     * Retrieves the number of lookups served from the cache.
+     *
+     * @return The number of hits.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Retrieves the number of lookups that had to go to the underlying service.
+     *
+     * @return The number of misses.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Retrieves the number of entries removed to respect the size bounds.
+     * Entries that simply expired are not counted.
+     *
+     * @return The number of evictions.
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Retrieves the number of entries in the cache when the snapshot was taken.
+     *
+     * @return The number of entries.
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Calculates the fraction of lookups served from the cache.
+     *
+     * @return The hit rate between 0 and 1, or 0 if there were no lookups.
+     */
+    public double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return "hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + ", size=" + size;
+    }
+}
@@ -0,0 +1,40 @@
+package ac.il.bgu.qa.util;
+
+/**
+ * Helper functions shared by the primitive-keyed hash tables.
+ */
+public final class HashUtils {
+
+    // The largest power of two table size that an int-indexed array can hold.
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private HashUtils() {
+    }
+
+    /**
+     * Spreads the bits of a long key so that sequential keys do not cluster in the table.
+     *
+     * @param key The key to hash.
+     * @return A well distributed 32 bit hash.
+     */
+    public static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Calculates the power of two table size needed to hold the expected number of entries.
+     *
+     * @param expectedSize The number of entries to hold.
+     * @param loadFactor   The fraction of slots that may be used.
+     * @return The table size, at least 2.
+     */
+    public static int tableSizeFor(int expectedSize, float loadFactor) {
+        long needed = (long) Math.ceil(Math.max(expectedSize, 1) / (double) loadFactor);
+        if (needed > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Expected size is too large.");
+        }
+        int capacity = Integer.highestOneBit((int) Math.max(needed, 2));
+        return capacity < needed ? capacity << 1 : capacity;
+    }
+}
@@ -0,0 +1,247 @@
+package ac.il.bgu.qa.util;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash map from primitive long keys to object values.
+ * <p>
+ * Keys and values live in two parallel arrays and collisions are resolved with linear probing,
+ * so there is no boxing of keys and no per-entry node object. Removal uses backward shifting,
+ * which keeps probe sequences short without tombstones.
+ * <p>
+ * This class is not thread-safe; callers are responsible for synchronization. As an exception,
+ * {@link #get(long)} tolerates running concurrently with a writer: it always terminates without an
+ * exception, although the result is only meaningful if the caller validates that no write happened,
+ * as with an optimistic read of a {@link java.util.concurrent.locks.StampedLock}.
+ *
+ * @param <V> The type of the values.
+ */
+public class LongObjectHashMap<V> {
+
+    // The slot is free when its value is null, so null values cannot be stored.
+    private long[] keys;
+    private Object[] values;
+    private int size;
+    private int mask;
+    private int resizeThreshold;
+    private final float loadFactor;
+
+    /**
+     * Constructs a new map with room for the expected number of entries before resizing.
+     *
+     * @param expectedSize The number of entries the map is expected to hold.
+     * @param loadFactor   The fraction of slots that may be used before the map grows, between 0 and 1.
+     */
+    public LongObjectHashMap(int expectedSize, float loadFactor) {
+        if (loadFactor <= 0 || loadFactor >= 1) {
+            throw new IllegalArgumentException("Invalid load factor.");
+        }
+        this.loadFactor = loadFactor;
+        allocate(HashUtils.tableSizeFor(expectedSize, loadFactor));
+    }
+
+    /**
+     * Constructs a new map with a small initial capacity and a load factor of 0.5.
+     */
+    public LongObjectHashMap() {
+        this(16, 0.5f);
+    }
+
+    /**
+     * Retrieves the value mapped to a key.
+     *
+     * @param key The key to look up.
+     * @return The value, or null if the key is not in the map.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        // Read both arrays once and derive the mask from them, so that a reader racing with a resize
+        // (see the class comment) may see a wrong answer but never loops forever or indexes out of bounds.
+        long[] keys = this.keys;
+        Object[] values = this.values;
+        int mask = Math.min(keys.length, values.length) - 1;
+        int slot = HashUtils.mix(key) & mask;
+        for (int probes = 0; probes <= mask; probes++) {
+            Object value = values[slot];
+            if (value == null) {
+                return null;
+            }
+            if (keys[slot] == key) {
+                return (V) value;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Checks if a key is in the map.
+     *
+     * @param key The key to look up.
+     * @return true if the key is mapped to a value, otherwise false.
+     */
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Maps a key to a value, replacing any previous value.
+     *
+     * @param key   The key.
+     * @param value The value, must not be null.
+     * @return The previous value, or null if the key was not in the map.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Null values are not supported.");
+        }
+        int slot = HashUtils.mix(key) & mask;
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                V previous = (V) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeThreshold) {
+            rehash(values.length << 1);
+        }
+        return null;
+    }
+
+    /**
+     * Maps a key to a value only if the key is not already in the map.
+     *
+     * @param key   The key.
+     * @param value The value, must not be null.
+     * @return The existing value, or null if the value was added.
+     */
+    public V putIfAbsent(long key, V value) {
+        V existing = get(key);
+        return existing != null ? existing : put(key, value);
+    }
+
+    /**
+     * Removes a key from the map.
+     *
+     * @param key The key to remove.
+     * @return The value that was mapped to the key, or null if the key was not in the map.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int slot = HashUtils.mix(key) & mask;
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                V previous = (V) values[slot];
+                shiftBack(slot);
+                size--;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Retrieves the number of entries in the map.
+     *
+     * @return The number of entries.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if the map has no entries.
+     *
+     * @return true if the map is empty, otherwise false.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all entries, keeping the current capacity.
+     */
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * Calls the visitor for every entry in the map, in no particular order.
+     * The map must not be modified while it is being visited.
+     *
+     * @param visitor The visitor to call.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryVisitor<? super V> visitor) {
+        for (int slot = 0; slot < values.length; slot++) {
+            if (values[slot] != null) {
+                visitor.visit(keys[slot], (V) values[slot]);
+            }
+        }
+    }
+
+    // Closes the gap at the given slot by moving back entries whose probe sequence passes through it.
+    private void shiftBack(int gap) {
+        int slot = gap;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (values[slot] == null) {
+                break;
+            }
+            int home = HashUtils.mix(keys[slot]) & mask;
+            // Move the entry only if its home slot is not between the gap and its current slot.
+            if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+                keys[gap] = keys[slot];
+                values[gap] = values[slot];
+                gap = slot;
+            }
+        }
+        values[gap] = null;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = HashUtils.mix(oldKeys[i]) & mask;
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        resizeThreshold = Math.min(capacity - 1, (int) (capacity * loadFactor));
+    }
+
+    /**
+     * Receives the entries of a map one by one.
+     *
+     * @param <V> The type of the values.
+     */
+    public interface EntryVisitor<V> {
+
+        /**
+         * Visits a single entry.
+         *
+         * @param key   The key of the entry.
+         * @param value The value of the entry.
+         */
+        void visit(long key, V value);
+    }
+}
@@ -0,0 +1,115 @@
+package ac.il.bgu.qa.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls for the same key into a single call.
+ * <p>
+ * The first thread to ask for a key makes the call; threads asking for the same key while it is in flight wait
+ * for it and share its result, or its exception. Once the call is over the key is forgotten, so the next thread
+ * to ask makes a new call: nothing is cached.
+ *
+ * @param <K> The type of the keys.
+ * @param <V> The type of the results.
+ */
+public class SingleFlight<K, V> {
+
+    // The calls in flight by key.
+    private final ConcurrentHashMap<K, Flight<V>> flights = new ConcurrentHashMap<>();
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder shared = new LongAdder();
+
+    /**
+     * Makes a call, or joins the call for the same key already in flight.
+     * <p>
+     * A thread that joins a call waits for it even if interrupted, as it would for its own call, and keeps its
+     * interrupt status. An exception thrown by the call is rethrown as is to every thread that shared it.
+     *
+     * @param key  The key of the call.
+     * @param call Makes the call, only invoked if no call for the key is in flight.
+     * @return The result of the call.
+     */
+    public V execute(K key, Supplier<? extends V> call) {
+        Flight<V> flight = new Flight<>();
+        Flight<V> inFlight = flights.putIfAbsent(key, flight);
+        if (inFlight != null) {
+            shared.increment();
+            return inFlight.await();
+        }
+
+        calls.increment();
+        try {
+            flight.result = call.get();
+        } catch (RuntimeException | Error e) {
+            flight.failure = e;
+            throw e;
+        } finally {
+            // Forget the call before publishing its result, so later threads make a new one.
+            flights.remove(key, flight);
+            flight.done.countDown();
+        }
+        return flight.result;
+    }
+
+    /**
+     * Detaches the call for a key in flight, if any, so that threads asking for the key from now on make a new
+     * call instead of sharing a result that may predate a change. Threads already waiting still share it.
+     *
+     * @param key The key of the call.
+     */
+    public void forget(K key) {
+        flights.remove(key);
+    }
+
+    /**
+     * Retrieves the number of calls made.
+     *
+     * @return The number of calls.
+     */
+    public long getCallCount() {
+        return calls.sum();
+    }
+
+    /**
+     * Retrieves the number of times a thread shared a call in flight instead of making its own.
+     *
+     * @return The number of shared calls.
+     */
+    public long getSharedCount() {
+        return shared.sum();
+    }
+
+    /**
+     * A call in flight. The result and failure are published by counting down the latch.
+     */
+    private static final class Flight<V> {
+        final CountDownLatch done = new CountDownLatch(1);
+        V result;
+        Throwable failure;
+
+        V await() {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    done.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            } else if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package ac.il.bgu.qa.util;
+
+import ac.il.bgu.qa.validation.IsbnValidator;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed set of locks shared between many keys.
+ * <p>
+ * Each key is mapped to one of the locks by its hash, so operations on the same key are serialized
+ * while operations on different keys usually proceed in parallel, without keeping a lock per key.
+ */
+public class StripedLocks {
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    /**
+     * Constructs a new set of locks.
+     *
+     * @param stripes The minimum number of locks, rounded up to a power of two.
+     */
+    public StripedLocks(int stripes) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("Invalid number of stripes.");
+        }
+        int size = Integer.highestOneBit(stripes);
+        if (size < stripes) {
+            size <<= 1;
+        }
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Constructs a new set of locks sized for the number of available processors.
+     */
+    public StripedLocks() {
+        this(Math.max(64, Runtime.getRuntime().availableProcessors() * 4));
+    }
+
+    /**
+     * Retrieves the lock guarding a numeric key.
+     *
+     * @param key The key.
+     * @return The lock for the key.
+     */
+    public ReentrantLock forKey(long key) {
+        return stripes[HashUtils.mix(key) & mask];
+    }
+
+    /**
+     * Retrieves the lock guarding an ISBN.
+     * All spellings of the same ISBN-13, with or without hyphens, map to the same lock.
+     *
+     * @param ISBN The International Standard Book Number.
+     * @return The lock for the ISBN.
+     */
+    public ReentrantLock forIsbn(String ISBN) {
+        long key = IsbnValidator.parseIsbn13(ISBN);
+        return key != IsbnValidator.INVALID ? forKey(key) : forKey(ISBN == null ? 0 : ISBN.hashCode());
+    }
+
+    /**
+     * Retrieves the number of locks.
+     *
+     * @return The number of locks.
+     */
+    public int size() {
+        return stripes.length;
+    }
+}
@@ -0,0 +1,184 @@
+package ac.il.bgu.qa.validation;
+
+/**
+ * Validates and normalizes International Standard Book Numbers (ISBN).
+ * <p>
+ * Every method works in a single pass over the characters of the input and does not allocate,
+ * which makes it safe to call on every library operation. Hyphens are ignored wherever they
+ * appear, so "978-3-16-148410-0" and "9783161484100" are treated the same.
+ */
+public final class IsbnValidator {
+
+    // Returned by the parsing methods when the input is not a valid ISBN.
+    public static final long INVALID = -1L;
+
+    // Prefix given to an ISBN-10 when it is converted to ISBN-13 ("978").
+    private static final long BOOKLAND_PREFIX = 978L;
+
+    private IsbnValidator() {
+    }
+
+    /**
+     * Validates if input is of type ISBN-13.
+     *
+     * @param isbn The International Standard Book Number to be validated.
+     * @return true if valid, false otherwise.
+     */
+    public static boolean isValidIsbn13(CharSequence isbn) {
+        return parseIsbn13(isbn) != INVALID;
+    }
+
+    /**
+     * Validates if input is of type ISBN-10.
+     * The last character may be 'X' (or 'x'), which stands for a check digit of 10.
+     *
+     * @param isbn The International Standard Book Number to be validated.
+     * @return true if valid, false otherwise.
+     */
+    public static boolean isValidIsbn10(CharSequence isbn) {
+        return parseIsbn10(isbn) != INVALID;
+    }
+
+    /**
+     * Validates if input is either a valid ISBN-13 or a valid ISBN-10.
+     *
+     * @param isbn The International Standard Book Number to be validated.
+     * @return true if valid, false otherwise.
+     */
+    public static boolean isValid(CharSequence isbn) {
+        return toIsbn13(isbn) != INVALID;
+    }
+
+    /**
+     * Parses an ISBN-13 into its numeric value.
+     *
+     * @param isbn The International Standard Book Number to be parsed.
+     * @return The 13 digits of the ISBN as a number, or {@link #INVALID} if the input is not a valid ISBN-13.
+     */
+    public static long parseIsbn13(CharSequence isbn) {
+        // Check if the ISBN is null, it is invalid if it is
+        if (isbn == null) {
+            return INVALID;
+        }
+
+        // Odd position numbers are multiplied by 1, even position numbers are multiplied by 3.
+        // The check digit is chosen so that the weighted sum of all 13 digits divides by 10,
+        // so it can simply be added in with its weight of 1 instead of being compared separately.
+        long value = 0;
+        int sum = 0;
+        int digits = 0;
+        int length = isbn.length();
+        for (int i = 0; i < length; i++) {
+            char c = isbn.charAt(i);
+            if (c == '-') {
+                continue;
+            }
+            int digit = c - '0';
+            if (digit < 0 || digit > 9 || digits == 13) {
+                return INVALID;
+            }
+            sum += digit * (1 + ((digits & 1) << 1));
+            value = value * 10 + digit;
+            digits++;
+        }
+
+        return digits == 13 && sum % 10 == 0 ? value : INVALID;
+    }
+
+    /**
+     * Parses an ISBN-10 into the numeric value of its first nine digits.
+     *
+     * @param isbn The International Standard Book Number to be parsed.
+     * @return The first nine digits of the ISBN as a number, or {@link #INVALID} if the input is not a valid ISBN-10.
+     */
+    private static long parseIsbn10(CharSequence isbn) {
+        if (isbn == null) {
+            return INVALID;
+        }
+
+        // The digit at position i (0-based) is weighted by 10 - i, the total must divide by 11
+        long value = 0;
+        int sum = 0;
+        int digits = 0;
+        for (int i = 0; i < isbn.length(); i++) {
+            char c = isbn.charAt(i);
+            if (c == '-') {
+                continue;
+            }
+            if (digits == 10) {
+                return INVALID;
+            }
+            int digit;
+            if (c >= '0' && c <= '9') {
+                digit = c - '0';
+            } else if ((c == 'X' || c == 'x') && digits == 9) {
+                digit = 10;
+            } else {
+                return INVALID;
+            }
+            if (digits < 9) {
+                value = value * 10 + digit;
+            }
+            sum += digit * (10 - digits);
+            digits++;
+        }
+
+        return digits == 10 && sum % 11 == 0 ? value : INVALID;
+    }
+
+    /**
+     * Normalizes an ISBN-10 or ISBN-13 into the numeric value of its ISBN-13 form.
+     * An ISBN-10 is prefixed with "978" and given a recalculated check digit.
+     *
+     * @param isbn The International Standard Book Number to be normalized.
+     * @return The ISBN-13 as a number, or {@link #INVALID} if the input is neither a valid ISBN-10 nor ISBN-13.
+     */
+    public static long toIsbn13(CharSequence isbn) {
+        long value = parseIsbn13(isbn);
+        if (value != INVALID) {
+            return value;
+        }
+
+        long body = parseIsbn10(isbn);
+        if (body == INVALID) {
+            return INVALID;
+        }
+
+        // Prepend the prefix and calculate the ISBN-13 check digit over the resulting 12 digits
+        long prefixed = BOOKLAND_PREFIX * 1_000_000_000L + body;
+        int sum = 0;
+        long rest = prefixed;
+        for (int position = 11; position >= 0; position--) {
+            int digit = (int) (rest % 10);
+            rest /= 10;
+            sum += (position & 1) == 0 ? digit : digit * 3;
+        }
+        return prefixed * 10 + (10 - sum % 10) % 10;
+    }
+
+    /**
+     * Normalizes an ISBN-10 or ISBN-13 into its 13 digit string form, without hyphens.
+     *
+     * @param isbn The International Standard Book Number to be normalized.
+     * @return The ISBN-13 string, or null if the input is neither a valid ISBN-10 nor ISBN-13.
+     */
+    public static String toIsbn13String(CharSequence isbn) {
+        long value = toIsbn13(isbn);
+        return value == INVALID ? null : format(value);
+    }
+
+    /**
+     * Formats the numeric value of an ISBN-13 back into its 13 digit string form.
+     *
+     * @param isbn13 The numeric value of an ISBN-13.
+     * @return The 13 digit string, padded with leading zeros if necessary.
+     */
+    public static String format(long isbn13) {
+        char[] chars = new char[13];
+        for (int i = 12; i >= 0; i--) {
+            chars[i] = (char) ('0' + isbn13 % 10);
+            isbn13 /= 10;
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,67 @@
+package ac.il.bgu.qa.validation;
+
+/**
+ * Validates user Ids, which must consist of exactly 12 digits.
+ * <p>
+ * Validation is a plain loop over the characters: no {@link java.util.regex.Pattern} is compiled
+ * and nothing is allocated. Since a 12 digit Id always fits in a long, a validated Id can also be
+ * represented as a primitive key with {@link #parse(CharSequence)} and turned back with {@link #format(long)}.
+ */
+public final class UserIdValidator {
+
+    // The number of digits in a valid user Id.
+    public static final int LENGTH = 12;
+
+    // Returned by parse when the input is not a valid user Id.
+    public static final long INVALID = -1L;
+
+    private UserIdValidator() {
+    }
+
+    /**
+     * Validates if the user Id is a 12-digit number.
+     *
+     * @param userId The user Id to be validated.
+     * @return true if valid, false otherwise.
+     */
+    public static boolean isValid(CharSequence userId) {
+        return parse(userId) != INVALID;
+    }
+
+    /**
+     * Parses a user Id into a primitive key.
+     *
+     * @param userId The user Id to be parsed.
+     * @return The Id as a number, or {@link #INVALID} if it is not a 12-digit number.
+     */
+    public static long parse(CharSequence userId) {
+        if (userId == null || userId.length() != LENGTH) {
+            return INVALID;
+        }
+
+        long value = 0;
+        for (int i = 0; i < LENGTH; i++) {
+            char c = userId.charAt(i);
+            if (c < '0' || c > '9') {
+                return INVALID;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Formats a primitive key back into its 12 digit user Id.
+     *
+     * @param userId The numeric value of a user Id.
+     * @return The 12 digit string, padded with leading zeros if necessary.
+     */
+    public static String format(long userId) {
+        char[] chars = new char[LENGTH];
+        for (int i = LENGTH - 1; i >= 0; i--) {
+            chars[i] = (char) ('0' + userId % 10);
+            userId /= 10;
+        }
+        return new String(chars);
+    }
+}
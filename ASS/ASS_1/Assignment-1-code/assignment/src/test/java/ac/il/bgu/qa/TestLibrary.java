@@ -1,15 +1,31 @@
 package ac.il.bgu.qa;
 
 import ac.il.bgu.qa.errors.*;
+import ac.il.bgu.qa.metrics.LibraryMetrics;
+import ac.il.bgu.qa.metrics.MetricsSnapshot;
+import ac.il.bgu.qa.notification.BackpressurePolicy;
+import ac.il.bgu.qa.notification.CircuitBreaker;
+import ac.il.bgu.qa.notification.CircuitBreakerRegistry;
+import ac.il.bgu.qa.notification.ExponentialBackoffRetryPolicy;
+import ac.il.bgu.qa.notification.ReviewMessage;
+import ac.il.bgu.qa.notification.ReviewMessageRenderer;
+import ac.il.bgu.qa.notification.NotificationDispatcher;
+import ac.il.bgu.qa.notification.NotificationEventLog;
+import ac.il.bgu.qa.search.BookSearchIndex;
+import ac.il.bgu.qa.search.SearchResult;
 import ac.il.bgu.qa.services.DatabaseService;
 import ac.il.bgu.qa.services.NotificationService;
 import ac.il.bgu.qa.services.ReviewService;
+import ac.il.bgu.qa.services.StreamingNotificationService;
+import ac.il.bgu.qa.services.review.ReviewServicePool;
 
 import org.junit.jupiter.api.*;
 import org.mockito.*;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.*;
+import java.util.concurrent.*;
 
 import static org.mockito.Mockito.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -239,6 +255,97 @@ public class TestLibrary {
         verify(mockDatabaseService,times(0)).addBook(mockBook.getISBN(),mockBook);
     }
 
+    @Test
+    public void GivenSearchIndex_WhenAddingNewBook_FindBookBySearch() {
+        library.setSearchIndex(new BookSearchIndex());
+        Book book = new Book("978-3-16-148410-0", "The Islands", "David The Third");
+
+        library.addBook(book);
+
+        SearchResult result = library.searchBooks("isl", 0, 10);
+        assertEquals(1, result.getTotalHits());
+        assertSame(book, result.getBooks().get(0));
+        verify(mockDatabaseService).addBook("978-3-16-148410-0", book);
+    }
+
+    @Test
+    public void GivenSearchIndex_WhenBookAlreadyExist_DontIndexBook() {
+        BookSearchIndex index = new BookSearchIndex();
+        library.setSearchIndex(index);
+        Book book = new Book("978-3-16-148410-0", "The Islands", "David The Third");
+        when(mockDatabaseService.getBookByISBN("978-3-16-148410-0")).thenReturn(book);
+
+        assertThrows(IllegalArgumentException.class, () -> library.addBook(book));
+
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void GivenNoSearchIndex_WhenSearching_TriggerIllegalStateException() {
+        assertThrows(IllegalStateException.class, () -> library.searchBooks("islands", 0, 10));
+    }
+
+    @Test
+    public void GivenMetrics_WhenAddingBooks_RecordOutcomesAndDatabaseCalls() {
+        LibraryMetrics metrics = new LibraryMetrics();
+        library.setMetrics(metrics);
+        Book book = new Book("978-3-16-148410-0", "The Islands", "David The Third");
+
+        library.addBook(book);
+        when(mockDatabaseService.getBookByISBN("978-3-16-148410-0")).thenReturn(book);
+        assertThrows(IllegalArgumentException.class, () -> library.addBook(book));
+        assertThrows(IllegalArgumentException.class, () -> library.addBook(null));
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(3, snapshot.getCount(LibraryMetrics.Operation.ADD_BOOK));
+        assertEquals(1L, snapshot.getOutcomes(LibraryMetrics.Operation.ADD_BOOK).get(LibraryMetrics.SUCCESS));
+        assertEquals(2L, snapshot.getOutcomes(LibraryMetrics.Operation.ADD_BOOK).get("IllegalArgumentException"));
+        assertEquals(2, snapshot.getLatency(LibraryMetrics.Call.DATABASE_READ).getCount());
+        assertEquals(1, snapshot.getLatency(LibraryMetrics.Call.DATABASE_WRITE).getCount());
+    }
+
+    @Test
+    public void GivenMetrics_WhenBorrowingBorrowedBook_RecordReasonAsOutcome() {
+        LibraryMetrics metrics = new LibraryMetrics();
+        library.setMetrics(metrics);
+        when(mockDatabaseService.getBookByISBN("978-3-16-148410-0")).thenReturn(mockBook);
+        when(mockDatabaseService.getUserById("206515744111")).thenReturn(mockUser);
+        when(mockBook.isBorrowed()).thenReturn(true);
+
+        assertThrows(BookAlreadyBorrowedException.class, () -> library.borrowBook("978-3-16-148410-0", "206515744111"));
+
+        assertEquals(1L, metrics.snapshot().getOutcomes(LibraryMetrics.Operation.BORROW_BOOK).get("ALREADY_BORROWED"));
+        assertThrows(IllegalArgumentException.class, () -> library.setMetrics(null));
+    }
+
+    @Test
+    public void GivenMetrics_WhenUsingBatchSearchAndAsyncOperations_RecordThemToo() throws Exception {
+        LibraryMetrics metrics = new LibraryMetrics();
+        library.setMetrics(metrics);
+        spyReviews.add("Amazing Book!");
+        when(mockDatabaseService.getBookByISBN("978-3-16-148410-0")).thenReturn(mockBook);
+        when(mockDatabaseService.getUserById("206515744111")).thenReturn(mockUser);
+        when(mockReviewService.getReviewsForBook("978-3-16-148410-0")).thenReturn(spyReviews);
+
+        assertThrows(IllegalStateException.class, () -> library.searchBooks("islands", 0, 10));
+        assertThrows(IllegalArgumentException.class, () -> library.borrowBooks(null, "206515744111"));
+        library.returnBooks(Collections.emptyList());
+        assertThrows(IllegalArgumentException.class, () -> library.notifyUsersWithBookReviews("97!-3-1D-14%4105",
+                Collections.singletonList("206515744111")));
+        library.notifyUserWithBookReviewsAsync("978-3-16-148410-0", "206515744111").get(5, TimeUnit.SECONDS);
+        assertThrows(IllegalArgumentException.class,
+                () -> library.notifyUserWithBookReviewsAsync("978-3-16-148410-0", "2065"));
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(1L, snapshot.getOutcomes(LibraryMetrics.Operation.SEARCH_BOOKS).get("IllegalStateException"));
+        assertEquals(1L, snapshot.getOutcomes(LibraryMetrics.Operation.BORROW_BOOKS).get("IllegalArgumentException"));
+        assertEquals(1L, snapshot.getOutcomes(LibraryMetrics.Operation.RETURN_BOOKS).get(LibraryMetrics.SUCCESS));
+        assertEquals(1L, snapshot.getOutcomes(LibraryMetrics.Operation.NOTIFY_USERS).get("IllegalArgumentException"));
+        assertEquals(2, snapshot.getCount(LibraryMetrics.Operation.NOTIFY_USER_ASYNC));
+        assertEquals(1L, snapshot.getOutcomes(LibraryMetrics.Operation.NOTIFY_USER_ASYNC).get(LibraryMetrics.SUCCESS));
+        assertEquals(1, snapshot.getLatency(LibraryMetrics.Operation.SEARCH_BOOKS).getCount());
+    }
+
     /**
      * Library RegisterUser Tests
      */
@@ -446,6 +553,17 @@ public class TestLibrary {
         verify(mockDatabaseService,times(0)).borrowBook(any(),any());
     }
 
+    @Test
+    public void GivenDatabaseFailure_WhenBorrowBook_BookStaysAvailable() {
+        Book book = new Book("978-3-16-148410-0", "The Islands", "David The Third");
+        when(mockDatabaseService.getBookByISBN(book.getISBN())).thenReturn(book);
+        when(mockDatabaseService.getUserById("206515744111")).thenReturn(mockUser);
+        doThrow(new IllegalStateException("Database unavailable")).when(mockDatabaseService).borrowBook(any(), any());
+
+        assertThrows(IllegalStateException.class, () -> library.borrowBook(book.getISBN(), "206515744111"));
+        assertFalse(book.isBorrowed());
+    }
+
     /**
      * Library ReturnBook Tests
      */
@@ -625,6 +743,28 @@ public class TestLibrary {
         verify(mockUser,times(5)).sendNotification(any());
     }
 
+    @Test
+    public void GivenEventLog_WhenNotificationKeepsFailing_LogEveryRetryInBackground() throws InterruptedException {
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        NotificationEventLog eventLog = new NotificationEventLog(64, 100, System.out, new PrintStream(err, true));
+        library.setNotificationEventLog(eventLog);
+        spyReviews.add("Amazing Book");
+        when(mockBook.getTitle()).thenReturn("The Islands");
+        when(mockDatabaseService.getBookByISBN("978-3-16-148410-0")).thenReturn(mockBook);
+        when(mockDatabaseService.getUserById("206515744111")).thenReturn(mockUser);
+        when(mockReviewService.getReviewsForBook(any())).thenReturn(spyReviews);
+        doThrow(NotificationException.class).when(mockUser).sendNotification(any());
+
+        assertThrows(NotificationException.class,
+                () -> library.notifyUserWithBookReviews("978-3-16-148410-0", "206515744111"));
+        eventLog.close();
+
+        assertTrue(eventLog.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(5, eventLog.getWrittenCount());
+        assertTrue(err.toString().contains("Notification failed! Retrying attempt 5/5"));
+        assertThrows(IllegalArgumentException.class, () -> library.setNotificationEventLog(null));
+    }
+
     @Test
     public void GivenGetReviewsForBookCatchException_WhenNotifyUserWithBookReviews_TriggerReviewServiceUnavailableException(){
         when(mockBook.getISBN()).thenReturn("978-3-16-148410-0");
@@ -726,4 +866,399 @@ public class TestLibrary {
         assertEquals(2, spyReviews.size());
     }
 
-}
\ No newline at end of file
+    /**
+     * Library BorrowBooks and ReturnBooks Tests
+     */
+    @Test
+    public void GivenMixedBatch_WhenBorrowBooks_ReportEachOutcomeWithoutThrowing() {
+        Book available = new Book("978-3-16-148410-0", "The Islands", "David The Third");
+        Book borrowed = new Book("978-0-306-40615-7", "Abra Kadabra", "David The Third");
+        borrowed.borrow();
+        Map<String, Book> found = new HashMap<>();
+        found.put(available.getISBN(), available);
+        found.put(borrowed.getISBN(), borrowed);
+        when(mockDatabaseService.getUserById("206515744111")).thenReturn(mockUser);
+        when(mockDatabaseService.getBooksByISBN(any())).thenReturn(found);
+
+        BatchResult result = library.borrowBooks(Arrays.asList(available.getISBN(), borrowed.getISBN(),
+                "978-1-86197-876-9", "97!-3-1D-14%4105", available.getISBN()), "206515744111");
+
+        assertEquals(Collections.singletonList(available.getISBN()), result.getSucceeded());
+        assertFalse(result.isAllSucceeded());
+        assertEquals(3, result.getFailed().size());
+        assertTrue(result.getFailed().get(borrowed.getISBN()) instanceof BookAlreadyBorrowedException);
+        assertTrue(result.getFailed().get("978-1-86197-876-9") instanceof BookNotFoundException);
+        assertEquals("Invalid ISBN.", result.getFailed().get("97!-3-1D-14%4105").getMessage());
+        assertTrue(available.isBorrowed());
+        verify(mockDatabaseService, times(1)).getUserById("206515744111");
+        verify(mockDatabaseService, times(1)).getBooksByISBN(any());
+        verify(mockDatabaseService, never()).getBookByISBN(any());
+        verify(mockDatabaseService).borrowBook(available.getISBN(), "206515744111");
+    }
+
+    @Test
+    public void GivenNotRegisteredUser_WhenBorrowBooks_TriggerUserNotRegisteredException() {
+        when(mockDatabaseService.getUserById("206515744111")).thenReturn(null);
+
+        UserNotRegisteredException exception = assertThrows(UserNotRegisteredException.class,
+                () -> library.borrowBooks(Collections.singletonList("978-3-16-148410-0"), "206515744111"));
+
+        assertEquals("User not found!", exception.getMessage());
+        verify(mockDatabaseService, never()).getBooksByISBN(any());
+    }
+
+    @Test
+    public void GivenMixedBatch_WhenReturnBooks_ReportEachOutcomeWithoutThrowing() {
+        Book borrowed = new Book("978-3-16-148410-0", "The Islands", "David The Third");
+        Book available = new Book("978-0-306-40615-7", "Abra Kadabra", "David The Third");
+        borrowed.borrow();
+        Map<String, Book> found = new HashMap<>();
+        found.put(available.getISBN(), available);
+        found.put(borrowed.getISBN(), borrowed);
+        when(mockDatabaseService.getBooksByISBN(any())).thenReturn(found);
+
+        BatchResult result = library.returnBooks(Arrays.asList(borrowed.getISBN(), available.getISBN()));
+
+        assertEquals(Collections.singletonList(borrowed.getISBN()), result.getSucceeded());
+        assertTrue(result.getFailed().get(available.getISBN()) instanceof BookNotBorrowedException);
+        assertFalse(borrowed.isBorrowed());
+        verify(mockDatabaseService).returnBook(borrowed.getISBN());
+    }
+
+    @Test
+    public void GivenPooledReviewService_WhenNotifyUserWithBookReviewCalledTwice_ReuseConnectionWithoutClosing() {
+        spyReviews.add("Amazing Book!");
+        ReviewServicePool pool = new ReviewServicePool(() -> mockReviewService, service -> true,
+                1, 60, 0, TimeUnit.SECONDS);
+        library = new Library(mockDatabaseService, pool);
+        when(mockBook.getTitle()).thenReturn("The Islands");
+        when(mockDatabaseService.getBookByISBN("978-3-16-148410-0")).thenReturn(mockBook);
+        when(mockDatabaseService.getUserById("206515744111")).thenReturn(mockUser);
+        when(mockReviewService.getReviewsForBook("978-3-16-148410-0")).thenReturn(spyReviews);
+
+        library.notifyUserWithBookReviews("978-3-16-148410-0", "206515744111");
+        library.notifyUserWithBookReviews("978-3-16-148410-0", "206515744111");
+
+        verify(mockReviewService, times(2)).getReviewsForBook("978-3-16-148410-0");
+        verify(mockReviewService, never()).close();
+        verify(mockUser, times(2)).sendNotification(any());
+        assertEquals(1, pool.getIdleCount());
+    }
+
+    @Test
+    public void GivenPooledReviewServiceFailure_WhenNotifyUserWithBookReviewCalled_CloseFailedConnection() {
+        ReviewServicePool pool = new ReviewServicePool(() -> mockReviewService, service -> true,
+                1, 60, 0, TimeUnit.SECONDS);
+        library = new Library(mockDatabaseService, pool);
+        when(mockDatabaseService.getBookByISBN("978-3-16-148410-0")).thenReturn(mockBook);
+        when(mockDatabaseService.getUserById("206515744111")).thenReturn(mockUser);
+        when(mockReviewService.getReviewsForBook(any())).thenThrow(ReviewException.class);
+
+        assertThrows(ReviewServiceUnavailableException.class,
+                () -> library.notifyUserWithBookReviews("978-3-16-148410-0", "206515744111"));
+
+        verify(mockReviewService).close();
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    @Test
+    public void GivenNotificationDispatcher_WhenNotifyUserWithBookReviewsAsync_ReturnBeforeNotificationIsSent() throws Exception {
+        spyReviews.add("Amazing Book!");
+        CountDownLatch release = new CountDownLatch(1);
+        NotificationDispatcher dispatcher = new NotificationDispatcher(4, 1, BackpressurePolicy.REJECT);
+        library.setNotificationDispatcher(dispatcher);
+        when(mockBook.getTitle()).thenReturn("The Islands");
+        when(mockDatabaseService.getBookByISBN("978-3-16-148410-0")).thenReturn(mockBook);
+        when(mockDatabaseService.getUserById("206515744111")).thenReturn(mockUser);
+        when(mockReviewService.getReviewsForBook("978-3-16-148410-0")).thenReturn(spyReviews);
+        doAnswer(invocation -> release.await(5, TimeUnit.SECONDS)).when(mockUser).sendNotification(any());
+
+        CompletableFuture<Void> future = library.notifyUserWithBookReviewsAsync("978-3-16-148410-0", "206515744111");
+
+        assertFalse(future.isDone());
+        release.countDown();
+        future.get(5, TimeUnit.SECONDS);
+        verify(mockUser).sendNotification("Reviews for 'The Islands':\nAmazing Book!");
+        dispatcher.close();
+    }
+
+    @Test
+    public void GivenNotificationDispatcher_WhenNotificationKeepsFailing_FailFutureAfterFiveAttempts() {
+        spyReviews.add("Amazing Book!");
+        NotificationDispatcher dispatcher = new NotificationDispatcher(4, 1, BackpressurePolicy.REJECT);
+        library.setNotificationDispatcher(dispatcher);
+        when(mockDatabaseService.getBookByISBN("978-3-16-148410-0")).thenReturn(mockBook);
+        when(mockDatabaseService.getUserById("206515744111")).thenReturn(mockUser);
+        when(mockReviewService.getReviewsForBook("978-3-16-148410-0")).thenReturn(spyReviews);
+        doThrow(NotificationException.class).when(mockUser).sendNotification(any());
+
+        CompletableFuture<Void> future = library.notifyUserWithBookReviewsAsync("978-3-16-148410-0", "206515744111");
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertEquals("Notification failed!", exception.getCause().getMessage());
+        verify(mockUser, times(5)).sendNotification(any());
+        dispatcher.close();
+    }
+
+    @Test
+    public void GivenNotificationDispatcher_WhenNotifyUserWithBookReviewsAsyncWithUnknownUser_ThrowBeforeDispatching() {
+        NotificationDispatcher dispatcher = new NotificationDispatcher(4, 1, BackpressurePolicy.REJECT);
+        library.setNotificationDispatcher(dispatcher);
+        when(mockDatabaseService.getBookByISBN("978-3-16-148410-0")).thenReturn(mockBook);
+        when(mockDatabaseService.getUserById("206515744111")).thenReturn(null);
+
+        assertThrows(UserNotRegisteredException.class,
+                () -> library.notifyUserWithBookReviewsAsync("978-3-16-148410-0", "206515744111"));
+        verify(mockReviewService, never()).getReviewsForBook(any());
+        dispatcher.close();
+    }
+
+    @Test
+    public void GivenBackoffRetryPolicy_WhenNotificationKeepsFailing_StopAfterMaxAttempts() {
+        spyReviews.add("Amazing Book!");
+        library.setNotificationRetryPolicy(
+                new ExponentialBackoffRetryPolicy(3, 1, 10, 2, 10_000, TimeUnit.MILLISECONDS));
+        when(mockDatabaseService.getBookByISBN("978-3-16-148410-0")).thenReturn(mockBook);
+        when(mockDatabaseService.getUserById("206515744111")).thenReturn(mockUser);
+        when(mockReviewService.getReviewsForBook("978-3-16-148410-0")).thenReturn(spyReviews);
+        doThrow(NotificationException.class).when(mockUser).sendNotification(any());
+
+        NotificationException exception = assertThrows(NotificationException.class,
+                () -> library.notifyUserWithBookReviews("978-3-16-148410-0", "206515744111"));
+
+        assertEquals("Notification failed!", exception.getMessage());
+        verify(mockUser, times(3)).sendNotification(any());
+    }
+
+    @Test
+    public void GivenOpenCircuitBreaker_WhenNotifyUserWithBookReviews_FailFastWithoutSending() {
+        spyReviews.add("Amazing Book!");
+        CircuitBreakerRegistry breakers = new CircuitBreakerRegistry(5, 1, TimeUnit.MINUTES);
+        library.setNotificationCircuitBreakers(breakers);
+        when(mockUser.getNotificationService()).thenReturn(mockNotificationService);
+        when(mockDatabaseService.getBookByISBN("978-3-16-148410-0")).thenReturn(mockBook);
+        when(mockDatabaseService.getUserById("206515744111")).thenReturn(mockUser);
+        when(mockReviewService.getReviewsForBook("978-3-16-148410-0")).thenReturn(spyReviews);
+        doThrow(NotificationException.class).when(mockUser).sendNotification(any());
+
+        assertThrows(NotificationException.class,
+                () -> library.notifyUserWithBookReviews("978-3-16-148410-0", "206515744111"));
+        NotificationException exception = assertThrows(NotificationException.class,
+                () -> library.notifyUserWithBookReviews("978-3-16-148410-0", "206515744111"));
+
+        assertEquals("Notification service unavailable!", exception.getMessage());
+        verify(mockUser, times(5)).sendNotification(any());
+        assertEquals(1, breakers.get(mockNotificationService).getRejectedCount());
+    }
+
+    @Test
+    public void GivenUnexpectedFailureOfTrialCall_WhenNotifyUserWithBookReviews_ReportFailureToCircuitBreaker() {
+        spyReviews.add("Amazing Book!");
+        CircuitBreakerRegistry breakers = new CircuitBreakerRegistry(1, 1, TimeUnit.NANOSECONDS);
+        library.setNotificationCircuitBreakers(breakers);
+        when(mockUser.getNotificationService()).thenReturn(mockNotificationService);
+        when(mockDatabaseService.getBookByISBN("978-3-16-148410-0")).thenReturn(mockBook);
+        when(mockDatabaseService.getUserById("206515744111")).thenReturn(mockUser);
+        when(mockReviewService.getReviewsForBook("978-3-16-148410-0")).thenReturn(spyReviews);
+        doThrow(IllegalStateException.class).when(mockUser).sendNotification(any());
+
+        // The first failure opens the breaker, the second is the failed trial call once it is half open.
+        assertThrows(IllegalStateException.class,
+                () -> library.notifyUserWithBookReviews("978-3-16-148410-0", "206515744111"));
+        assertThrows(IllegalStateException.class,
+                () -> library.notifyUserWithBookReviews("978-3-16-148410-0", "206515744111"));
+
+        assertEquals(CircuitBreaker.State.OPEN, breakers.get(mockNotificationService).getState());
+        assertEquals(2, breakers.get(mockNotificationService).getTransitionCount(CircuitBreaker.State.OPEN));
+    }
+
+    @Test
+    public void GivenStreamingNotificationService_WhenNotifyingTwoUsers_SendSameRenderedMessage() {
+        spyReviews.add("Amazing Book!");
+        List<CharSequence> sent = new ArrayList<>();
+        StreamingNotificationService streaming = new StreamingNotificationService() {
+            @Override
+            public void notifyUser(String userId, CharSequence message) {
+                sent.add(message);
+            }
+        };
+        when(mockBook.getTitle()).thenReturn("The Islands");
+        when(mockDatabaseService.getBookByISBN("978-3-16-148410-0")).thenReturn(mockBook);
+        when(mockDatabaseService.getUserById("206515744111")).thenReturn(new User("a", "206515744111", streaming));
+        when(mockDatabaseService.getUserById("206515744112")).thenReturn(new User("b", "206515744112", streaming));
+        when(mockReviewService.getReviewsForBook("978-3-16-148410-0")).thenReturn(spyReviews);
+        // The review service returns the same list every time, as a caching review service does.
+        library.setReviewMessageRenderer(new ReviewMessageRenderer(Integer.MAX_VALUE, 16));
+
+        library.notifyUserWithBookReviews("978-3-16-148410-0", "206515744111");
+        library.notifyUserWithBookReviews("978-3-16-148410-0", "206515744112");
+
+        assertEquals(2, sent.size());
+        assertTrue(sent.get(0) instanceof ReviewMessage);
+        assertSame(sent.get(0), sent.get(1));
+        assertEquals("Reviews for 'The Islands':\nAmazing Book!", sent.get(0).toString());
+    }
+
+    @Test
+    public void GivenManyReviews_WhenNotifyUserWithBookReviews_SendEveryReviewByDefault() {
+        StringBuilder expected = new StringBuilder("Reviews for 'The Islands':");
+        for (int i = 0; i < 500; i++) {
+            spyReviews.add("Review number " + i);
+            expected.append('\n').append("Review number ").append(i);
+        }
+        when(mockBook.getTitle()).thenReturn("The Islands");
+        when(mockDatabaseService.getBookByISBN("978-3-16-148410-0")).thenReturn(mockBook);
+        when(mockDatabaseService.getUserById("206515744111")).thenReturn(mockUser);
+        when(mockReviewService.getReviewsForBook("978-3-16-148410-0")).thenReturn(spyReviews);
+
+        library.notifyUserWithBookReviews("978-3-16-148410-0", "206515744111");
+
+        verify(mockUser).sendNotification(expected.toString());
+    }
+
+    @Test
+    public void GivenCappingRenderer_WhenNotifyUserWithBookReviews_SendOnlyFirstReviews() {
+        spyReviews.addAll(Arrays.asList("one", "two", "three"));
+        library.setReviewMessageRenderer(new ReviewMessageRenderer(1, 16));
+        when(mockBook.getTitle()).thenReturn("The Islands");
+        when(mockDatabaseService.getBookByISBN("978-3-16-148410-0")).thenReturn(mockBook);
+        when(mockDatabaseService.getUserById("206515744111")).thenReturn(mockUser);
+        when(mockReviewService.getReviewsForBook("978-3-16-148410-0")).thenReturn(spyReviews);
+
+        library.notifyUserWithBookReviews("978-3-16-148410-0", "206515744111");
+
+        verify(mockUser).sendNotification("Reviews for 'The Islands':\none\n... and 2 more reviews.");
+    }
+
+    @Test
+    public void GivenManyUsers_WhenNotifyUsersWithBookReviews_FetchBookAndReviewsOnceAndReportEachUser() {
+        spyReviews.add("Amazing Book!");
+        User registered = mock(User.class);
+        User failing = mock(User.class);
+        Map<String, User> users = new HashMap<>();
+        users.put("206515744111", registered);
+        users.put("206515744112", failing);
+        when(mockBook.getTitle()).thenReturn("The Islands");
+        when(mockDatabaseService.getBookByISBN("978-3-16-148410-0")).thenReturn(mockBook);
+        when(mockDatabaseService.getUsersById(any())).thenReturn(users);
+        when(mockReviewService.getReviewsForBook("978-3-16-148410-0")).thenReturn(spyReviews);
+        doThrow(NotificationException.class).when(failing).sendNotification(anyString());
+
+        NotificationResult result = library.notifyUsersWithBookReviews("978-3-16-148410-0",
+                Arrays.asList("206515744111", "206515744112", "206515744113", "bad", "206515744111"));
+
+        assertEquals(Collections.singletonList("206515744111"), result.getNotified());
+        assertEquals(Arrays.asList("206515744112", "206515744113", "bad"),
+                new ArrayList<>(result.getFailed().keySet()));
+        assertTrue(result.getFailed().get("206515744112") instanceof NotificationException);
+        assertTrue(result.getFailed().get("206515744113") instanceof UserNotRegisteredException);
+        assertTrue(result.getFailed().get("bad") instanceof IllegalArgumentException);
+        verify(mockDatabaseService, times(1)).getBookByISBN("978-3-16-148410-0");
+        verify(mockDatabaseService, never()).getUserById(any());
+        verify(mockReviewService, times(1)).getReviewsForBook("978-3-16-148410-0");
+        verify(registered).sendNotification("Reviews for 'The Islands':\nAmazing Book!");
+        verify(failing, times(5)).sendNotification(anyString());
+    }
+
+    @Test
+    public void GivenNotificationDispatcher_WhenNotifyUsersWithBookReviews_NotifyEveryUserInParallel() {
+        spyReviews.add("Amazing Book!");
+        NotificationDispatcher dispatcher = new NotificationDispatcher(1_000, 4, BackpressurePolicy.BLOCK);
+        library.setNotificationDispatcher(dispatcher);
+        Set<String> senders = Collections.synchronizedSet(new HashSet<>());
+        List<String> userIds = new ArrayList<>();
+        Map<String, User> users = new HashMap<>();
+        for (int i = 0; i < 200; i++) {
+            String userId = String.valueOf(206515744000L + i);
+            userIds.add(userId);
+            users.put(userId, new User("user" + i, userId,
+                    (id, message) -> senders.add(Thread.currentThread().getName())));
+        }
+        when(mockBook.getTitle()).thenReturn("The Islands");
+        when(mockDatabaseService.getBookByISBN("978-3-16-148410-0")).thenReturn(mockBook);
+        when(mockDatabaseService.getUsersById(any())).thenReturn(users);
+        when(mockReviewService.getReviewsForBook("978-3-16-148410-0")).thenReturn(spyReviews);
+
+        NotificationResult result = library.notifyUsersWithBookReviews("978-3-16-148410-0", userIds);
+
+        assertTrue(result.isAllSucceeded());
+        assertEquals(userIds, result.getNotified());
+        assertFalse(senders.contains(Thread.currentThread().getName()));
+        dispatcher.close();
+    }
+
+    @Test
+    public void GivenMissingBook_WhenNotifyUsersWithBookReviews_TriggerBookNotFoundException() {
+        when(mockDatabaseService.getBookByISBN("978-3-16-148410-0")).thenReturn(null);
+
+        BookNotFoundException exception = assertThrows(BookNotFoundException.class,
+                () -> library.notifyUsersWithBookReviews("978-3-16-148410-0",
+                        Collections.singletonList("206515744111")));
+
+        assertEquals("Book not found!", exception.getMessage());
+        verify(mockReviewService, never()).getReviewsForBook(any());
+    }
+
+    @Test
+    public void GivenNotificationDispatcher_WhenGetBookByISBN_ReturnBookBeforeReviewsAreFetched() throws Exception {
+        spyReviews.add("Amazing Book!");
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch notified = new CountDownLatch(1);
+        NotificationDispatcher dispatcher = new NotificationDispatcher(4, 1, BackpressurePolicy.REJECT);
+        library.setNotificationDispatcher(dispatcher);
+        when(mockBook.getTitle()).thenReturn("The Islands");
+        when(mockDatabaseService.getBookByISBN("978-3-16-148410-0")).thenReturn(mockBook);
+        when(mockDatabaseService.getUserById("206515744111")).thenReturn(mockUser);
+        when(mockReviewService.getReviewsForBook("978-3-16-148410-0")).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return spyReviews;
+        });
+        doAnswer(invocation -> {
+            notified.countDown();
+            return null;
+        }).when(mockUser).sendNotification(anyString());
+
+        assertSame(mockBook, library.getBookByISBN("978-3-16-148410-0", "206515744111"));
+
+        verify(mockUser, never()).sendNotification(anyString());
+        release.countDown();
+        assertTrue(notified.await(5, TimeUnit.SECONDS));
+        dispatcher.close();
+    }
+
+    @Test
+    public void GivenBorrowedBook_WhenTryBorrowBook_ReturnAlreadyBorrowedWithoutThrowing() {
+        Book book = new Book("978-3-16-148410-0", "The Islands", "David The Third");
+        when(mockDatabaseService.getBookByISBN("978-3-16-148410-0")).thenReturn(book);
+        when(mockDatabaseService.getUserById("206515744111")).thenReturn(mockUser);
+
+        assertEquals(BorrowResult.BORROWED, library.tryBorrowBook("978-3-16-148410-0", "206515744111"));
+        assertEquals(BorrowResult.ALREADY_BORROWED, library.tryBorrowBook("978-3-16-148410-0", "206515744111"));
+        verify(mockDatabaseService, times(1)).borrowBook("978-3-16-148410-0", "206515744111");
+    }
+
+    @Test
+    public void GivenMissingBookOrUser_WhenTryBorrowBook_ReportWhichIsMissing() {
+        when(mockDatabaseService.getBookByISBN("978-3-16-148410-0")).thenReturn(null);
+        when(mockDatabaseService.getBookByISBN("978-0-306-40615-7")).thenReturn(mockBook);
+        when(mockDatabaseService.getUserById("206515744111")).thenReturn(null);
+
+        assertEquals(BorrowResult.BOOK_NOT_FOUND, library.tryBorrowBook("978-3-16-148410-0", "206515744111"));
+        assertEquals(BorrowResult.USER_NOT_REGISTERED, library.tryBorrowBook("978-0-306-40615-7", "206515744111"));
+        assertThrows(IllegalArgumentException.class, () -> library.tryBorrowBook("978-0-306-40615-7", "bad"));
+        verify(mockDatabaseService, never()).borrowBook(any(), any());
+    }
+
+    @Test
+    public void GivenAvailableBook_WhenTryReturnBook_ReturnNotBorrowedWithoutThrowing() {
+        Book book = new Book("978-3-16-148410-0", "The Islands", "David The Third");
+        when(mockDatabaseService.getBookByISBN("978-3-16-148410-0")).thenReturn(book);
+
+        assertEquals(BorrowResult.NOT_BORROWED, library.tryReturnBook("978-3-16-148410-0"));
+        book.borrow();
+        assertEquals(BorrowResult.RETURNED, library.tryReturnBook("978-3-16-148410-0"));
+        assertFalse(book.isBorrowed());
+        verify(mockDatabaseService, times(1)).returnBook("978-3-16-148410-0");
+    }
+
+}
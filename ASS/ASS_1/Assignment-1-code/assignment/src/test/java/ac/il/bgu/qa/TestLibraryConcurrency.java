@@ -0,0 +1,123 @@
+package ac.il.bgu.qa;
+
+import ac.il.bgu.qa.benchmarks.Catalogs;
+import ac.il.bgu.qa.errors.*;
+import ac.il.bgu.qa.services.ReviewService;
+import ac.il.bgu.qa.services.database.InMemoryDatabaseService;
+
+import org.junit.jupiter.api.*;
+import org.mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestLibraryConcurrency {
+    private static final int THREADS = 64;
+
+    @Mock
+    ReviewService mockReviewService;
+    InMemoryDatabaseService database;
+    Library library;
+    ExecutorService executor;
+
+    @BeforeEach
+    public void init() {
+        MockitoAnnotations.openMocks(this);
+        database = new InMemoryDatabaseService();
+        library = new Library(database, mockReviewService);
+        executor = Executors.newFixedThreadPool(THREADS);
+        for (int i = 0; i < THREADS; i++) {
+            library.registerUser(new User("user" + i, Catalogs.userId(i), (id, message) -> { }));
+        }
+    }
+
+    @AfterEach
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void GivenSixtyFourThreads_WhenBorrowingSameBookAtOnce_OnlyOneSucceeds() throws Exception {
+        String isbn = Catalogs.isbn(1);
+        library.addBook(new Book(isbn, "The Islands", "David The Third"));
+
+        for (int round = 0; round < 50; round++) {
+            CountDownLatch start = new CountDownLatch(1);
+            AtomicInteger borrowed = new AtomicInteger();
+            AtomicInteger rejected = new AtomicInteger();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                String userId = Catalogs.userId(t);
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        library.borrowBook(isbn, userId);
+                        borrowed.incrementAndGet();
+                    } catch (BookAlreadyBorrowedException e) {
+                        rejected.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+
+            assertEquals(1, borrowed.get());
+            assertEquals(THREADS - 1, rejected.get());
+            assertNotNull(database.getBorrower(isbn));
+            library.returnBook(isbn);
+            assertNull(database.getBorrower(isbn));
+        }
+    }
+
+    @Test
+    public void GivenSixtyFourThreads_WhenBorrowingAndReturningRandomBooks_NoBookIsEverHeldTwice() throws Exception {
+        int books = 16;
+        String[] isbns = new String[books];
+        for (int i = 0; i < books; i++) {
+            isbns[i] = Catalogs.isbn(i);
+            library.addBook(new Book(isbns[i], "Title", "Author"));
+        }
+        AtomicIntegerArray holders = new AtomicIntegerArray(books);
+        AtomicInteger violations = new AtomicInteger();
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            String userId = Catalogs.userId(t);
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 2_000; i++) {
+                    int book = ThreadLocalRandom.current().nextInt(books);
+                    try {
+                        library.borrowBook(isbns[book], userId);
+                    } catch (BookAlreadyBorrowedException e) {
+                        continue;
+                    }
+                    //While this thread holds the book, nobody else may hold it and the database must agree
+                    if (holders.incrementAndGet(book) != 1
+                            || !userId.equals(database.getBorrower(isbns[book]).getId())) {
+                        violations.incrementAndGet();
+                    }
+                    holders.decrementAndGet(book);
+                    library.returnBook(isbns[book]);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+
+        assertEquals(0, violations.get());
+        for (String isbn : isbns) {
+            assertFalse(database.getBookByISBN(isbn).isBorrowed());
+            assertNull(database.getBorrower(isbn));
+        }
+    }
+}
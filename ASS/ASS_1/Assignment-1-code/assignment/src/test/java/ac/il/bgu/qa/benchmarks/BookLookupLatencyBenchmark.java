@@ -0,0 +1,87 @@
+package ac.il.bgu.qa.benchmarks;
+
+import ac.il.bgu.qa.Book;
+import ac.il.bgu.qa.Library;
+import ac.il.bgu.qa.User;
+import ac.il.bgu.qa.notification.BackpressurePolicy;
+import ac.il.bgu.qa.notification.NotificationDispatcher;
+import ac.il.bgu.qa.services.ReviewService;
+import ac.il.bgu.qa.services.database.InMemoryDatabaseService;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Measures the latency distribution of {@link Library#getBookByISBN} when the review notification runs inline,
+ * against running it in the background on a notification dispatcher.
+ * <p>
+ * The review service takes 200 microseconds per fetch and the notification service 100 microseconds per send,
+ * standing in for remote calls. Sampling mode reports the p50 and p99 of every lookup.
+ * <p>
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main
+ * -Dexec.args="BookLookupLatencyBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BookLookupLatencyBenchmark {
+
+    private static final int BOOKS = 1_000;
+
+    @Param({"inline", "background"})
+    String notification;
+
+    Library library;
+    NotificationDispatcher dispatcher;
+    String[] isbns;
+    String userId;
+
+    @Setup
+    public void setup() {
+        InMemoryDatabaseService database = new InMemoryDatabaseService(BOOKS, 1);
+        library = new Library(database, new ReviewService() {
+            @Override
+            public List<String> getReviewsForBook(String ISBN) {
+                LockSupport.parkNanos(200_000);
+                return Collections.singletonList("Amazing Book!");
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        if ("background".equals(notification)) {
+            // Fire and forget: a full queue drops the oldest pending notification rather than slowing lookups.
+            dispatcher = new NotificationDispatcher(1_024, 4, BackpressurePolicy.DROP_OLDEST);
+            library.setNotificationDispatcher(dispatcher);
+        }
+
+        isbns = new String[BOOKS];
+        for (int i = 0; i < BOOKS; i++) {
+            isbns[i] = Catalogs.isbn(i);
+            library.addBook(new Book(isbns[i], "Title " + i, "Author"));
+        }
+        userId = Catalogs.userId(0);
+        library.registerUser(new User("reader", userId, (id, message) -> LockSupport.parkNanos(100_000)));
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (dispatcher != null) {
+            dispatcher.close();
+        }
+    }
+
+    @Benchmark
+    public Book getBookByISBN() {
+        return library.getBookByISBN(isbns[ThreadLocalRandom.current().nextInt(BOOKS)], userId);
+    }
+}
@@ -0,0 +1,108 @@
+package ac.il.bgu.qa.benchmarks;
+
+import ac.il.bgu.qa.Book;
+import ac.il.bgu.qa.search.BookSearchIndex;
+import ac.il.bgu.qa.search.SearchResult;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares searching titles and authors through {@link BookSearchIndex} against scanning every book,
+ * for the first page of ten results of one- and two-word prefix queries.
+ * <p>
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main
+ * -Dexec.args="BookSearchBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class BookSearchBenchmark {
+
+    @Param({"1000000"})
+    int catalogSize;
+
+    BookSearchIndex index;
+    Book[] books;
+    String[] words;
+
+    @Setup
+    public void setup() {
+        // Titles of three and authors of two words from a vocabulary of 5000 made-up words.
+        Random random = new Random(42);
+        words = new String[5000];
+        for (int i = 0; i < words.length; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int syllables = 2 + random.nextInt(3); syllables > 0; syllables--) {
+                word.append("bcdfgklmnprstvz".charAt(random.nextInt(15))).append("aeiou".charAt(random.nextInt(5)));
+            }
+            words[i] = word.toString();
+        }
+        books = new Book[catalogSize];
+        List<Book> catalog = new ArrayList<>(catalogSize);
+        for (int i = 0; i < catalogSize; i++) {
+            books[i] = new Book(Catalogs.isbn(i), word(random) + " " + word(random) + " " + word(random),
+                    word(random) + " " + word(random));
+            catalog.add(books[i]);
+        }
+        index = new BookSearchIndex();
+        index.addAll(catalog);
+    }
+
+    @Benchmark
+    public SearchResult searchOneWordPrefix() {
+        return index.search(prefix(), 0, 10);
+    }
+
+    @Benchmark
+    public SearchResult searchTwoWords() {
+        return index.search(randomWord() + " " + prefix(), 0, 10);
+    }
+
+    @Benchmark
+    public List<Book> scanOneWordPrefix() {
+        // The best a scan can do: stop at the first page, but every book is still lower-cased and split.
+        String prefix = prefix();
+        List<Book> page = new ArrayList<>(10);
+        for (Book book : books) {
+            if (matches(book.getTitle(), prefix) || matches(book.getAuthor(), prefix)) {
+                page.add(book);
+                if (page.size() == 10) {
+                    break;
+                }
+            }
+        }
+        return page;
+    }
+
+    private static boolean matches(String text, String prefix) {
+        for (String token : text.toLowerCase(Locale.ROOT).split(" ")) {
+            if (token.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String word(Random random) {
+        return words[random.nextInt(words.length)];
+    }
+
+    private String randomWord() {
+        return words[ThreadLocalRandom.current().nextInt(words.length)];
+    }
+
+    private String prefix() {
+        String word = randomWord();
+        return word.substring(0, 3);
+    }
+}
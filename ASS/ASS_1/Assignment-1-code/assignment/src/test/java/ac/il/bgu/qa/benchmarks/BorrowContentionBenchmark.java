@@ -0,0 +1,68 @@
+package ac.il.bgu.qa.benchmarks;
+
+import ac.il.bgu.qa.Book;
+import ac.il.bgu.qa.BorrowResult;
+import ac.il.bgu.qa.Library;
+import ac.il.bgu.qa.User;
+import ac.il.bgu.qa.errors.BookAlreadyBorrowedException;
+import ac.il.bgu.qa.errors.StackTraces;
+import ac.il.bgu.qa.services.ReviewService;
+import ac.il.bgu.qa.services.database.InMemoryDatabaseService;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of the routine failure of borrowing a book that is already out, as on a hot title:
+ * throwing with a stack trace, throwing a stackless exception, and the non-throwing {@link Library#tryBorrowBook}.
+ * <p>
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main
+ * -Dexec.args="BorrowContentionBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BorrowContentionBenchmark {
+
+    @Param({"true", "false"})
+    boolean stackTraces;
+
+    Library library;
+    String isbn;
+    String userId;
+
+    @Setup
+    public void setup() {
+        StackTraces.setEnabled(stackTraces);
+        library = new Library(new InMemoryDatabaseService(), (ReviewService) null);
+        isbn = Catalogs.isbn(1);
+        userId = Catalogs.userId(1);
+        library.addBook(new Book(isbn, "The Islands", "David The Third"));
+        library.registerUser(new User("reader", userId, (id, message) -> { }));
+        library.borrowBook(isbn, userId);
+    }
+
+    @TearDown
+    public void tearDown() {
+        StackTraces.setEnabled(true);
+    }
+
+    @Benchmark
+    public Object borrowTakenBookThrowing() {
+        try {
+            library.borrowBook(isbn, userId);
+            return null;
+        } catch (BookAlreadyBorrowedException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public BorrowResult borrowTakenBookWithResult() {
+        return library.tryBorrowBook(isbn, userId);
+    }
+}
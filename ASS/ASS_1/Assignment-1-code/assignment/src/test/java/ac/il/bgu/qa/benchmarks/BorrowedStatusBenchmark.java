@@ -0,0 +1,76 @@
+package ac.il.bgu.qa.benchmarks;
+
+import ac.il.bgu.qa.Book;
+import ac.il.bgu.qa.services.database.InMemoryDatabaseService;
+import ac.il.bgu.qa.services.database.MappedDatabaseService;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares availability checks that fetch the Book object against the borrowed bitmap of
+ * {@link MappedDatabaseService}, on a catalog with a quarter of the books out.
+ * <p>
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main
+ * -Dexec.args="BorrowedStatusBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class BorrowedStatusBenchmark {
+
+    @Param({"1000000"})
+    int catalogSize;
+
+    InMemoryDatabaseService inMemory;
+    MappedDatabaseService mapped;
+    String[] isbns;
+
+    @Setup
+    public void setup() throws IOException {
+        inMemory = new InMemoryDatabaseService(catalogSize, 16);
+        mapped = new MappedDatabaseService(Files.createTempDirectory("library-mapped"), catalogSize);
+        isbns = new String[catalogSize];
+        for (int i = 0; i < catalogSize; i++) {
+            isbns[i] = Catalogs.isbn(i);
+            Book book = new Book(isbns[i], "Title " + i, "Author");
+            if (i % 4 == 0) {
+                book.borrow();
+            }
+            inMemory.addBook(isbns[i], book);
+            mapped.addBook(isbns[i], book);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        mapped.close();
+    }
+
+    @Benchmark
+    public boolean isBorrowedThroughBook() {
+        return inMemory.getBookByISBN(isbns[ThreadLocalRandom.current().nextInt(catalogSize)]).isBorrowed();
+    }
+
+    @Benchmark
+    public boolean isBorrowedThroughMappedBook() {
+        return mapped.getBookByISBN(isbns[ThreadLocalRandom.current().nextInt(catalogSize)]).isBorrowed();
+    }
+
+    @Benchmark
+    public boolean isBorrowedFromBitmap() {
+        return mapped.isBorrowed(isbns[ThreadLocalRandom.current().nextInt(catalogSize)]);
+    }
+
+    @Benchmark
+    public int borrowedCount() {
+        return mapped.getBorrowedCount();
+    }
+}
@@ -0,0 +1,43 @@
+package ac.il.bgu.qa.benchmarks;
+
+import ac.il.bgu.qa.importer.CatalogFormat;
+import ac.il.bgu.qa.importer.CatalogImporter;
+import ac.il.bgu.qa.importer.ImportResult;
+import ac.il.bgu.qa.services.database.InMemoryDatabaseService;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Measures how long it takes to import a generated CSV catalog into the in-memory database.
+ * <p>
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=ac.il.bgu.qa.benchmarks.CatalogImportBenchmark -Dexec.args="1000000"
+ */
+public class CatalogImportBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int books = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        ByteArrayOutputStream csv = new ByteArrayOutputStream(books * 48);
+        csv.write("isbn,title,author\n".getBytes(StandardCharsets.UTF_8));
+        for (int i = 0; i < books; i++) {
+            String row = Catalogs.isbn(i) + ",Title " + i + ",Author Number Name\n";
+            csv.write(row.getBytes(StandardCharsets.UTF_8));
+        }
+        byte[] bytes = csv.toByteArray();
+
+        // The first runs warm up the JIT, the last one is reported.
+        for (int run = 1; run <= 3; run++) {
+            InMemoryDatabaseService database = new InMemoryDatabaseService(books, 16);
+            long start = System.nanoTime();
+            ImportResult result = new CatalogImporter(database)
+                    .importBooks(new ByteArrayInputStream(bytes), CatalogFormat.CSV, true);
+            long elapsed = System.nanoTime() - start;
+            System.out.printf("run %d: imported %,d books (%,d rejected) in %,d ms%n",
+                    run, result.getImportedCount(), result.getRejectedCount(), elapsed / 1_000_000);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package ac.il.bgu.qa.benchmarks;
+
+import ac.il.bgu.qa.validation.IsbnValidator;
+
+/**
+ * Generates synthetic but valid catalog data for the benchmarks.
+ */
+public final class Catalogs {
+
+    private Catalogs() {
+    }
+
+    /**
+     * Generates the n-th valid ISBN-13, in the 978 range, without hyphens.
+     *
+     * @param n The ordinal of the ISBN.
+     * @return A valid ISBN-13.
+     */
+    public static String isbn(long n) {
+        long body = 978_000_000_000L + n;
+        int sum = 0;
+        long rest = body;
+        for (int position = 11; position >= 0; position--) {
+            int digit = (int) (rest % 10);
+            rest /= 10;
+            sum += (position & 1) == 0 ? digit : digit * 3;
+        }
+        return IsbnValidator.format(body * 10 + (10 - sum % 10) % 10);
+    }
+
+    /**
+     * Generates the n-th valid 12 digit user Id.
+     *
+     * @param n The ordinal of the user.
+     * @return A valid user Id.
+     */
+    public static String userId(long n) {
+        return String.format("%012d", 100_000_000_000L + n);
+    }
+}
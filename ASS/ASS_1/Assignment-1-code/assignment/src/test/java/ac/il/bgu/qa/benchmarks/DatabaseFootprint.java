@@ -0,0 +1,65 @@
+package ac.il.bgu.qa.benchmarks;
+
+import ac.il.bgu.qa.Book;
+import ac.il.bgu.qa.services.DatabaseService;
+import ac.il.bgu.qa.services.database.InMemoryDatabaseService;
+import ac.il.bgu.qa.services.database.MappedDatabaseService;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.function.IntFunction;
+
+/**
+ * Measures the heap retained by the index structures of each database implementation.
+ * The same Book objects are loaded into all of them, so the difference is the cost of the keys and map entries.
+ * The mapped database copies the books into its files and retains only its index.
+ * <p>
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=ac.il.bgu.qa.benchmarks.DatabaseFootprint -Dexec.args="10000000"
+ */
+public class DatabaseFootprint {
+
+    public static void main(String[] args) {
+        int catalogSize = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        Book[] books = new Book[catalogSize];
+        for (int i = 0; i < catalogSize; i++) {
+            String isbn = Catalogs.isbn(i);
+            books[i] = new Book(isbn, "Title", "Author");
+        }
+
+        report("primitive", books, size -> new InMemoryDatabaseService(size, 16));
+        report("hashmap", books, size -> new HashMapDatabaseService(size, 16));
+        report("mapped", books, size -> {
+            try {
+                return new MappedDatabaseService(Files.createTempDirectory("library-mapped"), size);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static void report(String name, Book[] books, IntFunction<DatabaseService> factory) {
+        long before = usedHeap();
+        DatabaseService database = factory.apply(books.length);
+        for (Book book : books) {
+            database.addBook(book.getISBN(), book);
+        }
+        long after = usedHeap();
+        System.out.printf("%-10s %,d books: %,d bytes retained, %.1f bytes per book%n",
+                name, books.length, after - before, (after - before) / (double) books.length);
+        // Keep the database reachable until it has been measured.
+        if (database.getBookByISBN(books[0].getISBN()) == null) {
+            throw new IllegalStateException("Book not loaded.");
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,68 @@
+package ac.il.bgu.qa.benchmarks;
+
+import ac.il.bgu.qa.Book;
+import ac.il.bgu.qa.services.DatabaseService;
+import ac.il.bgu.qa.services.database.InMemoryDatabaseService;
+import ac.il.bgu.qa.services.database.MappedDatabaseService;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares book lookup latency of {@link InMemoryDatabaseService} and {@link MappedDatabaseService}
+ * against a HashMap-backed database.
+ * <p>
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main
+ * -Dexec.args="DatabaseServiceBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class DatabaseServiceBenchmark {
+
+    @Param({"10000", "1000000"})
+    int catalogSize;
+
+    @Param({"primitive", "hashmap", "mapped"})
+    String implementation;
+
+    DatabaseService database;
+    String[] isbns;
+    // Equal to isbns but distinct instances, like ISBNs parsed from incoming requests.
+    String[] queries;
+
+    @Setup
+    public void setup() throws IOException {
+        if ("primitive".equals(implementation)) {
+            database = new InMemoryDatabaseService(catalogSize, 16);
+        } else if ("mapped".equals(implementation)) {
+            database = new MappedDatabaseService(Files.createTempDirectory("library-mapped"), catalogSize);
+        } else {
+            database = new HashMapDatabaseService(catalogSize, 16);
+        }
+        isbns = new String[catalogSize];
+        queries = new String[catalogSize];
+        for (int i = 0; i < catalogSize; i++) {
+            isbns[i] = Catalogs.isbn(i);
+            queries[i] = new String(isbns[i].toCharArray());
+            database.addBook(isbns[i], new Book(isbns[i], "Title " + i, "Author"));
+        }
+    }
+
+    @Benchmark
+    public Book lookupExisting() {
+        return database.getBookByISBN(queries[ThreadLocalRandom.current().nextInt(catalogSize)]);
+    }
+
+    @Benchmark
+    public Book lookupMissing() {
+        return database.getBookByISBN("9780306406157");
+    }
+}
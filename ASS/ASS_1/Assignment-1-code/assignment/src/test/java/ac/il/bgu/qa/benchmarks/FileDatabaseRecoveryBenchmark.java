@@ -0,0 +1,74 @@
+package ac.il.bgu.qa.benchmarks;
+
+import ac.il.bgu.qa.Book;
+import ac.il.bgu.qa.User;
+import ac.il.bgu.qa.services.database.FileDatabaseService;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures the time to restart a {@link FileDatabaseService} holding a catalog, when its whole history is in the
+ * log and when it is in a snapshot, as the snapshot interval would leave it.
+ * <p>
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main
+ * -Dexec.args="FileDatabaseRecoveryBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class FileDatabaseRecoveryBenchmark {
+
+    @Param({"100000"})
+    int books;
+
+    @Param({"false", "true"})
+    boolean snapshot;
+
+    Path directory;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("library-recovery");
+        try (FileDatabaseService database = new FileDatabaseService(directory, id -> null, false, 0)) {
+            int users = books / 10;
+            for (int i = 0; i < users; i++) {
+                String id = Catalogs.userId(i);
+                database.registerUser(id, new User("reader", id, null));
+            }
+            for (int i = 0; i < books; i++) {
+                String isbn = Catalogs.isbn(i);
+                database.addBook(isbn, new Book(isbn, "The Islands", "David The Third"));
+                if (i % 4 == 0) {
+                    database.borrowBook(isbn, Catalogs.userId(i % users));
+                }
+            }
+            if (snapshot) {
+                database.snapshot();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public FileDatabaseService restart() throws IOException {
+        FileDatabaseService database = new FileDatabaseService(directory, id -> null, false, 0);
+        database.close();
+        return database;
+    }
+}
@@ -0,0 +1,69 @@
+package ac.il.bgu.qa.benchmarks;
+
+import ac.il.bgu.qa.Book;
+import ac.il.bgu.qa.services.database.FileDatabaseService;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Measures the throughput of durable updates to a {@link FileDatabaseService}, with and without syncing every commit
+ * to the disk, by one and by several threads. With several threads the commits are grouped, so a single sync covers
+ * the updates of every thread waiting on it.
+ * <p>
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main
+ * -Dexec.args="FileDatabaseWriteBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileDatabaseWriteBenchmark {
+
+    @Param({"true", "false"})
+    boolean sync;
+
+    Path directory;
+    FileDatabaseService database;
+    final AtomicLong next = new AtomicLong();
+
+    @Setup
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("library-wal");
+        database = new FileDatabaseService(directory, id -> null, sync, 0);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        database.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void addBook() {
+        add();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void addBookConcurrently() {
+        add();
+    }
+
+    private void add() {
+        String isbn = Catalogs.isbn(next.incrementAndGet());
+        database.addBook(isbn, new Book(isbn, "The Islands", "David The Third"));
+    }
+}
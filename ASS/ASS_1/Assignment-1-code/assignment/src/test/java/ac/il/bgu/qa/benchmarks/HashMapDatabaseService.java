@@ -0,0 +1,53 @@
+package ac.il.bgu.qa.benchmarks;
+
+import ac.il.bgu.qa.Book;
+import ac.il.bgu.qa.User;
+import ac.il.bgu.qa.services.DatabaseService;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The straightforward HashMap-backed database, used as the baseline in the benchmarks.
+ */
+public class HashMapDatabaseService implements DatabaseService {
+
+    private final Map<String, Book> books;
+    private final Map<String, User> users;
+    private final Map<String, String> loans = new HashMap<>();
+
+    public HashMapDatabaseService(int expectedBooks, int expectedUsers) {
+        this.books = new HashMap<>(expectedBooks * 4 / 3 + 1);
+        this.users = new HashMap<>(expectedUsers * 4 / 3 + 1);
+    }
+
+    @Override
+    public void addBook(String ISBN, Book book) {
+        books.put(ISBN, book);
+    }
+
+    @Override
+    public void registerUser(String id, User user) {
+        users.put(id, user);
+    }
+
+    @Override
+    public Book getBookByISBN(String ISBN) {
+        return books.get(ISBN);
+    }
+
+    @Override
+    public User getUserById(String userId) {
+        return users.get(userId);
+    }
+
+    @Override
+    public void borrowBook(String ISBN, String userId) {
+        loans.put(ISBN, userId);
+    }
+
+    @Override
+    public void returnBook(String ISBN) {
+        loans.remove(ISBN);
+    }
+}
@@ -0,0 +1,61 @@
+package ac.il.bgu.qa.benchmarks;
+
+import ac.il.bgu.qa.validation.IsbnValidator;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the ISBN-13 validation that Library used to run (replaceAll, matches and parseInt per digit)
+ * against {@link IsbnValidator}.
+ * <p>
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main
+ * -Dexec.args="IsbnValidatorBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IsbnValidatorBenchmark {
+
+    @Param({"978-3-16-148410-0", "9783161484100", "978-3-16-148410-9"})
+    String isbn;
+
+    @Benchmark
+    public boolean legacy() {
+        return legacyIsISBNValid(isbn);
+    }
+
+    @Benchmark
+    public boolean singlePass() {
+        return IsbnValidator.isValidIsbn13(isbn);
+    }
+
+    // Copy of the original Library.isISBNValid, kept as the baseline.
+    private static boolean legacyIsISBNValid(String isbn) {
+        if (isbn == null) {
+            return false;
+        }
+        isbn = isbn.replaceAll("-", "");
+        if (isbn.length() != 13 || !isbn.matches("\\d+")) {
+            return false;
+        }
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            int digit = Integer.parseInt(String.valueOf(isbn.charAt(i)));
+            if (i % 2 == 0) {
+                sum += digit;
+            } else {
+                sum += digit * 3;
+            }
+        }
+        int checkDigit = 10 - (sum % 10);
+        if (checkDigit == 10) {
+            checkDigit = 0;
+        }
+        return checkDigit == Integer.parseInt(String.valueOf(isbn.charAt(12)));
+    }
+}
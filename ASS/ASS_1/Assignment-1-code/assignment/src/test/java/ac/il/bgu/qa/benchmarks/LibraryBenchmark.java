@@ -0,0 +1,158 @@
+package ac.il.bgu.qa.benchmarks;
+
+import ac.il.bgu.qa.Book;
+import ac.il.bgu.qa.Library;
+import ac.il.bgu.qa.User;
+import ac.il.bgu.qa.metrics.LibraryMetrics;
+import ac.il.bgu.qa.services.NotificationService;
+import ac.il.bgu.qa.services.ReviewService;
+import ac.il.bgu.qa.services.database.InMemoryDatabaseService;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the throughput of the public {@link Library} operations against an {@link InMemoryDatabaseService},
+ * with review and notification services that answer at once, so only the library's own cost is measured.
+ * <p>
+ * The catalog size and whether metrics are recorded are parameters; the thread count is JMH's -t option.
+ * The benchmarks profile runs this class with one and with four threads and writes the results as JSON,
+ * to be compared across releases:
+ * mvn -Pbenchmarks test, then see target/jmh-result-1-thread.json and target/jmh-result-4-threads.json.
+ * <p>
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main
+ * -Dexec.args="LibraryBenchmark -t 4 -rf json"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class LibraryBenchmark {
+
+    private static final int USERS = 1_000;
+    private static final List<String> REVIEWS = Arrays.asList("Amazing Book!", "Could not put it down.");
+    private static final NotificationService NOTIFICATIONS = (userId, message) -> { };
+
+    @Param({"1000", "100000"})
+    int catalogSize;
+
+    // Whether operations are recorded in LibraryMetrics, to track the cost of recording.
+    @Param({"false", "true"})
+    boolean metrics;
+
+    Library library;
+    String[] isbns;
+    String[] userIds;
+
+    @Setup
+    public void setup() {
+        library = newLibrary(catalogSize, metrics);
+        isbns = new String[catalogSize];
+        for (int i = 0; i < catalogSize; i++) {
+            isbns[i] = Catalogs.isbn(i);
+            library.addBook(new Book(isbns[i], "Title " + i, "Author"));
+        }
+        userIds = new String[USERS];
+        for (int i = 0; i < USERS; i++) {
+            userIds[i] = Catalogs.userId(i);
+            library.registerUser(new User("reader", userIds[i], NOTIFICATIONS));
+        }
+    }
+
+    /**
+     * A library that grows as books and users are added to it, started afresh every iteration
+     * so that every iteration adds to a catalog of the same size.
+     */
+    @State(Scope.Benchmark)
+    public static class GrowingLibrary {
+        Library library;
+        // The ordinal of the next book and user to add, past the ones added in setup.
+        final AtomicLong next = new AtomicLong();
+
+        @Setup(Level.Iteration)
+        public void setup(LibraryBenchmark benchmark) {
+            library = newLibrary(benchmark.catalogSize, benchmark.metrics);
+            next.set(benchmark.catalogSize);
+        }
+    }
+
+    /**
+     * The books that one thread borrows and returns, disjoint from those of the other threads,
+     * so that round trips never fail on a book another thread holds.
+     */
+    @State(Scope.Thread)
+    public static class OwnBooks {
+        String[] isbns;
+        String userId;
+        int next;
+
+        @Setup
+        public void setup(LibraryBenchmark benchmark, BenchmarkParams params, ThreadParams thread) {
+            int threads = params.getThreads();
+            int index = thread.getThreadIndex();
+            isbns = new String[(benchmark.catalogSize - index + threads - 1) / threads];
+            for (int i = 0; i < isbns.length; i++) {
+                isbns[i] = benchmark.isbns[index + i * threads];
+            }
+            userId = benchmark.userIds[index % USERS];
+        }
+    }
+
+    @Benchmark
+    public void addBook(GrowingLibrary growing) {
+        String isbn = Catalogs.isbn(growing.next.getAndIncrement());
+        growing.library.addBook(new Book(isbn, "The Islands", "David The Third"));
+    }
+
+    @Benchmark
+    public void registerUser(GrowingLibrary growing) {
+        String userId = Catalogs.userId(growing.next.getAndIncrement());
+        growing.library.registerUser(new User("reader", userId, NOTIFICATIONS));
+    }
+
+    @Benchmark
+    public void borrowAndReturnBook(OwnBooks own) {
+        String isbn = own.isbns[own.next];
+        own.next = own.next + 1 == own.isbns.length ? 0 : own.next + 1;
+        library.borrowBook(isbn, own.userId);
+        library.returnBook(isbn);
+    }
+
+    @Benchmark
+    public void notifyUserWithBookReviews() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        library.notifyUserWithBookReviews(isbns[random.nextInt(catalogSize)], userIds[random.nextInt(USERS)]);
+    }
+
+    @Benchmark
+    public Book getBookByISBN() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return library.getBookByISBN(isbns[random.nextInt(catalogSize)], userIds[random.nextInt(USERS)]);
+    }
+
+    private static Library newLibrary(int catalogSize, boolean metrics) {
+        Library library = new Library(new InMemoryDatabaseService(catalogSize, 16), new ReviewService() {
+            @Override
+            public List<String> getReviewsForBook(String ISBN) {
+                return REVIEWS;
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        if (metrics) {
+            library.setMetrics(new LibraryMetrics());
+        }
+        return library;
+    }
+}
@@ -0,0 +1,59 @@
+package ac.il.bgu.qa.benchmarks;
+
+import ac.il.bgu.qa.notification.NotificationEventLog;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what a request thread pays to report a failed notification during an outage, with four threads failing
+ * at once: printing the message to a stream, as the library used to, against recording it in a
+ * {@link NotificationEventLog}. Both write to a stream that discards its input, so the console is not measured.
+ * <p>
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main
+ * -Dexec.args="NotificationEventLogBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class NotificationEventLogBenchmark {
+
+    PrintStream stream;
+    NotificationEventLog eventLog;
+
+    @Setup
+    public void setup() {
+        stream = new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        }, true);
+        eventLog = new NotificationEventLog(4_096, 100, stream, stream);
+    }
+
+    @TearDown
+    public void tearDown() {
+        eventLog.close();
+    }
+
+    @Benchmark
+    public void println() {
+        stream.println("Notification failed! Retrying attempt " + 3 + "/" + 5);
+    }
+
+    @Benchmark
+    public void eventLog() {
+        eventLog.retryFailed(3, 5);
+    }
+}
@@ -0,0 +1,45 @@
+package ac.il.bgu.qa.errors;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestStackTraces {
+
+    @AfterEach
+    public void restore() {
+        StackTraces.setEnabled(true);
+    }
+
+    @Test
+    public void GivenStackTracesEnabled_WhenCreatingRoutineException_RecordStackTrace() {
+        StackTraces.setEnabled(true);
+
+        assertTrue(new BookAlreadyBorrowedException("Book is already borrowed!").getStackTrace().length > 0);
+    }
+
+    @Test
+    public void GivenStackTracesDisabled_WhenCreatingRoutineExceptions_SkipStackTraceButKeepMessage() {
+        StackTraces.setEnabled(false);
+
+        RuntimeException[] exceptions = {
+                new BookAlreadyBorrowedException("Book is already borrowed!"),
+                new BookNotBorrowedException("Book wasn't borrowed!"),
+                new BookNotFoundException("Book not found!"),
+                new UserNotRegisteredException("User not found!"),
+                new NoReviewsFoundException("No reviews found!")
+        };
+
+        for (RuntimeException exception : exceptions) {
+            assertEquals(0, exception.getStackTrace().length);
+            assertNotNull(exception.getMessage());
+        }
+    }
+
+    @Test
+    public void GivenStackTracesDisabled_WhenCreatingFailureException_StillRecordStackTrace() {
+        StackTraces.setEnabled(false);
+
+        assertTrue(new NotificationException("Notification failed!").getStackTrace().length > 0);
+    }
+}
@@ -0,0 +1,80 @@
+package ac.il.bgu.qa.importer;
+
+import ac.il.bgu.qa.Book;
+import ac.il.bgu.qa.benchmarks.Catalogs;
+import ac.il.bgu.qa.services.database.InMemoryDatabaseService;
+
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestCatalogImporter {
+    InMemoryDatabaseService database;
+    CatalogImporter importer;
+
+    @BeforeEach
+    public void init() {
+        database = new InMemoryDatabaseService();
+        //Tiny chunks so that de-duplication and ordering across chunks are exercised
+        importer = new CatalogImporter(database, 2, 3, 100);
+    }
+
+    private static ByteArrayInputStream input(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void GivenCsvCatalog_WhenImporting_AddValidBooksAndReportRejectedRows() throws IOException {
+        database.addBook("978-1-86197-876-9", new Book("978-1-86197-876-9", "Existing", "Someone"));
+        String csv = "isbn,title,author\n"
+                + "978-3-16-148410-0,\"The Islands, Part One\",David The Third\n"
+                + "978-3-16-148410-9,Bad Checksum,David The Third\n"
+                + "\n"
+                + "9783161484100,Same ISBN Without Hyphens,David The Third\n"
+                + "978-0-306-40615-7,,David The Third\n"
+                + "978-0-306-40615-7,Abra Kadabra,Da4vid\n"
+                + "978-1-86197-876-9,Existing Again,Someone\n"
+                + "978-0-306-40615-7,Abra Kadabra\n"
+                + "978-0-306-40615-7,\"Abra \"\"Kadabra\"\"\",O'Neil\n";
+
+        ImportResult result = importer.importBooks(input(csv), CatalogFormat.CSV, true);
+
+        assertEquals(2, result.getImportedCount());
+        assertEquals(6, result.getRejectedCount());
+        assertEquals("The Islands, Part One", database.getBookByISBN("978-3-16-148410-0").getTitle());
+        assertEquals("Abra \"Kadabra\"", database.getBookByISBN("978-0-306-40615-7").getTitle());
+        assertEquals("Existing", database.getBookByISBN("978-1-86197-876-9").getTitle());
+
+        String[] expected = {
+                "Line 3: Invalid ISBN.",
+                "Line 5: Duplicate ISBN in batch.",
+                "Line 6: Invalid title.",
+                "Line 7: Invalid author.",
+                "Line 8: Book already exists.",
+                "Line 9: Invalid row."};
+        assertEquals(expected.length, result.getRejectedRows().size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], result.getRejectedRows().get(i).toString());
+        }
+    }
+
+    @Test
+    public void GivenLargeTsvCatalog_WhenImporting_AddEveryBook() throws IOException {
+        StringBuilder tsv = new StringBuilder();
+        int books = 20_000;
+        for (int i = 0; i < books; i++) {
+            tsv.append(Catalogs.isbn(i)).append('\t').append("Title ").append(i).append('\t').append("Author").append('\n');
+        }
+        importer = new CatalogImporter(database, 1_000, 4, 10);
+
+        ImportResult result = importer.importBooks(input(tsv.toString()), CatalogFormat.TSV, false);
+
+        assertEquals(books, result.getImportedCount());
+        assertEquals(0, result.getRejectedCount());
+        assertEquals(books, database.getBookCount());
+    }
+}
@@ -0,0 +1,62 @@
+package ac.il.bgu.qa.metrics;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestLatencyHistogram {
+    LatencyHistogram histogram;
+
+    @BeforeEach
+    public void init() {
+        histogram = new LatencyHistogram();
+    }
+
+    @Test
+    public void GivenEmptyHistogram_WhenTakingSnapshot_ReportZeros() {
+        HistogramSnapshot snapshot = histogram.snapshot();
+
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getMean());
+        assertEquals(0, snapshot.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void GivenUniformLatencies_WhenTakingPercentiles_StayWithinBucketPrecision() {
+        for (long nanos = 1; nanos <= 100_000; nanos++) {
+            histogram.record(nanos * 1_000);
+        }
+
+        HistogramSnapshot snapshot = histogram.snapshot();
+
+        assertEquals(100_000, snapshot.getCount());
+        assertEquals(100_000_000, snapshot.getMax(), 100_000_000 * 0.035);
+        assertEquals(50_000_500, snapshot.getMean(), 50_000_500 * 0.035);
+        assertEquals(50_000_000, snapshot.getValueAtPercentile(50), 50_000_000 * 0.035);
+        assertEquals(99_000_000, snapshot.getValueAtPercentile(99), 99_000_000 * 0.035);
+        assertEquals(snapshot.getMax(), snapshot.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void GivenEveryValue_WhenBucketed_FallWithinItsBucket() {
+        for (long value = 0; value < 1 << 16; value++) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(value <= LatencyHistogram.highestValueOf(bucket));
+            assertTrue(bucket == 0 || value > LatencyHistogram.highestValueOf(bucket - 1));
+        }
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketOf(LatencyHistogram.HIGHEST_VALUE));
+    }
+
+    @Test
+    public void GivenOutOfRangeLatencies_WhenRecorded_ClampToRange() {
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        HistogramSnapshot snapshot = histogram.snapshot();
+
+        assertEquals(2, snapshot.getCount());
+        assertEquals(0, snapshot.getValueAtPercentile(50));
+        assertEquals(LatencyHistogram.HIGHEST_VALUE, snapshot.getMax());
+        assertThrows(IllegalArgumentException.class, () -> snapshot.getValueAtPercentile(101));
+    }
+}
@@ -0,0 +1,72 @@
+package ac.il.bgu.qa.metrics;
+
+import ac.il.bgu.qa.metrics.LibraryMetrics.Call;
+import ac.il.bgu.qa.metrics.LibraryMetrics.Operation;
+
+import org.junit.jupiter.api.*;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestLibraryMetrics {
+    LibraryMetrics metrics;
+
+    @BeforeEach
+    public void init() {
+        metrics = new LibraryMetrics();
+    }
+
+    @Test
+    public void GivenOutcomes_WhenTakingSnapshot_CountByOutcome() {
+        metrics.recordSuccess(Operation.BORROW_BOOK, metrics.start());
+        metrics.recordSuccess(Operation.BORROW_BOOK, metrics.start());
+        metrics.recordFailure(Operation.BORROW_BOOK, metrics.start(), new IllegalArgumentException());
+        metrics.recordOutcome(Operation.BORROW_BOOK, metrics.start(), "ALREADY_BORROWED");
+        metrics.recordCall(Call.DATABASE_READ, metrics.start(), false);
+        metrics.recordCall(Call.DATABASE_READ, metrics.start(), true);
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+
+        assertEquals(4, snapshot.getCount(Operation.BORROW_BOOK));
+        assertEquals(2L, snapshot.getOutcomes(Operation.BORROW_BOOK).get(LibraryMetrics.SUCCESS));
+        assertEquals(1L, snapshot.getOutcomes(Operation.BORROW_BOOK).get("IllegalArgumentException"));
+        assertEquals(1L, snapshot.getOutcomes(Operation.BORROW_BOOK).get("ALREADY_BORROWED"));
+        assertEquals(4, snapshot.getLatency(Operation.BORROW_BOOK).getCount());
+        assertEquals(0, snapshot.getCount(Operation.ADD_BOOK));
+        assertEquals(2, snapshot.getLatency(Call.DATABASE_READ).getCount());
+        assertEquals(1, snapshot.getFailures(Call.DATABASE_READ));
+        assertEquals(4L, snapshot.asMap().get("borrowBook.count"));
+        assertEquals(1L, snapshot.asMap().get("databaseRead.failures"));
+    }
+
+    @Test
+    public void GivenDisabledMetrics_WhenRecording_RecordNothing() {
+        LibraryMetrics disabled = LibraryMetrics.DISABLED;
+
+        disabled.recordSuccess(Operation.ADD_BOOK, disabled.start());
+        disabled.recordFailure(Operation.ADD_BOOK, disabled.start(), new IllegalStateException());
+        disabled.recordCall(Call.REVIEW_FETCH, disabled.start(), true);
+
+        assertFalse(disabled.isEnabled());
+        assertEquals(0, disabled.start());
+        assertEquals(0, disabled.snapshot().getCount(Operation.ADD_BOOK));
+        assertEquals(0, disabled.snapshot().getLatency(Call.REVIEW_FETCH).getCount());
+    }
+
+    @Test
+    public void GivenRegisteredMBean_WhenReadOverJmx_ReturnSnapshotValues() throws Exception {
+        metrics.recordSuccess(Operation.ADD_BOOK, metrics.start());
+        ObjectName name = metrics.registerMBean("ac.il.bgu.qa:type=LibraryMetrics,name=" + System.identityHashCode(this));
+        try {
+            Object count = ManagementFactory.getPlatformMBeanServer().getAttribute(name, "addBook.count");
+            assertEquals(1L, count);
+            Map<String, Long> values = metrics.snapshot().asMap();
+            assertEquals(values.size(), ManagementFactory.getPlatformMBeanServer().getMBeanInfo(name).getAttributes().length);
+        } finally {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        }
+    }
+}
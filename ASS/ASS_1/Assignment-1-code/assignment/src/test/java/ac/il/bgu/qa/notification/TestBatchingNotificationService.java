@@ -0,0 +1,145 @@
+package ac.il.bgu.qa.notification;
+
+import ac.il.bgu.qa.errors.NotificationException;
+import ac.il.bgu.qa.services.Notification;
+import ac.il.bgu.qa.services.NotificationService;
+
+import org.junit.jupiter.api.*;
+import org.mockito.*;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestBatchingNotificationService {
+    @Mock
+    NotificationService mockNotificationService;
+    @Captor
+    ArgumentCaptor<List<Notification>> batchCaptor;
+    BatchingNotificationService batching;
+
+    @BeforeEach
+    public void init() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @AfterEach
+    public void shutdown() {
+        if (batching != null) {
+            batching.close();
+        }
+    }
+
+    @Test
+    public void GivenFullBatch_WhenSubmitting_SendAllInOneCall() throws Exception {
+        batching = new BatchingNotificationService(mockNotificationService, 3, 1, TimeUnit.HOURS);
+
+        CompletableFuture<Void> first = batching.submit("206515744111", "one");
+        CompletableFuture<Void> second = batching.submit("206515744112", "two");
+        assertFalse(first.isDone());
+        CompletableFuture<Void> third = batching.submit("206515744111", "three");
+
+        CompletableFuture.allOf(first, second, third).get(5, TimeUnit.SECONDS);
+        verify(mockNotificationService, times(1)).notifyUsers(batchCaptor.capture());
+        verify(mockNotificationService, never()).notifyUser(any(), any());
+        List<Notification> batch = batchCaptor.getValue();
+        assertEquals(3, batch.size());
+        assertEquals("206515744112", batch.get(1).getUserId());
+        assertEquals("three", batch.get(2).getMessage());
+        assertEquals(1, batching.getBatchCount());
+        assertEquals(3, batching.getNotificationCount());
+    }
+
+    @Test
+    public void GivenPartialBatch_WhenLingerTimePasses_SendIt() throws Exception {
+        batching = new BatchingNotificationService(mockNotificationService, 100, 20, TimeUnit.MILLISECONDS);
+
+        batching.submit("206515744111", "one");
+        batching.submit("206515744112", "two").get(5, TimeUnit.SECONDS);
+
+        verify(mockNotificationService, times(1)).notifyUsers(batchCaptor.capture());
+        assertEquals(2, batchCaptor.getValue().size());
+    }
+
+    @Test
+    public void GivenFailingBatch_WhenSending_FailEveryNotificationInIt() {
+        doThrow(new NotificationException("Gateway down")).when(mockNotificationService).notifyUsers(any());
+        batching = new BatchingNotificationService(mockNotificationService, 2, 1, TimeUnit.HOURS);
+
+        CompletableFuture<Void> first = batching.submit("206515744111", "one");
+        NotificationException exception = assertThrows(NotificationException.class,
+                () -> batching.notifyUser("206515744112", "two"));
+
+        assertEquals("Gateway down", exception.getMessage());
+        assertTrue(first.isCompletedExceptionally());
+    }
+
+    @Test
+    public void GivenServiceThrowingError_WhenLingerTimePasses_FailNotificationInsteadOfHanging() {
+        // Whichever batch the broken notifications end up in fails with an Error.
+        doAnswer(invocation -> {
+            List<Notification> batch = invocation.getArgument(0);
+            if (batch.stream().anyMatch(notification -> notification.getMessage().startsWith("broken"))) {
+                throw new AssertionError("Gateway broken");
+            }
+            return null;
+        }).when(mockNotificationService).notifyUsers(any());
+        batching = new BatchingNotificationService(mockNotificationService, 100, 20, TimeUnit.MILLISECONDS);
+
+        CompletableFuture<Void> first = batching.submit("206515744111", "broken one");
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            assertThrows(NotificationException.class, () -> batching.notifyUser("206515744112", "broken two"));
+            // The linger thread keeps sending later batches.
+            batching.notifyUser("206515744112", "three");
+        });
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+        assertTrue(exception.getCause() instanceof AssertionError);
+    }
+
+    @Test
+    public void GivenConcurrentSenders_WhenNotifyingUsers_CoalesceIntoFewerCalls() throws Exception {
+        batching = new BatchingNotificationService(mockNotificationService, 16, 50, TimeUnit.MILLISECONDS);
+        ExecutorService senders = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                String message = "message" + i;
+                futures.add(senders.submit(() -> batching.notifyUser("206515744111", message)));
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            senders.shutdownNow();
+        }
+
+        assertEquals(64, batching.getNotificationCount());
+        assertTrue(batching.getBatchCount() < 64);
+    }
+
+    @Test
+    public void GivenClosedService_WhenSubmitting_SendPendingAndRejectNew() throws Exception {
+        batching = new BatchingNotificationService(mockNotificationService, 100, 1, TimeUnit.HOURS);
+        CompletableFuture<Void> pending = batching.submit("206515744111", "one");
+
+        batching.close();
+
+        pending.get(5, TimeUnit.SECONDS);
+        assertTrue(batching.submit("206515744111", "two").isCompletedExceptionally());
+    }
+
+    @Test
+    public void GivenServiceWithoutBatchSupport_WhenNotifyUsers_SendOneByOneInOrder() {
+        List<String> sent = new ArrayList<>();
+        NotificationService service = (userId, message) -> sent.add(userId + ":" + message);
+
+        service.notifyUsers(Arrays.asList(new Notification("206515744111", "one"),
+                new Notification("206515744112", "two")));
+
+        assertEquals(Arrays.asList("206515744111:one", "206515744112:two"), sent);
+    }
+}
@@ -0,0 +1,113 @@
+package ac.il.bgu.qa.notification;
+
+import ac.il.bgu.qa.services.NotificationService;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestCircuitBreaker {
+    AtomicLong now;
+    List<String> transitions;
+    CircuitBreakerRegistry registry;
+    CircuitBreaker breaker;
+
+    @BeforeEach
+    public void init() {
+        now = new AtomicLong();
+        transitions = new ArrayList<>();
+        registry = new CircuitBreakerRegistry(3, 10, TimeUnit.SECONDS, now::get);
+        registry.addListener((breaker, from, to) -> transitions.add(from + "->" + to));
+        breaker = registry.get((id, message) -> { });
+    }
+
+    private void fail(int times) {
+        for (int i = 0; i < times; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onFailure();
+        }
+    }
+
+    @Test
+    public void GivenConsecutiveFailures_WhenReachingThreshold_OpenAndRejectCalls() {
+        fail(3);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(1, breaker.getRejectedCount());
+        assertEquals(1, breaker.getTransitionCount(CircuitBreaker.State.OPEN));
+    }
+
+    @Test
+    public void GivenSuccessBetweenFailures_WhenFailing_StayClosed() {
+        fail(2);
+        assertTrue(breaker.tryAcquire());
+        breaker.onSuccess();
+        fail(2);
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void GivenOpenDurationPassed_WhenTrialSucceeds_Close() {
+        fail(3);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+        breaker.onSuccess();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    public void GivenCallPermittedBeforeOpening_WhenItSucceedsLate_StayOpen() {
+        assertTrue(breaker.tryAcquire());
+        fail(3);
+
+        breaker.onSuccess();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(0, breaker.getTransitionCount(CircuitBreaker.State.CLOSED));
+    }
+
+    @Test
+    public void GivenOpenDurationPassed_WhenTrialFails_OpenAgain() {
+        fail(3);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(2, breaker.getTransitionCount(CircuitBreaker.State.OPEN));
+    }
+
+    @Test
+    public void GivenListener_WhenBreakerCyclesThroughStates_ObserveEveryTransition() {
+        fail(3);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        breaker.tryAcquire();
+        breaker.onSuccess();
+
+        assertEquals(Arrays.asList("CLOSED->OPEN", "OPEN->HALF_OPEN", "HALF_OPEN->CLOSED"), transitions);
+    }
+
+    @Test
+    public void GivenRegistry_WhenGettingBreakers_OneBreakerPerNotificationService() {
+        NotificationService first = (id, message) -> { };
+        NotificationService second = (id, message) -> { };
+
+        assertSame(registry.get(first), registry.get(first));
+        assertNotSame(registry.get(first), registry.get(second));
+    }
+}
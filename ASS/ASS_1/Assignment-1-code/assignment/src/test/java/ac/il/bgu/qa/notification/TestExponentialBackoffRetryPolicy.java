@@ -0,0 +1,80 @@
+package ac.il.bgu.qa.notification;
+
+import org.junit.jupiter.api.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestExponentialBackoffRetryPolicy {
+
+    private static long millis(long value) {
+        return TimeUnit.MILLISECONDS.toNanos(value);
+    }
+
+    @Test
+    public void GivenNoJitter_WhenRetrying_DoubleDelayUpToMaxDelay() {
+        RetryPolicy policy = new ExponentialBackoffRetryPolicy(10, 100, 1_000, 2, 60_000, TimeUnit.MILLISECONDS,
+                () -> 0.999_999_999);
+
+        assertEquals(millis(100), policy.getDelayNanos(1, 0), 1);
+        assertEquals(millis(200), policy.getDelayNanos(2, 0), 1);
+        assertEquals(millis(400), policy.getDelayNanos(3, 0), 1);
+        assertEquals(millis(800), policy.getDelayNanos(4, 0), 1);
+        assertEquals(millis(1_000), policy.getDelayNanos(5, 0), 1);
+        assertEquals(millis(1_000), policy.getDelayNanos(9, 0), 1);
+    }
+
+    @Test
+    public void GivenJitter_WhenRetrying_DelayIsFractionOfBound() {
+        RetryPolicy policy = new ExponentialBackoffRetryPolicy(10, 100, 1_000, 2, 60_000, TimeUnit.MILLISECONDS,
+                () -> 0.25);
+
+        assertEquals(millis(50), policy.getDelayNanos(2, 0));
+    }
+
+    @Test
+    public void GivenDefaultJitter_WhenRetrying_DelayStaysWithinBound() {
+        RetryPolicy policy = new ExponentialBackoffRetryPolicy(10, 100, 1_000, 2, 60_000, TimeUnit.MILLISECONDS);
+
+        for (int i = 0; i < 1_000; i++) {
+            long delay = policy.getDelayNanos(3, 0);
+            assertTrue(delay >= 0 && delay < millis(400));
+        }
+    }
+
+    @Test
+    public void GivenMaxAttemptsReached_WhenRetrying_Stop() {
+        RetryPolicy policy = new ExponentialBackoffRetryPolicy(3, 100, 1_000, 2, 60_000, TimeUnit.MILLISECONDS);
+
+        assertNotEquals(RetryPolicy.STOP, policy.getDelayNanos(2, 0));
+        assertEquals(RetryPolicy.STOP, policy.getDelayNanos(3, 0));
+    }
+
+    @Test
+    public void GivenNextAttemptAfterMaxElapsed_WhenRetrying_Stop() {
+        RetryPolicy policy = new ExponentialBackoffRetryPolicy(10, 100, 1_000, 2, 1_000, TimeUnit.MILLISECONDS,
+                () -> 0.5);
+
+        assertEquals(millis(100), policy.getDelayNanos(2, millis(900)));
+        assertEquals(RetryPolicy.STOP, policy.getDelayNanos(2, millis(901)));
+    }
+
+    @Test
+    public void GivenImmediatePolicy_WhenRetrying_RetryWithoutDelayUntilMaxAttempts() {
+        RetryPolicy policy = RetryPolicy.immediate(5);
+
+        assertEquals(0, policy.getDelayNanos(4, millis(10_000)));
+        assertEquals(RetryPolicy.STOP, policy.getDelayNanos(5, 0));
+    }
+
+    @Test
+    public void GivenInvalidSettings_WhenConstructing_TriggerIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new ExponentialBackoffRetryPolicy(0, 100, 1_000, 2, 1_000, TimeUnit.MILLISECONDS));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ExponentialBackoffRetryPolicy(3, 100, 10, 2, 1_000, TimeUnit.MILLISECONDS));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ExponentialBackoffRetryPolicy(3, 100, 1_000, 0.5, 1_000, TimeUnit.MILLISECONDS));
+    }
+}
@@ -0,0 +1,196 @@
+package ac.il.bgu.qa.notification;
+
+import ac.il.bgu.qa.errors.NotificationException;
+
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestNotificationDispatcher {
+    CountDownLatch release;
+    NotificationDispatcher dispatcher;
+
+    @BeforeEach
+    public void init() {
+        release = new CountDownLatch(1);
+    }
+
+    @AfterEach
+    public void shutdown() throws InterruptedException {
+        release.countDown();
+        if (dispatcher != null) {
+            dispatcher.close();
+            assertTrue(dispatcher.awaitTermination(5, TimeUnit.SECONDS));
+        }
+    }
+
+    // Occupies the single worker until release is counted down, and waits until it has picked the task up.
+    private CompletableFuture<Void> occupyWorker() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<Void> future = dispatcher.dispatch(() -> {
+            started.countDown();
+            awaitRelease();
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return future;
+    }
+
+    private void awaitRelease() {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    public void GivenDispatcher_WhenDispatching_SendOnWorkerAndCompleteFuture() throws Exception {
+        dispatcher = new NotificationDispatcher(4, 1, BackpressurePolicy.REJECT);
+        CompletableFuture<Thread> sender = new CompletableFuture<>();
+
+        dispatcher.dispatch(() -> sender.complete(Thread.currentThread())).get(5, TimeUnit.SECONDS);
+
+        assertNotSame(Thread.currentThread(), sender.get());
+        assertTrue(sender.get().isDaemon());
+    }
+
+    @Test
+    public void GivenFailingDelivery_WhenDispatching_FailFutureWithSameException() {
+        dispatcher = new NotificationDispatcher(4, 1, BackpressurePolicy.REJECT);
+
+        CompletableFuture<Void> future = dispatcher.dispatch(() -> {
+            throw new NotificationException("Notification failed!");
+        });
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertTrue(exception.getCause() instanceof NotificationException);
+    }
+
+    @Test
+    public void GivenFullQueueAndRejectPolicy_WhenDispatching_FailNewNotification() throws Exception {
+        dispatcher = new NotificationDispatcher(1, 1, BackpressurePolicy.REJECT);
+        occupyWorker();
+        CompletableFuture<Void> queued = dispatcher.dispatch(() -> { });
+
+        CompletableFuture<Void> rejected = dispatcher.dispatch(() -> { });
+
+        assertTrue(rejected.isCompletedExceptionally());
+        assertEquals(1, dispatcher.getRejectedCount());
+        release.countDown();
+        queued.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void GivenFullQueueAndDropOldestPolicy_WhenDispatching_FailOldestAndQueueNew() throws Exception {
+        dispatcher = new NotificationDispatcher(1, 1, BackpressurePolicy.DROP_OLDEST);
+        occupyWorker();
+        CompletableFuture<Void> oldest = dispatcher.dispatch(() -> { });
+
+        CompletableFuture<Void> newest = dispatcher.dispatch(() -> { });
+
+        assertTrue(oldest.isCompletedExceptionally());
+        assertEquals(1, dispatcher.getRejectedCount());
+        release.countDown();
+        newest.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void GivenFullQueueAndCallerRunsPolicy_WhenDispatching_SendOnCallingThread() throws Exception {
+        dispatcher = new NotificationDispatcher(1, 1, BackpressurePolicy.CALLER_RUNS);
+        occupyWorker();
+        dispatcher.dispatch(() -> { });
+        AtomicInteger ranHere = new AtomicInteger();
+        Thread caller = Thread.currentThread();
+
+        CompletableFuture<Void> future = dispatcher.dispatch(() -> {
+            if (Thread.currentThread() == caller) {
+                ranHere.incrementAndGet();
+            }
+        });
+
+        assertTrue(future.isDone());
+        assertEquals(1, ranHere.get());
+    }
+
+    @Test
+    public void GivenFullQueueAndBlockPolicy_WhenDispatching_WaitForRoom() throws Exception {
+        dispatcher = new NotificationDispatcher(1, 1, BackpressurePolicy.BLOCK);
+        occupyWorker();
+        dispatcher.dispatch(() -> { });
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        try {
+            Future<CompletableFuture<Void>> blocked = caller.submit(() -> dispatcher.dispatch(() -> { }));
+
+            assertThrows(TimeoutException.class, () -> blocked.get(200, TimeUnit.MILLISECONDS));
+            release.countDown();
+            blocked.get(5, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS);
+        } finally {
+            caller.shutdownNow();
+        }
+    }
+
+    @Test
+    public void GivenClosedDispatcher_WhenDispatching_SendQueuedAndRejectNew() throws Exception {
+        dispatcher = new NotificationDispatcher(4, 1, BackpressurePolicy.REJECT);
+        occupyWorker();
+        CompletableFuture<Void> queued = dispatcher.dispatch(() -> { });
+
+        dispatcher.close();
+        CompletableFuture<Void> late = dispatcher.dispatch(() -> { });
+        release.countDown();
+
+        queued.get(5, TimeUnit.SECONDS);
+        assertTrue(late.isCompletedExceptionally());
+        assertTrue(dispatcher.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void GivenIdleWorkers_WhenClosed_WaitWithoutTimeoutAndWakeUpToExit() throws Exception {
+        List<Thread> workers = new CopyOnWriteArrayList<>();
+        dispatcher = new NotificationDispatcher(4, 3, BackpressurePolicy.REJECT, runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            workers.add(thread);
+            return thread;
+        });
+        dispatcher.dispatch(() -> { }).get(5, TimeUnit.SECONDS);
+
+        // Idle workers block until there is work, rather than waking up every so often.
+        for (Thread worker : workers) {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (worker.getState() != Thread.State.WAITING && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            assertEquals(Thread.State.WAITING, worker.getState());
+        }
+
+        dispatcher.close();
+        assertTrue(dispatcher.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(0, dispatcher.getQueuedCount());
+    }
+
+    @Test
+    public void GivenFullQueue_WhenClosed_SendQueuedAndStopEveryWorker() throws Exception {
+        dispatcher = new NotificationDispatcher(1, 2, BackpressurePolicy.BLOCK);
+        CountDownLatch started = new CountDownLatch(2);
+        for (int i = 0; i < 2; i++) {
+            dispatcher.dispatch(() -> {
+                started.countDown();
+                awaitRelease();
+            });
+        }
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Void> queued = dispatcher.dispatch(() -> { });
+
+        dispatcher.close();
+        release.countDown();
+
+        queued.get(5, TimeUnit.SECONDS);
+        assertTrue(dispatcher.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(0, dispatcher.getQueuedCount());
+    }
+}
@@ -0,0 +1,143 @@
+package ac.il.bgu.qa.notification;
+
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestNotificationEventLog {
+    ByteArrayOutputStream out;
+    ByteArrayOutputStream err;
+    AtomicLong clock;
+    NotificationEventLog log;
+
+    @BeforeEach
+    public void init() {
+        out = new ByteArrayOutputStream();
+        err = new ByteArrayOutputStream();
+        clock = new AtomicLong();
+        PrintStream outStream = new PrintStream(out, true);
+        PrintStream errStream = new PrintStream(err, true);
+        log = new NotificationEventLog(8, 3, () -> outStream, () -> errStream, clock::get, false);
+    }
+
+    @Test
+    public void GivenFailureEvents_WhenDrained_WriteTheLibraryMessagesInOrder() {
+        log.retryFailed(1, 5);
+        log.retryFailed(2, 5);
+        log.lookupNotificationFailed();
+
+        assertEquals("", err.toString());
+        assertEquals(3, log.drain());
+
+        assertEquals(lines("Notification failed! Retrying attempt 1/5", "Notification failed! Retrying attempt 2/5"),
+                err.toString());
+        assertEquals(lines("Notification failed!"), out.toString());
+        assertEquals(3, log.getWrittenCount());
+    }
+
+    @Test
+    public void GivenFailureStorm_WhenOverRateLimit_SuppressAndSummarizeAfterWindow() {
+        for (int i = 1; i <= 7; i++) {
+            log.retryFailed(i, 10);
+        }
+        log.drain();
+        assertEquals(3, err.toString().split(System.lineSeparator()).length);
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        log.flushSuppressed(false);
+
+        assertTrue(err.toString().endsWith(lines("Notification failed! (4 similar messages suppressed)")));
+        assertEquals(4, log.getSuppressedCount());
+        log.retryFailed(8, 10);
+        log.drain();
+        assertTrue(err.toString().endsWith(lines("Notification failed! Retrying attempt 8/10")));
+    }
+
+    @Test
+    public void GivenFullBuffer_WhenRecording_DropWithoutWaiting() {
+        for (int i = 0; i < 10; i++) {
+            log.lookupNotificationFailed();
+        }
+
+        assertEquals(10, log.getRecordedCount());
+        assertEquals(2, log.getDroppedCount());
+        assertEquals(8, log.drain());
+        log.lookupNotificationFailed();
+        assertEquals(1, log.drain());
+    }
+
+    @Test
+    public void GivenWriterThread_WhenClosed_WriteRecordedEventsAndExit() throws InterruptedException {
+        NotificationEventLog started = new NotificationEventLog(64, 100, new PrintStream(out, true),
+                new PrintStream(err, true));
+        started.retryFailed(1, 5);
+        started.close();
+
+        assertTrue(started.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(lines("Notification failed! Retrying attempt 1/5"), err.toString());
+        started.retryFailed(2, 5);
+        assertEquals(1, started.getDroppedCount());
+    }
+
+    @Test
+    public void GivenIdleWriter_WhenEventsAreRecorded_WakeUpAndWriteThem() throws InterruptedException {
+        NotificationEventLog started = new NotificationEventLog(64, 100, new PrintStream(out, true),
+                new PrintStream(err, true));
+        started.retryFailed(1, 5);
+        awaitWritten(started, 1);
+        Thread.sleep(50);
+        started.retryFailed(2, 5);
+        started.lookupNotificationFailed();
+
+        awaitWritten(started, 3);
+        assertEquals(lines("Notification failed! Retrying attempt 1/5", "Notification failed! Retrying attempt 2/5"),
+                err.toString());
+        assertEquals(lines("Notification failed!"), out.toString());
+        started.close();
+        assertTrue(started.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void GivenSuppressedMessages_WhenWriterIsIdle_WakeUpToSummarizeAfterWindow() throws InterruptedException {
+        PrintStream errStream = new PrintStream(err, true);
+        NotificationEventLog started = new NotificationEventLog(8, 1, () -> System.out, () -> errStream,
+                clock::get, true);
+        started.retryFailed(1, 5);
+        started.retryFailed(2, 5);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (started.getSuppressedCount() < 1 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        String summary = lines("Notification failed! (1 similar messages suppressed)");
+        while (!err.toString().endsWith(summary) && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+
+        assertEquals(lines("Notification failed! Retrying attempt 1/5") + summary, err.toString());
+        started.close();
+        assertTrue(started.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    private static void awaitWritten(NotificationEventLog log, long count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (log.getWrittenCount() < count && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(count, log.getWrittenCount());
+    }
+
+    private static String lines(String... lines) {
+        StringBuilder text = new StringBuilder();
+        for (String line : lines) {
+            text.append(line).append(System.lineSeparator());
+        }
+        return text.toString();
+    }
+}
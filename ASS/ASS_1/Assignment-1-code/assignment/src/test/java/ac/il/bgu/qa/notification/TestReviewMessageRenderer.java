@@ -0,0 +1,120 @@
+package ac.il.bgu.qa.notification;
+
+import org.junit.jupiter.api.*;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestReviewMessageRenderer {
+
+    @Test
+    public void GivenReviews_WhenRendering_TitleFollowedByOneReviewPerLine() {
+        ReviewMessage message = new ReviewMessageRenderer().render("978-3-16-148410-0", "The Islands",
+                Arrays.asList("Amazing Book!", "Great Book! best book ever"));
+
+        assertEquals("Reviews for 'The Islands':\nAmazing Book!\nGreat Book! best book ever", message.toString());
+        assertEquals(2, message.getRenderedReviewCount());
+    }
+
+    @Test
+    public void GivenMoreReviewsThanCap_WhenRendering_IncludeFirstReviewsAndCountTheRest() {
+        ReviewMessage message = new ReviewMessageRenderer(2, 16).render("978-3-16-148410-0", "The Islands",
+                Arrays.asList("one", "two", "three", "four"));
+
+        assertEquals("Reviews for 'The Islands':\none\ntwo\n... and 2 more reviews.", message.toString());
+        assertEquals(4, message.getReviewCount());
+        assertEquals(2, message.getRenderedReviewCount());
+    }
+
+    @Test
+    public void GivenSameReviewList_WhenRenderingAgain_ReuseRenderedMessage() {
+        ReviewMessageRenderer renderer = new ReviewMessageRenderer(10, 16);
+        List<String> reviews = Arrays.asList("Amazing Book!");
+
+        ReviewMessage first = renderer.render("978-3-16-148410-0", "The Islands", reviews);
+        ReviewMessage second = renderer.render("978-3-16-148410-0", "The Islands", reviews);
+
+        assertSame(first, second);
+        assertSame(first.toString(), second.toString());
+    }
+
+    @Test
+    public void GivenChangedReviewsOrTitle_WhenRenderingAgain_RenderNewMessage() {
+        ReviewMessageRenderer renderer = new ReviewMessageRenderer(10, 16);
+        List<String> reviews = new ArrayList<>(Arrays.asList("Amazing Book!"));
+        ReviewMessage first = renderer.render("978-3-16-148410-0", "The Islands", reviews);
+
+        ReviewMessage renamed = renderer.render("978-3-16-148410-0", "The Islands, Revised", reviews);
+        reviews.add("Great Book!");
+        ReviewMessage grown = renderer.render("978-3-16-148410-0", "The Islands, Revised", reviews);
+        ReviewMessage copied = renderer.render("978-3-16-148410-0", "The Islands, Revised", new ArrayList<>(reviews));
+
+        assertNotSame(first, renamed);
+        assertEquals("Reviews for 'The Islands, Revised':\nAmazing Book!\nGreat Book!", grown.toString());
+        assertNotSame(grown, copied);
+        assertEquals(grown.toString(), copied.toString());
+    }
+
+    @Test
+    public void GivenCacheFull_WhenRenderingNewBook_EvictLeastRecentlyUsed() {
+        ReviewMessageRenderer renderer = new ReviewMessageRenderer(10, 1);
+        List<String> reviews = Arrays.asList("Amazing Book!");
+        ReviewMessage first = renderer.render("978-3-16-148410-0", "The Islands", reviews);
+
+        renderer.render("978-0-306-40615-7", "Abra Kadabra", reviews);
+
+        assertNotSame(first, renderer.render("978-3-16-148410-0", "The Islands", reviews));
+    }
+
+    @Test
+    public void GivenLargeMessage_WhenWritingToWriter_WriteWholeMessage() throws Exception {
+        List<String> reviews = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            reviews.add("Review number " + i);
+        }
+        ReviewMessage message = new ReviewMessageRenderer(Integer.MAX_VALUE, 0)
+                .render("978-3-16-148410-0", "The Islands", reviews);
+        StringWriter writer = new StringWriter();
+
+        message.writeTo(writer);
+
+        assertEquals(message.toString(), writer.toString());
+        assertEquals(message.length(), writer.toString().length());
+    }
+
+    @Test
+    public void GivenDefaultRenderer_WhenRenderingManyReviews_IncludeAllAndKeepNoMessage() {
+        List<String> reviews = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            reviews.add("Review number " + i);
+        }
+        ReviewMessageRenderer renderer = new ReviewMessageRenderer();
+
+        ReviewMessage message = renderer.render("978-3-16-148410-0", "The Islands", reviews);
+
+        assertEquals(1_000, message.getRenderedReviewCount());
+        assertTrue(message.toString().endsWith("Review number 998\nReview number 999"));
+        assertNotSame(message, renderer.render("978-3-16-148410-0", "The Islands", reviews));
+    }
+
+    @Test
+    public void GivenMessage_WhenReadAsCharSequence_MatchJoinedText() {
+        List<String> reviews = new ArrayList<>(Arrays.asList("one", "", "three"));
+        ReviewMessage message = new ReviewMessageRenderer(2, 0).render("978-3-16-148410-0", "T", reviews);
+        reviews.set(0, "changed");
+        String expected = "Reviews for 'T':\none\n\n... and 1 more reviews.";
+
+        assertEquals(expected.length(), message.length());
+        for (int i = 0; i < expected.length(); i++) {
+            assertEquals(expected.charAt(i), message.charAt(i));
+        }
+        assertEquals(expected.substring(10, 21), message.subSequence(10, 21).toString());
+        assertEquals("", message.subSequence(5, 5).toString());
+        assertEquals(expected, message.toString());
+        assertThrows(IndexOutOfBoundsException.class, () -> message.charAt(expected.length()));
+    }
+}
@@ -0,0 +1,107 @@
+package ac.il.bgu.qa.search;
+
+import ac.il.bgu.qa.Book;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestBookSearchIndex {
+    BookSearchIndex index;
+    Book islands;
+    Book lakes;
+    Book zola;
+
+    @BeforeEach
+    public void init() {
+        index = new BookSearchIndex();
+        islands = new Book("978-3-16-148410-0", "The Islands", "David The Third");
+        lakes = new Book("978-0-306-40615-7", "The Lakes of Islandia", "Dana");
+        zola = new Book("978-1-86197-876-9", "Germinal", "\u00c9mile Zola");
+        index.addAll(Arrays.asList(islands, lakes, zola));
+    }
+
+    @Test
+    public void GivenTitleAndAuthorWords_WhenSearchingByPrefix_FindBooksContainingAllWords() {
+        assertEquals(Arrays.asList(islands, lakes), index.search("isl", 0, 10).getBooks());
+        assertEquals(Arrays.asList(islands), index.search("isl dav", 0, 10).getBooks());
+        assertEquals(Arrays.asList(lakes), index.search("LAKES the", 0, 10).getBooks());
+        assertTrue(index.search("isl zola", 0, 10).getBooks().isEmpty());
+        assertTrue(index.search("  ,. ", 0, 10).getBooks().isEmpty());
+    }
+
+    @Test
+    public void GivenAccentsAndPunctuation_WhenTokenizing_NormalizeToLowerCaseWords() {
+        assertEquals(Arrays.asList("emile", "zola"), BookSearchIndex.tokenize("\u00c9mile, Zola!"));
+        assertEquals(Arrays.asList(zola), index.search("EMILE", 0, 10).getBooks());
+        assertEquals(Arrays.asList(zola), index.search("\u00e9mi", 0, 10).getBooks());
+    }
+
+    @Test
+    public void GivenExactAndPrefixMatches_WhenSearching_RankExactMatchesFirst() {
+        Book islandia = new Book("978-0-13-468599-1", "Islandia", "Austin Tappan Wright");
+        index.add(islandia);
+
+        SearchResult result = index.search("islandia", 0, 10);
+
+        assertEquals(Arrays.asList(lakes, islandia), result.getBooks());
+        assertEquals(Arrays.asList(islands, lakes, islandia), index.search("island", 0, 10).getBooks());
+    }
+
+    @Test
+    public void GivenManyMatches_WhenPaging_ReturnEachBookOnceInOrder() {
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            books.add(new Book(isbn(i), "Volume " + i, "Author"));
+        }
+        index = new BookSearchIndex();
+        index.addAll(books);
+
+        List<Book> found = new ArrayList<>();
+        SearchResult page = index.search("vol", 0, 10);
+        found.addAll(page.getBooks());
+        while (page.hasMore()) {
+            page = index.search("vol", page.getOffset() + page.getBooks().size(), 10);
+            found.addAll(page.getBooks());
+        }
+
+        assertEquals(25, page.getTotalHits());
+        assertEquals(books, found);
+        assertTrue(index.search("vol", 30, 10).getBooks().isEmpty());
+    }
+
+    @Test
+    public void GivenBookAddedAgain_WhenSearching_FindOnlyLatestVersion() {
+        Book renamed = new Book("978-3-16-148410-0", "The Reefs", "David The Third");
+        index.add(renamed);
+
+        assertEquals(Arrays.asList(lakes), index.search("isl", 0, 10).getBooks());
+        assertEquals(Arrays.asList(renamed), index.search("reefs", 0, 10).getBooks());
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    public void GivenInvalidArguments_WhenUsingIndex_TriggerIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> index.add(new Book("123", "Title", "Author")));
+        assertThrows(IllegalArgumentException.class, () -> index.search(null, 0, 10));
+        assertThrows(IllegalArgumentException.class, () -> index.search("isl", -1, 10));
+        assertThrows(IllegalArgumentException.class, () -> index.search("isl", 0, 0));
+    }
+
+    // Generates the n-th valid ISBN-13 in the 978 range.
+    private static String isbn(int n) {
+        long body = 978_000_000_000L + n;
+        int sum = 0;
+        long rest = body;
+        for (int position = 11; position >= 0; position--) {
+            int digit = (int) (rest % 10);
+            rest /= 10;
+            sum += (position & 1) == 0 ? digit : digit * 3;
+        }
+        return Long.toString(body * 10 + (10 - sum % 10) % 10);
+    }
+}
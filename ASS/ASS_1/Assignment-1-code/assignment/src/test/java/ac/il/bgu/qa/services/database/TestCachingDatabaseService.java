@@ -0,0 +1,196 @@
+package ac.il.bgu.qa.services.database;
+
+import ac.il.bgu.qa.Book;
+import ac.il.bgu.qa.User;
+import ac.il.bgu.qa.errors.BookAlreadyBorrowedException;
+import ac.il.bgu.qa.services.DatabaseService;
+
+import org.junit.jupiter.api.*;
+import org.mockito.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestCachingDatabaseService {
+    @Mock
+    DatabaseService mockDatabaseService;
+    @Mock
+    User mockUser;
+    AtomicLong now;
+    CachingDatabaseService cache;
+
+    @BeforeEach
+    public void init() {
+        MockitoAnnotations.openMocks(this);
+        now = new AtomicLong();
+        cache = new CachingDatabaseService(mockDatabaseService, 60, TimeUnit.SECONDS, 2, 2, now::get);
+    }
+
+    @Test
+    public void GivenCachedBook_WhenFetchedAgain_ServeFromCache() {
+        Book book = new Book("978-3-16-148410-0", "The Islands", "David The Third");
+        when(mockDatabaseService.getBookByISBN("978-3-16-148410-0")).thenReturn(book);
+
+        assertSame(book, cache.getBookByISBN("978-3-16-148410-0"));
+        assertSame(book, cache.getBookByISBN("978-3-16-148410-0"));
+
+        verify(mockDatabaseService, times(1)).getBookByISBN(any());
+        assertEquals(1, cache.getBookStats().getHits());
+        assertEquals(1, cache.getBookStats().getMisses());
+        assertEquals(0.5, cache.getBookStats().getHitRate());
+    }
+
+    @Test
+    public void GivenAddedBook_WhenFetchedInAnotherFormat_AskDatabase() {
+        cache.addBook("978-3-16-148410-0", new Book("978-3-16-148410-0", "The Islands", "David The Third"));
+
+        // The database may not know the book under another spelling of its ISBN, so the cache doesn't either.
+        assertNull(cache.getBookByISBN("9783161484100"));
+
+        verify(mockDatabaseService).getBookByISBN("9783161484100");
+    }
+
+    @Test
+    public void GivenMissingBook_WhenFetchedTwice_DoNotCacheAbsence() {
+        cache.getBookByISBN("978-3-16-148410-0");
+        cache.getBookByISBN("978-3-16-148410-0");
+
+        verify(mockDatabaseService, times(2)).getBookByISBN("978-3-16-148410-0");
+        assertEquals(0, cache.getBookStats().getSize());
+    }
+
+    @Test
+    public void GivenAddedBookAndRegisteredUser_WhenFetched_ServeFromCache() {
+        Book book = new Book("978-3-16-148410-0", "The Islands", "David The Third");
+
+        cache.addBook("978-3-16-148410-0", book);
+        cache.registerUser("123456789012", mockUser);
+
+        assertSame(book, cache.getBookByISBN("978-3-16-148410-0"));
+        assertSame(mockUser, cache.getUserById("123456789012"));
+        verify(mockDatabaseService).addBook("978-3-16-148410-0", book);
+        verify(mockDatabaseService).registerUser("123456789012", mockUser);
+        verify(mockDatabaseService, never()).getBookByISBN(any());
+        verify(mockDatabaseService, never()).getUserById(any());
+    }
+
+    @Test
+    public void GivenExpiredUser_WhenFetched_GoToDatabaseAgain() {
+        when(mockDatabaseService.getUserById("123456789012")).thenReturn(mockUser);
+
+        cache.getUserById("123456789012");
+        now.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        cache.getUserById("123456789012");
+
+        verify(mockDatabaseService, times(2)).getUserById("123456789012");
+    }
+
+    @Test
+    public void GivenFullCache_WhenAnotherBookIsAdded_EvictLeastRecentlyUsed() {
+        cache.addBook("978-3-16-148410-0", new Book("978-3-16-148410-0", "The Islands", "David The Third"));
+        cache.addBook("978-0-306-40615-7", new Book("978-0-306-40615-7", "The Hills", "David The Third"));
+        cache.getBookByISBN("978-3-16-148410-0");
+        cache.addBook("978-1-86197-876-9", new Book("978-1-86197-876-9", "The Seas", "David The Third"));
+
+        cache.getBookByISBN("978-3-16-148410-0");
+        cache.getBookByISBN("978-0-306-40615-7");
+
+        verify(mockDatabaseService, never()).getBookByISBN("978-3-16-148410-0");
+        verify(mockDatabaseService).getBookByISBN("978-0-306-40615-7");
+        assertEquals(1, cache.getBookStats().getEvictions());
+        assertEquals(2, cache.getBookStats().getSize());
+    }
+
+    @Test
+    public void GivenBookBorrowedByLibrary_WhenWrittenThrough_KeepCachedBook() {
+        Book book = new Book("978-3-16-148410-0", "The Islands", "David The Third");
+        cache.addBook("978-3-16-148410-0", book);
+
+        book.borrow();
+        cache.borrowBook("978-3-16-148410-0", "123456789012");
+        assertSame(book, cache.getBookByISBN("978-3-16-148410-0"));
+
+        book.returnBook();
+        cache.returnBook("978-3-16-148410-0");
+        assertSame(book, cache.getBookByISBN("978-3-16-148410-0"));
+
+        verify(mockDatabaseService).borrowBook("978-3-16-148410-0", "123456789012");
+        verify(mockDatabaseService).returnBook("978-3-16-148410-0");
+        verify(mockDatabaseService, never()).getBookByISBN(any());
+    }
+
+    @Test
+    public void GivenCachedBookWithOtherStatus_WhenBorrowed_DropCachedBook() {
+        cache.addBook("978-3-16-148410-0", new Book("978-3-16-148410-0", "The Islands", "David The Third"));
+
+        cache.borrowBook("978-3-16-148410-0", "123456789012");
+        cache.getBookByISBN("978-3-16-148410-0");
+
+        verify(mockDatabaseService).getBookByISBN("978-3-16-148410-0");
+    }
+
+    @Test
+    public void GivenFailedWrite_WhenBorrowed_RethrowAndDropCachedBook() {
+        cache.addBook("978-3-16-148410-0", new Book("978-3-16-148410-0", "The Islands", "David The Third"));
+        doThrow(new BookAlreadyBorrowedException("Book is already borrowed!"))
+                .when(mockDatabaseService).borrowBook(any(), any());
+
+        assertThrows(BookAlreadyBorrowedException.class, () -> cache.borrowBook("978-3-16-148410-0", "123456789012"));
+        cache.getBookByISBN("978-3-16-148410-0");
+
+        verify(mockDatabaseService).getBookByISBN("978-3-16-148410-0");
+    }
+
+    @Test
+    public void GivenInvalidation_WhenFetched_GoToDatabaseAgain() {
+        when(mockDatabaseService.getBookByISBN(any())).thenReturn(new Book("978-3-16-148410-0", "The Islands", "A"));
+        when(mockDatabaseService.getUserById(any())).thenReturn(mockUser);
+
+        cache.getBookByISBN("978-3-16-148410-0");
+        cache.getUserById("123456789012");
+        cache.invalidateBook("978-3-16-148410-0");
+        cache.invalidateUser("123456789012");
+        cache.getBookByISBN("978-3-16-148410-0");
+        cache.getUserById("123456789012");
+        cache.invalidateAll();
+
+        verify(mockDatabaseService, times(2)).getBookByISBN(any());
+        verify(mockDatabaseService, times(2)).getUserById(any());
+        assertEquals(0, cache.getBookStats().getSize());
+        assertEquals(0, cache.getUserStats().getSize());
+    }
+
+    @Test
+    public void GivenSomeCachedUsers_WhenFetchedInBatch_FetchOnlyMissesInOneCall() {
+        User other = mock(User.class);
+        cache.registerUser("123456789012", mockUser);
+        Map<String, User> fetched = new HashMap<>();
+        fetched.put("210987654321", other);
+        when(mockDatabaseService.getUsersById(Collections.singletonList("210987654321"))).thenReturn(fetched);
+
+        Map<String, User> users = cache.getUsersById(Arrays.asList("123456789012", "210987654321"));
+
+        assertSame(mockUser, users.get("123456789012"));
+        assertSame(other, users.get("210987654321"));
+        assertSame(other, cache.getUserById("210987654321"));
+        verify(mockDatabaseService, times(1)).getUsersById(any());
+        verify(mockDatabaseService, never()).getUserById(any());
+    }
+
+    @Test
+    public void GivenInvalidBounds_WhenConstructed_ThrowIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new CachingDatabaseService(null, 60, TimeUnit.SECONDS, 2, 2));
+        assertThrows(IllegalArgumentException.class,
+                () -> new CachingDatabaseService(mockDatabaseService, 0, TimeUnit.SECONDS, 2, 2));
+        assertThrows(IllegalArgumentException.class,
+                () -> new CachingDatabaseService(mockDatabaseService, 60, TimeUnit.SECONDS, 0, 2));
+    }
+}
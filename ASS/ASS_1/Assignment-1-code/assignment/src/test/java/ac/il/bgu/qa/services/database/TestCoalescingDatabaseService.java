@@ -0,0 +1,118 @@
+package ac.il.bgu.qa.services.database;
+
+import ac.il.bgu.qa.Book;
+import ac.il.bgu.qa.User;
+import ac.il.bgu.qa.services.DatabaseService;
+
+import org.junit.jupiter.api.*;
+import org.mockito.*;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestCoalescingDatabaseService {
+    @Mock
+    DatabaseService mockDatabaseService;
+    @Mock
+    User mockUser;
+    CoalescingDatabaseService database;
+
+    @BeforeEach
+    public void init() {
+        MockitoAnnotations.openMocks(this);
+        database = new CoalescingDatabaseService(mockDatabaseService);
+    }
+
+    @Test
+    public void GivenConcurrentLookupsOfSameBook_WhenInFlight_MakeOneLookup() throws InterruptedException {
+        Book book = new Book("978-3-16-148410-0", "The Islands", "David The Third");
+        CountDownLatch release = new CountDownLatch(1);
+        when(mockDatabaseService.getBookByISBN(any())).thenAnswer(invocation -> {
+            release.await();
+            return book;
+        });
+        Book[] books = new Book[4];
+
+        Thread[] threads = new Thread[books.length];
+        for (int t = 0; t < threads.length; t++) {
+            int index = t;
+            threads[t] = new Thread(() -> books[index] = database.getBookByISBN("978-3-16-148410-0"));
+            threads[t].start();
+        }
+        while (database.getCoalescedCount() < threads.length - 1) {
+            Thread.yield();
+        }
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        verify(mockDatabaseService, times(1)).getBookByISBN(any());
+        assertEquals(1, database.getLookupCount());
+        for (Book shared : books) {
+            assertSame(book, shared);
+        }
+    }
+
+    @Test
+    public void GivenFinishedLookup_WhenLookedUpAgain_DoNotCache() {
+        when(mockDatabaseService.getUserById("123456789012")).thenReturn(mockUser);
+
+        assertSame(mockUser, database.getUserById("123456789012"));
+        assertSame(mockUser, database.getUserById("123456789012"));
+
+        verify(mockDatabaseService, times(2)).getUserById("123456789012");
+        assertEquals(0, database.getCoalescedCount());
+    }
+
+    @Test
+    public void GivenWriteDuringLookup_WhenLookedUpAfterWrite_DoNotShareOlderLookup() {
+        Book book = new Book("978-3-16-148410-0", "The Islands", "David The Third");
+        when(mockDatabaseService.getBookByISBN(any())).thenReturn(book);
+
+        // The first lookup is still in flight when the book is borrowed and looked up again.
+        Book looked = database.getBookByISBN("978-3-16-148410-0");
+        when(mockDatabaseService.getBookByISBN(any())).thenAnswer(invocation -> {
+            database.borrowBook("978-3-16-148410-0", "123456789012");
+            return database.getBookByISBN("978-3-16-148410-0");
+        }).thenReturn(book);
+
+        assertSame(book, looked);
+        assertSame(book, database.getBookByISBN("978-3-16-148410-0"));
+        verify(mockDatabaseService).borrowBook("978-3-16-148410-0", "123456789012");
+        verify(mockDatabaseService, times(3)).getBookByISBN(any());
+    }
+
+    @Test
+    public void GivenLookupInFlight_WhenOtherSpellingIsLookedUp_MakeSeparateLookup() {
+        Book hyphenated = new Book("978-3-16-148410-0", "The Islands", "David The Third");
+        when(mockDatabaseService.getBookByISBN("978-3-16-148410-0")).thenAnswer(invocation -> {
+            // The delegate may answer another spelling of the same ISBN differently, so it is not shared.
+            assertNull(database.getBookByISBN("9783161484100"));
+            return hyphenated;
+        });
+
+        assertSame(hyphenated, database.getBookByISBN("978-3-16-148410-0"));
+
+        verify(mockDatabaseService).getBookByISBN("9783161484100");
+        assertEquals(2, database.getLookupCount());
+        assertEquals(0, database.getCoalescedCount());
+    }
+
+    @Test
+    public void GivenNullISBN_WhenLookedUp_PassThroughToDatabase() {
+        database.getBookByISBN(null);
+        database.getUserById(null);
+
+        verify(mockDatabaseService).getBookByISBN(null);
+        verify(mockDatabaseService).getUserById(null);
+        assertEquals(0, database.getLookupCount());
+    }
+
+    @Test
+    public void GivenNullDelegate_WhenConstructed_ThrowIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> new CoalescingDatabaseService(null));
+    }
+}
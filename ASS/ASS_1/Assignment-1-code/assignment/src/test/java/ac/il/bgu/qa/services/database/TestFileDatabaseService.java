@@ -0,0 +1,258 @@
+package ac.il.bgu.qa.services.database;
+
+import ac.il.bgu.qa.Book;
+import ac.il.bgu.qa.User;
+import ac.il.bgu.qa.services.NotificationService;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestFileDatabaseService {
+    @TempDir
+    Path directory;
+    @Mock
+    NotificationService mockNotificationService;
+    Function<String, NotificationService> notificationServices;
+    FileDatabaseService database;
+
+    @BeforeEach
+    public void init() throws IOException {
+        MockitoAnnotations.openMocks(this);
+        notificationServices = id -> mockNotificationService;
+        database = new FileDatabaseService(directory, notificationServices, false, 0);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        database.close();
+    }
+
+    @Test
+    public void GivenUpdates_WhenReopened_RecoverBooksUsersAndLoans() throws IOException {
+        Book book = new Book("978-3-16-148410-0", "The Islands", "David The Third");
+        Book other = new Book("978-0-306-40615-7", "The Lakes", "Dana");
+        User user = new User("david", "206515744111", mockNotificationService);
+        database.addBook(book.getISBN(), book);
+        database.addBook(other.getISBN(), other);
+        database.registerUser(user.getId(), user);
+        database.borrowBook(book.getISBN(), user.getId());
+        database.borrowBook(other.getISBN(), user.getId());
+        database.returnBook(other.getISBN());
+        long borrowedAt = database.getLoanLedger().getLoan(book.getISBN()).getBorrowedAt();
+
+        reopen();
+
+        Book recovered = database.getBookByISBN("978-3-16-148410-0");
+        assertEquals("The Islands", recovered.getTitle());
+        assertEquals("David The Third", recovered.getAuthor());
+        assertTrue(recovered.isBorrowed());
+        assertFalse(database.getBookByISBN(other.getISBN()).isBorrowed());
+        assertEquals("david", database.getUserById("206515744111").getName());
+        assertSame(mockNotificationService, database.getUserById("206515744111").getNotificationService());
+        assertEquals("206515744111", database.getBorrower(book.getISBN()).getId());
+        assertNull(database.getBorrower(other.getISBN()));
+        assertEquals(borrowedAt, database.getLoanLedger().getLoan(book.getISBN()).getBorrowedAt());
+        assertEquals(1, database.getLoanLedger().getLoanCount("206515744111"));
+    }
+
+    @Test
+    public void GivenSnapshotAndLaterUpdates_WhenReopened_RecoverBothAndDropOldLog() throws IOException {
+        Book book = new Book("978-3-16-148410-0", "The Islands", "David The Third");
+        User user = new User("david", "206515744111", mockNotificationService);
+        database.addBook(book.getISBN(), book);
+        database.registerUser(user.getId(), user);
+        database.borrowBook(book.getISBN(), user.getId());
+        long borrowedAt = database.getLoanLedger().getLoan(book.getISBN()).getBorrowedAt();
+        database.snapshot();
+        reopen();
+        assertEquals(borrowedAt, database.getLoanLedger().getLoan(book.getISBN()).getBorrowedAt());
+        database.returnBook(book.getISBN());
+        database.addBook("978-0-306-40615-7", new Book("978-0-306-40615-7", "The Lakes", "Dana"));
+
+        reopen();
+
+        assertEquals(2, database.getBookCount());
+        assertEquals(1, database.getUserCount());
+        assertFalse(database.getBookByISBN(book.getISBN()).isBorrowed());
+        assertNull(database.getBorrower(book.getISBN()));
+        assertEquals("The Lakes", database.getBookByISBN("978-0-306-40615-7").getTitle());
+        assertEquals(1, logFiles().size());
+    }
+
+    @Test
+    public void GivenTornRecordAtEndOfLog_WhenReopened_DiscardItAndKeepAppending() throws IOException {
+        database.addBook("978-3-16-148410-0", new Book("978-3-16-148410-0", "The Islands", "David The Third"));
+        database.addBook("978-0-306-40615-7", new Book("978-0-306-40615-7", "The Lakes", "Dana"));
+        database.close();
+
+        // Cut the last record short, as a crash in the middle of a write would.
+        Path log = logFiles().get(0);
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+        database = new FileDatabaseService(directory, notificationServices, false, 0);
+        assertEquals(1, database.getBookCount());
+        assertNull(database.getBookByISBN("978-0-306-40615-7"));
+
+        database.addBook("978-0-306-40615-7", new Book("978-0-306-40615-7", "The Lakes", "Dana"));
+        reopen();
+        assertEquals(2, database.getBookCount());
+    }
+
+    @Test
+    public void GivenTitleLongerThan64KB_WhenLoggedAndSnapshotted_RecoverIt() throws IOException {
+        StringBuilder title = new StringBuilder();
+        while (title.length() < 70_000) {
+            title.append("The Islands \u00e9 ");
+        }
+        Book book = new Book("978-3-16-148410-0", title.toString(), "David The Third");
+        database.addBook(book.getISBN(), book);
+
+        reopen();
+        assertEquals(title.toString(), database.getBookByISBN(book.getISBN()).getTitle());
+
+        database.snapshot();
+        database.addBook("978-0-306-40615-7", new Book("978-0-306-40615-7", "The Lakes", "Dana"));
+        reopen();
+        assertEquals(title.toString(), database.getBookByISBN(book.getISBN()).getTitle());
+        assertEquals(2, database.getBookCount());
+    }
+
+    @Test
+    public void GivenInvalidUpdate_WhenApplied_ThrowAndLogNothing() throws IOException {
+        assertThrows(IllegalArgumentException.class, () -> database.addBook("not an isbn",
+                new Book("not an isbn", "The Islands", "David The Third")));
+
+        reopen();
+        assertEquals(0, database.getBookCount());
+        assertEquals(0, database.getSyncCount());
+    }
+
+    @Test
+    public void GivenConcurrentWriters_WhenAddingBooks_CommitTogetherAndKeepEveryBook() throws Exception {
+        database.close();
+        database = new FileDatabaseService(directory, notificationServices, true, 0);
+        int threads = 4;
+        int perThread = 50;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int offset = t * perThread;
+            Thread writer = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    String isbn = isbn(offset + i);
+                    database.addBook(isbn, new Book(isbn, "Title", "Author"));
+                }
+            });
+            writer.start();
+            writers.add(writer);
+        }
+        start.countDown();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        assertTrue(database.getSyncCount() <= threads * perThread);
+        reopen();
+        assertEquals(threads * perThread, database.getBookCount());
+    }
+
+    @Test
+    public void GivenSnapshotInterval_WhenExceeded_TakeSnapshotInBackground() throws Exception {
+        database.close();
+        database = new FileDatabaseService(directory, notificationServices, false, 10);
+        for (int i = 0; i < 25; i++) {
+            database.addBook(isbn(i), new Book(isbn(i), "Title", "Author"));
+        }
+        database.close();
+
+        assertTrue(Files.exists(directory.resolve("snapshot.bin")));
+        reopen();
+        assertEquals(25, database.getBookCount());
+    }
+
+    @Test
+    public void GivenClosedDatabase_WhenUpdating_ThrowIllegalStateException() throws IOException {
+        database.close();
+
+        assertThrows(IllegalStateException.class,
+                () -> database.addBook("978-3-16-148410-0", new Book("978-3-16-148410-0", "T", "A")));
+    }
+
+    @Test
+    public void GivenFailingLogWrite_WhenUpdating_ThrowAndKeepUpdateOnlyUntilReopened() throws IOException {
+        database.close();
+        AtomicBoolean failing = new AtomicBoolean();
+        database = new FileDatabaseService(directory, notificationServices, false, 0) {
+            @Override
+            void writeLog(ByteBuffer buffer) throws IOException {
+                if (failing.get()) {
+                    throw new IOException("Disk full");
+                }
+                super.writeLog(buffer);
+            }
+        };
+        database.addBook("978-3-16-148410-0", new Book("978-3-16-148410-0", "The Islands", "David The Third"));
+
+        failing.set(true);
+        UncheckedIOException exception = assertThrows(UncheckedIOException.class,
+                () -> database.addBook("978-0-306-40615-7", new Book("978-0-306-40615-7", "The Lakes", "Dana")));
+        assertEquals("Disk full", exception.getCause().getMessage());
+        assertNotNull(database.getBookByISBN("978-0-306-40615-7"));
+        failing.set(false);
+        assertThrows(UncheckedIOException.class,
+                () -> database.addBook("978-1-86197-876-9", new Book("978-1-86197-876-9", "The Seas", "Dana")));
+
+        reopen();
+        assertNotNull(database.getBookByISBN("978-3-16-148410-0"));
+        assertNull(database.getBookByISBN("978-0-306-40615-7"));
+        assertEquals(1, database.getBookCount());
+    }
+
+    private void reopen() throws IOException {
+        database.close();
+        database = new FileDatabaseService(directory, notificationServices, false, 0);
+    }
+
+    private List<Path> logFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".wal")).collect(Collectors.toList());
+        }
+    }
+
+    // Generates the n-th valid ISBN-13 in the 978 range.
+    private static String isbn(int n) {
+        long body = 978_000_000_000L + n;
+        int sum = 0;
+        long rest = body;
+        for (int position = 11; position >= 0; position--) {
+            int digit = (int) (rest % 10);
+            rest /= 10;
+            sum += (position & 1) == 0 ? digit : digit * 3;
+        }
+        return Long.toString(body * 10 + (10 - sum % 10) % 10);
+    }
+}
@@ -0,0 +1,93 @@
+package ac.il.bgu.qa.services.database;
+
+import ac.il.bgu.qa.Book;
+import ac.il.bgu.qa.User;
+import ac.il.bgu.qa.errors.BookNotFoundException;
+import ac.il.bgu.qa.errors.UserNotRegisteredException;
+import ac.il.bgu.qa.services.NotificationService;
+
+import org.junit.jupiter.api.*;
+import org.mockito.*;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestInMemoryDatabaseService {
+    @Mock
+    NotificationService mockNotificationService;
+    InMemoryDatabaseService database;
+
+    @BeforeEach
+    public void init() {
+        MockitoAnnotations.openMocks(this);
+        database = new InMemoryDatabaseService();
+    }
+
+    @Test
+    public void GivenAddedBook_WhenGetBookByISBN_ReturnBookRegardlessOfHyphens() {
+        Book book = new Book("978-3-16-148410-0", "The Islands", "David The Third");
+        database.addBook(book.getISBN(), book);
+
+        assertSame(book, database.getBookByISBN("978-3-16-148410-0"));
+        assertSame(book, database.getBookByISBN("9783161484100"));
+        assertNull(database.getBookByISBN("978-0-306-40615-7"));
+        assertNull(database.getBookByISBN("not an isbn"));
+        assertEquals(1, database.getBookCount());
+    }
+
+    @Test
+    public void GivenInvalidKeys_WhenAdding_TriggerIllegalArgumentException() {
+        Book book = new Book("978-3-16-148410-9", "The Islands", "David The Third");
+        User user = new User("david", "55A671245621", mockNotificationService);
+
+        assertEquals("Invalid ISBN.", assertThrows(IllegalArgumentException.class,
+                () -> database.addBook(book.getISBN(), book)).getMessage());
+        assertEquals("Invalid user Id.", assertThrows(IllegalArgumentException.class,
+                () -> database.registerUser(user.getId(), user)).getMessage());
+    }
+
+    @Test
+    public void GivenRegisteredUser_WhenBorrowAndReturnBook_TrackBorrower() {
+        Book book = new Book("978-3-16-148410-0", "The Islands", "David The Third");
+        User user = new User("david", "206515744111", mockNotificationService);
+        database.addBook(book.getISBN(), book);
+        database.registerUser(user.getId(), user);
+
+        assertSame(user, database.getUserById("206515744111"));
+        database.borrowBook(book.getISBN(), user.getId());
+        assertSame(user, database.getBorrower(book.getISBN()));
+        assertEquals("9783161484100", database.getLoanLedger().getLoansOf("206515744111").get(0).getISBN());
+
+        database.returnBook(book.getISBN());
+        assertNull(database.getBorrower(book.getISBN()));
+        assertEquals(0, database.getLoanLedger().getLoanCount("206515744111"));
+    }
+
+    @Test
+    public void GivenMissingBookOrUser_WhenBorrowBook_TriggerNotFoundExceptions() {
+        Book book = new Book("978-3-16-148410-0", "The Islands", "David The Third");
+
+        assertThrows(BookNotFoundException.class, () -> database.borrowBook(book.getISBN(), "206515744111"));
+        database.addBook(book.getISBN(), book);
+        assertThrows(UserNotRegisteredException.class, () -> database.borrowBook(book.getISBN(), "206515744111"));
+        assertThrows(BookNotFoundException.class, () -> database.returnBook("978-0-306-40615-7"));
+    }
+
+    @Test
+    public void GivenRegisteredUsers_WhenGetUsersById_ReturnOnlyRegisteredKeyedAsRequested() {
+        User david = new User("david", "206515744111", mockNotificationService);
+        User dana = new User("dana", "206515744112", mockNotificationService);
+        database.registerUser(david.getId(), david);
+        database.registerUser(dana.getId(), dana);
+
+        Map<String, User> found = database.getUsersById(Arrays.asList("206515744111", "206515744112",
+                "206515744113", "not an id"));
+
+        assertEquals(2, found.size());
+        assertSame(david, found.get("206515744111"));
+        assertSame(dana, found.get("206515744112"));
+    }
+
+}
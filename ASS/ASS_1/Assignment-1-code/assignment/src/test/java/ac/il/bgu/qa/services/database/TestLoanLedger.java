@@ -0,0 +1,100 @@
+package ac.il.bgu.qa.services.database;
+
+import org.junit.jupiter.api.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestLoanLedger {
+    static final long BOOK_1 = 9783161484100L;
+    static final long BOOK_2 = 9780306406157L;
+    static final long BOOK_3 = 9781861978769L;
+    static final long USER_1 = 206515744111L;
+    static final long USER_2 = 123456789012L;
+
+    AtomicLong now;
+    LoanLedger ledger;
+
+    @BeforeEach
+    public void init() {
+        now = new AtomicLong(1_000_000);
+        ledger = new LoanLedger(now::get);
+    }
+
+    @Test
+    public void GivenLoans_WhenQueryingByBookAndUser_ReturnBothWays() {
+        ledger.borrow(BOOK_1, USER_1);
+        now.addAndGet(10);
+        ledger.borrow(BOOK_2, USER_1);
+        ledger.borrow(BOOK_3, USER_2);
+
+        Loan loan = ledger.getLoan("978-3-16-148410-0");
+        assertEquals("9783161484100", loan.getISBN());
+        assertEquals("206515744111", loan.getUserId());
+        assertEquals(1_000_000, loan.getBorrowedAt());
+        assertEquals(USER_2, ledger.borrowerOf(BOOK_3));
+
+        Set<String> held = new HashSet<>();
+        for (Loan userLoan : ledger.getLoansOf("206515744111")) {
+            held.add(userLoan.getISBN());
+        }
+        assertEquals(new HashSet<>(Arrays.asList("9783161484100", "9780306406157")), held);
+        assertEquals(2, ledger.getLoanCount("206515744111"));
+        assertEquals(0, ledger.getLoanCount("999999999999"));
+        assertTrue(ledger.getLoansOf("not an id").isEmpty());
+        assertEquals(3, ledger.size());
+    }
+
+    @Test
+    public void GivenReturnedBooks_WhenQuerying_ForgetTheirLoans() {
+        ledger.borrow(BOOK_1, USER_1);
+        ledger.borrow(BOOK_2, USER_1);
+
+        assertTrue(ledger.release(BOOK_1));
+        assertFalse(ledger.release(BOOK_1));
+        assertNull(ledger.getLoan("978-3-16-148410-0"));
+        assertEquals(1, ledger.getLoanCount("206515744111"));
+        assertTrue(ledger.release(BOOK_2));
+        assertTrue(ledger.getLoansOf("206515744111").isEmpty());
+        assertEquals(0, ledger.size());
+        assertTrue(ledger.getLoansBefore(Long.MAX_VALUE).isEmpty());
+    }
+
+    @Test
+    public void GivenLoansOverTime_WhenGettingOverdueLoans_ReturnOldestFirst() {
+        ledger.borrow(BOOK_1, USER_1);
+        now.addAndGet(TimeUnit.DAYS.toMillis(10));
+        ledger.borrow(BOOK_2, USER_2);
+        now.addAndGet(TimeUnit.DAYS.toMillis(10));
+        ledger.borrow(BOOK_3, USER_1);
+        now.addAndGet(TimeUnit.DAYS.toMillis(10));
+
+        List<Loan> overdue = ledger.getOverdueLoans(14, TimeUnit.DAYS);
+        assertEquals(2, overdue.size());
+        assertEquals("9783161484100", overdue.get(0).getISBN());
+        assertEquals("9780306406157", overdue.get(1).getISBN());
+
+        ledger.release(BOOK_1);
+        assertEquals(1, ledger.getOverdueLoans(14, TimeUnit.DAYS).size());
+        assertEquals(0, ledger.getOverdueLoans(30, TimeUnit.DAYS).size());
+        assertThrows(IllegalArgumentException.class, () -> ledger.getOverdueLoans(-1, TimeUnit.DAYS));
+    }
+
+    @Test
+    public void GivenBorrowedBook_WhenBorrowedAgainWithoutReturn_MoveLoanToNewUser() {
+        ledger.borrow(BOOK_1, USER_1);
+        now.addAndGet(100);
+        ledger.borrow(BOOK_1, USER_2);
+
+        assertEquals(0, ledger.getLoanCount("206515744111"));
+        assertEquals(1, ledger.getLoanCount("123456789012"));
+        assertEquals(1_000_100, ledger.getLoan("9783161484100").getBorrowedAt());
+        assertEquals(1, ledger.size());
+    }
+}
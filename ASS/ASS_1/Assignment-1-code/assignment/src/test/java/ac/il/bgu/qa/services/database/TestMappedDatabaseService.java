@@ -0,0 +1,180 @@
+package ac.il.bgu.qa.services.database;
+
+import ac.il.bgu.qa.Book;
+import ac.il.bgu.qa.User;
+import ac.il.bgu.qa.errors.BookNotFoundException;
+import ac.il.bgu.qa.errors.UserNotRegisteredException;
+import ac.il.bgu.qa.services.NotificationService;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestMappedDatabaseService {
+    @TempDir
+    Path directory;
+    @Mock
+    NotificationService mockNotificationService;
+    MappedDatabaseService database;
+
+    @BeforeEach
+    public void init() throws IOException {
+        MockitoAnnotations.openMocks(this);
+        database = new MappedDatabaseService(directory);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        database.close();
+    }
+
+    @Test
+    public void GivenAddedBook_WhenGetBookByISBN_ReturnViewWithSameDetails() {
+        database.addBook("978-3-16-148410-0", new Book("978-3-16-148410-0", "Les \u00CEles", "David The Third"));
+        database.addBook("978-0-306-40615-7", new Book("978-0-306-40615-7", null, ""));
+
+        Book book = database.getBookByISBN("9783161484100");
+        assertEquals("978-3-16-148410-0", book.getISBN());
+        assertEquals("Les \u00CEles", book.getTitle());
+        assertEquals("David The Third", book.getAuthor());
+        assertFalse(book.isBorrowed());
+        Book other = database.getBookByISBN("978-0-306-40615-7");
+        assertNull(other.getTitle());
+        assertEquals("", other.getAuthor());
+        assertNull(database.getBookByISBN("978-1-86197-876-9"));
+        assertNull(database.getBookByISBN("not an isbn"));
+        assertEquals(2, database.getBookCount());
+    }
+
+    @Test
+    public void GivenTwoViewsOfBook_WhenBorrowAndReturn_ShareTheFlag() {
+        database.addBook("978-3-16-148410-0", new Book("978-3-16-148410-0", "The Islands", "David The Third"));
+        Book first = database.getBookByISBN("978-3-16-148410-0");
+        Book second = database.getBookByISBN("978-3-16-148410-0");
+
+        first.borrow();
+        assertTrue(second.isBorrowed());
+        assertEquals("Book is already borrowed!", assertThrows(IllegalStateException.class, second::borrow).getMessage());
+        second.returnBook();
+        assertFalse(first.isBorrowed());
+        assertThrows(IllegalStateException.class, first::returnBook);
+    }
+
+    @Test
+    public void GivenBorrowedBook_WhenReopened_KeepDetailsAndBorrowedFlag() throws IOException {
+        database.addBook("978-3-16-148410-0", new Book("978-3-16-148410-0", "The Islands", "David The Third"));
+        database.getBookByISBN("978-3-16-148410-0").borrow();
+        database.close();
+
+        database = new MappedDatabaseService(directory);
+
+        Book book = database.getBookByISBN("978-3-16-148410-0");
+        assertEquals("The Islands", book.getTitle());
+        assertTrue(book.isBorrowed());
+        assertEquals(1, database.getBookCount());
+    }
+
+    @Test
+    public void GivenBorrowedBooks_WhenCheckingAvailability_AnswerFromBitmapAndKeepItOnReopen() throws IOException {
+        database.addBook("978-3-16-148410-0", new Book("978-3-16-148410-0", "The Islands", "David The Third"));
+        database.addBook("978-0-306-40615-7", new Book("978-0-306-40615-7", "The Lakes", "Dana"));
+        Book added = new Book("978-1-86197-876-9", "The Rivers", "Dana");
+        added.borrow();
+        database.addBook(added.getISBN(), added);
+        database.getBookByISBN("978-3-16-148410-0").borrow();
+
+        assertTrue(database.isBorrowed("9783161484100"));
+        assertFalse(database.isBorrowed("978-0-306-40615-7"));
+        assertFalse(database.isBorrowed("978-0-19-852663-6"));
+        assertEquals(2, database.getBorrowedCount());
+        assertEquals(1, database.countBorrowed(Arrays.asList("978-3-16-148410-0", "9783161484100",
+                "978-0-306-40615-7", "not an isbn")));
+
+        database.close();
+        database = new MappedDatabaseService(directory);
+        assertEquals(2, database.getBorrowedCount());
+        database.getBookByISBN("978-1-86197-876-9").returnBook();
+        assertEquals(1, database.getBorrowedCount());
+        assertFalse(database.isBorrowed("978-1-86197-876-9"));
+    }
+
+    @Test
+    public void GivenBookAddedAgain_WhenGetBookByISBN_ReturnNewDetailsInSameRecord() {
+        database.addBook("978-3-16-148410-0", new Book("978-3-16-148410-0", "The Islands", "David The Third"));
+        Book before = database.getBookByISBN("978-3-16-148410-0");
+        before.borrow();
+
+        database.addBook("9783161484100", new Book("9783161484100", "The Lakes", "Dana"));
+
+        Book after = database.getBookByISBN("978-3-16-148410-0");
+        assertEquals("The Lakes", after.getTitle());
+        assertFalse(after.isBorrowed());
+        // A view taken before keeps its details, which are never overwritten.
+        assertEquals("The Islands", before.getTitle());
+        assertEquals(1, database.getBookCount());
+    }
+
+    @Test
+    public void GivenSmallSegments_WhenAddingManyBooks_SpanSegmentsAndGrowIndex() throws IOException {
+        database.close();
+        database = new MappedDatabaseService(directory.resolve("small"), 1, 7, 64);
+        for (int i = 0; i < 500; i++) {
+            database.addBook(isbn(i), new Book(isbn(i), "Title number " + i, "Author " + i));
+        }
+        database.close();
+        database = new MappedDatabaseService(directory.resolve("small"), 1, 7, 64);
+
+        assertEquals(500, database.getBookCount());
+        for (int i = 0; i < 500; i++) {
+            Book book = database.getBookByISBN(isbn(i));
+            assertEquals(isbn(i), book.getISBN());
+            assertEquals("Title number " + i, book.getTitle());
+            assertEquals("Author " + i, book.getAuthor());
+        }
+    }
+
+    @Test
+    public void GivenRegisteredUser_WhenBorrowAndReturnBook_TrackBorrower() {
+        Book book = new Book("978-3-16-148410-0", "The Islands", "David The Third");
+        User user = new User("david", "206515744111", mockNotificationService);
+        database.addBook(book.getISBN(), book);
+        database.registerUser(user.getId(), user);
+
+        assertSame(user, database.getUserById("206515744111"));
+        database.borrowBook(book.getISBN(), user.getId());
+        assertSame(user, database.getBorrower(book.getISBN()));
+        database.returnBook(book.getISBN());
+        assertNull(database.getBorrower(book.getISBN()));
+
+        assertThrows(BookNotFoundException.class, () -> database.borrowBook("978-0-306-40615-7", user.getId()));
+        assertThrows(UserNotRegisteredException.class, () -> database.borrowBook(book.getISBN(), "123456789012"));
+        assertThrows(BookNotFoundException.class, () -> database.returnBook("978-0-306-40615-7"));
+    }
+
+    @Test
+    public void GivenInvalidKeys_WhenAdding_TriggerIllegalArgumentException() {
+        assertEquals("Invalid ISBN.", assertThrows(IllegalArgumentException.class,
+                () -> database.addBook("978-3-16-148410-9", new Book("978-3-16-148410-9", "T", "A"))).getMessage());
+        assertEquals("Invalid user Id.", assertThrows(IllegalArgumentException.class,
+                () -> database.registerUser("55A671245621", new User("david", "55A671245621", null))).getMessage());
+    }
+
+    // Generates the n-th valid ISBN-13 in the 978 range.
+    private static String isbn(int n) {
+        long body = 978_000_000_000L + n;
+        int sum = 0;
+        long rest = body;
+        for (int position = 11; position >= 0; position--) {
+            int digit = (int) (rest % 10);
+            rest /= 10;
+            sum += (position & 1) == 0 ? digit : digit * 3;
+        }
+        return Long.toString(body * 10 + (10 - sum % 10) % 10);
+    }
+}
@@ -0,0 +1,164 @@
+package ac.il.bgu.qa.services.review;
+
+import ac.il.bgu.qa.errors.ReviewException;
+import ac.il.bgu.qa.services.ReviewService;
+
+import org.junit.jupiter.api.*;
+import org.mockito.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestCachingReviewService {
+    @Mock
+    ReviewService mockReviewService;
+    AtomicLong now;
+    CachingReviewService cache;
+
+    @BeforeEach
+    public void init() {
+        MockitoAnnotations.openMocks(this);
+        now = new AtomicLong();
+        cache = new CachingReviewService(mockReviewService, 60, 10, TimeUnit.SECONDS, 2, 1_000_000, now::get);
+    }
+
+    @Test
+    public void GivenCachedReviews_WhenFetchedAgainBeforeExpiry_ServeFromCacheAndSkipClose() {
+        when(mockReviewService.getReviewsForBook("978-3-16-148410-0")).thenReturn(Arrays.asList("Amazing Book!"));
+
+        assertEquals(Collections.singletonList("Amazing Book!"), cache.getReviewsForBook("978-3-16-148410-0"));
+        cache.close();
+        now.addAndGet(TimeUnit.SECONDS.toNanos(59));
+        assertEquals(Collections.singletonList("Amazing Book!"), cache.getReviewsForBook("978-3-16-148410-0"));
+        cache.close();
+
+        verify(mockReviewService, times(1)).getReviewsForBook("978-3-16-148410-0");
+        verify(mockReviewService, times(1)).close();
+        assertEquals(1, cache.getStats().getHits());
+        assertEquals(1, cache.getStats().getMisses());
+    }
+
+    @Test
+    public void GivenExpiredReviews_WhenFetched_GoToReviewServiceAgain() {
+        when(mockReviewService.getReviewsForBook(any())).thenReturn(Arrays.asList("Amazing Book!"));
+
+        cache.getReviewsForBook("978-3-16-148410-0");
+        now.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        cache.getReviewsForBook("978-3-16-148410-0");
+
+        verify(mockReviewService, times(2)).getReviewsForBook("978-3-16-148410-0");
+        assertEquals(0, cache.getStats().getEvictions());
+    }
+
+    @Test
+    public void GivenBookWithoutReviews_WhenFetched_CacheAbsenceForShorterTime() {
+        when(mockReviewService.getReviewsForBook(any())).thenReturn(Collections.emptyList());
+
+        assertTrue(cache.getReviewsForBook("978-3-16-148410-0").isEmpty());
+        now.addAndGet(TimeUnit.SECONDS.toNanos(9));
+        assertTrue(cache.getReviewsForBook("978-3-16-148410-0").isEmpty());
+        verify(mockReviewService, times(1)).getReviewsForBook(any());
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        cache.getReviewsForBook("978-3-16-148410-0");
+        verify(mockReviewService, times(2)).getReviewsForBook(any());
+    }
+
+    @Test
+    public void GivenMissInFlight_WhenAnotherThreadClosesAfterHit_CloseOnlyAfterMiss() throws InterruptedException {
+        CountDownLatch fetching = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(mockReviewService.getReviewsForBook("978-3-16-148410-0")).thenReturn(Arrays.asList("Amazing Book!"));
+        when(mockReviewService.getReviewsForBook("978-0-306-40615-7")).thenAnswer(invocation -> {
+            fetching.countDown();
+            release.await();
+            return Arrays.asList("Could not put it down.");
+        });
+        cache.getReviewsForBook("978-3-16-148410-0");
+        cache.close();
+
+        Thread miss = new Thread(() -> {
+            cache.getReviewsForBook("978-0-306-40615-7");
+            cache.close();
+        });
+        miss.start();
+        fetching.await();
+        cache.getReviewsForBook("978-3-16-148410-0");
+        cache.close();
+        verify(mockReviewService, times(1)).close();
+
+        release.countDown();
+        miss.join();
+        verify(mockReviewService, times(2)).close();
+    }
+
+    @Test
+    public void GivenMissInFlight_WhenInvalidated_DoNotCacheFetchedReviews() throws InterruptedException {
+        CountDownLatch fetching = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(mockReviewService.getReviewsForBook("978-3-16-148410-0")).thenAnswer(invocation -> {
+            fetching.countDown();
+            release.await();
+            return Arrays.asList("Amazing Book!");
+        }).thenReturn(Arrays.asList("Amazing Book!", "Could not put it down."));
+
+        Thread miss = new Thread(() -> cache.getReviewsForBook("978-3-16-148410-0"));
+        miss.start();
+        fetching.await();
+        cache.invalidate("978-3-16-148410-0");
+        release.countDown();
+        miss.join();
+
+        assertEquals(0, cache.getStats().getSize());
+        assertEquals(Arrays.asList("Amazing Book!", "Could not put it down."),
+                cache.getReviewsForBook("978-3-16-148410-0"));
+        verify(mockReviewService, times(2)).getReviewsForBook("978-3-16-148410-0");
+    }
+
+    @Test
+    public void GivenReviewServiceFailure_WhenFetched_DoNotCacheFailure() {
+        when(mockReviewService.getReviewsForBook(any()))
+                .thenThrow(new ReviewException("Review service unavailable!"))
+                .thenReturn(Arrays.asList("Amazing Book!"));
+
+        assertThrows(ReviewException.class, () -> cache.getReviewsForBook("978-3-16-148410-0"));
+        assertEquals(Collections.singletonList("Amazing Book!"), cache.getReviewsForBook("978-3-16-148410-0"));
+    }
+
+    @Test
+    public void GivenFullCache_WhenAddingBooks_EvictLeastRecentlyUsed() {
+        when(mockReviewService.getReviewsForBook(any())).thenReturn(Arrays.asList("Amazing Book!"));
+
+        cache.getReviewsForBook("A");
+        cache.getReviewsForBook("B");
+        cache.getReviewsForBook("A"); //B is now the least recently used
+        cache.getReviewsForBook("C");
+
+        assertEquals(1, cache.getStats().getEvictions());
+        assertEquals(2, cache.getStats().getSize());
+        cache.getReviewsForBook("A");
+        verify(mockReviewService, times(1)).getReviewsForBook("A");
+        cache.getReviewsForBook("B");
+        verify(mockReviewService, times(2)).getReviewsForBook("B");
+    }
+
+    @Test
+    public void GivenByteBound_WhenAddingLargeReviews_EvictToStayWithinBound() {
+        List<String> large = Collections.nCopies(10, "0123456789012345678901234567890123456789");
+        when(mockReviewService.getReviewsForBook(any())).thenReturn(large);
+        cache = new CachingReviewService(mockReviewService, 60, 10, TimeUnit.SECONDS, 100, 2_000, now::get);
+
+        cache.getReviewsForBook("A");
+        cache.getReviewsForBook("B");
+
+        assertTrue(cache.getEstimatedBytes() <= 2_000);
+        assertEquals(1, cache.getStats().getEvictions());
+    }
+}
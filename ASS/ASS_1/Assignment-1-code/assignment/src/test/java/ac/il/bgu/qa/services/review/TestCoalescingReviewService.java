@@ -0,0 +1,108 @@
+package ac.il.bgu.qa.services.review;
+
+import ac.il.bgu.qa.errors.ReviewException;
+import ac.il.bgu.qa.services.ReviewService;
+
+import org.junit.jupiter.api.*;
+import org.mockito.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestCoalescingReviewService {
+    @Mock
+    ReviewService mockReviewService;
+    CoalescingReviewService reviews;
+
+    @BeforeEach
+    public void init() {
+        MockitoAnnotations.openMocks(this);
+        reviews = new CoalescingReviewService(mockReviewService);
+    }
+
+    @Test
+    public void GivenConcurrentFetchesOfSameBook_WhenInFlight_MakeOneFetchAndCloseOnce() throws InterruptedException {
+        List<String> fetched = Arrays.asList("Amazing Book!", "Could not put it down.");
+        CountDownLatch release = new CountDownLatch(1);
+        when(mockReviewService.getReviewsForBook("978-3-16-148410-0")).thenAnswer(invocation -> {
+            release.await();
+            return fetched;
+        });
+        AtomicInteger sameList = new AtomicInteger();
+
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                if (reviews.getReviewsForBook("978-3-16-148410-0") == fetched) {
+                    sameList.incrementAndGet();
+                }
+            });
+            threads[t].start();
+        }
+        while (reviews.getCoalescedCount() < threads.length - 1) {
+            Thread.yield();
+        }
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (int t = 0; t < threads.length; t++) {
+            reviews.close();
+        }
+
+        assertEquals(threads.length, sameList.get());
+        assertEquals(1, reviews.getFetchCount());
+        verify(mockReviewService, times(1)).getReviewsForBook(any());
+        verify(mockReviewService, times(1)).close();
+    }
+
+    @Test
+    public void GivenFetchOfOtherBookInFlight_WhenClosed_CloseOnlyAfterThatFetch() throws InterruptedException {
+        CountDownLatch fetching = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(mockReviewService.getReviewsForBook("978-3-16-148410-0")).thenReturn(Arrays.asList("Amazing Book!"));
+        when(mockReviewService.getReviewsForBook("978-0-306-40615-7")).thenAnswer(invocation -> {
+            fetching.countDown();
+            release.await();
+            return Arrays.asList("Could not put it down.");
+        });
+
+        Thread slow = new Thread(() -> {
+            reviews.getReviewsForBook("978-0-306-40615-7");
+            reviews.close();
+        });
+        slow.start();
+        fetching.await();
+        reviews.getReviewsForBook("978-3-16-148410-0");
+        reviews.close();
+        verify(mockReviewService, never()).close();
+
+        release.countDown();
+        slow.join();
+        verify(mockReviewService, times(1)).close();
+    }
+
+    @Test
+    public void GivenReviewServiceFailure_WhenFetchedAgain_DoNotKeepFailure() {
+        when(mockReviewService.getReviewsForBook(any()))
+                .thenThrow(new ReviewException("Review service unavailable!"))
+                .thenReturn(Arrays.asList("Amazing Book!"));
+
+        assertThrows(ReviewException.class, () -> reviews.getReviewsForBook("978-3-16-148410-0"));
+        assertEquals(Arrays.asList("Amazing Book!"), reviews.getReviewsForBook("978-3-16-148410-0"));
+
+        verify(mockReviewService, times(2)).getReviewsForBook("978-3-16-148410-0");
+    }
+
+    @Test
+    public void GivenUnusedService_WhenClosed_DoNotCloseDelegate() {
+        reviews.close();
+
+        verify(mockReviewService, never()).close();
+    }
+}
@@ -0,0 +1,115 @@
+package ac.il.bgu.qa.services.review;
+
+import ac.il.bgu.qa.errors.ReviewServiceUnavailableException;
+import ac.il.bgu.qa.services.ReviewService;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestReviewServicePool {
+    List<ReviewService> created;
+    AtomicBoolean healthy;
+    AtomicLong now;
+    ReviewServicePool pool;
+
+    @BeforeEach
+    public void init() {
+        created = new ArrayList<>();
+        healthy = new AtomicBoolean(true);
+        now = new AtomicLong();
+        pool = new ReviewServicePool(() -> {
+            ReviewService service = mock(ReviewService.class);
+            created.add(service);
+            return service;
+        }, service -> healthy.get(), 2, 60, 0, TimeUnit.SECONDS, now::get);
+    }
+
+    @Test
+    public void GivenReleasedConnection_WhenBorrowedAgain_ReuseItWithoutClosing() {
+        ReviewService first = pool.borrow();
+        pool.release(first);
+        ReviewService second = pool.borrow();
+
+        assertSame(first, second);
+        assertEquals(1, created.size());
+        verify(first, never()).close();
+    }
+
+    @Test
+    public void GivenUnhealthyIdleConnection_WhenBorrowing_CloseItAndCreateNewOne() {
+        ReviewService first = pool.borrow();
+        pool.release(first);
+        healthy.set(false);
+
+        ReviewService second = pool.borrow();
+
+        assertNotSame(first, second);
+        verify(first, times(1)).close();
+    }
+
+    @Test
+    public void GivenConnectionIdleTooLong_WhenBorrowing_CloseItAndCreateNewOne() {
+        ReviewService first = pool.borrow();
+        pool.release(first);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(61));
+
+        ReviewService second = pool.borrow();
+
+        assertNotSame(first, second);
+        verify(first, times(1)).close();
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    @Test
+    public void GivenAllConnectionsBorrowed_WhenBorrowing_ThrowReviewServiceUnavailableException() {
+        pool.borrow();
+        pool.borrow();
+
+        assertThrows(ReviewServiceUnavailableException.class, () -> pool.borrow());
+    }
+
+    @Test
+    public void GivenInvalidatedConnection_WhenBorrowing_CloseItAndFreeItsSlot() {
+        ReviewService first = pool.borrow();
+        pool.borrow();
+        pool.invalidate(first);
+
+        ReviewService third = pool.borrow();
+
+        assertNotSame(first, third);
+        verify(first, times(1)).close();
+        assertEquals(3, created.size());
+    }
+
+    @Test
+    public void GivenFactoryFailure_WhenBorrowing_ThrowReviewServiceUnavailableExceptionAndKeepSlot() {
+        ReviewServicePool failing = new ReviewServicePool(() -> {
+            throw new IllegalStateException("Connection refused");
+        }, service -> true, 1, 60, 0, TimeUnit.SECONDS);
+
+        assertThrows(ReviewServiceUnavailableException.class, failing::borrow);
+        assertThrows(ReviewServiceUnavailableException.class, failing::borrow);
+    }
+
+    @Test
+    public void GivenClosedPool_WhenClosing_CloseIdleConnectionsAndRejectBorrows() {
+        ReviewService first = pool.borrow();
+        ReviewService second = pool.borrow();
+        pool.release(first);
+
+        pool.close();
+        pool.release(second);
+
+        verify(first, times(1)).close();
+        verify(second, times(1)).close();
+        assertThrows(ReviewServiceUnavailableException.class, () -> pool.borrow());
+    }
+}
@@ -0,0 +1,84 @@
+package ac.il.bgu.qa.util;
+
+import org.junit.jupiter.api.*;
+
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestAtomicBitSet {
+
+    @Test
+    public void GivenEmptySet_WhenSettingAndClearing_ReportChangesAndCount() {
+        AtomicBitSet bits = new AtomicBitSet(100);
+
+        assertTrue(bits.set(0));
+        assertTrue(bits.set(63));
+        assertTrue(bits.set(64));
+        assertFalse(bits.set(64));
+        assertTrue(bits.get(63));
+        assertFalse(bits.get(62));
+        assertEquals(3, bits.cardinality());
+
+        assertTrue(bits.clear(63));
+        assertFalse(bits.clear(63));
+        assertEquals(2, bits.cardinality());
+        assertFalse(bits.get(1_000_000));
+        assertThrows(IndexOutOfBoundsException.class, () -> bits.set(1_000_000));
+    }
+
+    @Test
+    public void GivenGrownSet_WhenCountingRanges_MatchBitSet() {
+        AtomicBitSet bits = new AtomicBitSet();
+        bits.ensureCapacity(600_000);
+        BitSet expected = new BitSet();
+        Random random = new Random(42);
+        for (int i = 0; i < 50_000; i++) {
+            int index = random.nextInt(600_000);
+            bits.set(index);
+            expected.set(index);
+        }
+
+        assertEquals(expected.cardinality(), bits.cardinality());
+        assertEquals(expected.cardinality(), bits.cardinality(0, 600_000));
+        for (int i = 0; i < 1_000; i++) {
+            int from = random.nextInt(600_000);
+            int to = from + random.nextInt(600_000 - from + 1);
+            assertEquals(expected.get(from, to).cardinality(), bits.cardinality(from, to), from + ".." + to);
+        }
+        assertEquals(0, bits.cardinality(5, 5));
+    }
+
+    @Test
+    public void GivenConcurrentSetters_WhenSettingSameBits_OnlyOneSucceedsPerBit() throws InterruptedException {
+        AtomicBitSet bits = new AtomicBitSet(1_024);
+        AtomicInteger successes = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 1_024; i++) {
+                    if (bits.set(i)) {
+                        successes.incrementAndGet();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(1_024, successes.get());
+        assertEquals(1_024, bits.cardinality());
+    }
+}
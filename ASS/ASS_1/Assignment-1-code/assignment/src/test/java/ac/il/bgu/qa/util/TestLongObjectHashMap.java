@@ -0,0 +1,58 @@
+package ac.il.bgu.qa.util;
+
+import org.junit.jupiter.api.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestLongObjectHashMap {
+
+    @Test
+    public void GivenEmptyMap_WhenPuttingAndRemoving_BehaveLikeMap() {
+        LongObjectHashMap<String> map = new LongObjectHashMap<>();
+
+        assertNull(map.put(0L, "zero"));
+        assertNull(map.put(-5L, "negative"));
+        assertEquals("zero", map.put(0L, "ZERO"));
+        assertEquals("ZERO", map.get(0L));
+        assertEquals("negative", map.putIfAbsent(-5L, "other"));
+        assertEquals(2, map.size());
+
+        assertEquals("negative", map.remove(-5L));
+        assertNull(map.remove(-5L));
+        assertNull(map.get(-5L));
+        assertEquals(1, map.size());
+        assertThrows(IllegalArgumentException.class, () -> map.put(1L, null));
+    }
+
+    @Test
+    public void GivenRandomOperations_WhenComparedToHashMap_KeepSameContent() {
+        LongObjectHashMap<Long> map = new LongObjectHashMap<>(4, 0.75f);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        //A small key range forces collisions, resizes and backward shifts on removal
+        for (int i = 0; i < 200_000; i++) {
+            long key = random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, (long) i), map.put(key, (long) i));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Long, Long> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+        int[] visited = new int[1];
+        map.forEach((key, value) -> {
+            assertEquals(expected.get(key), value);
+            visited[0]++;
+        });
+        assertEquals(expected.size(), visited[0]);
+    }
+}
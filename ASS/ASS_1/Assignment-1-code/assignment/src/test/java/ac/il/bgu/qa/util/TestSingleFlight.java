@@ -0,0 +1,107 @@
+package ac.il.bgu.qa.util;
+
+import org.junit.jupiter.api.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestSingleFlight {
+
+    private static final int THREADS = 8;
+
+    @Test
+    public void GivenCallInFlight_WhenSameKeyIsRequested_ShareOneCall() throws InterruptedException {
+        SingleFlight<String, Object> flight = new SingleFlight<>();
+        Object result = new Object();
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        Object[] results = new Object[THREADS];
+
+        Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            int index = t;
+            threads[t] = new Thread(() -> results[index] = flight.execute("978-3-16-148410-0", () -> {
+                calls.incrementAndGet();
+                awaitUninterruptibly(release);
+                return result;
+            }));
+            threads[t].start();
+        }
+        // Hold the call until every other thread has joined it.
+        while (flight.getSharedCount() < THREADS - 1) {
+            Thread.yield();
+        }
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(1, calls.get());
+        assertEquals(1, flight.getCallCount());
+        for (Object shared : results) {
+            assertSame(result, shared);
+        }
+    }
+
+    @Test
+    public void GivenFailingCall_WhenShared_RethrowToEveryThread() throws InterruptedException {
+        SingleFlight<String, Object> flight = new SingleFlight<>();
+        IllegalStateException failure = new IllegalStateException("Database unavailable!");
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicReference<Throwable> joined = new AtomicReference<>();
+
+        Thread leader = new Thread(() -> assertThrows(IllegalStateException.class,
+                () -> flight.execute("key", () -> {
+                    awaitUninterruptibly(release);
+                    throw failure;
+                })));
+        leader.start();
+        while (flight.getCallCount() == 0) {
+            Thread.yield();
+        }
+        Thread follower = new Thread(() -> {
+            try {
+                flight.execute("key", Object::new);
+            } catch (Throwable e) {
+                joined.set(e);
+            }
+        });
+        follower.start();
+        while (flight.getSharedCount() == 0) {
+            Thread.yield();
+        }
+        release.countDown();
+        leader.join();
+        follower.join();
+
+        assertSame(failure, joined.get());
+    }
+
+    @Test
+    public void GivenFinishedOrForgottenCall_WhenRequestedAgain_MakeNewCall() {
+        SingleFlight<String, Integer> flight = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+
+        assertEquals(1, flight.execute("key", calls::incrementAndGet));
+        assertEquals(2, flight.execute("key", calls::incrementAndGet));
+        int nested = flight.execute("key", () -> {
+            flight.forget("key");
+            return flight.execute("key", calls::incrementAndGet);
+        });
+
+        assertEquals(3, nested);
+        assertEquals(4, flight.getCallCount());
+        assertEquals(0, flight.getSharedCount());
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
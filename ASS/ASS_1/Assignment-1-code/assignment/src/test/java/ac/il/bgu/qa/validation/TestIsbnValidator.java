@@ -0,0 +1,60 @@
+package ac.il.bgu.qa.validation;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestIsbnValidator {
+
+    /**
+     * ISBN-13 Tests
+     */
+    @Test
+    public void GivenValidIsbn13_WhenValidating_ReturnTrueWithOrWithoutHyphens() {
+        assertTrue(IsbnValidator.isValidIsbn13("978-3-16-148410-0"));
+        assertTrue(IsbnValidator.isValidIsbn13("9783161484100"));
+        assertTrue(IsbnValidator.isValidIsbn13("-978--3161484100-"));
+    }
+
+    @Test
+    public void GivenInvalidIsbn13_WhenValidating_ReturnFalse() {
+        assertFalse(IsbnValidator.isValidIsbn13(null));
+        assertFalse(IsbnValidator.isValidIsbn13(""));
+        assertFalse(IsbnValidator.isValidIsbn13("978-3-16-148410-9")); //Wrong check digit
+        assertFalse(IsbnValidator.isValidIsbn13("978-3-16-148410-000")); //Too long
+        assertFalse(IsbnValidator.isValidIsbn13("978-3-16-14841")); //Too short
+        assertFalse(IsbnValidator.isValidIsbn13("97!-3-1D-14%4105"));
+        assertFalse(IsbnValidator.isValidIsbn13("A23456789011"));
+    }
+
+    @Test
+    public void GivenValidIsbn13_WhenParsing_ReturnNumericValue() {
+        assertEquals(9783161484100L, IsbnValidator.parseIsbn13("978-3-16-148410-0"));
+        assertEquals(IsbnValidator.INVALID, IsbnValidator.parseIsbn13("978-3-16-148410-9"));
+        assertEquals("9783161484100", IsbnValidator.format(9783161484100L));
+    }
+
+    /**
+     * ISBN-10 Tests
+     */
+    @Test
+    public void GivenIsbn10_WhenValidating_AcceptValidAndRejectInvalid() {
+        assertTrue(IsbnValidator.isValidIsbn10("0-306-40615-2"));
+        assertTrue(IsbnValidator.isValidIsbn10("0-8044-2957-X"));
+        assertTrue(IsbnValidator.isValidIsbn10("080442957x"));
+        assertFalse(IsbnValidator.isValidIsbn10("0-306-40615-3"));
+        assertFalse(IsbnValidator.isValidIsbn10("0-8044-X957-2"));
+        assertFalse(IsbnValidator.isValidIsbn10("978-3-16-148410-0"));
+        assertFalse(IsbnValidator.isValidIsbn10(null));
+    }
+
+    @Test
+    public void GivenIsbn10_WhenNormalizing_ReturnEquivalentIsbn13() {
+        assertEquals("9780306406157", IsbnValidator.toIsbn13String("0-306-40615-2"));
+        assertEquals("9780804429573", IsbnValidator.toIsbn13String("0-8044-2957-X"));
+        assertEquals("9783161484100", IsbnValidator.toIsbn13String("978-3-16-148410-0"));
+        assertNull(IsbnValidator.toIsbn13String("0-306-40615-3"));
+        assertTrue(IsbnValidator.isValid("0-306-40615-2"));
+        assertTrue(IsbnValidator.isValidIsbn13(IsbnValidator.toIsbn13String("0-8044-2957-X")));
+    }
+}
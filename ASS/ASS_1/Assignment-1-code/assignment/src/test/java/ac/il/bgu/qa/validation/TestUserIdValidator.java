@@ -0,0 +1,32 @@
+package ac.il.bgu.qa.validation;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestUserIdValidator {
+
+    @Test
+    public void GivenTwelveDigits_WhenValidating_ReturnTrue() {
+        assertTrue(UserIdValidator.isValid("206515744111"));
+        assertTrue(UserIdValidator.isValid("000000000000"));
+    }
+
+    @Test
+    public void GivenInvalidUserId_WhenValidating_ReturnFalse() {
+        assertFalse(UserIdValidator.isValid(null));
+        assertFalse(UserIdValidator.isValid(""));
+        assertFalse(UserIdValidator.isValid("155555"));
+        assertFalse(UserIdValidator.isValid("1552222222222222222222222255"));
+        assertFalse(UserIdValidator.isValid("55A671245621"));
+        assertFalse(UserIdValidator.isValid("20651574411\u0661")); //Arabic-Indic digit is not accepted
+    }
+
+    @Test
+    public void GivenValidUserId_WhenParsingAndFormatting_RoundTripThroughLong() {
+        assertEquals(206515744111L, UserIdValidator.parse("206515744111"));
+        assertEquals(UserIdValidator.INVALID, UserIdValidator.parse("55A671245621"));
+        assertEquals("206515744111", UserIdValidator.format(206515744111L));
+        assertEquals("000000000042", UserIdValidator.format(UserIdValidator.parse("000000000042")));
+    }
+}